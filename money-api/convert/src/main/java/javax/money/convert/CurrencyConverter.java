@@ -31,6 +31,8 @@
  */
 package javax.money.convert;
 
+import java.util.List;
+
 import javax.money.CurrencyUnit;
 import javax.money.MonetaryAmount;
 
@@ -125,4 +127,91 @@ public interface CurrencyConverter {
 	public MonetaryAmount convert(Number amount, CurrencyUnit source,
 			CurrencyUnit target, Long timestamp);
 
+	/**
+	 * Method that converts all given {@link MonetaryAmount} instances to
+	 * {@link MonetaryAmount} instances with the given target
+	 * {@link CurrencyUnit}. The amounts may have different source currencies,
+	 * the exchange rate for each source currency is evaluated only once.<br/>
+	 * By default this method should use a real time conversion, but may also
+	 * fall back to deferred data.
+	 * 
+	 * @param amounts
+	 *            The source amounts
+	 * @param target
+	 *            The target currency
+	 * @return The converted amounts, in the same order as the source amounts,
+	 *         never null.
+	 * @throws CurrencyConversionException
+	 *             if conversion failed, or the required data is not available
+	 *             for any of the amounts.
+	 */
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target);
+
+	/**
+	 * Method that converts all given {@link MonetaryAmount} instances to
+	 * {@link MonetaryAmount} instances with the given target
+	 * {@link CurrencyUnit}. The amounts may have different source currencies,
+	 * the exchange rate for each source currency is evaluated only once.
+	 * 
+	 * @param amounts
+	 *            The source amounts
+	 * @param target
+	 *            The target currency
+	 * @param timestamp
+	 *            the target timestamp for which the exchange rates are
+	 *            queried, or {@code null}.
+	 * @return The converted amounts, in the same order as the source amounts,
+	 *         never null.
+	 * @throws CurrencyConversionException
+	 *             if conversion failed, or the required data is not available
+	 *             for any of the amounts.
+	 */
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target, Long timestamp);
+
+	/**
+	 * Method that converts all given {@link MonetaryAmount} instances to
+	 * {@link MonetaryAmount} instances with the given target
+	 * {@link CurrencyUnit}. The amounts may have different source currencies,
+	 * the exchange rate for each source currency is evaluated only once.<br/>
+	 * By default this method should use a real time conversion, but may also
+	 * fall back to deferred data.
+	 * 
+	 * @param amounts
+	 *            The source amounts
+	 * @param target
+	 *            The target currency
+	 * @return The converted amounts, in the iteration order of the source
+	 *         amounts, never null.
+	 * @throws CurrencyConversionException
+	 *             if conversion failed, or the required data is not available
+	 *             for any of the amounts.
+	 */
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target);
+
+	/**
+	 * Method that converts all given {@link MonetaryAmount} instances to
+	 * {@link MonetaryAmount} instances with the given target
+	 * {@link CurrencyUnit}. The amounts may have different source currencies,
+	 * the exchange rate for each source currency is evaluated only once.
+	 * 
+	 * @param amounts
+	 *            The source amounts
+	 * @param target
+	 *            The target currency
+	 * @param timestamp
+	 *            the target timestamp for which the exchange rates are
+	 *            queried, or {@code null}.
+	 * @return The converted amounts, in the iteration order of the source
+	 *         amounts, never null.
+	 * @throws CurrencyConversionException
+	 *             if conversion failed, or the required data is not available
+	 *             for any of the amounts.
+	 */
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target,
+			Long timestamp);
+
 }
@@ -45,6 +45,9 @@ import javax.money.format.common.StyledFormatter;
  * Instances of {@code AmountFormatter} can be created by
  * {@code AmountFormatterBuilder} or by accessing instances from the the
  * {@link MoneyFormat} singleton.
+ * <p>
+ * Besides single amounts, whole batches of amounts can be formatted into one
+ * target, e.g. a column of a report.
  * 
  * TODO see Formatter, maybe rename to *Printer like suggested by Joda sandbox
  */
@@ -86,4 +89,73 @@ public interface AmountFormatter extends StyledFormatter<MonetaryAmount> {
 	public void printNumber(Appendable appendable, MonetaryAmount amount)
 			throws IOException;
 
+	/**
+	 * Formats all given amounts into an {@code Appendable}, each amount is
+	 * printed as by {@link #print(Appendable, Object)}. The separator is
+	 * appended between two subsequent amounts, but not after the last one.
+	 * 
+	 * @param appendable
+	 *            the appendable to print to, not null
+	 * @param amounts
+	 *            the amounts to print, not null, and not containing null
+	 *            elements
+	 * @param separator
+	 *            the separator printed between the amounts, not null
+	 * @throws IOException
+	 *             if an IO error occurs
+	 * @throws UnsupportedOperationException
+	 *             if the formatter is unable to print
+	 * @throws FormatException
+	 *             if there is a problem while printing
+	 */
+	public void print(Appendable appendable, MonetaryAmount[] amounts,
+			CharSequence separator) throws IOException;
+
+	/**
+	 * Formats all amounts returned by the given {@link Iterable} into an
+	 * {@code Appendable}, each amount is printed as by
+	 * {@link #print(Appendable, Object)}. The separator is appended between
+	 * two subsequent amounts, but not after the last one. The amounts are
+	 * iterated only once, so also lazily evaluated sequences of amounts can be
+	 * printed.
+	 * 
+	 * @param appendable
+	 *            the appendable to print to, not null
+	 * @param amounts
+	 *            the amounts to print, not null, and not returning null
+	 *            elements
+	 * @param separator
+	 *            the separator printed between the amounts, not null
+	 * @throws IOException
+	 *             if an IO error occurs
+	 * @throws UnsupportedOperationException
+	 *             if the formatter is unable to print
+	 * @throws FormatException
+	 *             if there is a problem while printing
+	 */
+	public void print(Appendable appendable,
+			Iterable<? extends MonetaryAmount> amounts, CharSequence separator)
+			throws IOException;
+
+	/**
+	 * Formats all given amounts into an array of {@code String}, the element
+	 * at index {@code i} of the result is the amount at index {@code i},
+	 * formatted as by {@link #format(Object)}.
+	 * 
+	 * @param amounts
+	 *            the amounts to format, not null, and not containing null
+	 *            elements
+	 * @param result
+	 *            the array to be filled, with a length at least the number of
+	 *            amounts, or null, to create a new array
+	 * @return the array filled, never null
+	 * @throws IllegalArgumentException
+	 *             if the array passed is too small
+	 * @throws UnsupportedOperationException
+	 *             if the formatter is unable to print
+	 * @throws FormatException
+	 *             if there is a problem while printing
+	 */
+	public String[] format(MonetaryAmount[] amounts, String[] result);
+
 }
@@ -83,7 +83,16 @@ public class LocalizationStyle implements Serializable {
 	 * Flag to make a localization style read only, so it can be used (and
 	 * cached) similar to a immutable object.
 	 */
-	private boolean readOnly = false;
+	private volatile boolean readOnly = false;
+	/*
+	 * The following fields are evaluated, when the style is made read-only.
+	 * The locales are null, if they fall back to the default locale.
+	 */
+	private Locale frozenTranslationLocale;
+	private Locale frozenNumberLocale;
+	private Locale frozenDateLocale;
+	private Locale frozenTimeLocale;
+	private int frozenHashCode;
 
 	/**
 	 * Creates a new instance of a style. This method will use the Locale
@@ -175,11 +184,47 @@ public class LocalizationStyle implements Serializable {
 	 * {@link #setDateLocale(Locale)}, {@link #setNumberLocale(Locale)},
 	 * {@link #setTimeLocale(Locale)}or {@link #removeAttribute(String)} will
 	 * throw an {@link IllegalStateException}.
+	 * <p>
+	 * The attributes are frozen, the locales and the hash code are evaluated
+	 * once, so read-only styles can be accessed without locking and are cheap
+	 * to use as keys for caching.
 	 */
 	public void setImmutable() {
+		if (this.readOnly) {
+			return;
+		}
+		Map<String, Object> frozen;
+		synchronized (attributes) {
+			frozen = new HashMap<String, Object>(attributes);
+		}
+		this.attributes = Collections.unmodifiableMap(frozen);
+		this.frozenTranslationLocale = (Locale) frozen.get(TRANSLATION_LOCALE);
+		this.frozenNumberLocale = getLocale(frozen, NUMBER_LOCALE,
+				frozenTranslationLocale);
+		this.frozenDateLocale = getLocale(frozen, DATE_LOCALE,
+				frozenTranslationLocale);
+		this.frozenTimeLocale = getLocale(frozen, TIME_LOCALE,
+				frozenDateLocale);
+		this.frozenHashCode = 31 + frozen.hashCode();
 		this.readOnly = true;
 	}
 
+	private static Locale getLocale(Map<String, Object> attributes,
+			String key, Locale fallback) {
+		Locale locale = (Locale) attributes.get(key);
+		if (locale != null) {
+			return locale;
+		}
+		return fallback;
+	}
+
+	private static Locale orDefault(Locale locale) {
+		if (locale != null) {
+			return locale;
+		}
+		return Locale.getDefault();
+	}
+
 	/**
 	 * Method used to simply create a {@link IllegalStateException}, if this
 	 * instance is read-only. This prevents duplicating the corresponding code.
@@ -208,6 +253,9 @@ public class LocalizationStyle implements Serializable {
 	 * @return the translation (default) locale
 	 */
 	public final Locale getTranslationLocale() {
+		if (readOnly) {
+			return orDefault(frozenTranslationLocale);
+		}
 		Locale locale = (Locale) getAttribute(TRANSLATION_LOCALE);
 		if (locale != null) {
 			return locale;
@@ -221,6 +269,9 @@ public class LocalizationStyle implements Serializable {
 	 * @return the number locale
 	 */
 	public final Locale getNumberLocale() {
+		if (readOnly) {
+			return orDefault(frozenNumberLocale);
+		}
 		Locale locale = (Locale) getAttribute(NUMBER_LOCALE);
 		if (locale != null) {
 			return locale;
@@ -234,6 +285,9 @@ public class LocalizationStyle implements Serializable {
 	 * @return the date locale
 	 */
 	public final Locale getDateLocale() {
+		if (readOnly) {
+			return orDefault(frozenDateLocale);
+		}
 		Locale locale = (Locale) getAttribute(DATE_LOCALE);
 		if (locale != null) {
 			return locale;
@@ -295,6 +349,9 @@ public class LocalizationStyle implements Serializable {
 	 * @return the time locale
 	 */
 	public final Locale getTimeLocale() {
+		if (readOnly) {
+			return orDefault(frozenTimeLocale);
+		}
 		Locale locale = (Locale) getAttribute(TIME_LOCALE);
 		if (locale != null) {
 			return locale;
@@ -308,6 +365,9 @@ public class LocalizationStyle implements Serializable {
 	 * @return the properties defined
 	 */
 	public final Map<String, Object> getAttributes() {
+		if (readOnly) {
+			return new HashMap<String, Object>(attributes);
+		}
 		synchronized (attributes) {
 			return new HashMap<String, Object>(attributes);
 		}
@@ -342,6 +402,9 @@ public class LocalizationStyle implements Serializable {
 	 * @return the current property value, or null.
 	 */
 	public Object getAttribute(String key) {
+		if (readOnly) {
+			return attributes.get(key);
+		}
 		synchronized (attributes) {
 			return attributes.get(key);
 		}
@@ -373,6 +436,9 @@ public class LocalizationStyle implements Serializable {
 	 */
 	@Override
 	public int hashCode() {
+		if (readOnly) {
+			return frozenHashCode;
+		}
 		final int prime = 31;
 		int result = 1;
 		synchronized (attributes) {
@@ -396,6 +462,10 @@ public class LocalizationStyle implements Serializable {
 		if (getClass() != obj.getClass())
 			return false;
 		LocalizationStyle other = (LocalizationStyle) obj;
+		if (readOnly && other.readOnly) {
+			return frozenHashCode == other.frozenHashCode
+					&& attributes.equals(other.attributes);
+		}
 		synchronized (attributes) {
 			if (attributes == null) {
 				if (other.attributes != null)
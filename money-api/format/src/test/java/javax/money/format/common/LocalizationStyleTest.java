@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012-2013, Credit Suisse
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of JSR-354 nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package javax.money.format.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+public class LocalizationStyleTest {
+
+	@Test
+	public void testSetImmutable() {
+		LocalizationStyle style = new LocalizationStyle("test",
+				Locale.GERMANY, Locale.FRANCE);
+		style.setAttribute("enforceGrouping", "true");
+		LocalizationStyle copy = new LocalizationStyle(style);
+		int hashCode = style.hashCode();
+		style.setImmutable();
+		assertTrue(style.isReadOnly());
+		assertEquals(hashCode, style.hashCode());
+		assertEquals(copy, style);
+		assertEquals(style, copy);
+		assertEquals(Locale.GERMANY, style.getTranslationLocale());
+		assertEquals(Locale.FRANCE, style.getNumberLocale());
+		assertEquals(Locale.GERMANY, style.getDateLocale());
+		assertEquals(Locale.GERMANY, style.getTimeLocale());
+		assertEquals("true", style.getAttribute("enforceGrouping"));
+		assertNull(style.getAttribute("foo"));
+		style.getAttributes().put("foo", "bar");
+		assertNull(style.getAttribute("foo"));
+		copy.setAttribute("foo", "bar");
+		assertFalse(style.equals(copy));
+	}
+
+	@Test
+	public void testImmutableEquals() {
+		LocalizationStyle style1 = LocalizationStyle.of(Locale.ENGLISH);
+		LocalizationStyle style2 = LocalizationStyle.of(Locale.ENGLISH);
+		style1.setImmutable();
+		style2.setImmutable();
+		assertEquals(style1, style2);
+		assertEquals(style1.hashCode(), style2.hashCode());
+		LocalizationStyle style3 = LocalizationStyle.of(Locale.GERMAN);
+		style3.setImmutable();
+		assertFalse(style1.equals(style3));
+	}
+
+	@Test
+	public void testDefaultLocale() {
+		LocalizationStyle style = new LocalizationStyle("test", null, null);
+		style.setImmutable();
+		assertEquals(Locale.getDefault(), style.getTranslationLocale());
+		assertEquals(Locale.getDefault(), style.getNumberLocale());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testImmutableSetAttribute() {
+		LocalizationStyle style = LocalizationStyle.of(Locale.ENGLISH);
+		style.setImmutable();
+		style.setNumberLocale(Locale.GERMAN);
+	}
+
+}
@@ -31,6 +31,8 @@
  */
 package javax.money.provider.impl;
 
+import java.util.List;
+
 import javax.money.CurrencyUnit;
 import javax.money.MonetaryAmount;
 import javax.money.convert.CurrencyConverter;
@@ -75,4 +77,31 @@ public class TestCurrencyConverter implements CurrencyConverter {
 		return null;
 	}
 
+	@Override
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target) {
+		return convert(amounts, target, null);
+	}
+
+	@Override
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target, Long timestamp) {
+		// empty implementation
+		return null;
+	}
+
+	@Override
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target) {
+		return convert(amounts, target, null);
+	}
+
+	@Override
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target,
+			Long timestamp) {
+		// empty implementation
+		return null;
+	}
+
 }
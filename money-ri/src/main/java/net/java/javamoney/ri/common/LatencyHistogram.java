@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies, with buckets growing by powers of two.
+ * Bucket {@code i} counts the latencies {@code l} in nanoseconds with
+ * {@code 2^(i-1) <= l < 2^i}, so percentiles are approximated within a factor
+ * of two, which is sufficient to compare and rank data sources.
+ * 
+ * @author Anatole Tresch
+ */
+public final class LatencyHistogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Records a latency.
+	 * 
+	 * @param nanos
+	 *            the latency in nanoseconds, negative values are recorded as
+	 *            {@code 0}.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * Access the number of latencies recorded.
+	 * 
+	 * @return the number of samples.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Evaluates an approximated percentile.
+	 * 
+	 * @param percentile
+	 *            the percentile, in the range {@code (0, 1]}, e.g.
+	 *            {@code 0.99}.
+	 * @return the upper bound of the bucket containing the percentile in
+	 *         nanoseconds, or {@code -1}, if no latency was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (!(percentile > 0 && percentile <= 1)) {
+			throw new IllegalArgumentException(
+					"percentile must be in (0, 1].");
+		}
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return -1L;
+		}
+		long rank = (long) Math.ceil(percentile * count);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return getUpperBound(i);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	private static long getUpperBound(int bucket) {
+		if (bucket >= BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		return (1L << bucket) - 1;
+	}
+
+	/**
+	 * Resets all counts.
+	 */
+	public void clear() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0L);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		long p50 = getPercentile(0.5);
+		long p99 = getPercentile(0.99);
+		return "LatencyHistogram [count=" + getCount() + ", p50="
+				+ toMicros(p50) + "us, p99=" + toMicros(p99) + "us]";
+	}
+
+	private static long toMicros(long nanos) {
+		if (nanos < 0) {
+			return nanos;
+		}
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+}
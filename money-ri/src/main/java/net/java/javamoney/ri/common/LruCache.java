@@ -0,0 +1,260 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small, thread-safe and size bounded cache that evicts the least recently
+ * used entries first. The cache is split into several independently locked
+ * segments, so concurrent readers of different keys do not contend on a
+ * single monitor. Hit, miss and eviction counts are tracked.
+ *
+ * @author Anatole Tresch
+ *
+ * @param <K>
+ *            the key type.
+ * @param <V>
+ *            the value type.
+ */
+public final class LruCache<K, V> {
+	/** Default number of segments. */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/** The segments, each guarded by its own monitor. */
+	private final Segment<K, V>[] segments;
+	/** Mask used for segment selection. */
+	private final int segmentMask;
+	/** The maximal number of entries. */
+	private final int maximumSize;
+	/** Number of successful lookups. */
+	private final AtomicLong hitCount = new AtomicLong();
+	/** Number of lookups that did not find an entry. */
+	private final AtomicLong missCount = new AtomicLong();
+	/** Number of entries evicted because of the size bound. */
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Creates a new cache instance.
+	 *
+	 * @param maximumSize
+	 *            the maximal number of entries, greater than zero.
+	 */
+	public LruCache(int maximumSize) {
+		this(maximumSize, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Creates a new cache instance.
+	 *
+	 * @param maximumSize
+	 *            the maximal number of entries, greater than zero.
+	 * @param concurrencyLevel
+	 *            the estimated number of concurrently accessing threads.
+	 */
+	@SuppressWarnings("unchecked")
+	public LruCache(int maximumSize, int concurrencyLevel) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be > 0.");
+		}
+		if (concurrencyLevel <= 0) {
+			throw new IllegalArgumentException(
+					"concurrencyLevel must be > 0.");
+		}
+		int segmentCount = 1;
+		while (segmentCount < concurrencyLevel
+				&& segmentCount * 2 <= maximumSize) {
+			segmentCount <<= 1;
+		}
+		this.maximumSize = maximumSize;
+		this.segmentMask = segmentCount - 1;
+		this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+		int segmentCapacity = (maximumSize + segmentCount - 1) / segmentCount;
+		for (int i = 0; i < segmentCount; i++) {
+			this.segments[i] = new Segment<K, V>(segmentCapacity,
+					evictionCount);
+		}
+	}
+
+	/**
+	 * Access a cached value.
+	 *
+	 * @param key
+	 *            the key, not {@code null}.
+	 * @return the value cached, or {@code null}.
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value == null) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Adds a value to the cache, possibly evicting the least recently used
+	 * entry.
+	 *
+	 * @param key
+	 *            the key, not {@code null}.
+	 * @param value
+	 *            the value, not {@code null}.
+	 * @return the value previously cached, or {@code null}.
+	 */
+	public V put(K key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("value may not be null.");
+		}
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.put(key, value);
+		}
+	}
+
+	/**
+	 * Removes a value from the cache.
+	 *
+	 * @param key
+	 *            the key, not {@code null}.
+	 * @return the value removed, or {@code null}.
+	 */
+	public V remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.remove(key);
+		}
+	}
+
+	/**
+	 * Removes all entries. The statistics are not reset.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Access the current number of entries.
+	 *
+	 * @return the number of entries cached.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Access the maximal number of entries.
+	 *
+	 * @return the size bound of this cache.
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Access the number of lookups that returned a value.
+	 *
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Access the number of lookups that did not return a value.
+	 *
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Access the number of entries evicted because of the size bound.
+	 *
+	 * @return the eviction count.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		if (key == null) {
+			throw new IllegalArgumentException("key may not be null.");
+		}
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & segmentMask];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "LruCache [size=" + size() + ", maximumSize=" + maximumSize
+				+ ", hits=" + hitCount + ", misses=" + missCount
+				+ ", evictions=" + evictionCount + "]";
+	}
+
+	/**
+	 * Access ordered map implementing the LRU policy of one segment.
+	 */
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+		private final AtomicLong evictionCount;
+
+		Segment(int capacity, AtomicLong evictionCount) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictionCount = evictionCount;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if (size() > capacity) {
+				evictionCount.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
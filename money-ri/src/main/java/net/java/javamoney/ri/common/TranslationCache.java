@@ -0,0 +1,221 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.common;
+
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe cache for {@link ResourceBundle} lookups, keyed by bundle base
+ * name, {@link Locale} and key. Lookups that did not find a bundle or key are
+ * cached as well, so repeated misses neither resolve the bundle again nor
+ * create a {@link MissingResourceException}. Entries are kept until
+ * {@link #clear()} or {@link #clear(String)} is called; when the maximal size
+ * is reached, the cache is cleared.
+ * 
+ * @author Anatole Tresch
+ */
+public final class TranslationCache {
+
+	/** Default maximal number of entries. */
+	public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+	/** The shared instance. */
+	private static final TranslationCache DEFAULT = new TranslationCache(
+			DEFAULT_MAXIMUM_SIZE);
+	/** Marker cached for lookups without result. */
+	private static final String MISSING = new String("<missing>");
+
+	private final ConcurrentMap<TranslationKey, String> cache = new ConcurrentHashMap<TranslationKey, String>();
+	private final int maximumSize;
+	/** Number of lookups served from the cache. */
+	private final AtomicLong hitCount = new AtomicLong();
+	/** Number of lookups passed to the {@link ResourceBundle}. */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Creates a new cache instance.
+	 * 
+	 * @param maximumSize
+	 *            the maximal number of entries, greater than zero.
+	 */
+	public TranslationCache(int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be > 0.");
+		}
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Access the instance shared by the reference implementation.
+	 * 
+	 * @return the shared instance, never {@code null}.
+	 */
+	public static TranslationCache getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Access a translated {@link String}.
+	 * 
+	 * @param bundle
+	 *            the base name of the bundle, not {@code null}.
+	 * @param locale
+	 *            the target locale, not {@code null}.
+	 * @param key
+	 *            the key, not {@code null}.
+	 * @return the translation, or {@code null}, if the bundle or key could not
+	 *         be found.
+	 */
+	public String getString(String bundle, Locale locale, String key) {
+		if (bundle == null) {
+			throw new IllegalArgumentException("bundle may not be null.");
+		}
+		if (locale == null) {
+			throw new IllegalArgumentException("locale may not be null.");
+		}
+		if (key == null) {
+			throw new IllegalArgumentException("key may not be null.");
+		}
+		TranslationKey cacheKey = new TranslationKey(bundle, locale, key);
+		String value = this.cache.get(cacheKey);
+		if (value != null) {
+			hitCount.incrementAndGet();
+			return value == MISSING ? null : value;
+		}
+		missCount.incrementAndGet();
+		value = load(bundle, locale, key);
+		if (this.cache.size() >= maximumSize) {
+			this.cache.clear();
+		}
+		this.cache.put(cacheKey, value == null ? MISSING : value);
+		return value;
+	}
+
+	private static String load(String bundle, Locale locale, String key) {
+		try {
+			return ResourceBundle.getBundle(bundle, locale).getString(key);
+		} catch (MissingResourceException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Removes all entries, e.g. after bundles have been changed.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Removes all entries of the given bundle.
+	 * 
+	 * @param bundle
+	 *            the base name of the bundle, not {@code null}.
+	 */
+	public void clear(String bundle) {
+		if (bundle == null) {
+			throw new IllegalArgumentException("bundle may not be null.");
+		}
+		for (TranslationKey key : this.cache.keySet()) {
+			if (key.bundle.equals(bundle)) {
+				this.cache.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Access the current number of entries.
+	 * 
+	 * @return the number of entries cached.
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Access the number of lookups served from the cache.
+	 * 
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Access the number of lookups passed to the {@link ResourceBundle}.
+	 * 
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "TranslationCache [size=" + size() + ", maximumSize="
+				+ maximumSize + ", hits=" + hitCount + ", misses="
+				+ missCount + "]";
+	}
+
+	/**
+	 * Key of a cached translation.
+	 */
+	private static final class TranslationKey {
+		private final String bundle;
+		private final Locale locale;
+		private final String key;
+		private final int hashCode;
+
+		TranslationKey(String bundle, Locale locale, String key) {
+			this.bundle = bundle;
+			this.locale = locale;
+			this.key = key;
+			int result = 31 + bundle.hashCode();
+			result = 31 * result + locale.hashCode();
+			this.hashCode = 31 * result + key.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof TranslationKey))
+				return false;
+			TranslationKey other = (TranslationKey) obj;
+			return hashCode == other.hashCode && key.equals(other.key)
+					&& bundle.equals(other.bundle)
+					&& locale.equals(other.locale);
+		}
+	}
+
+}
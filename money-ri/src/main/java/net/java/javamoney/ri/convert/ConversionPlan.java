@@ -0,0 +1,283 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.math.BigDecimal;
+
+import javax.money.CurrencyMismatchException;
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+import javax.money.convert.CurrencyConversionException;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.provider.Monetary;
+import javax.money.provider.MonetaryAmountProvider;
+import javax.money.provider.Rounding;
+
+/**
+ * Reusable conversion of amounts from a fixed source to a fixed target
+ * currency, using the current rates of an {@link ExchangeRateProvider}. The
+ * {@link ExchangeRate} and the {@link MonetaryAmountProvider} are resolved
+ * once, so converting an amount only requires a multiplication and the
+ * creation of the result. Optionally the results are adjusted by a
+ * {@link Rounding}, e.g. to the fraction digits of the target currency.
+ * <p>
+ * The resolved state is refreshed, when the provider is
+ * {@link SnapshotVersioned} and publishes a new snapshot, or when the rate
+ * used is not valid anymore. Instances of this class are thread-safe.
+ * 
+ * @author Anatole Tresch
+ */
+public final class ConversionPlan {
+
+	private final ExchangeRateProvider provider;
+	private final SnapshotVersioned versioned;
+	private final CurrencyUnit source;
+	private final CurrencyUnit target;
+	private final MonetaryAmountProvider amountFactory;
+	private final Rounding rounding;
+	private volatile State state;
+
+	/**
+	 * Creates a new plan, using the default {@link MonetaryAmountProvider}.
+	 * 
+	 * @param provider
+	 *            the rate provider, not {@code null}.
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @throws CurrencyConversionException
+	 *             if no rate is available.
+	 */
+	public ConversionPlan(ExchangeRateProvider provider, CurrencyUnit source,
+			CurrencyUnit target) {
+		this(provider, source, target, Monetary.getMonetaryAmountProvider());
+	}
+
+	/**
+	 * Creates a new plan.
+	 * 
+	 * @param provider
+	 *            the rate provider, not {@code null}.
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @param amountFactory
+	 *            the factory used for creating the converted amounts, not
+	 *            {@code null}.
+	 * @throws CurrencyConversionException
+	 *             if no rate is available.
+	 */
+	public ConversionPlan(ExchangeRateProvider provider, CurrencyUnit source,
+			CurrencyUnit target, MonetaryAmountProvider amountFactory) {
+		this(provider, source, target, amountFactory, null);
+	}
+
+	/**
+	 * Creates a new plan.
+	 * 
+	 * @param provider
+	 *            the rate provider, not {@code null}.
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @param amountFactory
+	 *            the factory used for creating the converted amounts, not
+	 *            {@code null}.
+	 * @param rounding
+	 *            the rounding applied to the converted amounts, or
+	 *            {@code null}, to keep the full precision.
+	 * @throws CurrencyConversionException
+	 *             if no rate is available.
+	 */
+	public ConversionPlan(ExchangeRateProvider provider, CurrencyUnit source,
+			CurrencyUnit target, MonetaryAmountProvider amountFactory,
+			Rounding rounding) {
+		if (provider == null) {
+			throw new IllegalArgumentException("provider may not be null.");
+		}
+		if (source == null) {
+			throw new IllegalArgumentException("source may not be null.");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("target may not be null.");
+		}
+		if (amountFactory == null) {
+			throw new IllegalArgumentException(
+					"amountFactory may not be null.");
+		}
+		this.provider = provider;
+		if (provider instanceof SnapshotVersioned) {
+			this.versioned = (SnapshotVersioned) provider;
+		} else {
+			this.versioned = null;
+		}
+		this.source = source;
+		this.target = target;
+		this.amountFactory = amountFactory;
+		this.rounding = rounding;
+		this.state = resolve();
+	}
+
+	/**
+	 * Access the source currency.
+	 * 
+	 * @return the source currency, never {@code null}.
+	 */
+	public CurrencyUnit getSource() {
+		return source;
+	}
+
+	/**
+	 * Access the target currency.
+	 * 
+	 * @return the target currency, never {@code null}.
+	 */
+	public CurrencyUnit getTarget() {
+		return target;
+	}
+
+	/**
+	 * Access the rounding applied to the converted amounts.
+	 * 
+	 * @return the rounding, or {@code null}.
+	 */
+	public Rounding getRounding() {
+		return rounding;
+	}
+
+	/**
+	 * Access the rate currently used.
+	 * 
+	 * @return the current rate, never {@code null}.
+	 * @throws CurrencyConversionException
+	 *             if the rate had to be refreshed and no rate is available.
+	 */
+	public ExchangeRate getExchangeRate() {
+		return currentState().rate;
+	}
+
+	/**
+	 * Converts the given amount into the target currency.
+	 * 
+	 * @param amount
+	 *            the amount, in the source currency of this plan.
+	 * @return the converted amount, never {@code null}.
+	 * @throws CurrencyMismatchException
+	 *             if the amount is not in the source currency.
+	 * @throws CurrencyConversionException
+	 *             if the rate had to be refreshed and no rate is available.
+	 */
+	public MonetaryAmount convert(MonetaryAmount amount) {
+		CurrencyUnit currency = amount.getCurrency();
+		if (currency != source
+				&& (!source.getCurrencyCode()
+						.equals(currency.getCurrencyCode()) || !source
+						.getNamespace().equals(currency.getNamespace()))) {
+			throw new CurrencyMismatchException(source, currency);
+		}
+		return round(amountFactory.get(target, amount.asType(BigDecimal.class)
+				.multiply(currentState().factor)));
+	}
+
+	/**
+	 * Converts the given number, interpreted as amount in the source currency,
+	 * into the target currency.
+	 * 
+	 * @param amount
+	 *            the amount's number, not {@code null}.
+	 * @return the converted amount, never {@code null}.
+	 * @throws CurrencyConversionException
+	 *             if the rate had to be refreshed and no rate is available.
+	 */
+	public MonetaryAmount convert(Number amount) {
+		if (amount == null) {
+			throw new IllegalArgumentException("amount may not be null.");
+		}
+		return round(amountFactory.get(target, ExchangeRateMath
+				.toBigDecimal(amount).multiply(currentState().factor)));
+	}
+
+	private MonetaryAmount round(MonetaryAmount amount) {
+		if (rounding == null) {
+			return amount;
+		}
+		return amount.with(rounding);
+	}
+
+	private State currentState() {
+		State current = this.state;
+		if ((versioned != null && versioned.getSnapshotVersion() != current.version)
+				|| (current.expiresAt != Long.MAX_VALUE && current.expiresAt <= System
+						.currentTimeMillis())) {
+			current = resolve();
+			this.state = current;
+		}
+		return current;
+	}
+
+	private State resolve() {
+		long version = 0L;
+		if (versioned != null) {
+			version = versioned.getSnapshotVersion();
+		}
+		ExchangeRate rate = provider.get(source, target);
+		if (rate == null) {
+			throw new CurrencyConversionException(source, target);
+		}
+		return new State(rate, version);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ConversionPlan [source=" + source + ", target=" + target
+				+ ", rate=" + state.rate + ", version=" + state.version + "]";
+	}
+
+	/**
+	 * Immutable resolved state of a plan.
+	 */
+	private static final class State {
+		private final ExchangeRate rate;
+		private final BigDecimal factor;
+		private final long version;
+		private final long expiresAt;
+
+		State(ExchangeRate rate, long version) {
+			this.rate = rate;
+			this.factor = ExchangeRateMath.toBigDecimal(rate.getFactor());
+			this.version = version;
+			Long validUntil = rate.getValidUntil();
+			if (validUntil == null) {
+				this.expiresAt = Long.MAX_VALUE;
+			} else {
+				this.expiresAt = validUntil.longValue();
+			}
+		}
+	}
+
+}
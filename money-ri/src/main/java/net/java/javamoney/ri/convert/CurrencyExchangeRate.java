@@ -46,6 +46,8 @@ public final class CurrencyExchangeRate extends AbstractAttributableItem
 	private String location;
 	private String dataProvider;
 	private ExchangeRate[] chain = new ExchangeRate[] { this };
+	/** The reciprocal factor, evaluated lazily. */
+	private volatile BigDecimal reciprocal;
 
 	public CurrencyExchangeRate(ExchangeRateType conversionType,
 			CurrencyUnit source, CurrencyUnit target, Number factor) {
@@ -133,7 +135,7 @@ public final class CurrencyExchangeRate extends AbstractAttributableItem
 	@Override
 	public boolean isValid() {
 		return validUntil == null
-				|| validUntil.longValue() <= System.currentTimeMillis();
+				|| validUntil.longValue() > System.currentTimeMillis();
 	}
 
 	@Override
@@ -179,14 +181,32 @@ public final class CurrencyExchangeRate extends AbstractAttributableItem
 		return getFactor().doubleValue() == 1.0d;
 	}
 
+	/**
+	 * Access the reciprocal of this rate's factor. The value is evaluated
+	 * only once.
+	 * 
+	 * @return {@code 1 / factor}, rounded to
+	 *         {@link ExchangeRateMath#MATH_CONTEXT}.
+	 */
+	public BigDecimal getReciprocalFactor() {
+		BigDecimal result = this.reciprocal;
+		if (result == null) {
+			result = ExchangeRateMath.reciprocal(factor);
+			this.reciprocal = result;
+		}
+		return result;
+	}
+
 	@Override
 	public ExchangeRate reverse() {
-		if (factor instanceof BigDecimal) {
-			return new CurrencyExchangeRate(this.exchangeRateType, source,
-					target, BigDecimal.ONE.divide((BigDecimal) factor));
-		}
-		return new CurrencyExchangeRate(this.exchangeRateType, target, source,
-				1.0d / factor.doubleValue());
+		CurrencyExchangeRate reversed = new CurrencyExchangeRate(
+				this.exchangeRateType, target, source, getReciprocalFactor(),
+				timestamp, validUntil);
+		reversed.reciprocal = ExchangeRateMath.toBigDecimal(factor);
+		reversed.setDataProvider(dataProvider);
+		reversed.setLocation(location);
+		reversed.setReadOnly();
+		return reversed;
 	}
 
 	@Override
@@ -340,7 +360,7 @@ public final class CurrencyExchangeRate extends AbstractAttributableItem
 
 		@Override
 		public ExchangeRateBuilder setTargetLeadingFactor(Number factor) {
-			this.factor = 1.0d / factor.doubleValue();
+			this.factor = ExchangeRateMath.reciprocal(factor);
 			return this;
 		}
 
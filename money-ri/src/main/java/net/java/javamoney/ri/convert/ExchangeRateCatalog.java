@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.util.Collection;
+
+import javax.money.convert.ExchangeRate;
+
+/**
+ * Implemented by rate providers that can enumerate the rates they have
+ * loaded. This allows to derive rates for currency pairs not provided
+ * directly, e.g. by an {@link ExchangeRateGraph}.
+ * 
+ * @author Anatole Tresch
+ */
+public interface ExchangeRateCatalog {
+
+	/**
+	 * Access all rates loaded for the given timestamp.
+	 * 
+	 * @param timestamp
+	 *            the target timestamp, or {@code null} for the current rates.
+	 * @return the rates loaded, never {@code null}.
+	 */
+	public Collection<ExchangeRate> getExchangeRates(Long timestamp);
+
+	/**
+	 * Evaluates a key for the rates loaded for the given timestamp, e.g. the
+	 * start of the day, if rates are published daily. Two timestamps with the
+	 * same key yield the same rates in
+	 * {@link #getExchangeRates(Long)}, so data derived from the rates can be
+	 * shared, as long as the catalog is not changed.
+	 * 
+	 * @param timestamp
+	 *            the target timestamp.
+	 * @return the key, {@link Long#MIN_VALUE}, if no rates are loaded for the
+	 *         timestamp.
+	 */
+	public long getSnapshotKey(long timestamp);
+
+}
@@ -0,0 +1,313 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
+
+/**
+ * Immutable graph of {@link ExchangeRate} instances, where currencies are the
+ * nodes and rates are the edges. Each rate is also added as reversed edge, if
+ * no explicit rate for the reverse direction is available. If several rates
+ * are available for a pair, the one with the most recent timestamp is used.
+ * <p>
+ * Rates for pairs not directly connected are derived along the path with the
+ * fewest hops, among paths with equal hops the one with the freshest data is
+ * chosen. The derived rates are chained, so
+ * {@link ExchangeRate#getExchangeRateChain()} returns the rates used. Derived
+ * rates are cached, since the graph itself never changes.
+ * 
+ * @author Anatole Tresch
+ */
+public final class ExchangeRateGraph {
+
+	/** Default maximal number of hops evaluated. */
+	public static final int DEFAULT_MAX_HOPS = 4;
+	/** Marker for pairs that cannot be derived. */
+	private static final ExchangeRate[] NO_PATH = new ExchangeRate[0];
+
+	private final ExchangeRateType exchangeRateType;
+	private final int maxHops;
+	/** The edges, by source and target currency key. */
+	private final Map<String, Map<String, ExchangeRate>> edges = new HashMap<String, Map<String, ExchangeRate>>();
+	/** The paths evaluated so far, by pair key. */
+	private final Map<String, ExchangeRate[]> paths = new ConcurrentHashMap<String, ExchangeRate[]>();
+
+	/**
+	 * Creates a new graph.
+	 * 
+	 * @param exchangeRateType
+	 *            the type of the rates derived, not {@code null}.
+	 * @param rates
+	 *            the rates to be used as edges, not {@code null}.
+	 */
+	public ExchangeRateGraph(ExchangeRateType exchangeRateType,
+			Iterable<? extends ExchangeRate> rates) {
+		this(exchangeRateType, rates, DEFAULT_MAX_HOPS);
+	}
+
+	/**
+	 * Creates a new graph.
+	 * 
+	 * @param exchangeRateType
+	 *            the type of the rates derived, not {@code null}.
+	 * @param rates
+	 *            the rates to be used as edges, not {@code null}.
+	 * @param maxHops
+	 *            the maximal number of rates chained.
+	 */
+	public ExchangeRateGraph(ExchangeRateType exchangeRateType,
+			Iterable<? extends ExchangeRate> rates, int maxHops) {
+		if (exchangeRateType == null) {
+			throw new IllegalArgumentException(
+					"exchangeRateType may not be null.");
+		}
+		if (rates == null) {
+			throw new IllegalArgumentException("rates may not be null.");
+		}
+		if (maxHops < 1) {
+			throw new IllegalArgumentException("maxHops must be >= 1.");
+		}
+		this.exchangeRateType = exchangeRateType;
+		this.maxHops = maxHops;
+		List<ExchangeRate> reversed = new ArrayList<ExchangeRate>();
+		for (ExchangeRate rate : rates) {
+			addEdge(rate);
+			if (ExchangeRateMath.toBigDecimal(rate.getFactor()).signum() != 0) {
+				reversed.add(rate);
+			}
+		}
+		for (ExchangeRate rate : reversed) {
+			if (getEdge(getKey(rate.getTarget()), getKey(rate.getSource())) == null) {
+				addEdge(reverse(rate));
+			}
+		}
+	}
+
+	/**
+	 * Access the type of the rates derived.
+	 * 
+	 * @return the rate type, never {@code null}.
+	 */
+	public ExchangeRateType getExchangeRateType() {
+		return exchangeRateType;
+	}
+
+	/**
+	 * Access the number of currencies with outgoing rates.
+	 * 
+	 * @return the number of currencies.
+	 */
+	public int getCurrencyCount() {
+		return edges.size();
+	}
+
+	/**
+	 * Access the rate for the given pair, either directly or derived over
+	 * other currencies.
+	 * 
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @return the rate, or {@code null}, if the currencies are not connected.
+	 */
+	public ExchangeRate getExchangeRate(CurrencyUnit source,
+			CurrencyUnit target) {
+		String sourceKey = getKey(source);
+		String targetKey = getKey(target);
+		ExchangeRate direct = getEdge(sourceKey, targetKey);
+		if (direct != null) {
+			return direct;
+		}
+		String pairKey = sourceKey + '>' + targetKey;
+		ExchangeRate[] path = this.paths.get(pairKey);
+		if (path == null) {
+			path = findPath(sourceKey, targetKey);
+			this.paths.put(pairKey, path);
+		}
+		if (path == NO_PATH) {
+			return null;
+		}
+		return chain(source, target, path);
+	}
+
+	private void addEdge(ExchangeRate rate) {
+		String sourceKey = getKey(rate.getSource());
+		Map<String, ExchangeRate> targets = edges.get(sourceKey);
+		if (targets == null) {
+			targets = new HashMap<String, ExchangeRate>();
+			edges.put(sourceKey, targets);
+		}
+		String targetKey = getKey(rate.getTarget());
+		ExchangeRate existing = targets.get(targetKey);
+		if (existing == null
+				|| getFreshness(rate) > getFreshness(existing)) {
+			targets.put(targetKey, rate);
+		}
+	}
+
+	private ExchangeRate getEdge(String sourceKey, String targetKey) {
+		Map<String, ExchangeRate> targets = edges.get(sourceKey);
+		if (targets == null) {
+			return null;
+		}
+		return targets.get(targetKey);
+	}
+
+	/**
+	 * Breadth first search, evaluating all paths with the same number of hops
+	 * level by level, so among the shortest paths the freshest can be chosen.
+	 */
+	private ExchangeRate[] findPath(String sourceKey, String targetKey) {
+		if (!edges.containsKey(sourceKey)) {
+			return NO_PATH;
+		}
+		Map<String, PathNode> visited = new HashMap<String, PathNode>();
+		visited.put(sourceKey, new PathNode(null, null, Long.MAX_VALUE, 0));
+		List<String> level = new ArrayList<String>();
+		level.add(sourceKey);
+		for (int hops = 1; hops <= maxHops && !level.isEmpty(); hops++) {
+			List<String> next = new ArrayList<String>();
+			for (String key : level) {
+				PathNode node = visited.get(key);
+				Map<String, ExchangeRate> targets = edges.get(key);
+				if (targets == null) {
+					continue;
+				}
+				for (Map.Entry<String, ExchangeRate> en : targets.entrySet()) {
+					ExchangeRate rate = en.getValue();
+					long freshness = Math.min(node.freshness,
+							getFreshness(rate));
+					PathNode existing = visited.get(en.getKey());
+					if (existing == null) {
+						visited.put(en.getKey(), new PathNode(node, rate,
+								freshness, hops));
+						next.add(en.getKey());
+					} else if (existing.hops == hops
+							&& existing.freshness < freshness) {
+						visited.put(en.getKey(), new PathNode(node, rate,
+								freshness, hops));
+					}
+				}
+			}
+			PathNode found = visited.get(targetKey);
+			if (found != null) {
+				ExchangeRate[] path = new ExchangeRate[found.hops];
+				for (PathNode n = found; n.rate != null; n = n.previous) {
+					path[n.hops - 1] = n.rate;
+				}
+				return path;
+			}
+			level = next;
+		}
+		return NO_PATH;
+	}
+
+	private ExchangeRate chain(CurrencyUnit source, CurrencyUnit target,
+			ExchangeRate[] path) {
+		BigDecimal factor = ExchangeRateMath.chain(path);
+		Long timestamp = null;
+		Long validUntil = null;
+		for (ExchangeRate rate : path) {
+			timestamp = min(timestamp, rate.getTimestamp());
+			validUntil = min(validUntil, rate.getValidUntil());
+		}
+		CurrencyExchangeRate derived = new CurrencyExchangeRate(
+				exchangeRateType, source, target, factor, path, timestamp,
+				validUntil);
+		derived.setReadOnly();
+		return derived;
+	}
+
+	private ExchangeRate reverse(ExchangeRate rate) {
+		if (rate instanceof CurrencyExchangeRate) {
+			return rate.reverse();
+		}
+		BigDecimal factor = ExchangeRateMath.reciprocal(rate.getFactor());
+		CurrencyExchangeRate reversed = new CurrencyExchangeRate(
+				rate.getExchangeRateType(), rate.getTarget(),
+				rate.getSource(), factor, rate.getTimestamp(),
+				rate.getValidUntil());
+		reversed.setDataProvider(rate.getDataProvider());
+		reversed.setLocation(rate.getLocation());
+		reversed.setReadOnly();
+		return reversed;
+	}
+
+	private static long getFreshness(ExchangeRate rate) {
+		Long timestamp = rate.getTimestamp();
+		if (timestamp == null) {
+			return Long.MIN_VALUE;
+		}
+		return timestamp.longValue();
+	}
+
+	private static Long min(Long a, Long b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		return a.longValue() <= b.longValue() ? a : b;
+	}
+
+	private static String getKey(CurrencyUnit currency) {
+		return currency.getNamespace() + ':' + currency.getCurrencyCode();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ExchangeRateGraph [exchangeRateType=" + exchangeRateType
+				+ ", currencies=" + edges.size() + ", maxHops=" + maxHops
+				+ "]";
+	}
+
+	/**
+	 * Node of a path evaluated, linked to its predecessor.
+	 */
+	private static final class PathNode {
+		private final PathNode previous;
+		private final ExchangeRate rate;
+		private final long freshness;
+		private final int hops;
+
+		PathNode(PathNode previous, ExchangeRate rate, long freshness, int hops) {
+			this.previous = previous;
+			this.rate = rate;
+			this.freshness = freshness;
+			this.hops = hops;
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import javax.money.convert.ExchangeRate;
+
+/**
+ * Arithmetic used for exchange rate factors. Factors are handled as
+ * {@link BigDecimal}, operations that may not terminate, such as evaluating a
+ * reciprocal, are bounded by {@link #MATH_CONTEXT}.
+ * 
+ * @author Anatole Tresch
+ */
+public final class ExchangeRateMath {
+
+	/** The {@link MathContext} used for rate arithmetic, 16 digits. */
+	public static final MathContext MATH_CONTEXT = MathContext.DECIMAL64;
+
+	/**
+	 * Singleton constructor.
+	 */
+	private ExchangeRateMath() {
+	}
+
+	/**
+	 * Converts a factor or amount to a {@link BigDecimal}. {@link BigDecimal}
+	 * instances are used as is, integral numbers are converted exactly,
+	 * floating point numbers use their shortest decimal representation.
+	 * 
+	 * @param number
+	 *            the number, not {@code null}.
+	 * @return the number as {@link BigDecimal}.
+	 */
+	public static BigDecimal toBigDecimal(Number number) {
+		if (number == null) {
+			throw new IllegalArgumentException("number may not be null.");
+		}
+		if (number instanceof BigDecimal) {
+			return (BigDecimal) number;
+		}
+		if (number instanceof Long || number instanceof Integer
+				|| number instanceof Short || number instanceof Byte) {
+			return BigDecimal.valueOf(number.longValue());
+		}
+		if (number instanceof BigInteger) {
+			return new BigDecimal((BigInteger) number);
+		}
+		return BigDecimal.valueOf(number.doubleValue());
+	}
+
+	/**
+	 * Evaluates the reciprocal of a factor, as used for reversed rates.
+	 * 
+	 * @param factor
+	 *            the factor, not {@code null} and not zero.
+	 * @return {@code 1 / factor}, rounded to {@link #MATH_CONTEXT}.
+	 */
+	public static BigDecimal reciprocal(Number factor) {
+		BigDecimal decimal = toBigDecimal(factor);
+		if (decimal.signum() == 0) {
+			throw new ArithmeticException("Factor is zero.");
+		}
+		return BigDecimal.ONE.divide(decimal, MATH_CONTEXT);
+	}
+
+	/**
+	 * Evaluates the product of two factors.
+	 * 
+	 * @param factor1
+	 *            the first factor, not {@code null}.
+	 * @param factor2
+	 *            the second factor, not {@code null}.
+	 * @return the product, rounded to {@link #MATH_CONTEXT}.
+	 */
+	public static BigDecimal multiply(Number factor1, Number factor2) {
+		return toBigDecimal(factor1).multiply(toBigDecimal(factor2),
+				MATH_CONTEXT);
+	}
+
+	/**
+	 * Converts an amount, rounding the result half up to the given scale in
+	 * the same step, so no unrounded intermediate amount is created.
+	 * 
+	 * @param amount
+	 *            the amount, not {@code null}.
+	 * @param factor
+	 *            the rate factor, not {@code null}.
+	 * @param scale
+	 *            the scale of the result, e.g. the default fraction digits of
+	 *            the target currency, or a negative value for no rounding.
+	 * @return the converted amount.
+	 */
+	public static BigDecimal convert(Number amount, Number factor, int scale) {
+		BigDecimal result = toBigDecimal(amount).multiply(toBigDecimal(factor));
+		if (scale < 0) {
+			return result;
+		}
+		return result.setScale(scale, RoundingMode.HALF_UP);
+	}
+
+	/**
+	 * Evaluates the factor of a chain of rates.
+	 * 
+	 * @param chain
+	 *            the rates, not {@code null}.
+	 * @return the product of all factors, rounded to {@link #MATH_CONTEXT}.
+	 */
+	public static BigDecimal chain(ExchangeRate... chain) {
+		BigDecimal factor = BigDecimal.ONE;
+		for (ExchangeRate rate : chain) {
+			factor = factor.multiply(toBigDecimal(rate.getFactor()),
+					MATH_CONTEXT);
+		}
+		return factor;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.util.Collection;
+
+import javax.money.convert.ExchangeRate;
+
+/**
+ * SPI for collecting metrics of the exchange rate providers, caches and
+ * converters of the RI. Implementations can be registered with the
+ * {@link java.util.ServiceLoader}, the instance used is accessed by
+ * {@link ExchangeRateMetricsRegistry#getMetrics()}.
+ * <p>
+ * Components are identified by a name, such as
+ * {@code EZBExchangeRateProvider} or {@code DefaultExchangeRateProvider[EZB]}.
+ * All methods are called on the hot path of the components, so
+ * implementations must be thread-safe and must return quickly.
+ * 
+ * @author Anatole Tresch
+ */
+public interface ExchangeRateMetrics {
+
+	/**
+	 * Records a rate lookup.
+	 * 
+	 * @param component
+	 *            the component name.
+	 * @param nanos
+	 *            the duration of the lookup in nanoseconds.
+	 * @param found
+	 *            whether a rate was returned.
+	 */
+	public void recordLookup(String component, long nanos, boolean found);
+
+	/**
+	 * Records an access to a cache.
+	 * 
+	 * @param component
+	 *            the component name.
+	 * @param hit
+	 *            whether the access was served from the cache.
+	 */
+	public void recordCacheAccess(String component, boolean hit);
+
+	/**
+	 * Records a conversion.
+	 * 
+	 * @param component
+	 *            the component name.
+	 * @param nanos
+	 *            the duration of the conversion in nanoseconds.
+	 * @param amounts
+	 *            the number of amounts converted.
+	 */
+	public void recordConversion(String component, long nanos, int amounts);
+
+	/**
+	 * Records the successful load of rate data.
+	 * 
+	 * @param component
+	 *            the component name.
+	 * @param nanos
+	 *            the duration of the load in nanoseconds.
+	 * @param rates
+	 *            the current rates after the load, used to track the age of
+	 *            the newest rate per pair.
+	 */
+	public void recordLoad(String component, long nanos,
+			Collection<? extends ExchangeRate> rates);
+
+	/**
+	 * Records a failed load of rate data.
+	 * 
+	 * @param component
+	 *            the component name.
+	 * @param nanos
+	 *            the duration of the load in nanoseconds.
+	 * @param cause
+	 *            the failure.
+	 */
+	public void recordLoadFailure(String component, long nanos,
+			Throwable cause);
+
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+import net.java.javamoney.ri.convert.provider.JmxExchangeRateMetrics;
+
+/**
+ * Provides the {@link ExchangeRateMetrics} instance used by the RI. The first
+ * implementation registered with the {@link ServiceLoader} is used, if none is
+ * registered, the metrics are published by {@link JmxExchangeRateMetrics}.
+ * 
+ * @author Anatole Tresch
+ */
+public final class ExchangeRateMetricsRegistry {
+
+	private static volatile ExchangeRateMetrics metrics;
+
+	/**
+	 * Singleton constructor.
+	 */
+	private ExchangeRateMetricsRegistry() {
+	}
+
+	/**
+	 * Access the metrics instance.
+	 * 
+	 * @return the metrics, never {@code null}.
+	 */
+	public static ExchangeRateMetrics getMetrics() {
+		ExchangeRateMetrics result = metrics;
+		if (result == null) {
+			synchronized (ExchangeRateMetricsRegistry.class) {
+				result = metrics;
+				if (result == null) {
+					result = loadMetrics();
+					metrics = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces the metrics instance, e.g. to integrate with a monitoring
+	 * system not supporting the {@link ServiceLoader}.
+	 * 
+	 * @param newMetrics
+	 *            the metrics to be used, not {@code null}.
+	 */
+	public static void setMetrics(ExchangeRateMetrics newMetrics) {
+		if (newMetrics == null) {
+			throw new IllegalArgumentException("metrics may not be null.");
+		}
+		metrics = newMetrics;
+	}
+
+	private static ExchangeRateMetrics loadMetrics() {
+		Iterator<ExchangeRateMetrics> iterator = ServiceLoader.load(
+				ExchangeRateMetrics.class).iterator();
+		if (iterator.hasNext()) {
+			return iterator.next();
+		}
+		return new JmxExchangeRateMetrics();
+	}
+
+}
@@ -0,0 +1,286 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+
+/**
+ * Columnar set of positions, each position being an amount in some currency.
+ * The amounts are stored as unscaled {@code long} values with a scale, the
+ * currencies as indexes into a small currency table, so large books can be
+ * processed in tight loops without touching a {@link MonetaryAmount} instance
+ * per position.
+ * <p>
+ * Instances are not thread-safe while positions are added.
+ * 
+ * @see RevaluationEngine
+ * @author Anatole Tresch
+ */
+public final class PositionSet {
+
+	private static final BigInteger MIN_LONG = BigInteger
+			.valueOf(Long.MIN_VALUE);
+	private static final BigInteger MAX_LONG = BigInteger
+			.valueOf(Long.MAX_VALUE);
+
+	private final List<CurrencyUnit> currencies = new ArrayList<CurrencyUnit>();
+	private final Map<String, Integer> currencyIndexes = new HashMap<String, Integer>();
+	private int[] currencyColumn;
+	private long[] unscaledColumn;
+	private int[] scaleColumn;
+	private int size;
+
+	/**
+	 * Creates a new empty set.
+	 */
+	public PositionSet() {
+		this(1024);
+	}
+
+	/**
+	 * Creates a new empty set.
+	 * 
+	 * @param initialCapacity
+	 *            the number of positions to be allocated initially.
+	 */
+	public PositionSet(int initialCapacity) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("initialCapacity must be > 0.");
+		}
+		this.currencyColumn = new int[initialCapacity];
+		this.unscaledColumn = new long[initialCapacity];
+		this.scaleColumn = new int[initialCapacity];
+	}
+
+	/**
+	 * Adds a position.
+	 * 
+	 * @param amount
+	 *            the amount, not {@code null}.
+	 * @return the index of the position.
+	 */
+	public int add(MonetaryAmount amount) {
+		if (amount == null) {
+			throw new IllegalArgumentException("amount may not be null.");
+		}
+		return add(amount.getCurrency(), amount.asType(BigDecimal.class));
+	}
+
+	/**
+	 * Adds a position.
+	 * 
+	 * @param currency
+	 *            the currency, not {@code null}.
+	 * @param amount
+	 *            the amount, not {@code null}.
+	 * @return the index of the position.
+	 * @throws ArithmeticException
+	 *             if the unscaled value of the amount exceeds the {@code long}
+	 *             range.
+	 */
+	public int add(CurrencyUnit currency, BigDecimal amount) {
+		if (amount == null) {
+			throw new IllegalArgumentException("amount may not be null.");
+		}
+		BigInteger unscaled = amount.unscaledValue();
+		if (unscaled.compareTo(MIN_LONG) < 0
+				|| unscaled.compareTo(MAX_LONG) > 0) {
+			amount = amount.stripTrailingZeros();
+			unscaled = amount.unscaledValue();
+			if (unscaled.compareTo(MIN_LONG) < 0
+					|| unscaled.compareTo(MAX_LONG) > 0) {
+				throw new ArithmeticException("Amount out of range: " + amount);
+			}
+		}
+		return add(currency, unscaled.longValue(), amount.scale());
+	}
+
+	/**
+	 * Adds a position.
+	 * 
+	 * @param currency
+	 *            the currency, not {@code null}.
+	 * @param unscaledAmount
+	 *            the unscaled amount.
+	 * @param scale
+	 *            the scale of the amount.
+	 * @return the index of the position.
+	 */
+	public int add(CurrencyUnit currency, long unscaledAmount, int scale) {
+		int currencyIndex = getCurrencyIndex(currency);
+		if (size == unscaledColumn.length) {
+			int capacity = size * 2;
+			currencyColumn = Arrays.copyOf(currencyColumn, capacity);
+			unscaledColumn = Arrays.copyOf(unscaledColumn, capacity);
+			scaleColumn = Arrays.copyOf(scaleColumn, capacity);
+		}
+		currencyColumn[size] = currencyIndex;
+		unscaledColumn[size] = unscaledAmount;
+		scaleColumn[size] = scale;
+		return size++;
+	}
+
+	/**
+	 * Grows the columns, so at least the given number of positions can be held
+	 * without further allocation.
+	 * 
+	 * @param capacity
+	 *            the number of positions required.
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > unscaledColumn.length) {
+			currencyColumn = Arrays.copyOf(currencyColumn, capacity);
+			unscaledColumn = Arrays.copyOf(unscaledColumn, capacity);
+			scaleColumn = Arrays.copyOf(scaleColumn, capacity);
+		}
+	}
+
+	/**
+	 * Adds all positions of another set, preserving their order.
+	 * 
+	 * @param positions
+	 *            the positions to be added, not {@code null}.
+	 */
+	public void addAll(PositionSet positions) {
+		if (positions == null) {
+			throw new IllegalArgumentException("positions may not be null.");
+		}
+		int[] indexes = new int[positions.currencies.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = getCurrencyIndex(positions.currencies.get(i));
+		}
+		int required = size + positions.size;
+		if (required > unscaledColumn.length) {
+			ensureCapacity(Math.max(required, unscaledColumn.length * 2));
+		}
+		for (int i = 0; i < positions.size; i++) {
+			currencyColumn[size + i] = indexes[positions.currencyColumn[i]];
+		}
+		System.arraycopy(positions.unscaledColumn, 0, unscaledColumn, size,
+				positions.size);
+		System.arraycopy(positions.scaleColumn, 0, scaleColumn, size,
+				positions.size);
+		size = required;
+	}
+
+	private int getCurrencyIndex(CurrencyUnit currency) {
+		if (currency == null) {
+			throw new IllegalArgumentException("currency may not be null.");
+		}
+		String key = currency.getNamespace() + ':'
+				+ currency.getCurrencyCode();
+		Integer index = currencyIndexes.get(key);
+		if (index == null) {
+			index = Integer.valueOf(currencies.size());
+			currencies.add(currency);
+			currencyIndexes.put(key, index);
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Access the number of positions.
+	 * 
+	 * @return the number of positions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Access the distinct currencies of all positions, in order of first
+	 * occurrence.
+	 * 
+	 * @return the currencies, never {@code null}.
+	 */
+	public List<CurrencyUnit> getCurrencies() {
+		return new ArrayList<CurrencyUnit>(currencies);
+	}
+
+	/**
+	 * Access the currency of a position.
+	 * 
+	 * @param index
+	 *            the position index.
+	 * @return the currency.
+	 */
+	public CurrencyUnit getCurrency(int index) {
+		checkIndex(index);
+		return currencies.get(currencyColumn[index]);
+	}
+
+	/**
+	 * Access the amount of a position.
+	 * 
+	 * @param index
+	 *            the position index.
+	 * @return the amount.
+	 */
+	public BigDecimal getAmount(int index) {
+		checkIndex(index);
+		return BigDecimal.valueOf(unscaledColumn[index], scaleColumn[index]);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Invalid index: " + index);
+		}
+	}
+
+	int getCurrencyCount() {
+		return currencies.size();
+	}
+
+	CurrencyUnit getCurrencyAt(int currencyIndex) {
+		return currencies.get(currencyIndex);
+	}
+
+	int[] getCurrencyColumn() {
+		return currencyColumn;
+	}
+
+	long[] getUnscaledColumn() {
+		return unscaledColumn;
+	}
+
+	int[] getScaleColumn() {
+		return scaleColumn;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "PositionSet [size=" + size + ", currencies=" + currencies
+				+ "]";
+	}
+
+}
@@ -0,0 +1,356 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Time series of rate ticks for a single currency pair. Ticks are stored in
+ * two primitive columns (timestamps and factors), so no objects are created
+ * per tick. The ticks are kept ordered by timestamp, lookups use binary search
+ * and return the tick valid at the given time (as-of semantics).
+ * <p>
+ * The series supports bounded retention ({@link #retain(long)}) and reducing
+ * older ticks to one tick per time bucket ({@link #downsample(long, long)}).
+ * Instances are thread-safe, readers do not block each other.
+ * 
+ * @author Anatole Tresch
+ */
+public final class RateTickSeries {
+
+	/** One minute in milliseconds. */
+	public static final long MINUTE_MILLIS = 60L * 1000;
+	/** One hour in milliseconds. */
+	public static final long HOUR_MILLIS = 60L * MINUTE_MILLIS;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	/** The tick timestamps, valid from {@code head} to {@code tail}. */
+	private long[] timestamps;
+	/** The tick factors, aligned with {@link #timestamps}. */
+	private double[] factors;
+	/** Index of the oldest tick retained. */
+	private int head;
+	/** Index after the newest tick. */
+	private int tail;
+
+	/**
+	 * Creates a new empty series.
+	 */
+	public RateTickSeries() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new empty series.
+	 * 
+	 * @param initialCapacity
+	 *            the number of ticks to be allocated initially.
+	 */
+	public RateTickSeries(int initialCapacity) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("initialCapacity must be > 0.");
+		}
+		this.timestamps = new long[initialCapacity];
+		this.factors = new double[initialCapacity];
+	}
+
+	/**
+	 * Adds a tick. Appending ticks in timestamp order is O(1) amortized, ticks
+	 * out of order are inserted at their position. A tick with the same
+	 * timestamp as an existing tick replaces it.
+	 * 
+	 * @param timestamp
+	 *            the UTC timestamp of the tick.
+	 * @param factor
+	 *            the rate factor, must be a positive number.
+	 */
+	public void add(long timestamp, double factor) {
+		if (!(factor > 0) || Double.isInfinite(factor)) {
+			throw new IllegalArgumentException("Invalid factor: " + factor);
+		}
+		lock.writeLock().lock();
+		try {
+			if (tail == head || timestamps[tail - 1] < timestamp) {
+				ensureCapacity();
+				timestamps[tail] = timestamp;
+				factors[tail] = factor;
+				tail++;
+				return;
+			}
+			int index = Arrays.binarySearch(timestamps, head, tail, timestamp);
+			if (index >= 0) {
+				factors[index] = factor;
+				return;
+			}
+			// relative to head, as making room may compact the columns
+			int offset = -index - 1 - head;
+			ensureCapacity();
+			index = head + offset;
+			System.arraycopy(timestamps, index, timestamps, index + 1, tail
+					- index);
+			System.arraycopy(factors, index, factors, index + 1, tail - index);
+			timestamps[index] = timestamp;
+			factors[index] = factor;
+			tail++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Makes room for one more tick at the end, by compacting or growing the
+	 * columns.
+	 */
+	private void ensureCapacity() {
+		if (tail < timestamps.length) {
+			return;
+		}
+		int size = tail - head;
+		if (head > 0 && size <= timestamps.length / 2) {
+			System.arraycopy(timestamps, head, timestamps, 0, size);
+			System.arraycopy(factors, head, factors, 0, size);
+		} else {
+			int capacity = timestamps.length * 2;
+			long[] newTimestamps = new long[capacity];
+			double[] newFactors = new double[capacity];
+			System.arraycopy(timestamps, head, newTimestamps, 0, size);
+			System.arraycopy(factors, head, newFactors, 0, size);
+			timestamps = newTimestamps;
+			factors = newFactors;
+		}
+		head = 0;
+		tail = size;
+	}
+
+	/**
+	 * Access the number of ticks retained.
+	 * 
+	 * @return the number of ticks.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return tail - head;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Evaluates the tick valid at the given time, this is the most recent
+	 * tick not newer than {@code timestamp}.
+	 * 
+	 * @param timestamp
+	 *            the UTC timestamp.
+	 * @return the tick found, or {@code null}, if no tick is older or equal
+	 *         to {@code timestamp}.
+	 */
+	public Tick getTick(long timestamp) {
+		lock.readLock().lock();
+		try {
+			int index = Arrays.binarySearch(timestamps, head, tail, timestamp);
+			if (index < 0) {
+				index = -index - 2;
+			}
+			if (index < head) {
+				return null;
+			}
+			return createTick(index);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Access the most recent tick.
+	 * 
+	 * @return the latest tick, or {@code null}, if the series is empty.
+	 */
+	public Tick getLatestTick() {
+		lock.readLock().lock();
+		try {
+			if (tail == head) {
+				return null;
+			}
+			return createTick(tail - 1);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Tick createTick(int index) {
+		Long validUntil = null;
+		if (index + 1 < tail) {
+			validUntil = Long.valueOf(timestamps[index + 1]);
+		}
+		return new Tick(timestamps[index], factors[index], validUntil);
+	}
+
+	/**
+	 * Removes all ticks older than the given timestamp. The tick valid at
+	 * {@code oldest} is kept, so lookups for {@code oldest} still succeed.
+	 * 
+	 * @param oldest
+	 *            the oldest UTC timestamp to be answered.
+	 * @return the number of ticks removed.
+	 */
+	public int retain(long oldest) {
+		lock.writeLock().lock();
+		try {
+			int index = Arrays.binarySearch(timestamps, head, tail, oldest);
+			if (index < 0) {
+				index = -index - 2;
+			}
+			if (index <= head) {
+				return 0;
+			}
+			int removed = index - head;
+			head = index;
+			if (head == tail) {
+				head = 0;
+				tail = 0;
+			}
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Reduces all ticks older than {@code before} to the last tick of each
+	 * time bucket. The remaining ticks keep their original timestamps, so
+	 * lookups never return a value observed after the requested time.
+	 * 
+	 * @param before
+	 *            the UTC timestamp, newer ticks are not touched.
+	 * @param bucketMillis
+	 *            the bucket size, e.g. {@link #MINUTE_MILLIS} or
+	 *            {@link #HOUR_MILLIS}.
+	 * @return the number of ticks removed.
+	 */
+	public int downsample(long before, long bucketMillis) {
+		if (bucketMillis <= 0) {
+			throw new IllegalArgumentException("bucketMillis must be > 0.");
+		}
+		lock.writeLock().lock();
+		try {
+			int write = head;
+			int read = head;
+			while (read < tail && timestamps[read] < before) {
+				long bucket = getBucket(timestamps[read], bucketMillis);
+				int last = read;
+				while (last + 1 < tail && timestamps[last + 1] < before
+						&& getBucket(timestamps[last + 1], bucketMillis) == bucket) {
+					last++;
+				}
+				timestamps[write] = timestamps[last];
+				factors[write] = factors[last];
+				write++;
+				read = last + 1;
+			}
+			int removed = read - write;
+			if (removed > 0) {
+				System.arraycopy(timestamps, read, timestamps, write, tail
+						- read);
+				System.arraycopy(factors, read, factors, write, tail - read);
+				tail -= removed;
+			}
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static long getBucket(long timestamp, long bucketMillis) {
+		long bucket = timestamp / bucketMillis;
+		if (timestamp < 0 && timestamp % bucketMillis != 0) {
+			bucket--;
+		}
+		return bucket;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "RateTickSeries [size=" + size() + "]";
+	}
+
+	/**
+	 * A single tick, as returned by the lookup methods.
+	 */
+	public static final class Tick {
+		private final long timestamp;
+		private final double factor;
+		private final Long validUntil;
+
+		Tick(long timestamp, double factor, Long validUntil) {
+			this.timestamp = timestamp;
+			this.factor = factor;
+			this.validUntil = validUntil;
+		}
+
+		/**
+		 * Access the UTC timestamp of the tick.
+		 * 
+		 * @return the timestamp.
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Access the rate factor.
+		 * 
+		 * @return the factor.
+		 */
+		public double getFactor() {
+			return factor;
+		}
+
+		/**
+		 * Access the timestamp of the following tick.
+		 * 
+		 * @return the timestamp of the next tick, or {@code null}, if this is
+		 *         the latest tick.
+		 */
+		public Long getValidUntil() {
+			return validUntil;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "Tick [timestamp=" + timestamp + ", factor=" + factor
+					+ ", validUntil=" + validUntil + "]";
+		}
+	}
+
+}
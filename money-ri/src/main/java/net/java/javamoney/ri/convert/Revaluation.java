@@ -0,0 +1,173 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+import javax.money.provider.Monetary;
+import javax.money.provider.MonetaryAmountProvider;
+
+/**
+ * The result of revaluing a {@link PositionSet} into a reporting currency,
+ * providing the revalued amount of each position and the subtotals per
+ * currency of the positions.
+ * 
+ * @see RevaluationEngine
+ * @author Anatole Tresch
+ */
+public final class Revaluation {
+
+	private final PositionSet positions;
+	private final CurrencyUnit target;
+	private final BigDecimal[] factors;
+	private final int scale;
+	private final long[] results;
+	private final Map<Integer, BigDecimal> overflows;
+	private final BigDecimal[] subtotals;
+	private final MonetaryAmountProvider amountFactory;
+
+	Revaluation(PositionSet positions, CurrencyUnit target,
+			BigDecimal[] factors, int scale, long[] results,
+			Map<Integer, BigDecimal> overflows, BigDecimal[] subtotals) {
+		this.positions = positions;
+		this.target = target;
+		this.factors = factors;
+		this.scale = scale;
+		this.results = results;
+		this.overflows = overflows;
+		this.subtotals = subtotals;
+		this.amountFactory = Monetary.getMonetaryAmountProvider();
+	}
+
+	/**
+	 * Access the reporting currency.
+	 * 
+	 * @return the reporting currency.
+	 */
+	public CurrencyUnit getTarget() {
+		return target;
+	}
+
+	/**
+	 * Access the number of positions revalued.
+	 * 
+	 * @return the number of positions.
+	 */
+	public int size() {
+		return results.length;
+	}
+
+	/**
+	 * Access the revalued amount of a position.
+	 * 
+	 * @param index
+	 *            the position index.
+	 * @return the amount in the reporting currency.
+	 */
+	public BigDecimal getValue(int index) {
+		if (index < 0 || index >= results.length) {
+			throw new IndexOutOfBoundsException("Invalid index: " + index);
+		}
+		if (!overflows.isEmpty()) {
+			BigDecimal overflow = overflows.get(Integer.valueOf(index));
+			if (overflow != null) {
+				return overflow;
+			}
+		}
+		return BigDecimal.valueOf(results[index], scale);
+	}
+
+	/**
+	 * Access the revalued amount of a position.
+	 * 
+	 * @param index
+	 *            the position index.
+	 * @return the amount in the reporting currency.
+	 */
+	public MonetaryAmount getAmount(int index) {
+		return amountFactory.get(target, getValue(index));
+	}
+
+	/**
+	 * Access the factor used for a currency.
+	 * 
+	 * @param currency
+	 *            the currency of the positions.
+	 * @return the factor, or {@code null}, if no position has the currency.
+	 */
+	public BigDecimal getFactor(CurrencyUnit currency) {
+		int c = indexOf(currency);
+		return c < 0 ? null : factors[c];
+	}
+
+	/**
+	 * Access the sum of the revalued amounts of all positions in a currency.
+	 * 
+	 * @param currency
+	 *            the currency of the positions.
+	 * @return the subtotal in the reporting currency, zero if no position has
+	 *         the currency.
+	 */
+	public MonetaryAmount getSubtotal(CurrencyUnit currency) {
+		int c = indexOf(currency);
+		if (c < 0) {
+			return amountFactory.get(target, BigDecimal.valueOf(0L, scale));
+		}
+		return amountFactory.get(target, subtotals[c]);
+	}
+
+	/**
+	 * Access the sum of the revalued amounts of all positions.
+	 * 
+	 * @return the total in the reporting currency.
+	 */
+	public MonetaryAmount getTotal() {
+		BigDecimal total = BigDecimal.valueOf(0L, scale);
+		for (BigDecimal subtotal : subtotals) {
+			total = total.add(subtotal);
+		}
+		return amountFactory.get(target, total);
+	}
+
+	private int indexOf(CurrencyUnit currency) {
+		for (int c = 0; c < factors.length; c++) {
+			CurrencyUnit cu = positions.getCurrencyAt(c);
+			if (cu.getNamespace().equals(currency.getNamespace())
+					&& cu.getCurrencyCode().equals(currency.getCurrencyCode())) {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Revaluation [target=" + target + ", size=" + results.length
+				+ ", total=" + getTotal() + "]";
+	}
+
+}
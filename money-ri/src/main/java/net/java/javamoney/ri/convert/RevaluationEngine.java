@@ -0,0 +1,324 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.CurrencyConversionException;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+
+/**
+ * Revalues all positions of a {@link PositionSet} into a single reporting
+ * currency. The factor for each currency is resolved once from the
+ * {@link ExchangeRateProvider}, then all positions are multiplied and rounded
+ * (half up, to the default fraction digits of the reporting currency) in a
+ * single pass over the columns, using {@code long} arithmetic where the
+ * result fits, and {@link BigDecimal} otherwise. Large sets are split across
+ * cores using fork/join.
+ * 
+ * @author Anatole Tresch
+ */
+public final class RevaluationEngine {
+
+	/** Number of positions, from which the work is split across cores. */
+	public static final int PARALLEL_THRESHOLD = 16384;
+
+	private static final long[] POW10 = new long[19];
+	static {
+		POW10[0] = 1L;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+	}
+
+	private final ExchangeRateProvider provider;
+
+	/**
+	 * Creates a new engine.
+	 * 
+	 * @param provider
+	 *            the provider of the rates, not {@code null}.
+	 */
+	public RevaluationEngine(ExchangeRateProvider provider) {
+		if (provider == null) {
+			throw new IllegalArgumentException("provider may not be null.");
+		}
+		this.provider = provider;
+	}
+
+	/**
+	 * Revalues the positions using the current rates.
+	 * 
+	 * @param positions
+	 *            the positions, not {@code null}.
+	 * @param target
+	 *            the reporting currency, not {@code null}.
+	 * @return the revaluation result.
+	 * @throws CurrencyConversionException
+	 *             if no rate is available for a currency.
+	 */
+	public Revaluation revalue(PositionSet positions, CurrencyUnit target) {
+		return revalue(positions, target, null);
+	}
+
+	/**
+	 * Revalues the positions using the rates valid at the given timestamp.
+	 * 
+	 * @param positions
+	 *            the positions, not {@code null}.
+	 * @param target
+	 *            the reporting currency, not {@code null}.
+	 * @param timestamp
+	 *            the UTC timestamp of the rates, or {@code null} for the
+	 *            current rates.
+	 * @return the revaluation result.
+	 * @throws CurrencyConversionException
+	 *             if no rate is available for a currency.
+	 */
+	public Revaluation revalue(PositionSet positions, CurrencyUnit target,
+			Long timestamp) {
+		if (positions == null) {
+			throw new IllegalArgumentException("positions may not be null.");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("target may not be null.");
+		}
+		Kernel kernel = new Kernel(positions, target, resolveFactors(
+				positions, target, timestamp));
+		int size = positions.size();
+		Subtotals subtotals;
+		if (size < PARALLEL_THRESHOLD) {
+			subtotals = kernel.compute(0, size);
+		} else {
+			subtotals = PoolHolder.POOL.invoke(new RevaluationTask(kernel, 0,
+					size));
+		}
+		return new Revaluation(positions, target, kernel.factors,
+				kernel.targetScale, kernel.results, kernel.overflows,
+				subtotals.toBigDecimals(kernel.targetScale));
+	}
+
+	private BigDecimal[] resolveFactors(PositionSet positions,
+			CurrencyUnit target, Long timestamp) {
+		BigDecimal[] factors = new BigDecimal[positions.getCurrencyCount()];
+		for (int c = 0; c < factors.length; c++) {
+			CurrencyUnit source = positions.getCurrencyAt(c);
+			if (source.getNamespace().equals(target.getNamespace())
+					&& source.getCurrencyCode().equals(
+							target.getCurrencyCode())) {
+				factors[c] = BigDecimal.ONE;
+				continue;
+			}
+			ExchangeRate rate = provider.get(source, target, timestamp);
+			if (rate == null) {
+				throw new CurrencyConversionException(source, target,
+						"No rate available.");
+			}
+			factors[c] = ExchangeRateMath.toBigDecimal(rate.getFactor());
+		}
+		return factors;
+	}
+
+	/**
+	 * The state shared by all parts of a revaluation.
+	 */
+	private static final class Kernel {
+		private final int[] currencyColumn;
+		private final long[] unscaledColumn;
+		private final int[] scaleColumn;
+		private final int currencyCount;
+		private final BigDecimal[] factors;
+		/** Unscaled factors, {@code 0} if not usable with long arithmetic. */
+		private final long[] factorUnscaled;
+		private final int[] factorScale;
+		private final int targetScale;
+		private final long[] results;
+		/** Results not fitting into {@code long}, by position index. */
+		private final Map<Integer, BigDecimal> overflows = new ConcurrentHashMap<Integer, BigDecimal>();
+
+		Kernel(PositionSet positions, CurrencyUnit target,
+				BigDecimal[] factors) {
+			this.currencyColumn = positions.getCurrencyColumn();
+			this.unscaledColumn = positions.getUnscaledColumn();
+			this.scaleColumn = positions.getScaleColumn();
+			this.currencyCount = factors.length;
+			this.factors = factors;
+			this.factorUnscaled = new long[factors.length];
+			this.factorScale = new int[factors.length];
+			for (int c = 0; c < factors.length; c++) {
+				BigDecimal factor = factors[c].stripTrailingZeros();
+				if (factor.scale() < 0) {
+					factor = factor.setScale(0);
+				}
+				if (factor.signum() > 0
+						&& factor.unscaledValue().bitLength() < 63) {
+					factorUnscaled[c] = factor.unscaledValue().longValue();
+					factorScale[c] = factor.scale();
+				}
+			}
+			this.targetScale = Math.max(0, target.getDefaultFractionDigits());
+			this.results = new long[positions.size()];
+		}
+
+		Subtotals compute(int from, int to) {
+			Subtotals subtotals = new Subtotals(currencyCount);
+			for (int i = from; i < to; i++) {
+				int c = currencyColumn[i];
+				long amount = unscaledColumn[i];
+				long factor = factorUnscaled[c];
+				int shift = scaleColumn[i] + factorScale[c] - targetScale;
+				if (shift < 0 && shift >= -18 && factor > 0
+						&& factor <= Long.MAX_VALUE / POW10[-shift]) {
+					factor *= POW10[-shift];
+					shift = 0;
+				}
+				if (factor > 0 && shift >= 0 && shift <= 18
+						&& amount != Long.MIN_VALUE) {
+					long abs = amount < 0 ? -amount : amount;
+					if (abs <= Long.MAX_VALUE / factor) {
+						long product = abs * factor;
+						long divisor = POW10[shift];
+						long quotient = product / divisor;
+						long remainder = product - quotient * divisor;
+						if (remainder >= divisor - remainder) {
+							quotient++;
+						}
+						long result = amount < 0 ? -quotient : quotient;
+						results[i] = result;
+						subtotals.add(c, result);
+						continue;
+					}
+				}
+				BigDecimal result = BigDecimal
+						.valueOf(amount, scaleColumn[i])
+						.multiply(factors[c])
+						.setScale(targetScale, RoundingMode.HALF_UP);
+				if (result.unscaledValue().bitLength() < 64) {
+					results[i] = result.unscaledValue().longValue();
+					subtotals.add(c, results[i]);
+				} else {
+					overflows.put(Integer.valueOf(i), result);
+					subtotals.add(c, result);
+				}
+			}
+			return subtotals;
+		}
+	}
+
+	/**
+	 * Per currency sums of unscaled results, spilling to {@link BigDecimal}
+	 * on overflow.
+	 */
+	private static final class Subtotals {
+		private final long[] sums;
+		private BigDecimal[] spills;
+
+		Subtotals(int currencyCount) {
+			this.sums = new long[currencyCount];
+		}
+
+		void add(int c, long value) {
+			long sum = sums[c];
+			long result = sum + value;
+			if (((sum ^ result) & (value ^ result)) < 0) {
+				spill(c, BigDecimal.valueOf(sum).add(BigDecimal.valueOf(value)));
+				sums[c] = 0;
+			} else {
+				sums[c] = result;
+			}
+		}
+
+		void add(int c, BigDecimal value) {
+			spill(c, value.movePointRight(value.scale()));
+		}
+
+		private void spill(int c, BigDecimal value) {
+			if (spills == null) {
+				spills = new BigDecimal[sums.length];
+			}
+			spills[c] = spills[c] == null ? value : spills[c].add(value);
+		}
+
+		Subtotals merge(Subtotals other) {
+			for (int c = 0; c < sums.length; c++) {
+				add(c, other.sums[c]);
+				if (other.spills != null && other.spills[c] != null) {
+					spill(c, other.spills[c]);
+				}
+			}
+			return this;
+		}
+
+		BigDecimal[] toBigDecimals(int scale) {
+			BigDecimal[] result = new BigDecimal[sums.length];
+			for (int c = 0; c < sums.length; c++) {
+				result[c] = BigDecimal.valueOf(sums[c], scale);
+				if (spills != null && spills[c] != null) {
+					result[c] = result[c].add(spills[c].movePointLeft(scale));
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Splits the positions in halves, until they are small enough to be
+	 * computed directly.
+	 */
+	private static final class RevaluationTask extends
+			RecursiveTask<Subtotals> {
+
+		private static final long serialVersionUID = 1L;
+		private static final int LEAF_SIZE = PARALLEL_THRESHOLD / 2;
+		private final transient Kernel kernel;
+		private final int from;
+		private final int to;
+
+		RevaluationTask(Kernel kernel, int from, int to) {
+			this.kernel = kernel;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Subtotals compute() {
+			if (to - from <= LEAF_SIZE) {
+				return kernel.compute(from, to);
+			}
+			int middle = (from + to) >>> 1;
+			RevaluationTask right = new RevaluationTask(kernel, middle, to);
+			right.fork();
+			Subtotals left = new RevaluationTask(kernel, from, middle)
+					.compute();
+			return left.merge(right.join());
+		}
+	}
+
+	private static final class PoolHolder {
+		static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+
+}
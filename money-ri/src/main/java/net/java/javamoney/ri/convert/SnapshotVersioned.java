@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+/**
+ * Implemented by rate providers that publish their data as snapshots. The
+ * snapshot version changes whenever new rate data has been loaded, so clients
+ * holding derived state, such as caches or a {@link ConversionPlan}, can
+ * cheaply detect that their state is outdated.
+ * 
+ * @author Anatole Tresch
+ */
+public interface SnapshotVersioned {
+
+	/**
+	 * Access the version of the rate data currently published. The value
+	 * only increases over the lifetime of an instance.
+	 * 
+	 * @return the current snapshot version.
+	 */
+	public long getSnapshotVersion();
+
+}
@@ -0,0 +1,355 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.convert.ExchangeRateType;
+
+import net.java.javamoney.ri.common.LruCache;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+
+/**
+ * {@link ExchangeRateProvider} decorator that memoizes the rates returned by
+ * another {@link ExchangeRateProvider}. Rates are cached by source, target
+ * and the time bucket (by default the UTC day) of the requested timestamp.
+ * <p>
+ * A cached rate is reused until its {@link ExchangeRate#getValidUntil()} is
+ * reached, but never longer than the configured time to live. Lookups that
+ * did not find a rate are cached as well, but only for a short time. The
+ * cache is size bounded and evicts the least recently used entries.
+ * <p>
+ * If the decorated provider is {@link SnapshotVersioned} the cache is cleared,
+ * whenever the provider publishes a new snapshot.
+ *
+ * @author Anatole Tresch
+ */
+public class CachedExchangeRateProvider implements ExchangeRateProvider,
+		SnapshotVersioned {
+
+	/** One day in milliseconds, the default time bucket. */
+	public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	/** Default maximal number of cached lookups. */
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	/** Default time to live for rates found, 10 minutes. */
+	public static final long DEFAULT_TIME_TO_LIVE = 10L * 60 * 1000;
+	/** Default time to live for lookups that found no rate, 5 seconds. */
+	public static final long DEFAULT_NEGATIVE_TIME_TO_LIVE = 5L * 1000;
+	/** Bucket used for lookups without timestamp. */
+	private static final long CURRENT_BUCKET = Long.MIN_VALUE;
+
+	/** The provider decorated. */
+	private final ExchangeRateProvider delegate;
+	/** The component name used for metrics. */
+	private final String metricsName;
+	/** The provider decorated, if it is versioned. */
+	private final SnapshotVersioned versioned;
+	/** The snapshot version of the cached lookups. */
+	private volatile long cachedVersion;
+	/** The cached lookups. */
+	private final LruCache<RateKey, CachedRate> cache;
+	/** The size of a time bucket in milliseconds. */
+	private final long bucketMillis;
+	/** Time to live for rates found. */
+	private final long timeToLive;
+	/** Time to live for lookups without result. */
+	private final long negativeTimeToLive;
+	/** Number of lookups served from the cache. */
+	private final AtomicLong hitCount = new AtomicLong();
+	/** Number of lookups passed to the delegate. */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Creates a new instance using the default settings.
+	 *
+	 * @param delegate
+	 *            the provider to be decorated, not {@code null}.
+	 */
+	public CachedExchangeRateProvider(ExchangeRateProvider delegate) {
+		this(delegate, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param delegate
+	 *            the provider to be decorated, not {@code null}.
+	 * @param maximumSize
+	 *            the maximal number of cached lookups.
+	 */
+	public CachedExchangeRateProvider(ExchangeRateProvider delegate,
+			int maximumSize) {
+		this(delegate, maximumSize, DAY_MILLIS, DEFAULT_TIME_TO_LIVE,
+				DEFAULT_NEGATIVE_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param delegate
+	 *            the provider to be decorated, not {@code null}.
+	 * @param maximumSize
+	 *            the maximal number of cached lookups.
+	 * @param bucketMillis
+	 *            the size of the time buckets, timestamps within the same
+	 *            bucket share the same cached rate.
+	 * @param timeToLive
+	 *            the maximal time in milliseconds a rate found is cached.
+	 * @param negativeTimeToLive
+	 *            the time in milliseconds a lookup without result is cached,
+	 *            {@code 0} disables negative caching.
+	 */
+	public CachedExchangeRateProvider(ExchangeRateProvider delegate,
+			int maximumSize, long bucketMillis, long timeToLive,
+			long negativeTimeToLive) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("delegate required.");
+		}
+		if (bucketMillis <= 0) {
+			throw new IllegalArgumentException("bucketMillis must be > 0.");
+		}
+		if (timeToLive < 0 || negativeTimeToLive < 0) {
+			throw new IllegalArgumentException("timeToLive must be >= 0.");
+		}
+		this.delegate = delegate;
+		this.metricsName = "CachedExchangeRateProvider["
+				+ delegate.getExchangeRateType().getId() + ']';
+		if (delegate instanceof SnapshotVersioned) {
+			this.versioned = (SnapshotVersioned) delegate;
+			this.cachedVersion = this.versioned.getSnapshotVersion();
+		} else {
+			this.versioned = null;
+		}
+		this.cache = new LruCache<RateKey, CachedRate>(maximumSize);
+		this.bucketMillis = bucketMillis;
+		this.timeToLive = timeToLive;
+		this.negativeTimeToLive = negativeTimeToLive;
+	}
+
+	/**
+	 * Access the decorated provider.
+	 *
+	 * @return the decorated provider, never {@code null}.
+	 */
+	public ExchangeRateProvider getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Access the snapshot version of the decorated provider.
+	 * 
+	 * @return the snapshot version, or {@code 0}, if the decorated provider is
+	 *         not {@link SnapshotVersioned}.
+	 */
+	@Override
+	public long getSnapshotVersion() {
+		if (versioned == null) {
+			return 0L;
+		}
+		return versioned.getSnapshotVersion();
+	}
+
+	@Override
+	public ExchangeRateType getExchangeRateType() {
+		return delegate.getExchangeRateType();
+	}
+
+	@Override
+	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target) {
+		return get(src, target, null) != null;
+	}
+
+	@Override
+	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target,
+			Long timestamp) {
+		return get(src, target, timestamp) != null;
+	}
+
+	@Override
+	public ExchangeRate get(CurrencyUnit source, CurrencyUnit target) {
+		return get(source, target, null);
+	}
+
+	@Override
+	public ExchangeRate get(CurrencyUnit source, CurrencyUnit target,
+			Long timestamp) {
+		if (versioned != null) {
+			long version = versioned.getSnapshotVersion();
+			if (version != cachedVersion) {
+				this.cache.clear();
+				cachedVersion = version;
+			}
+		}
+		RateKey key = new RateKey(source, target, getBucket(timestamp));
+		long now = System.currentTimeMillis();
+		CachedRate cached = this.cache.get(key);
+		if (cached != null) {
+			if (cached.expiresAt > now) {
+				hitCount.incrementAndGet();
+				ExchangeRateMetricsRegistry.getMetrics().recordCacheAccess(
+						metricsName, true);
+				return cached.rate;
+			}
+			this.cache.remove(key);
+		}
+		missCount.incrementAndGet();
+		ExchangeRateMetricsRegistry.getMetrics().recordCacheAccess(
+				metricsName, false);
+		ExchangeRate rate = delegate.get(source, target, timestamp);
+		long expiresAt = getExpiry(rate, now);
+		if (expiresAt > now) {
+			this.cache.put(key, new CachedRate(rate, expiresAt));
+		}
+		return rate;
+	}
+
+	/**
+	 * Removes all cached lookups.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Access the number of cached lookups.
+	 *
+	 * @return the current cache size.
+	 */
+	public int getSize() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Access the number of lookups served from the cache. Lookups that found
+	 * an expired entry are not counted as hits.
+	 *
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Access the number of lookups that were not served from the cache.
+	 *
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Access the number of entries evicted because of the size bound.
+	 *
+	 * @return the eviction count.
+	 */
+	public long getEvictionCount() {
+		return this.cache.getEvictionCount();
+	}
+
+	private long getBucket(Long timestamp) {
+		if (timestamp == null) {
+			return CURRENT_BUCKET;
+		}
+		long ts = timestamp.longValue();
+		long bucket = ts / bucketMillis;
+		if (ts < 0 && ts % bucketMillis != 0) {
+			bucket--;
+		}
+		return bucket;
+	}
+
+	private long getExpiry(ExchangeRate rate, long now) {
+		if (rate == null) {
+			return now + negativeTimeToLive;
+		}
+		long expiresAt = now + timeToLive;
+		Long validUntil = rate.getValidUntil();
+		if (validUntil != null && validUntil.longValue() < expiresAt) {
+			expiresAt = validUntil.longValue();
+		}
+		return expiresAt;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CachedExchangeRateProvider [delegate=" + delegate
+				+ ", cache=" + cache + "]";
+	}
+
+	/**
+	 * Key of a cached lookup.
+	 */
+	private static final class RateKey {
+		private final String source;
+		private final String target;
+		private final long bucket;
+		private final int hashCode;
+
+		RateKey(CurrencyUnit source, CurrencyUnit target, long bucket) {
+			this.source = source.getNamespace() + ':'
+					+ source.getCurrencyCode();
+			this.target = target.getNamespace() + ':'
+					+ target.getCurrencyCode();
+			this.bucket = bucket;
+			int result = 31 + this.source.hashCode();
+			result = 31 * result + this.target.hashCode();
+			this.hashCode = 31 * result + (int) (bucket ^ (bucket >>> 32));
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof RateKey))
+				return false;
+			RateKey other = (RateKey) obj;
+			return bucket == other.bucket && source.equals(other.source)
+					&& target.equals(other.target);
+		}
+	}
+
+	/**
+	 * A cached lookup result, the rate may be {@code null}.
+	 */
+	private static final class CachedRate {
+		private final ExchangeRate rate;
+		private final long expiresAt;
+
+		CachedRate(ExchangeRate rate, long expiresAt) {
+			this.rate = rate;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
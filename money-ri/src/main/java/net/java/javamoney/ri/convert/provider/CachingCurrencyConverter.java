@@ -0,0 +1,419 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+import javax.money.convert.CurrencyConverter;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.convert.ExchangeRateType;
+import javax.money.provider.Monetary;
+
+import net.java.javamoney.ri.common.LruCache;
+import net.java.javamoney.ri.convert.ExchangeRateMath;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+
+/**
+ * {@link CurrencyConverter} decorator that memoizes the results of another
+ * {@link CurrencyConverter}. Results are cached by amount (value, scale and
+ * number type), source and target currency and timestamp, so repeated
+ * conversions of the same price points return the same result instance.
+ * <p>
+ * The cache is size bounded. It is cleared, whenever the
+ * {@link ExchangeRateProvider} of the converter's rate type publishes a new
+ * snapshot. Since not all providers are {@link SnapshotVersioned}, results
+ * of conversions using the current rates are additionally limited by a time
+ * to live.
+ * 
+ * @author Anatole Tresch
+ */
+public class CachingCurrencyConverter implements CurrencyConverter {
+
+	/** Default maximal number of cached results. */
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	/** Default time to live for results using the current rates, 1 minute. */
+	public static final long DEFAULT_TIME_TO_LIVE = 60L * 1000;
+
+	private final CurrencyConverter delegate;
+	/** The component name used for metrics. */
+	private final String metricsName;
+	private final SnapshotVersioned versioned;
+	/** The snapshot version of the cached results. */
+	private volatile long cachedVersion;
+	private final LruCache<ConversionKey, CachedResult> cache;
+	private final long timeToLive;
+
+	/**
+	 * Creates a new instance using the default settings.
+	 * 
+	 * @param delegate
+	 *            the converter to be decorated, not {@code null}.
+	 */
+	public CachingCurrencyConverter(CurrencyConverter delegate) {
+		this(delegate, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Creates a new instance, observing the snapshots of the
+	 * {@link ExchangeRateProvider} of the converter's rate type.
+	 * 
+	 * @param delegate
+	 *            the converter to be decorated, not {@code null}.
+	 * @param maximumSize
+	 *            the maximal number of cached results.
+	 */
+	public CachingCurrencyConverter(CurrencyConverter delegate, int maximumSize) {
+		this(delegate, getVersionSource(delegate), maximumSize,
+				DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param delegate
+	 *            the converter to be decorated, not {@code null}.
+	 * @param versioned
+	 *            the source of the snapshot versions, or {@code null}.
+	 * @param maximumSize
+	 *            the maximal number of cached results.
+	 * @param timeToLive
+	 *            the time in milliseconds results using the current rates are
+	 *            cached.
+	 */
+	public CachingCurrencyConverter(CurrencyConverter delegate,
+			SnapshotVersioned versioned, int maximumSize, long timeToLive) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("delegate required.");
+		}
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException("timeToLive must be >= 0.");
+		}
+		this.delegate = delegate;
+		this.metricsName = "CachingCurrencyConverter["
+				+ delegate.getExchangeRateType().getId() + ']';
+		this.versioned = versioned;
+		if (versioned != null) {
+			this.cachedVersion = versioned.getSnapshotVersion();
+		}
+		this.cache = new LruCache<ConversionKey, CachedResult>(maximumSize);
+		this.timeToLive = timeToLive;
+	}
+
+	private static SnapshotVersioned getVersionSource(
+			CurrencyConverter delegate) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("delegate required.");
+		}
+		ExchangeRateProvider provider = Monetary
+				.getExchangeRateProvider(delegate.getExchangeRateType());
+		if (provider instanceof SnapshotVersioned) {
+			return (SnapshotVersioned) provider;
+		}
+		return null;
+	}
+
+	/**
+	 * Access the decorated converter.
+	 * 
+	 * @return the decorated converter, never {@code null}.
+	 */
+	public CurrencyConverter getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Removes all cached results.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Access the number of cached results.
+	 * 
+	 * @return the current cache size.
+	 */
+	public int getSize() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Access the number of conversions served from the cache.
+	 * 
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return this.cache.getHitCount();
+	}
+
+	/**
+	 * Access the number of conversions not served from the cache.
+	 * 
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return this.cache.getMissCount();
+	}
+
+	@Override
+	public ExchangeRateType getExchangeRateType() {
+		return delegate.getExchangeRateType();
+	}
+
+	@Override
+	public MonetaryAmount convert(MonetaryAmount amount, CurrencyUnit target) {
+		return convert(amount, target, null);
+	}
+
+	@Override
+	public MonetaryAmount convert(MonetaryAmount amount, CurrencyUnit target,
+			Long timestamp) {
+		ConversionKey key = createKey(amount, target, timestamp);
+		MonetaryAmount result = lookup(key);
+		if (result == null) {
+			if (timestamp == null) {
+				result = delegate.convert(amount, target);
+			} else {
+				result = delegate.convert(amount, target, timestamp);
+			}
+			store(key, result);
+		}
+		return result;
+	}
+
+	@Override
+	public MonetaryAmount convert(Number amount, CurrencyUnit sourceCurrency,
+			CurrencyUnit targetCurrency) {
+		return convert(amount, sourceCurrency, targetCurrency, null);
+	}
+
+	@Override
+	public MonetaryAmount convert(Number amount, CurrencyUnit source,
+			CurrencyUnit target, Long timestamp) {
+		if (amount == null) {
+			throw new IllegalArgumentException("amount may not be null.");
+		}
+		ConversionKey key = new ConversionKey(amount.getClass(), true,
+				ExchangeRateMath.toBigDecimal(amount), source, target,
+				timestamp);
+		MonetaryAmount result = lookup(key);
+		if (result == null) {
+			if (timestamp == null) {
+				result = delegate.convert(amount, source, target);
+			} else {
+				result = delegate.convert(amount, source, target, timestamp);
+			}
+			store(key, result);
+		}
+		return result;
+	}
+
+	@Override
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target) {
+		return convert(amounts, target, null);
+	}
+
+	/**
+	 * Converts the amounts, serving repeated amounts from the cache. The
+	 * amounts not cached are passed to the decorated converter in a single
+	 * bulk conversion.
+	 */
+	@Override
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target, Long timestamp) {
+		if (amounts == null) {
+			throw new IllegalArgumentException("amounts may not be null.");
+		}
+		MonetaryAmount[] result = new MonetaryAmount[amounts.length];
+		ConversionKey[] keys = new ConversionKey[amounts.length];
+		List<MonetaryAmount> missing = new ArrayList<MonetaryAmount>();
+		for (int i = 0; i < amounts.length; i++) {
+			keys[i] = createKey(amounts[i], target, timestamp);
+			result[i] = lookup(keys[i]);
+			if (result[i] == null) {
+				missing.add(amounts[i]);
+			}
+		}
+		if (missing.isEmpty()) {
+			return result;
+		}
+		MonetaryAmount[] converted = delegate.convert(
+				missing.toArray(new MonetaryAmount[missing.size()]), target,
+				timestamp);
+		int index = 0;
+		for (int i = 0; i < result.length; i++) {
+			if (result[i] == null) {
+				result[i] = converted[index++];
+				store(keys[i], result[i]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target) {
+		return convert(amounts, target, null);
+	}
+
+	@Override
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target,
+			Long timestamp) {
+		if (amounts == null) {
+			throw new IllegalArgumentException("amounts may not be null.");
+		}
+		List<MonetaryAmount> input = new ArrayList<MonetaryAmount>();
+		for (MonetaryAmount amount : amounts) {
+			input.add(amount);
+		}
+		return Arrays.asList(convert(
+				input.toArray(new MonetaryAmount[input.size()]), target,
+				timestamp));
+	}
+
+	private static ConversionKey createKey(MonetaryAmount amount,
+			CurrencyUnit target, Long timestamp) {
+		if (amount == null) {
+			throw new IllegalArgumentException("amount may not be null.");
+		}
+		return new ConversionKey(amount.getNumberType(), false,
+				amount.asType(BigDecimal.class), amount.getCurrency(), target,
+				timestamp);
+	}
+
+	private MonetaryAmount lookup(ConversionKey key) {
+		if (versioned != null) {
+			long version = versioned.getSnapshotVersion();
+			if (version != cachedVersion) {
+				this.cache.clear();
+				cachedVersion = version;
+			}
+		}
+		CachedResult cached = this.cache.get(key);
+		if (cached != null && cached.expiresAt < System.currentTimeMillis()) {
+			this.cache.remove(key);
+			cached = null;
+		}
+		ExchangeRateMetricsRegistry.getMetrics().recordCacheAccess(
+				metricsName, cached != null);
+		return cached == null ? null : cached.result;
+	}
+
+	private void store(ConversionKey key, MonetaryAmount result) {
+		long expiresAt = Long.MAX_VALUE;
+		if (key.timestamp == null) {
+			expiresAt = System.currentTimeMillis() + timeToLive;
+		}
+		this.cache.put(key, new CachedResult(result, expiresAt));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CachingCurrencyConverter [delegate=" + delegate + ", cache="
+				+ cache + "]";
+	}
+
+	/**
+	 * Key of a cached conversion. The amount is compared including its scale,
+	 * since the scale of the result depends on it.
+	 */
+	private static final class ConversionKey {
+		private final Class<?> numberType;
+		private final boolean plainNumber;
+		private final BigDecimal amount;
+		private final String source;
+		private final String target;
+		private final Long timestamp;
+		private final int hashCode;
+
+		ConversionKey(Class<?> numberType, boolean plainNumber,
+				BigDecimal amount, CurrencyUnit source, CurrencyUnit target,
+				Long timestamp) {
+			if (source == null) {
+				throw new IllegalArgumentException("source may not be null.");
+			}
+			if (target == null) {
+				throw new IllegalArgumentException("target may not be null.");
+			}
+			this.numberType = numberType;
+			this.plainNumber = plainNumber;
+			this.amount = amount;
+			this.source = source.getNamespace() + ':'
+					+ source.getCurrencyCode();
+			this.target = target.getNamespace() + ':'
+					+ target.getCurrencyCode();
+			this.timestamp = timestamp;
+			int result = 31 + amount.hashCode();
+			result = 31 * result + this.source.hashCode();
+			result = 31 * result + this.target.hashCode();
+			result = 31 * result
+					+ (timestamp == null ? 0 : timestamp.hashCode());
+			this.hashCode = 31 * result + (plainNumber ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof ConversionKey))
+				return false;
+			ConversionKey other = (ConversionKey) obj;
+			return hashCode == other.hashCode
+					&& plainNumber == other.plainNumber
+					&& numberType == other.numberType
+					&& amount.equals(other.amount)
+					&& source.equals(other.source)
+					&& target.equals(other.target)
+					&& (timestamp == null ? other.timestamp == null
+							: timestamp.equals(other.timestamp));
+		}
+	}
+
+	/**
+	 * A cached conversion result.
+	 */
+	private static final class CachedResult {
+		private final MonetaryAmount result;
+		private final long expiresAt;
+
+		CachedResult(MonetaryAmount result, long expiresAt) {
+			this.result = result;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
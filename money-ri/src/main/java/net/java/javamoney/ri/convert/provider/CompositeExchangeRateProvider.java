@@ -0,0 +1,523 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.convert.ExchangeRateType;
+import javax.money.convert.spi.ExchangeRateProviderSpi;
+
+import net.java.javamoney.ri.common.LatencyHistogram;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ExchangeRateProvider} that queries an ordered list of
+ * {@link ExchangeRateProviderSpi} instances, possibly of different
+ * {@link ExchangeRateType}s, and returns the first rate found.
+ * <p>
+ * Each SPI has a latency budget. If an SPI does not answer within its budget,
+ * the next SPI is queried in parallel (hedged), while the pending lookups
+ * continue, and the first rate returned by any of them is used. If an SPI
+ * returns no rate, the next one is queried immediately. Once a rate is found
+ * or the lookup times out, the lookups still pending are cancelled. The
+ * lookups run on a bounded pool of daemon threads.
+ * <p>
+ * SPIs known to answer within their budget, e.g. in-memory providers, are
+ * called directly in the calling thread, without hand-off to the pool. An SPI
+ * is considered fast, if at least {@value #MIN_SAMPLES} latencies were
+ * recorded, their 99th percentile is within its budget and it is not marked as
+ * remote, see {@link #setRemote(ExchangeRateProviderSpi, boolean)}. A direct
+ * call exceeding the budget moves the SPI back to the pool. Once an SPI is
+ * queried on the pool, all following SPIs are queried on the pool as well.
+ * <p>
+ * The latencies of all SPIs are recorded in {@link LatencyHistogram}s.
+ * Periodically SPIs of the same rate type are reordered by their median
+ * latency, so the fastest source is asked first, and the fast SPIs are
+ * evaluated. SPIs of different rate types
+ * keep the order given, since the rate types define the precedence of the
+ * rates.
+ * 
+ * @author Anatole Tresch
+ */
+public class CompositeExchangeRateProvider implements ExchangeRateProvider,
+		SnapshotVersioned {
+
+	/** Default latency budget of an SPI, in milliseconds. */
+	public static final long DEFAULT_LATENCY_BUDGET = 50L;
+	/** Default maximal duration of a lookup, in milliseconds. */
+	public static final long DEFAULT_TIMEOUT = 5000L;
+	/** Number of lookups between two reorderings. */
+	public static final int REORDER_INTERVAL = 256;
+	/** Minimal number of samples, before an SPI is reordered. */
+	private static final int MIN_SAMPLES = 32;
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(CompositeExchangeRateProvider.class);
+
+	private final ExchangeRateType rateType;
+	/** The component name used for metrics. */
+	private final String metricsName;
+	private final ExecutorService executor;
+	private final long timeoutNanos;
+	/** The SPIs, in the order declared. */
+	private final List<Member> declared = new ArrayList<Member>();
+	/** The SPIs, in the order currently queried. */
+	private volatile Member[] members;
+	private final AtomicLong lookupCount = new AtomicLong();
+
+	/**
+	 * Creates a new instance, querying all {@link ExchangeRateProviderSpi}
+	 * instances registered with the {@link ServiceLoader} for the given rate
+	 * types.
+	 * 
+	 * @param rateTypes
+	 *            the rate types, in order of precedence, at least one.
+	 */
+	public CompositeExchangeRateProvider(ExchangeRateType... rateTypes) {
+		this(rateTypes[0], loadProviders(rateTypes), null, DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param rateType
+	 *            the rate type reported by this provider, not {@code null}.
+	 * @param spis
+	 *            the SPIs, in order of precedence.
+	 * @param executor
+	 *            the executor to run the lookups, or {@code null} for a shared
+	 *            default executor.
+	 * @param timeout
+	 *            the maximal duration of a lookup in milliseconds.
+	 */
+	public CompositeExchangeRateProvider(ExchangeRateType rateType,
+			Iterable<? extends ExchangeRateProviderSpi> spis,
+			ExecutorService executor, long timeout) {
+		if (rateType == null) {
+			throw new IllegalArgumentException("ExchangeRateType required.");
+		}
+		if (spis == null) {
+			throw new IllegalArgumentException("spis may not be null.");
+		}
+		if (timeout <= 0) {
+			throw new IllegalArgumentException("timeout must be > 0.");
+		}
+		this.rateType = rateType;
+		this.metricsName = "CompositeExchangeRateProvider["
+				+ rateType.getId() + ']';
+		this.executor = executor == null ? LookupExecutorHolder.EXECUTOR
+				: executor;
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+		List<ExchangeRateType> types = new ArrayList<ExchangeRateType>();
+		for (ExchangeRateProviderSpi spi : spis) {
+			int group = types.indexOf(spi.getExchangeRateType());
+			if (group < 0) {
+				group = types.size();
+				types.add(spi.getExchangeRateType());
+			}
+			declared.add(new Member(spi, group, declared.size()));
+		}
+		this.members = declared.toArray(new Member[declared.size()]);
+	}
+
+	private static List<ExchangeRateProviderSpi> loadProviders(
+			ExchangeRateType... rateTypes) {
+		if (rateTypes.length == 0) {
+			throw new IllegalArgumentException("ExchangeRateType required.");
+		}
+		List<ExchangeRateProviderSpi> spis = new ArrayList<ExchangeRateProviderSpi>();
+		List<ExchangeRateProviderSpi> loaded = new ArrayList<ExchangeRateProviderSpi>();
+		for (ExchangeRateProviderSpi spi : ServiceLoader
+				.load(ExchangeRateProviderSpi.class)) {
+			loaded.add(spi);
+		}
+		for (ExchangeRateType rateType : rateTypes) {
+			for (ExchangeRateProviderSpi spi : loaded) {
+				if (spi.getExchangeRateType().equals(rateType)) {
+					spis.add(spi);
+				}
+			}
+		}
+		return spis;
+	}
+
+	/**
+	 * Access the SPIs in the order they are currently queried.
+	 * 
+	 * @return the SPIs, never {@code null}.
+	 */
+	public List<ExchangeRateProviderSpi> getProviders() {
+		List<ExchangeRateProviderSpi> spis = new ArrayList<ExchangeRateProviderSpi>();
+		for (Member member : members) {
+			spis.add(member.spi);
+		}
+		return spis;
+	}
+
+	/**
+	 * Sets the latency budget of an SPI, after which the next SPI is queried
+	 * in parallel.
+	 * 
+	 * @param spi
+	 *            the SPI, not {@code null}.
+	 * @param budget
+	 *            the budget in milliseconds.
+	 */
+	public void setLatencyBudget(ExchangeRateProviderSpi spi, long budget) {
+		if (budget < 0) {
+			throw new IllegalArgumentException("budget must be >= 0.");
+		}
+		getMember(spi).budgetNanos = TimeUnit.MILLISECONDS.toNanos(budget);
+	}
+
+	/**
+	 * Marks an SPI as remote. Remote SPIs are always queried on the pool, so
+	 * slow lookups can be hedged, regardless of the latencies recorded.
+	 * 
+	 * @param spi
+	 *            the SPI, not {@code null}.
+	 * @param remote
+	 *            true, if the SPI is remote.
+	 */
+	public void setRemote(ExchangeRateProviderSpi spi, boolean remote) {
+		Member member = getMember(spi);
+		member.remote = remote;
+		if (remote) {
+			member.direct = false;
+		}
+	}
+
+	/**
+	 * Access the latencies recorded for an SPI.
+	 * 
+	 * @param spi
+	 *            the SPI, not {@code null}.
+	 * @return the histogram, never {@code null}.
+	 */
+	public LatencyHistogram getLatencyHistogram(ExchangeRateProviderSpi spi) {
+		return getMember(spi).latencies;
+	}
+
+	private Member getMember(ExchangeRateProviderSpi spi) {
+		for (Member member : declared) {
+			if (member.spi == spi) {
+				return member;
+			}
+		}
+		throw new IllegalArgumentException("Unknown SPI: " + spi);
+	}
+
+	/**
+	 * Reorders the SPIs of each rate type by their median latency. SPIs with
+	 * less than {@value #MIN_SAMPLES} samples are queried first, so their
+	 * latency gets known. Also evaluates the SPIs called directly. This method
+	 * is called periodically by the lookups.
+	 */
+	public void reorder() {
+		Member[] ordered = declared.toArray(new Member[declared.size()]);
+		final long[] medians = new long[ordered.length];
+		for (Member member : ordered) {
+			medians[member.index] = -1L;
+			boolean direct = false;
+			if (member.latencies.getCount() >= MIN_SAMPLES) {
+				medians[member.index] = member.latencies.getPercentile(0.5);
+				direct = !member.remote
+						&& member.latencies.getPercentile(0.99) <= member.budgetNanos;
+			}
+			member.direct = direct;
+		}
+		Arrays.sort(ordered, new Comparator<Member>() {
+			@Override
+			public int compare(Member m1, Member m2) {
+				if (m1.group != m2.group) {
+					return m1.group < m2.group ? -1 : 1;
+				}
+				if (medians[m1.index] != medians[m2.index]) {
+					return medians[m1.index] < medians[m2.index] ? -1 : 1;
+				}
+				return m1.index - m2.index;
+			}
+		});
+		this.members = ordered;
+	}
+
+	/**
+	 * Access the snapshot version, aggregated from all
+	 * {@link ExchangeRateProviderSpi} instances that are
+	 * {@link SnapshotVersioned}.
+	 * 
+	 * @return the aggregated snapshot version.
+	 */
+	@Override
+	public long getSnapshotVersion() {
+		long version = 0L;
+		for (Member member : declared) {
+			if (member.spi instanceof SnapshotVersioned) {
+				version += ((SnapshotVersioned) member.spi)
+						.getSnapshotVersion();
+			}
+		}
+		return version;
+	}
+
+	@Override
+	public ExchangeRateType getExchangeRateType() {
+		return rateType;
+	}
+
+	@Override
+	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target) {
+		return get(src, target, null) != null;
+	}
+
+	@Override
+	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target,
+			Long timestamp) {
+		return get(src, target, timestamp) != null;
+	}
+
+	@Override
+	public ExchangeRate get(CurrencyUnit source, CurrencyUnit target) {
+		return get(source, target, null);
+	}
+
+	@Override
+	public ExchangeRate get(CurrencyUnit source, CurrencyUnit target,
+			Long timestamp) {
+		long start = System.nanoTime();
+		ExchangeRate rate = lookup(source, target, timestamp);
+		ExchangeRateMetricsRegistry.getMetrics().recordLookup(metricsName,
+				System.nanoTime() - start, rate != null);
+		return rate;
+	}
+
+	private ExchangeRate lookup(CurrencyUnit source, CurrencyUnit target,
+			Long timestamp) {
+		if (lookupCount.incrementAndGet() % REORDER_INTERVAL == 0) {
+			reorder();
+		}
+		Member[] ordered = this.members;
+		long deadline = System.nanoTime() + timeoutNanos;
+		int next = 0;
+		while (next < ordered.length && ordered[next].direct) {
+			ExchangeRate rate = ordered[next++].getExchangeRate(source,
+					target, timestamp);
+			if (rate != null) {
+				return rate;
+			}
+		}
+		if (next == ordered.length) {
+			return null;
+		}
+		return lookupHedged(ordered, next, deadline, source, target,
+				timestamp);
+	}
+
+	/**
+	 * Queries the SPIs starting at {@code next} on the pool, hedging lookups
+	 * exceeding their budget.
+	 */
+	private ExchangeRate lookupHedged(Member[] ordered, int next,
+			long deadline, CurrencyUnit source, CurrencyUnit target,
+			Long timestamp) {
+		ExecutorCompletionService<ExchangeRate> completion = new ExecutorCompletionService<ExchangeRate>(
+				executor);
+		List<Future<ExchangeRate>> futures = new ArrayList<Future<ExchangeRate>>(
+				ordered.length - next);
+		int pending = 0;
+		try {
+			futures.add(completion.submit(ordered[next++].lookup(source,
+					target, timestamp)));
+			pending++;
+			while (pending > 0) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					break;
+				}
+				Future<ExchangeRate> done;
+				if (next < ordered.length) {
+					done = completion.poll(
+							Math.min(ordered[next - 1].budgetNanos, remaining),
+							TimeUnit.NANOSECONDS);
+				} else {
+					done = completion.poll(remaining, TimeUnit.NANOSECONDS);
+				}
+				if (done != null) {
+					pending--;
+					ExchangeRate rate = getResult(done);
+					if (rate != null) {
+						return rate;
+					}
+				}
+				if (next < ordered.length && (done == null || pending == 0)) {
+					// budget exceeded, or no rate and nothing pending
+					futures.add(completion.submit(ordered[next++].lookup(
+							source, target, timestamp)));
+					pending++;
+				}
+			}
+			if (pending > 0) {
+				LOGGER.warn("Timeout looking up rate " + source + '/' + target
+						+ ", pending: " + pending);
+			}
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} finally {
+			for (Future<ExchangeRate> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private ExchangeRate getResult(Future<ExchangeRate> future)
+			throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			LOGGER.warn("Exchange rate lookup failed.", e.getCause());
+			return null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CompositeExchangeRateProvider [rateType=" + rateType
+				+ ", providers=" + getProviders() + "]";
+	}
+
+	/**
+	 * An SPI with its latency statistics.
+	 */
+	private static final class Member {
+		private final ExchangeRateProviderSpi spi;
+		/** The index of the rate type. */
+		private final int group;
+		/** The index in the declared order. */
+		private final int index;
+		private final LatencyHistogram latencies = new LatencyHistogram();
+		private volatile long budgetNanos = TimeUnit.MILLISECONDS
+				.toNanos(DEFAULT_LATENCY_BUDGET);
+		/** Whether the SPI is remote. */
+		private volatile boolean remote;
+		/** Whether the SPI is called in the calling thread. */
+		private volatile boolean direct;
+
+		Member(ExchangeRateProviderSpi spi, int group, int index) {
+			this.spi = spi;
+			this.group = group;
+			this.index = index;
+		}
+
+		/**
+		 * Calls the SPI in the calling thread. If the call exceeds the budget,
+		 * the SPI is not called directly anymore.
+		 */
+		ExchangeRate getExchangeRate(CurrencyUnit source, CurrencyUnit target,
+				Long timestamp) {
+			long start = System.nanoTime();
+			try {
+				return spi.getExchangeRate(source, target, timestamp);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Exchange rate lookup failed.", e);
+				return null;
+			} finally {
+				long latency = System.nanoTime() - start;
+				latencies.record(latency);
+				if (latency > budgetNanos) {
+					direct = false;
+				}
+			}
+		}
+
+		Callable<ExchangeRate> lookup(final CurrencyUnit source,
+				final CurrencyUnit target, final Long timestamp) {
+			return new Callable<ExchangeRate>() {
+				@Override
+				public ExchangeRate call() throws Exception {
+					long start = System.nanoTime();
+					try {
+						return spi.getExchangeRate(source, target, timestamp);
+					} finally {
+						latencies.record(System.nanoTime() - start);
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Lazily created bounded executor, shared by all instances not configured
+	 * with an explicit executor. If the queue is full, lookups run in the
+	 * calling thread.
+	 */
+	private static final class LookupExecutorHolder {
+		static final ExecutorService EXECUTOR;
+		static {
+			int threads = Math.max(4, Runtime.getRuntime()
+					.availableProcessors() * 2);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+					threads, 60L, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(1024),
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r,
+									"ExchangeRateLookup-"
+											+ count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+			executor.allowCoreThreadTimeOut(true);
+			EXECUTOR = executor;
+		}
+	}
+
+}
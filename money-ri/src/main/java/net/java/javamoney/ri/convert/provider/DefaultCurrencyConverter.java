@@ -18,6 +18,18 @@
  */
 package net.java.javamoney.ri.convert.provider;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import javax.money.CurrencyUnit;
 import javax.money.MonetaryAmount;
 import javax.money.convert.CurrencyConversionException;
@@ -27,19 +39,60 @@ import javax.money.convert.ExchangeRateProvider;
 import javax.money.convert.ExchangeRateType;
 import javax.money.provider.Monetary;
 import javax.money.provider.MonetaryAmountProvider;
+import javax.money.provider.Rounding;
+import javax.money.provider.RoundingProvider;
 
+import net.java.javamoney.ri.convert.ConversionPlan;
+import net.java.javamoney.ri.convert.ExchangeRateMath;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
 import net.java.javamoney.ri.convert.SingletonExchangeRateType;
 
 /**
  * Implementation of a {@link CurrencyConverter} that is simply adapting an
  * existing {@link ExchangeRateProvider}.
+ * <p>
+ * Bulk conversions evaluate the {@link ExchangeRateProvider}, the
+ * {@link ExchangeRate} per source currency and the
+ * {@link MonetaryAmountProvider} per number type only once. Inputs larger than
+ * {@link #PARALLEL_THRESHOLD} are converted in parallel.
+ * <p>
+ * By default results are rounded using the {@link Rounding} of the target
+ * currency provided by the {@link RoundingProvider}. If no rounding is
+ * available, results are rounded half up to the default fraction digits of
+ * the target currency, as part of the multiplication.
  * 
  * @author Anatole Tresch
  */
 public class DefaultCurrencyConverter implements CurrencyConverter {
 
+	/**
+	 * Minimal number of amounts for a bulk conversion to be split into
+	 * parallel tasks.
+	 */
+	public static final int PARALLEL_THRESHOLD = 10000;
+
 	private ExchangeRateType exchangeRateType;
 
+	/** The component name used for metrics. */
+	private final String metricsName;
+
+	/** Plans created, by source and target currency. */
+	private final Map<String, ConversionPlan> plans = new ConcurrentHashMap<String, ConversionPlan>();
+
+	/** Whether results are rounded. */
+	private volatile boolean roundingEnabled = true;
+
+	/**
+	 * The roundings for the current rates, also used for timestamps without
+	 * specific rounding, by target currency.
+	 */
+	private final Map<String, Rounding> roundings = new ConcurrentHashMap<String, Rounding>();
+
+	/** The rounding provider, or null, if none is available. */
+	private volatile RoundingProvider roundingProvider;
+	/** Whether {@link #roundingProvider} was resolved. */
+	private volatile boolean roundingProviderResolved;
+
 	public DefaultCurrencyConverter() {
 		this(SingletonExchangeRateType.of("default"));
 	}
@@ -50,6 +103,8 @@ public class DefaultCurrencyConverter implements CurrencyConverter {
 					"exchangeRateType may not be null.");
 		}
 		this.exchangeRateType = exchangeRateType;
+		this.metricsName = "DefaultCurrencyConverter["
+				+ exchangeRateType.getId() + ']';
 	}
 
 	@Override
@@ -57,8 +112,146 @@ public class DefaultCurrencyConverter implements CurrencyConverter {
 		return exchangeRateType;
 	}
 
+	/**
+	 * Enables or disables rounding of the conversion results. If disabled,
+	 * results keep the full precision of the multiplication.
+	 * 
+	 * @param roundingEnabled
+	 *            {@code true}, to round results to the target currency.
+	 */
+	public void setRoundingEnabled(boolean roundingEnabled) {
+		this.roundingEnabled = roundingEnabled;
+		this.plans.clear();
+	}
+
+	/**
+	 * Access whether conversion results are rounded.
+	 * 
+	 * @return {@code true}, if results are rounded to the target currency.
+	 */
+	public boolean isRoundingEnabled() {
+		return roundingEnabled;
+	}
+
+	private void recordConversion(long start, int amounts) {
+		ExchangeRateMetricsRegistry.getMetrics().recordConversion(
+				metricsName, System.nanoTime() - start, amounts);
+	}
+
+	/**
+	 * Evaluates the rounding to be applied to results in the given currency.
+	 * 
+	 * @return the rounding, or {@code null}, if rounding is disabled.
+	 */
+	private Rounding getRounding(CurrencyUnit target, Long timestamp) {
+		if (!roundingEnabled) {
+			return null;
+		}
+		RoundingProvider provider = getRoundingProvider();
+		if (timestamp != null && provider != null) {
+			Rounding rounding = provider.getRounding(target, timestamp);
+			if (rounding != null) {
+				return rounding;
+			}
+		}
+		String key = target.getNamespace() + ':' + target.getCurrencyCode();
+		Rounding rounding = this.roundings.get(key);
+		if (rounding == null) {
+			if (provider != null) {
+				rounding = provider.getRounding(target);
+			}
+			if (rounding == null) {
+				rounding = new FractionDigitsRounding(
+						target.getDefaultFractionDigits());
+			}
+			this.roundings.put(key, rounding);
+		}
+		return rounding;
+	}
+
+	/**
+	 * Access the {@link RoundingProvider}, which is resolved only once.
+	 * 
+	 * @return the provider, or {@code null}, if none is available.
+	 */
+	private RoundingProvider getRoundingProvider() {
+		if (!this.roundingProviderResolved) {
+			RoundingProvider provider = null;
+			try {
+				provider = Monetary.getRoundingProvider();
+			} catch (UnsupportedOperationException e) {
+				// no rounding provider registered
+			}
+			this.roundingProvider = provider;
+			this.roundingProviderResolved = true;
+		}
+		return this.roundingProvider;
+	}
+
+	/**
+	 * Multiplies the amount with the factor and applies the rounding.
+	 * Rounding to the fraction digits is done within the multiplication.
+	 */
+	private static MonetaryAmount convert(
+			MonetaryAmountProvider amountFactory, CurrencyUnit target,
+			Number amount, Number factor, Rounding rounding) {
+		if (rounding instanceof FractionDigitsRounding) {
+			return amountFactory.get(target, ExchangeRateMath.convert(amount,
+					factor, ((FractionDigitsRounding) rounding).fractionDigits));
+		}
+		MonetaryAmount result = amountFactory.get(target,
+				ExchangeRateMath.convert(amount, factor, -1));
+		if (rounding != null) {
+			result = result.with(rounding);
+		}
+		return result;
+	}
+
+	/**
+	 * Access a reusable {@link ConversionPlan} for converting amounts from the
+	 * given source to the given target currency, using the current rates.
+	 * Plans are shared and refresh automatically, when the underlying provider
+	 * publishes new rates. The results are rounded the same way as by
+	 * {@link #convert(MonetaryAmount, CurrencyUnit)}.
+	 * 
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @return the plan, never {@code null}.
+	 * @throws CurrencyConversionException
+	 *             if no rate is available.
+	 */
+	public ConversionPlan getConversionPlan(CurrencyUnit source,
+			CurrencyUnit target) {
+		if (source == null) {
+			throw new IllegalArgumentException("source may not be null.");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("target may not be null.");
+		}
+		String key = source.getNamespace() + ':' + source.getCurrencyCode()
+				+ '>' + target.getNamespace() + ':' + target.getCurrencyCode();
+		ConversionPlan plan = this.plans.get(key);
+		if (plan == null) {
+			ExchangeRateProvider provider = Monetary
+					.getExchangeRateProvider(exchangeRateType);
+			if (provider == null) {
+				throw new CurrencyConversionException(source, target,
+						"Undefined exchange rate type: "
+								+ this.exchangeRateType);
+			}
+			plan = new ConversionPlan(provider, source, target,
+					Monetary.getMonetaryAmountProvider(), getRounding(target,
+							null));
+			this.plans.put(key, plan);
+		}
+		return plan;
+	}
+
 	@Override
 	public MonetaryAmount convert(MonetaryAmount amount, CurrencyUnit target) {
+		long start = System.nanoTime();
 		ExchangeRateProvider provider = Monetary
 				.getExchangeRateProvider(exchangeRateType);
 		if (provider == null) {
@@ -71,13 +264,17 @@ public class DefaultCurrencyConverter implements CurrencyConverter {
 		}
 		MonetaryAmountProvider amountFactory = Monetary
 				.getMonetaryAmountProvider(amount.getNumberType());
-		return amountFactory.get(target, amount.multiply(rate.getFactor())
-				.asType(Number.class));
+		MonetaryAmount result = convert(amountFactory, target,
+				amount.asType(BigDecimal.class), rate.getFactor(),
+				getRounding(target, null));
+		recordConversion(start, 1);
+		return result;
 	}
 
 	@Override
 	public MonetaryAmount convert(MonetaryAmount amount, CurrencyUnit target,
 			Long timestamp) {
+		long start = System.nanoTime();
 		ExchangeRateProvider provider = Monetary
 				.getExchangeRateProvider(exchangeRateType);
 		if (provider == null) {
@@ -92,13 +289,17 @@ public class DefaultCurrencyConverter implements CurrencyConverter {
 		}
 		MonetaryAmountProvider amountFactory = Monetary
 				.getMonetaryAmountProvider(amount.getNumberType());
-		return amountFactory.get(target, amount.multiply(rate.getFactor())
-				.asType(Number.class));
+		MonetaryAmount result = convert(amountFactory, target,
+				amount.asType(BigDecimal.class), rate.getFactor(),
+				getRounding(target, timestamp));
+		recordConversion(start, 1);
+		return result;
 	}
 
 	@Override
 	public MonetaryAmount convert(Number amount, CurrencyUnit sourceCurrency,
 			CurrencyUnit targetCurrency) {
+		long start = System.nanoTime();
 		ExchangeRateProvider provider = Monetary
 				.getExchangeRateProvider(exchangeRateType);
 		if (provider == null) {
@@ -113,13 +314,16 @@ public class DefaultCurrencyConverter implements CurrencyConverter {
 		}
 		MonetaryAmountProvider amountFactory = Monetary
 				.getMonetaryAmountProvider();
-		return amountFactory.get(targetCurrency, amount).multiply(
-				rate.getFactor());
+		MonetaryAmount result = convert(amountFactory, targetCurrency, amount,
+				rate.getFactor(), getRounding(targetCurrency, null));
+		recordConversion(start, 1);
+		return result;
 	}
 
 	@Override
 	public MonetaryAmount convert(Number amount, CurrencyUnit sourceCurrency,
 			CurrencyUnit targetCurrency, Long timestamp) {
+		long start = System.nanoTime();
 		ExchangeRateProvider provider = Monetary
 				.getExchangeRateProvider(exchangeRateType);
 		if (provider == null) {
@@ -135,8 +339,223 @@ public class DefaultCurrencyConverter implements CurrencyConverter {
 		}
 		MonetaryAmountProvider amountFactory = Monetary
 				.getMonetaryAmountProvider();
-		return amountFactory.get(targetCurrency, amount).multiply(
-				rate.getFactor());
+		MonetaryAmount result = convert(amountFactory, targetCurrency, amount,
+				rate.getFactor(), getRounding(targetCurrency, timestamp));
+		recordConversion(start, 1);
+		return result;
+	}
+
+	@Override
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target) {
+		return convert(amounts, target, null);
+	}
+
+	@Override
+	public MonetaryAmount[] convert(MonetaryAmount[] amounts,
+			CurrencyUnit target, Long timestamp) {
+		if (amounts == null) {
+			throw new IllegalArgumentException("amounts may not be null.");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("target may not be null.");
+		}
+		MonetaryAmount[] result = new MonetaryAmount[amounts.length];
+		if (amounts.length == 0) {
+			return result;
+		}
+		long start = System.nanoTime();
+		BulkConversion conversion = new BulkConversion(amounts, target,
+				timestamp);
+		if (amounts.length < PARALLEL_THRESHOLD) {
+			conversion.convert(result, 0, amounts.length);
+		} else {
+			ParallelPoolHolder.POOL.invoke(new BulkConversionTask(conversion,
+					result, 0, amounts.length));
+		}
+		recordConversion(start, amounts.length);
+		return result;
+	}
+
+	@Override
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target) {
+		return convert(amounts, target, null);
+	}
+
+	@Override
+	public List<MonetaryAmount> convert(
+			Iterable<? extends MonetaryAmount> amounts, CurrencyUnit target,
+			Long timestamp) {
+		if (amounts == null) {
+			throw new IllegalArgumentException("amounts may not be null.");
+		}
+		MonetaryAmount[] input;
+		if (amounts instanceof Collection) {
+			input = ((Collection<? extends MonetaryAmount>) amounts)
+					.toArray(new MonetaryAmount[0]);
+		} else {
+			List<MonetaryAmount> list = new ArrayList<MonetaryAmount>();
+			for (MonetaryAmount amount : amounts) {
+				list.add(amount);
+			}
+			input = list.toArray(new MonetaryAmount[list.size()]);
+		}
+		return Arrays.asList(convert(input, target, timestamp));
+	}
+
+	/**
+	 * State of a bulk conversion: the {@link ExchangeRate} instances resolved
+	 * per source currency and the {@link MonetaryAmountProvider} instances
+	 * resolved per number type. All lookups are done on construction, so the
+	 * instance can be shared read-only by parallel tasks afterwards.
+	 */
+	private final class BulkConversion {
+		private final MonetaryAmount[] amounts;
+		private final CurrencyUnit target;
+		private final Rounding rounding;
+		private final Map<String, ExchangeRate> rates = new HashMap<String, ExchangeRate>();
+		private final Map<Class<?>, MonetaryAmountProvider> amountFactories = new HashMap<Class<?>, MonetaryAmountProvider>();
+
+		BulkConversion(MonetaryAmount[] amounts, CurrencyUnit target,
+				Long timestamp) {
+			this.amounts = amounts;
+			this.target = target;
+			this.rounding = getRounding(target, timestamp);
+			ExchangeRateProvider provider = Monetary
+					.getExchangeRateProvider(exchangeRateType);
+			if (provider == null) {
+				throw new CurrencyConversionException(
+						amounts[0].getCurrency(), target,
+						"Undefined exchange rate type: " + exchangeRateType);
+			}
+			CurrencyUnit lastCurrency = null;
+			Class<?> lastNumberType = null;
+			for (MonetaryAmount amount : amounts) {
+				if (amount == null) {
+					throw new IllegalArgumentException(
+							"amounts may not contain null.");
+				}
+				CurrencyUnit currency = amount.getCurrency();
+				if (currency != lastCurrency) {
+					String key = getKey(currency);
+					if (!rates.containsKey(key)) {
+						ExchangeRate rate = provider.get(currency, target,
+								timestamp);
+						if (rate == null) {
+							throw new CurrencyConversionException(currency,
+									target, "Timestamp: " + timestamp);
+						}
+						rates.put(key, rate);
+					}
+					lastCurrency = currency;
+				}
+				Class<?> numberType = amount.getNumberType();
+				if (numberType != lastNumberType) {
+					if (!amountFactories.containsKey(numberType)) {
+						amountFactories.put(numberType,
+								Monetary.getMonetaryAmountProvider(numberType));
+					}
+					lastNumberType = numberType;
+				}
+			}
+		}
+
+		/**
+		 * Converts the amounts within the given range.
+		 * 
+		 * @param result
+		 *            the array to write the converted amounts to.
+		 * @param from
+		 *            the start index, inclusive.
+		 * @param to
+		 *            the end index, exclusive.
+		 */
+		void convert(MonetaryAmount[] result, int from, int to) {
+			CurrencyUnit lastCurrency = null;
+			Number factor = null;
+			Class<?> lastNumberType = null;
+			MonetaryAmountProvider amountFactory = null;
+			for (int i = from; i < to; i++) {
+				MonetaryAmount amount = amounts[i];
+				CurrencyUnit currency = amount.getCurrency();
+				if (currency != lastCurrency) {
+					factor = rates.get(getKey(currency)).getFactor();
+					lastCurrency = currency;
+				}
+				Class<?> numberType = amount.getNumberType();
+				if (numberType != lastNumberType) {
+					amountFactory = amountFactories.get(numberType);
+					lastNumberType = numberType;
+				}
+				result[i] = DefaultCurrencyConverter.convert(amountFactory,
+						target, amount.asType(BigDecimal.class), factor,
+						rounding);
+			}
+		}
+
+		private String getKey(CurrencyUnit currency) {
+			return currency.getNamespace() + ':' + currency.getCurrencyCode();
+		}
+	}
+
+	/**
+	 * Fork-join task splitting a {@link BulkConversion} into ranges.
+	 */
+	private static final class BulkConversionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final BulkConversion conversion;
+		private final MonetaryAmount[] result;
+		private final int from;
+		private final int to;
+
+		BulkConversionTask(BulkConversion conversion, MonetaryAmount[] result,
+				int from, int to) {
+			this.conversion = conversion;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				conversion.convert(result, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new BulkConversionTask(conversion, result, from, mid),
+					new BulkConversionTask(conversion, result, mid, to));
+		}
+	}
+
+	/**
+	 * Rounding half up to the default fraction digits of a currency, used if
+	 * no {@link RoundingProvider} is available.
+	 */
+	private static final class FractionDigitsRounding implements Rounding {
+		private final int fractionDigits;
+
+		FractionDigitsRounding(int fractionDigits) {
+			this.fractionDigits = fractionDigits;
+		}
+
+		@Override
+		public MonetaryAmount adjust(MonetaryAmount amount) {
+			if (fractionDigits < 0) {
+				return amount;
+			}
+			return amount.with(amount.asType(BigDecimal.class).setScale(
+					fractionDigits, RoundingMode.HALF_UP));
+		}
+	}
+
+	/**
+	 * Lazily initialized pool used for parallel bulk conversions.
+	 */
+	private static final class ParallelPoolHolder {
+		static final ForkJoinPool POOL = new ForkJoinPool();
 	}
 
 }
@@ -31,15 +31,27 @@ import javax.money.convert.spi.ExchangeRateProviderSpi;
  * {@link DefaultExchangeRateProvider}, which are relying on the
  * {@link ServiceLoader} to load according {@link ExchangeRateProviderSpi}
  * instances.
+ * <p>
+ * If the system property {@value #CONVERSION_CACHE_SIZE_PROP} is set to a
+ * positive size, the converters created are wrapped into a
+ * {@link CachingCurrencyConverter}.
  * 
  * @author Anatole Tresch
  */
 public class DefaultCurrencyConverterFactory implements
 		CurrencyConverterDefaultFactorySpi {
 
+	/** System property to configure the conversion result cache size. */
+	public static final String CONVERSION_CACHE_SIZE_PROP = "net.java.javamoney.ri.convert.conversionCacheSize";
+
 	@Override
 	public CurrencyConverter createCurrencyConverter(ExchangeRateType type) {
-		return new DefaultCurrencyConverter(type);
+		CurrencyConverter converter = new DefaultCurrencyConverter(type);
+		int cacheSize = Integer.getInteger(CONVERSION_CACHE_SIZE_PROP, 0);
+		if (cacheSize > 0) {
+			return new CachingCurrencyConverter(converter, cacheSize);
+		}
+		return converter;
 	}
 
 }
@@ -28,22 +28,83 @@ import javax.money.convert.ExchangeRateProvider;
 import javax.money.convert.ExchangeRateType;
 import javax.money.convert.spi.ExchangeRateProviderSpi;
 
-public class DefaultExchangeRateProvider implements ExchangeRateProvider {
+import net.java.javamoney.ri.common.LruCache;
+import net.java.javamoney.ri.convert.ExchangeRateCatalog;
+import net.java.javamoney.ri.convert.ExchangeRateGraph;
+import net.java.javamoney.ri.convert.ExchangeRateMetrics;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+
+/**
+ * Default {@link ExchangeRateProvider}, that queries all
+ * {@link ExchangeRateProviderSpi} instances of its {@link ExchangeRateType}.
+ * If no SPI provides a rate for a pair directly, the rate is derived from the
+ * rates loaded by all SPIs that are {@link ExchangeRateCatalog}, using an
+ * {@link ExchangeRateGraph}. The graphs are rebuilt, when an SPI publishes a
+ * new snapshot. Lookups are recorded in the {@link ExchangeRateMetrics}.
+ * 
+ * @author Anatole Tresch
+ */
+public class DefaultExchangeRateProvider implements ExchangeRateProvider,
+		SnapshotVersioned {
+
+	/** Number of graphs for historic snapshots kept. */
+	private static final int HISTORIC_GRAPH_CACHE_SIZE = 32;
 
 	private final ExchangeRateType rateType;
+	/** The component name used for metrics. */
+	private final String metricsName;
 	private final List<ExchangeRateProviderSpi> exchangeRateProviderSpis = new ArrayList<ExchangeRateProviderSpi>();
 	
 	private final ServiceLoader<ExchangeRateProviderSpi> exchangeRateProviderSpiLoader = ServiceLoader
 			.load(ExchangeRateProviderSpi.class);
+
+	/** The graph of the current rates, or null. */
+	private volatile ExchangeRateGraph currentGraph;
+	/** The snapshot version the graphs were built from. */
+	private volatile long graphVersion = -1L;
+	/**
+	 * The graphs for historic timestamps, by the snapshot keys of the
+	 * catalogs, see {@link ExchangeRateCatalog#getSnapshotKey(long)}.
+	 */
+	private final LruCache<List<Long>, ExchangeRateGraph> historicGraphs = new LruCache<List<Long>, ExchangeRateGraph>(
+			HISTORIC_GRAPH_CACHE_SIZE);
 	
 	public DefaultExchangeRateProvider(ExchangeRateType rateType) {
 		if(rateType==null){
 			throw new IllegalArgumentException("ExchangeRateType required.");
 		}
 		this.rateType = rateType;
+		this.metricsName = "DefaultExchangeRateProvider[" + rateType.getId()
+				+ ']';
 		loadProviders();
 	}
 
+	/**
+	 * Creates a new instance, using the given SPIs instead of the ones
+	 * registered with the {@link ServiceLoader}.
+	 * 
+	 * @param rateType
+	 *            the rate type, not {@code null}.
+	 * @param spis
+	 *            the SPIs to be used, in order of precedence.
+	 */
+	public DefaultExchangeRateProvider(ExchangeRateType rateType,
+			Iterable<? extends ExchangeRateProviderSpi> spis) {
+		if (rateType == null) {
+			throw new IllegalArgumentException("ExchangeRateType required.");
+		}
+		if (spis == null) {
+			throw new IllegalArgumentException("spis may not be null.");
+		}
+		this.rateType = rateType;
+		this.metricsName = "DefaultExchangeRateProvider[" + rateType.getId()
+				+ ']';
+		for (ExchangeRateProviderSpi spi : spis) {
+			this.exchangeRateProviderSpis.add(spi);
+		}
+	}
+
 	private void loadProviders() {
 		for (ExchangeRateProviderSpi t : exchangeRateProviderSpiLoader) {
 			if(t.getExchangeRateType().equals(rateType)){
@@ -52,6 +113,25 @@ public class DefaultExchangeRateProvider implements ExchangeRateProvider {
 		}
 	}
 
+	/**
+	 * Access the snapshot version, aggregated from all
+	 * {@link ExchangeRateProviderSpi} instances that are
+	 * {@link SnapshotVersioned}.
+	 * 
+	 * @return the aggregated snapshot version.
+	 */
+	@Override
+	public long getSnapshotVersion() {
+		long version = 0L;
+		for (ExchangeRateProviderSpi rateProviderSpi : exchangeRateProviderSpis) {
+			if (rateProviderSpi instanceof SnapshotVersioned) {
+				version += ((SnapshotVersioned) rateProviderSpi)
+						.getSnapshotVersion();
+			}
+		}
+		return version;
+	}
+
 	@Override
 	public ExchangeRateType getExchangeRateType() {
 		return rateType;
@@ -59,46 +139,116 @@ public class DefaultExchangeRateProvider implements ExchangeRateProvider {
 
 	@Override
 	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target) {
-		for (ExchangeRateProviderSpi rateProviderSpi : exchangeRateProviderSpis) {
-			if(rateProviderSpi.getExchangeRate(src, target, null) != null){
-				return true;
-			}
-		}
-		return false;
+		return get(src, target, null) != null;
 	}
 
 	@Override
 	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target,
 			Long timestamp) {
-		for (ExchangeRateProviderSpi rateProviderSpi : exchangeRateProviderSpis) {
-			if(rateProviderSpi.getExchangeRate(src, target, timestamp) != null){
-				return true;
-			}
-		}
-		return false;
+		return get(src, target, timestamp) != null;
 	}
 
 	@Override
 	public ExchangeRate get(CurrencyUnit source,
 			CurrencyUnit target, Long timestamp) {
+		long start = System.nanoTime();
+		ExchangeRate rate = lookup(source, target, timestamp);
+		ExchangeRateMetricsRegistry.getMetrics().recordLookup(metricsName,
+				System.nanoTime() - start, rate != null);
+		return rate;
+	}
+
+	private ExchangeRate lookup(CurrencyUnit source, CurrencyUnit target,
+			Long timestamp) {
 		for (ExchangeRateProviderSpi rateProviderSpi : exchangeRateProviderSpis) {
 			ExchangeRate rate = rateProviderSpi.getExchangeRate(source, target, timestamp);
 			if(rate != null){
 				return rate;
 			}
 		}
+		ExchangeRateGraph graph = getGraph(timestamp);
+		if (graph != null) {
+			return graph.getExchangeRate(source, target);
+		}
 		return null;
 	}
 
 	@Override
 	public ExchangeRate get(CurrencyUnit source, CurrencyUnit target) {
+		return get(source, target, null);
+	}
+
+	/**
+	 * Access the graph of all rates loaded by the SPIs, that are
+	 * {@link ExchangeRateCatalog}, for the given timestamp. Historic graphs
+	 * are shared by all timestamps with the same snapshot keys, e.g. by all
+	 * timestamps of a day for daily published rates.
+	 * 
+	 * @param timestamp
+	 *            the target timestamp, or {@code null}.
+	 * @return the graph, or {@code null}, if no SPI is a catalog.
+	 */
+	private ExchangeRateGraph getGraph(Long timestamp) {
+		long version = getSnapshotVersion();
+		if (version != graphVersion) {
+			this.historicGraphs.clear();
+			this.currentGraph = null;
+			this.graphVersion = version;
+		}
+		ExchangeRateGraph graph;
+		List<Long> snapshotKey = null;
+		if (timestamp == null) {
+			graph = this.currentGraph;
+		} else {
+			snapshotKey = getSnapshotKey(timestamp.longValue());
+			if (snapshotKey == null) {
+				return null;
+			}
+			graph = this.historicGraphs.get(snapshotKey);
+		}
+		if (graph == null) {
+			List<ExchangeRate> rates = null;
+			for (ExchangeRateProviderSpi rateProviderSpi : exchangeRateProviderSpis) {
+				if (rateProviderSpi instanceof ExchangeRateCatalog) {
+					if (rates == null) {
+						rates = new ArrayList<ExchangeRate>();
+					}
+					rates.addAll(((ExchangeRateCatalog) rateProviderSpi)
+							.getExchangeRates(timestamp));
+				}
+			}
+			if (rates == null) {
+				return null;
+			}
+			graph = new ExchangeRateGraph(rateType, rates);
+			if (timestamp == null) {
+				this.currentGraph = graph;
+			} else {
+				this.historicGraphs.put(snapshotKey, graph);
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Evaluates the snapshot keys of all catalogs for the given timestamp.
+	 * 
+	 * @param timestamp
+	 *            the target timestamp.
+	 * @return the keys, or {@code null}, if no SPI is a catalog.
+	 */
+	private List<Long> getSnapshotKey(long timestamp) {
+		List<Long> keys = null;
 		for (ExchangeRateProviderSpi rateProviderSpi : exchangeRateProviderSpis) {
-			ExchangeRate rate = rateProviderSpi.getExchangeRate(source, target, null);
-			if(rate != null){
-				return rate;
+			if (rateProviderSpi instanceof ExchangeRateCatalog) {
+				if (keys == null) {
+					keys = new ArrayList<Long>(2);
+				}
+				keys.add(Long.valueOf(((ExchangeRateCatalog) rateProviderSpi)
+						.getSnapshotKey(timestamp)));
 			}
 		}
-		return null;
+		return keys;
 	}
 
 }
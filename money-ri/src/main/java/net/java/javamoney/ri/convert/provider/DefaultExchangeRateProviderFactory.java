@@ -18,6 +18,8 @@
  */
 package net.java.javamoney.ri.convert.provider;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ServiceLoader;
 
 import javax.money.convert.ExchangeRateProvider;
@@ -25,12 +27,24 @@ import javax.money.convert.ExchangeRateType;
 import javax.money.convert.spi.ExchangeRateProviderDefaultFactorySpi;
 import javax.money.convert.spi.ExchangeRateProviderSpi;
 
+import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+
 /**
  * This class provides the default implementation for the
  * {@link DefaultExchangeRateProviderFactory}, which always returns instances of
  * {@link DefaultExchangeRateProvider}, which are relying on the
  * {@link ServiceLoader} to load according {@link ExchangeRateProviderSpi}
  * instances.
+ * <p>
+ * The providers created are wrapped into a {@link CachedExchangeRateProvider}.
+ * The size of the cache can be configured by setting the system property
+ * {@value #RATE_CACHE_SIZE_PROP}, a size of {@code 0} disables caching.
+ * <p>
+ * If the system property {@value #FALLBACK_TYPES_PROP} is set to a comma
+ * separated list of rate type ids, a {@link CompositeExchangeRateProvider} is
+ * created instead, which falls back to the SPIs of the listed types and hedges
+ * slow lookups. Such providers do not derive rates for pairs not provided by
+ * any SPI.
  * 
  * @author Anatole Tresch
  * 
@@ -38,9 +52,37 @@ import javax.money.convert.spi.ExchangeRateProviderSpi;
 public class DefaultExchangeRateProviderFactory implements
 		ExchangeRateProviderDefaultFactorySpi {
 
+	/** System property to configure the rate cache size. */
+	public static final String RATE_CACHE_SIZE_PROP = "net.java.javamoney.ri.convert.rateCacheSize";
+	/** System property to configure fallback rate types. */
+	public static final String FALLBACK_TYPES_PROP = "net.java.javamoney.ri.convert.fallbackTypes";
+
 	@Override
 	public ExchangeRateProvider createExchangeRateProvider(ExchangeRateType type) {
-		return new DefaultExchangeRateProvider(type);
+		ExchangeRateProvider provider = createProvider(type);
+		int cacheSize = Integer.getInteger(RATE_CACHE_SIZE_PROP,
+				CachedExchangeRateProvider.DEFAULT_MAXIMUM_SIZE);
+		if (cacheSize > 0) {
+			return new CachedExchangeRateProvider(provider, cacheSize);
+		}
+		return provider;
+	}
+
+	private ExchangeRateProvider createProvider(ExchangeRateType type) {
+		String fallbackTypes = System.getProperty(FALLBACK_TYPES_PROP);
+		if (fallbackTypes == null || fallbackTypes.trim().isEmpty()) {
+			return new DefaultExchangeRateProvider(type);
+		}
+		List<ExchangeRateType> types = new ArrayList<ExchangeRateType>();
+		types.add(type);
+		for (String id : fallbackTypes.split(",")) {
+			ExchangeRateType fallback = SingletonExchangeRateType.of(id.trim());
+			if (!types.contains(fallback)) {
+				types.add(fallback);
+			}
+		}
+		return new CompositeExchangeRateProvider(
+				types.toArray(new ExchangeRateType[types.size()]));
 	}
 
 }
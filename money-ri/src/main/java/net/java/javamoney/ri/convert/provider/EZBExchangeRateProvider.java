@@ -18,14 +18,25 @@
  */
 package net.java.javamoney.ri.convert.provider;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URL;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TimeZone;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.money.CurrencyUnit;
 import javax.money.convert.ExchangeRate;
@@ -35,7 +46,11 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.ExchangeRateCatalog;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
+import net.java.javamoney.ri.convert.ExchangeRateMath;
 import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
 import net.java.javamoney.ri.core.MoneyCurrency;
 import net.java.javamoney.ri.core.provider.IsoCurrencyOnlineProvider;
 
@@ -51,10 +66,24 @@ import org.xml.sax.helpers.DefaultHandler;
  * rates, as well as historic rates for the past 90 days. By calling
  * {@link #loadHistoric()} the provider loads all data up to 1999 into its
  * historic data cache.
+ * <p>
+ * If a history file is configured, by setting the system property
+ * {@value #HISTORY_FILE_PROP}, all rates loaded are persisted into an
+ * {@link ExchangeRateHistoryFile}. On startup the persisted rates are loaded
+ * from the file, the data feeds are only accessed, if the persisted data is
+ * older than a few days.
  * 
  * @author Anatole Tresch
  */
-public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
+public class EZBExchangeRateProvider implements ExchangeRateProviderSpi,
+		SnapshotVersioned, ExchangeRateCatalog {
+	/** System property to configure the history file. */
+	public static final String HISTORY_FILE_PROP = "net.java.javamoney.ri.convert.ezb.historyFile";
+	/**
+	 * Maximal age of the persisted data, for skipping the data feeds on
+	 * startup, covers weekends and holidays.
+	 */
+	private static final long WARM_START_MAX_AGE = 4L * 24 * 60 * 60 * 1000;
 	/** URL for the last 90 days data feed. */
 	private static final String DAILY90_RATES_URL = "http://www.ecb.europa.eu/stats/eurofxref/eurofxref-hist-90d.xml";
 	/** URL for the daily data feed. */
@@ -67,11 +96,17 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 	/** The logger used. */
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(IsoCurrencyOnlineProvider.class);
+	/** The component name used for metrics. */
+	private static final String METRICS_NAME = "EZBExchangeRateProvider";
 
 	/** Historic exchange rates, rate timestamp as UTC long. */
 	private Map<Long, Map<String, ExchangeRate>> historicRates = new ConcurrentHashMap<Long, Map<String, ExchangeRate>>();
 	/** Current exchange rates. */
 	private Map<String, ExchangeRate> currentRates = new ConcurrentHashMap<String, ExchangeRate>();
+	/** Version of the rate data, incremented on each successful load. */
+	private final AtomicLong snapshotVersion = new AtomicLong();
+	/** The history file, or null. */
+	private ExchangeRateHistoryFile historyFile;
 	/** Parser factory. */
 	private SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
 	/** The {@link ExchangeRateType} of this provider. */
@@ -82,10 +117,124 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 	 * Constructor, also loads initial data.
 	 */
 	public EZBExchangeRateProvider() {
+		this(getConfiguredHistoryFile());
+	}
+
+	/**
+	 * Constructor, also loads initial data.
+	 * 
+	 * @param historyFile
+	 *            the file to persist the rates loaded, or {@code null}.
+	 */
+	public EZBExchangeRateProvider(File historyFile) {
 		saxParserFactory.setNamespaceAware(false);
 		saxParserFactory.setValidating(false);
-		loadCurrent();
-		loadRates90();
+		if (historyFile != null) {
+			loadHistory(historyFile);
+		}
+		if (!isHistoryUpToDate()) {
+			loadCurrent();
+			loadRates90();
+		}
+	}
+
+	private static File getConfiguredHistoryFile() {
+		String file = System.getProperty(HISTORY_FILE_PROP);
+		if (file == null) {
+			return null;
+		}
+		return new File(file);
+	}
+
+	/**
+	 * Opens the history file and loads all rates persisted. The last day
+	 * persisted is also used as current rates.
+	 * 
+	 * @param file
+	 *            the history file.
+	 */
+	private void loadHistory(File file) {
+		try {
+			this.historyFile = new ExchangeRateHistoryFile(file);
+		} catch (IOException e) {
+			LOGGER.error("Failed to open rate history: " + file, e);
+			return;
+		}
+		SortedMap<Long, Map<String, BigDecimal>> days = this.historyFile
+				.getDays();
+		for (Map.Entry<Long, Map<String, BigDecimal>> day : days.entrySet()) {
+			for (Map.Entry<String, BigDecimal> rate : day.getValue()
+					.entrySet()) {
+				addRate(MoneyCurrency.getInstance(rate.getKey()),
+						day.getKey(), rate.getValue(), false);
+			}
+		}
+		if (!days.isEmpty()) {
+			for (Map.Entry<String, BigDecimal> rate : days.get(days.lastKey())
+					.entrySet()) {
+				addRate(MoneyCurrency.getInstance(rate.getKey()),
+						days.lastKey(), rate.getValue(), true);
+			}
+			snapshotVersion.incrementAndGet();
+		}
+		LOGGER.info("Loaded exchange rates from history for days:"
+				+ days.size());
+	}
+
+	private boolean isHistoryUpToDate() {
+		if (this.historyFile == null) {
+			return false;
+		}
+		Long lastDay = this.historyFile.getLastDay();
+		return lastDay != null
+				&& lastDay.longValue() >= System.currentTimeMillis()
+						- WARM_START_MAX_AGE;
+	}
+
+	/**
+	 * Appends all days loaded, that are not persisted yet, to the history
+	 * file, in order of their timestamps. Older days, e.g. loaded by
+	 * {@link #loadRates90()} after {@link #loadCurrent()}, are backfilled.
+	 */
+	private void persistHistory() {
+		ExchangeRateHistoryFile file = this.historyFile;
+		if (file == null) {
+			return;
+		}
+		synchronized (file) {
+			SortedMap<Long, Map<String, ExchangeRate>> newDays = new TreeMap<Long, Map<String, ExchangeRate>>();
+			for (Map.Entry<Long, Map<String, ExchangeRate>> en : this.historicRates
+					.entrySet()) {
+				if (!file.containsDay(en.getKey().longValue())) {
+					newDays.put(en.getKey(), en.getValue());
+				}
+			}
+			Iterator<ExchangeRate> current = this.currentRates.values()
+					.iterator();
+			if (current.hasNext()) {
+				Long day = current.next().getTimestamp();
+				if (day != null && !file.containsDay(day.longValue())
+						&& !newDays.containsKey(day)) {
+					newDays.put(day, this.currentRates);
+				}
+			}
+			try {
+				for (Map.Entry<Long, Map<String, ExchangeRate>> en : newDays
+						.entrySet()) {
+					Map<String, BigDecimal> factors = new HashMap<String, BigDecimal>();
+					for (Map.Entry<String, ExchangeRate> rate : en.getValue()
+							.entrySet()) {
+						factors.put(rate.getKey(), ExchangeRateMath
+								.toBigDecimal(rate.getValue().getFactor()));
+					}
+					file.append(en.getKey().longValue(), factors);
+				}
+				file.flush();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to write rate history: " + file.getFile(),
+						e);
+			}
+		}
 	}
 
 	/**
@@ -93,12 +242,20 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 	 */
 	public void loadCurrent() {
 		int oldSize = this.currentRates.size();
+		long start = System.nanoTime();
 		try {
 			URL url = new URL(DAILY_RATES_URL);
 			SAXParser parser = saxParserFactory.newSAXParser();
 			parser.parse(url.openStream(), new RateReadingHandler(true));
+			snapshotVersion.incrementAndGet();
+			persistHistory();
+			ExchangeRateMetricsRegistry.getMetrics().recordLoad(
+					METRICS_NAME, System.nanoTime() - start,
+					this.currentRates.values());
 		} catch (Exception e) {
 			LOGGER.debug("Error", e);
+			ExchangeRateMetricsRegistry.getMetrics().recordLoadFailure(
+					METRICS_NAME, System.nanoTime() - start, e);
 		}
 		LOGGER.info("Loaded exchange rates for days:"
 				+ (this.currentRates.size() - oldSize));
@@ -109,12 +266,20 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 	 */
 	public void loadHistoric() {
 		int oldSize = this.historicRates.size();
+		long start = System.nanoTime();
 		try {
 			URL url = new URL(HISTORIC_RATES_URL);
 			SAXParser parser = saxParserFactory.newSAXParser();
 			parser.parse(url.openStream(), new RateReadingHandler(false));
+			snapshotVersion.incrementAndGet();
+			persistHistory();
+			ExchangeRateMetricsRegistry.getMetrics().recordLoad(
+					METRICS_NAME, System.nanoTime() - start,
+					this.currentRates.values());
 		} catch (Exception e) {
 			LOGGER.debug("Error", e);
+			ExchangeRateMetricsRegistry.getMetrics().recordLoadFailure(
+					METRICS_NAME, System.nanoTime() - start, e);
 		}
 		LOGGER.info("Loaded exchange rates for days:"
 				+ (this.historicRates.size() - oldSize));
@@ -125,17 +290,67 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 	 */
 	public void loadRates90() {
 		int oldSize = this.historicRates.size();
+		long start = System.nanoTime();
 		try {
 			URL url = new URL(DAILY90_RATES_URL);
 			SAXParser parser = saxParserFactory.newSAXParser();
 			parser.parse(url.openStream(), new RateReadingHandler(false));
+			snapshotVersion.incrementAndGet();
+			persistHistory();
+			ExchangeRateMetricsRegistry.getMetrics().recordLoad(
+					METRICS_NAME, System.nanoTime() - start,
+					this.currentRates.values());
 		} catch (Exception e) {
 			LOGGER.debug("Error", e);
+			ExchangeRateMetricsRegistry.getMetrics().recordLoadFailure(
+					METRICS_NAME, System.nanoTime() - start, e);
 		}
 		LOGGER.info("Loaded exchange rates for days:"
 				+ (this.historicRates.size() - oldSize));
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.java.javamoney.ri.convert.SnapshotVersioned#getSnapshotVersion()
+	 */
+	@Override
+	public long getSnapshotVersion() {
+		return snapshotVersion.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateCatalog#getExchangeRates(java
+	 * .lang.Long)
+	 */
+	@Override
+	public Collection<ExchangeRate> getExchangeRates(Long timestamp) {
+		if (timestamp == null) {
+			return new ArrayList<ExchangeRate>(this.currentRates.values());
+		}
+		Map<String, ExchangeRate> targetRates = this.historicRates
+				.get(getDayTimestamp(timestamp));
+		if (targetRates == null) {
+			return Collections.emptySet();
+		}
+		return new ArrayList<ExchangeRate>(targetRates.values());
+	}
+
+	/**
+	 * Historic rates are published daily, the key is the start of the day.
+	 */
+	@Override
+	public long getSnapshotKey(long timestamp) {
+		Long day = getDayTimestamp(Long.valueOf(timestamp));
+		if (!this.historicRates.containsKey(day)) {
+			return Long.MIN_VALUE;
+		}
+		return day.longValue();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -178,16 +393,7 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 			if (historicRates.isEmpty()) {
 				return null;
 			}
-			GregorianCalendar cal = new GregorianCalendar(
-					TimeZone.getTimeZone("UTC"));
-			if (timestamp != null) {
-				cal.setTimeInMillis(timestamp);
-			}
-			cal.set(GregorianCalendar.HOUR, 0);
-			cal.set(GregorianCalendar.MINUTE, 0);
-			cal.set(GregorianCalendar.SECOND, 0);
-			cal.set(GregorianCalendar.MILLISECOND, 0);
-			Long targetTS = Long.valueOf(cal.getTimeInMillis());
+			Long targetTS = getDayTimestamp(timestamp);
 			builder.setTimestamp(targetTS);
 			builder.setAttribute("requestedTS", timestamp);
 			Map<String, ExchangeRate> targetRates = this.historicRates
@@ -200,21 +406,46 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 		}
 		if ("EUR".equals(source.getCurrencyCode())
 				&& "EUR".equals(target.getCurrencyCode())) {
-			builder.setSourceLeadingFactor(1.0d);
+			builder.setSourceLeadingFactor(BigDecimal.ONE);
 			return builder.build();
 		} else if ("EUR".equals(target.getCurrencyCode())) {
+			if (sourceRate == null) {
+				return null;
+			}
 			return sourceRate.reverse();
 		} else if ("EUR".equals(source.getCurrencyCode())) {
 			return targetRate;
 		} else {
+			if (sourceRate == null || targetRate == null) {
+				return null;
+			}
 			sourceRate = sourceRate.reverse();
 			builder.setExchangeRateChain(sourceRate, targetRate);
-			builder.setSourceLeadingFactor(sourceRate.getFactor().doubleValue()
-					* targetRate.getFactor().doubleValue());
+			builder.setSourceLeadingFactor(ExchangeRateMath.chain(sourceRate,
+					targetRate));
 			return builder.build();
 		}
 	}
 
+	/**
+	 * Evaluates the start of the UTC day of the given timestamp, which is the
+	 * key used for the historic rates.
+	 * 
+	 * @param timestamp
+	 *            the timestamp, not {@code null}.
+	 * @return the start of the UTC day.
+	 */
+	private Long getDayTimestamp(Long timestamp) {
+		GregorianCalendar cal = new GregorianCalendar(
+				TimeZone.getTimeZone("UTC"));
+		cal.setTimeInMillis(timestamp);
+		cal.set(GregorianCalendar.HOUR_OF_DAY, 0);
+		cal.set(GregorianCalendar.MINUTE, 0);
+		cal.set(GregorianCalendar.SECOND, 0);
+		cal.set(GregorianCalendar.MILLISECOND, 0);
+		return Long.valueOf(cal.getTimeInMillis());
+	}
+
 	/**
 	 * SAX Event Handler that reads the quotes.
 	 * <p>
@@ -272,7 +503,7 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 						// read data <Cube currency="USD" rate="1.3349"/>
 						CurrencyUnit tgtCurrency = MoneyCurrency
 								.getInstance(attributes.getValue("currency"));
-						Double rate = Double.parseDouble(attributes
+						BigDecimal rate = new BigDecimal(attributes
 								.getValue("rate"));
 						addRate(tgtCurrency, timestamp, rate, loadCurrent);
 					}
@@ -297,7 +528,7 @@ public class EZBExchangeRateProvider implements ExchangeRateProviderSpi {
 	 * @param loadCurrent
 	 *            Flag, if current or historic data is loaded.
 	 */
-	void addRate(CurrencyUnit tgtCurrency, Long timestamp, Double rate,
+	void addRate(CurrencyUnit tgtCurrency, Long timestamp, BigDecimal rate,
 			boolean loadCurrent) {
 		CurrencyExchangeRate.Builder builder = new CurrencyExchangeRate.Builder();
 		builder.setSource(SOURCE_CURRENCY);
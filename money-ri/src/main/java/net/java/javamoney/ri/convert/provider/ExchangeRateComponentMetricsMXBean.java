@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.util.Map;
+
+/**
+ * Management interface of the metrics of a single exchange rate component,
+ * as published by {@link JmxExchangeRateMetrics}.
+ * 
+ * @author Anatole Tresch
+ */
+public interface ExchangeRateComponentMetricsMXBean {
+
+	/**
+	 * @return the number of rate lookups.
+	 */
+	public long getLookupCount();
+
+	/**
+	 * @return the number of rate lookups that returned no rate.
+	 */
+	public long getLookupMissCount();
+
+	/**
+	 * @return the approximated median lookup latency in microseconds, or
+	 *         {@code -1}.
+	 */
+	public long getLookupLatencyMedianMicros();
+
+	/**
+	 * @return the approximated 99th percentile of the lookup latency in
+	 *         microseconds, or {@code -1}.
+	 */
+	public long getLookupLatency99Micros();
+
+	/**
+	 * @return the number of cache accesses served from the cache.
+	 */
+	public long getCacheHitCount();
+
+	/**
+	 * @return the number of cache accesses not served from the cache.
+	 */
+	public long getCacheMissCount();
+
+	/**
+	 * @return the ratio of cache hits, or {@code 0}, if the cache was not
+	 *         accessed.
+	 */
+	public double getCacheHitRatio();
+
+	/**
+	 * @return the number of amounts converted.
+	 */
+	public long getConvertedAmountCount();
+
+	/**
+	 * @return the approximated median conversion latency in microseconds, or
+	 *         {@code -1}.
+	 */
+	public long getConversionLatencyMedianMicros();
+
+	/**
+	 * @return the number of successful loads.
+	 */
+	public long getLoadCount();
+
+	/**
+	 * @return the number of failed loads.
+	 */
+	public long getLoadFailureCount();
+
+	/**
+	 * @return the duration of the last load in milliseconds, or {@code -1}.
+	 */
+	public long getLastLoadDurationMillis();
+
+	/**
+	 * @return the number of rates available after the last load.
+	 */
+	public int getLastLoadRateCount();
+
+	/**
+	 * @return the time of the last successful load in UTC milliseconds, or
+	 *         {@code 0}.
+	 */
+	public long getLastLoadTime();
+
+	/**
+	 * @return the message of the last load failure, or {@code null}.
+	 */
+	public String getLastLoadFailure();
+
+	/**
+	 * @return the age of the newest rate in milliseconds, by currency pair.
+	 */
+	public Map<String, Long> getRateAgeMillis();
+
+	/**
+	 * @return the maximal age of the newest rates of all pairs in
+	 *         milliseconds, or {@code -1}, if no rates were loaded. This is the
+	 *         value to alert on, when rates go stale.
+	 */
+	public long getMaxRateAgeMillis();
+
+}
@@ -0,0 +1,467 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact, append-only binary store for daily exchange rates, e.g. the
+ * history loaded by {@link EZBExchangeRateProvider}. The file is memory
+ * mapped for reading, new days are appended at the end. Days may be appended
+ * in any order, so older history can be backfilled.
+ * <p>
+ * Format (version 1): the magic bytes {@code JMRH}, the format version as
+ * int, followed by records. A currency record ({@code 'C'}) assigns the next
+ * currency id to a currency code. A day record ({@code 'D'}) contains the
+ * day as delta to the previous day record, the number of rates and, for each
+ * rate, the currency id, the scale and the unscaled factor, encoded as delta
+ * to the previous factor of the same currency, if the scale did not change.
+ * All integers within records are variable length encoded, signed values are
+ * zigzag encoded. An incomplete record at the end of the file, e.g. after a
+ * crash while appending, is discarded on open. Any other inconsistency is
+ * reported as {@link IOException}, the file is left untouched in this case.
+ * 
+ * @author Anatole Tresch
+ */
+public final class ExchangeRateHistoryFile implements Closeable {
+
+	/** The current format version. */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(ExchangeRateHistoryFile.class);
+	private static final byte[] MAGIC = { 'J', 'M', 'R', 'H' };
+	private static final int HEADER_SIZE = MAGIC.length + 4;
+	private static final byte CURRENCY_RECORD = 'C';
+	private static final byte DAY_RECORD = 'D';
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	/** Maximal length of a currency code. */
+	private static final int MAX_CODE_LENGTH = 32;
+	/** Factors are stored with at most 18 significant digits. */
+	private static final MathContext STORAGE_CONTEXT = new MathContext(18);
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	/** The rates read, by day timestamp and currency code. */
+	private final NavigableMap<Long, Map<String, BigDecimal>> days = new TreeMap<Long, Map<String, BigDecimal>>();
+	/** Currency ids by code. */
+	private final Map<String, Integer> currencyIds = new HashMap<String, Integer>();
+	/** Currency codes by id. */
+	private final List<String> currencyCodes = new ArrayList<String>();
+	/** Last unscaled factor, by currency id. */
+	private final List<Long> lastUnscaled = new ArrayList<Long>();
+	/** Last scale, by currency id. */
+	private final List<Integer> lastScale = new ArrayList<Integer>();
+	/** The last epoch day written. */
+	private long lastEpochDay;
+	/** The end of the valid data. */
+	private long endPosition;
+
+	/**
+	 * Opens or creates a history file and reads its contents.
+	 * 
+	 * @param file
+	 *            the file, not {@code null}.
+	 * @throws IOException
+	 *             if the file could not be read, or is not a history file of
+	 *             a supported version.
+	 */
+	public ExchangeRateHistoryFile(File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("file may not be null.");
+		}
+		this.file = file;
+		this.raf = new RandomAccessFile(file, "rw");
+		this.channel = raf.getChannel();
+		try {
+			if (channel.size() == 0) {
+				writeHeader();
+			} else {
+				read();
+			}
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(MAGIC);
+		header.putInt(FORMAT_VERSION);
+		header.flip();
+		channel.write(header, 0);
+		this.endPosition = HEADER_SIZE;
+	}
+
+	private void read() throws IOException {
+		long size = channel.size();
+		if (size < HEADER_SIZE) {
+			throw new IOException("Not a rate history file: " + file);
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+				0, size);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (buffer.get() != MAGIC[i]) {
+				throw new IOException("Not a rate history file: " + file);
+			}
+		}
+		int version = buffer.getInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported rate history version "
+					+ version + ": " + file);
+		}
+		this.endPosition = buffer.position();
+		try {
+			while (buffer.hasRemaining()) {
+				byte type = buffer.get();
+				if (type == CURRENCY_RECORD) {
+					int length = readVarInt(buffer);
+					if (length <= 0 || length > MAX_CODE_LENGTH) {
+						throw new IllegalStateException(
+								"Invalid currency code length: " + length);
+					}
+					byte[] code = new byte[length];
+					buffer.get(code);
+					addCurrency(new String(code, "US-ASCII"));
+				} else if (type == DAY_RECORD) {
+					readDay(buffer);
+				} else {
+					throw new IOException("Corrupt rate history at "
+							+ (buffer.position() - 1) + ": " + file);
+				}
+				this.endPosition = buffer.position();
+			}
+		} catch (BufferUnderflowException e) {
+			// the record reaches beyond the end, so it is the last one
+			discardTail(size);
+		} catch (IndexOutOfBoundsException e) {
+			throw corrupt(e);
+		} catch (IllegalStateException e) {
+			throw corrupt(e);
+		}
+	}
+
+	private IOException corrupt(RuntimeException cause) {
+		return new IOException("Corrupt rate history record at "
+				+ endPosition + ": " + file, cause);
+	}
+
+	private void readDay(ByteBuffer buffer) {
+		long epochDay = this.lastEpochDay + readVarLongSigned(buffer);
+		int count = readVarInt(buffer);
+		if (count < 0 || count > currencyCodes.size()) {
+			throw new IllegalStateException("Invalid rate count: " + count);
+		}
+		Map<String, BigDecimal> rates = new LinkedHashMap<String, BigDecimal>(
+				count * 2);
+		long[] unscaled = new long[count];
+		int[] scales = new int[count];
+		int[] ids = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = readVarInt(buffer);
+			scales[i] = (int) readVarLongSigned(buffer);
+			long value = readVarLongSigned(buffer);
+			if (lastScale.get(ids[i]).intValue() == scales[i]) {
+				value += lastUnscaled.get(ids[i]).longValue();
+			}
+			unscaled[i] = value;
+		}
+		// only update the delta state, once the record is complete
+		for (int i = 0; i < count; i++) {
+			lastUnscaled.set(ids[i], Long.valueOf(unscaled[i]));
+			lastScale.set(ids[i], Integer.valueOf(scales[i]));
+			rates.put(currencyCodes.get(ids[i]),
+					BigDecimal.valueOf(unscaled[i], scales[i]));
+		}
+		this.lastEpochDay = epochDay;
+		this.days.put(Long.valueOf(epochDay * DAY_MILLIS), rates);
+	}
+
+	private void discardTail(long size) throws IOException {
+		LOGGER.warn("Discarding incomplete rate history record at "
+				+ endPosition + " of " + size + " bytes: " + file);
+		channel.truncate(endPosition);
+	}
+
+	private int addCurrency(String code) {
+		Integer id = Integer.valueOf(currencyCodes.size());
+		currencyCodes.add(code);
+		currencyIds.put(code, id);
+		lastUnscaled.add(Long.valueOf(0L));
+		lastScale.add(Integer.valueOf(Integer.MIN_VALUE));
+		return id.intValue();
+	}
+
+	/**
+	 * Access the file.
+	 * 
+	 * @return the file, never {@code null}.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Access all rates stored, by UTC day timestamp and currency code.
+	 * 
+	 * @return the rates, never {@code null}.
+	 */
+	public NavigableMap<Long, Map<String, BigDecimal>> getDays() {
+		return days;
+	}
+
+	/**
+	 * Access the timestamp of the last day stored.
+	 * 
+	 * @return the last day, or {@code null}, if the file is empty.
+	 */
+	public Long getLastDay() {
+		if (days.isEmpty()) {
+			return null;
+		}
+		return days.lastKey();
+	}
+
+	/**
+	 * Access the rates stored for a day.
+	 * 
+	 * @param dayTimestamp
+	 *            the UTC day timestamp.
+	 * @return {@code true}, if rates are stored for the day.
+	 */
+	public boolean containsDay(long dayTimestamp) {
+		return days.containsKey(Long.valueOf(dayTimestamp));
+	}
+
+	/**
+	 * Appends the rates of a day, which must not be stored yet. Days older
+	 * than the last day stored are allowed, the data is always written at
+	 * the end of the file. If writing fails, the file and the state of this
+	 * instance are left unchanged.
+	 * 
+	 * @param dayTimestamp
+	 *            the UTC day timestamp.
+	 * @param rates
+	 *            the rates by currency code, not {@code null}.
+	 * @throws IOException
+	 *             if the data could not be written.
+	 */
+	public synchronized void append(long dayTimestamp,
+			Map<String, ? extends Number> rates) throws IOException {
+		if (rates == null) {
+			throw new IllegalArgumentException("rates may not be null.");
+		}
+		if (containsDay(dayTimestamp)) {
+			throw new IllegalArgumentException("Day " + dayTimestamp
+					+ " is already stored.");
+		}
+		long epochDay = dayTimestamp / DAY_MILLIS;
+		if (dayTimestamp < 0 && dayTimestamp % DAY_MILLIS != 0) {
+			epochDay--;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int count = rates.size();
+		Map<String, BigDecimal> dayRates = new LinkedHashMap<String, BigDecimal>(
+				count * 2);
+		// the record is encoded into locals, the state is only updated after
+		// it has been written successfully
+		List<String> newCodes = new ArrayList<String>();
+		for (String key : rates.keySet()) {
+			if (!currencyIds.containsKey(key)) {
+				byte[] code = key.getBytes("US-ASCII");
+				if (code.length == 0 || code.length > MAX_CODE_LENGTH) {
+					throw new IllegalArgumentException(
+							"Invalid currency code: " + key);
+				}
+				out.write(CURRENCY_RECORD);
+				writeVarLong(out, code.length);
+				out.write(code, 0, code.length);
+				newCodes.add(key);
+			}
+		}
+		int[] ids = new int[count];
+		long[] unscaledValues = new long[count];
+		int[] scales = new int[count];
+		out.write(DAY_RECORD);
+		writeVarLong(out, zigzag(epochDay - this.lastEpochDay));
+		writeVarLong(out, count);
+		int i = 0;
+		for (Map.Entry<String, ? extends Number> en : rates.entrySet()) {
+			Integer knownId = currencyIds.get(en.getKey());
+			int id;
+			long previousUnscaled = 0L;
+			int previousScale = Integer.MIN_VALUE;
+			if (knownId == null) {
+				id = currencyCodes.size() + newCodes.indexOf(en.getKey());
+			} else {
+				id = knownId.intValue();
+				previousUnscaled = lastUnscaled.get(id).longValue();
+				previousScale = lastScale.get(id).intValue();
+			}
+			BigDecimal factor = toStorage(en.getValue());
+			long unscaled = factor.unscaledValue().longValue();
+			int scale = factor.scale();
+			writeVarLong(out, id);
+			writeVarLong(out, zigzag(scale));
+			if (previousScale == scale) {
+				writeVarLong(out, zigzag(unscaled - previousUnscaled));
+			} else {
+				writeVarLong(out, zigzag(unscaled));
+			}
+			ids[i] = id;
+			unscaledValues[i] = unscaled;
+			scales[i] = scale;
+			dayRates.put(en.getKey(), factor);
+			i++;
+		}
+		ByteBuffer data = ByteBuffer.wrap(out.toByteArray());
+		long position = this.endPosition;
+		try {
+			while (data.hasRemaining()) {
+				position += channel.write(data, position);
+			}
+		} catch (IOException e) {
+			discardPartialWrite();
+			throw e;
+		}
+		for (String code : newCodes) {
+			addCurrency(code);
+		}
+		for (i = 0; i < count; i++) {
+			lastUnscaled.set(ids[i], Long.valueOf(unscaledValues[i]));
+			lastScale.set(ids[i], Integer.valueOf(scales[i]));
+		}
+		this.endPosition = position;
+		this.lastEpochDay = epochDay;
+		this.days.put(Long.valueOf(epochDay * DAY_MILLIS), dayRates);
+	}
+
+	/**
+	 * Removes the bytes of a record that could not be written completely, so
+	 * they are not read on open.
+	 */
+	private void discardPartialWrite() {
+		try {
+			channel.truncate(this.endPosition);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to discard incomplete rate history record: "
+					+ file, e);
+		}
+	}
+
+	private static BigDecimal toStorage(Number number) {
+		BigDecimal factor;
+		if (number instanceof BigDecimal) {
+			factor = (BigDecimal) number;
+		} else {
+			factor = BigDecimal.valueOf(number.doubleValue());
+		}
+		if (factor.precision() > STORAGE_CONTEXT.getPrecision()) {
+			factor = factor.round(STORAGE_CONTEXT);
+		}
+		return factor;
+	}
+
+	/**
+	 * Forces all data appended to the storage device.
+	 * 
+	 * @throws IOException
+	 *             if the data could not be written.
+	 */
+	public void flush() throws IOException {
+		channel.force(false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed variable length number.");
+	}
+
+	private static long readVarLongSigned(ByteBuffer buffer) {
+		long value = readVarLong(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static int readVarInt(ByteBuffer buffer) {
+		return (int) readVarLong(buffer);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ExchangeRateHistoryFile [file=" + file + ", days="
+				+ days.size() + ", currencies=" + currencyCodes.size() + "]";
+	}
+
+}
@@ -0,0 +1,770 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
+import javax.money.convert.spi.ExchangeRateProviderSpi;
+import javax.xml.parsers.SAXParserFactory;
+
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.ExchangeRateCatalog;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
+import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * This class implements an {@link ExchangeRateProviderSpi} that reads rates
+ * from files dropped into a directory. The directory is watched, new or
+ * changed files are parsed and published as a new immutable rate snapshot,
+ * deleted files are removed from the snapshot.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>{@code *.csv}: one rate per line, as
+ * {@code SOURCE,TARGET,FACTOR[,TIMESTAMP]}, where the timestamp is given in
+ * UTC milliseconds. Empty lines and lines starting with {@code #} are ignored.
+ * </li>
+ * <li>{@code *.xml}: {@code <rate source="EUR" target="USD" factor="1.3"
+ * timestamp="..."/>} elements, with an arbitrary root element.</li>
+ * </ul>
+ * Rates without timestamp use the file's modification time. If several files
+ * contain the same pair, the rate with the most recent timestamp is used.
+ * <p>
+ * Changed files are only loaded, once their size and modification time have
+ * not changed for the configured settle time, so files still being written
+ * are not published. Writers should nevertheless write to a temporary file
+ * with another extension and rename it, once it is complete, since a writer
+ * pausing longer than the settle time is not detected.
+ * <p>
+ * The directory is configured by the system property {@value #DIRECTORY_PROP},
+ * if it is not set, instances created by the {@link java.util.ServiceLoader}
+ * do not provide any rates. As the {@link java.util.ServiceLoader} creates
+ * new instances on every lookup, all instances created by the default
+ * constructor share a single instance, that loads and watches the configured
+ * directory; it is created on first use and stopped by {@link #close()}.
+ * 
+ * @author Anatole Tresch
+ */
+public class FileExchangeRateProvider implements ExchangeRateProviderSpi,
+		SnapshotVersioned, ExchangeRateCatalog, Closeable {
+
+	/** System property to configure the watched directory. */
+	public static final String DIRECTORY_PROP = "net.java.javamoney.ri.convert.file.directory";
+	/** The default {@link ExchangeRateType} of this provider. */
+	public static final ExchangeRateType RATE_TYPE = SingletonExchangeRateType
+			.of("FILE");
+	/** The default settle time of changed files, in milliseconds. */
+	public static final long DEFAULT_SETTLE_MILLIS = 500L;
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(FileExchangeRateProvider.class);
+	private static final String DATA_PROVIDER = "File";
+	/** The component name used for metrics. */
+	private static final String METRICS_NAME = "FileExchangeRateProvider";
+
+	private final ExchangeRateType rateType;
+	private final File directory;
+	/** The time a changed file must not change, before it is loaded. */
+	private final long settleMillis;
+	/** The rates by file name, only accessed by the loading thread. */
+	private final Map<String, Map<String, ExchangeRate>> fileRates = new HashMap<String, Map<String, ExchangeRate>>();
+	/** The snapshot published, by pair key. */
+	private volatile Map<String, ExchangeRate> snapshot = Collections
+			.emptyMap();
+	private volatile long snapshotVersion;
+	/** Currencies by packed ASCII code, avoids creating strings per line. */
+	private final Map<Integer, CurrencyUnit> currencies = new HashMap<Integer, CurrencyUnit>();
+	private final SAXParserFactory saxParserFactory = SAXParserFactory
+			.newInstance();
+	private volatile WatchService watchService;
+	private Thread watcher;
+	/** The instance providing the rates, if shared, otherwise null. */
+	private final FileExchangeRateProvider shared;
+
+	/**
+	 * Creates a new instance, providing the rates of the directory configured
+	 * by {@value #DIRECTORY_PROP}. All instances created by this constructor
+	 * share the same rates and watcher.
+	 */
+	public FileExchangeRateProvider() {
+		this(SharedHolder.INSTANCE);
+	}
+
+	private FileExchangeRateProvider(FileExchangeRateProvider shared) {
+		this.rateType = shared.rateType;
+		this.directory = shared.directory;
+		this.settleMillis = shared.settleMillis;
+		this.shared = shared;
+	}
+
+	/**
+	 * Creates a new instance, loads all rate files contained in the given
+	 * directory and starts watching it.
+	 * 
+	 * @param directory
+	 *            the directory, or {@code null}, which creates an instance
+	 *            without rates.
+	 * @param rateType
+	 *            the rate type provided, not {@code null}.
+	 */
+	public FileExchangeRateProvider(File directory, ExchangeRateType rateType) {
+		this(directory, rateType, DEFAULT_SETTLE_MILLIS);
+	}
+
+	/**
+	 * Creates a new instance, loads all rate files contained in the given
+	 * directory and starts watching it.
+	 * 
+	 * @param directory
+	 *            the directory, or {@code null}, which creates an instance
+	 *            without rates.
+	 * @param rateType
+	 *            the rate type provided, not {@code null}.
+	 * @param settleMillis
+	 *            the time in milliseconds the size and modification time of
+	 *            a changed file must be stable, before it is loaded.
+	 */
+	public FileExchangeRateProvider(File directory, ExchangeRateType rateType,
+			long settleMillis) {
+		if (rateType == null) {
+			throw new IllegalArgumentException("rateType may not be null.");
+		}
+		if (settleMillis < 0) {
+			throw new IllegalArgumentException("settleMillis must be >= 0.");
+		}
+		this.rateType = rateType;
+		this.directory = directory;
+		this.settleMillis = settleMillis;
+		this.shared = null;
+		saxParserFactory.setNamespaceAware(false);
+		saxParserFactory.setValidating(false);
+		if (directory != null) {
+			if (!directory.isDirectory()) {
+				LOGGER.error("Not a directory, no rates loaded: " + directory);
+				return;
+			}
+			synchronized (this) {
+				loadAll();
+			}
+			startWatching();
+		}
+	}
+
+	private static File getConfiguredDirectory() {
+		String dir = System.getProperty(DIRECTORY_PROP);
+		if (dir == null) {
+			return null;
+		}
+		return new File(dir);
+	}
+
+	private void startWatching() {
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+			directory.toPath().register(watchService,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException e) {
+			LOGGER.error("Failed to watch rate directory: " + directory, e);
+			return;
+		}
+		this.watcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch();
+			}
+		}, "FileExchangeRateProvider-" + directory.getName());
+		this.watcher.setDaemon(true);
+		this.watcher.start();
+	}
+
+	private void watch() {
+		Map<String, PendingFile> pending = new HashMap<String, PendingFile>();
+		try {
+			while (true) {
+				WatchKey key;
+				if (pending.isEmpty()) {
+					key = watchService.take();
+				} else {
+					key = watchService.poll(settleMillis,
+							TimeUnit.MILLISECONDS);
+				}
+				synchronized (this) {
+					boolean changed = false;
+					if (key != null) {
+						for (WatchEvent<?> event : key.pollEvents()) {
+							if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+								pending.clear();
+								fileRates.clear();
+								loadAll();
+								continue;
+							}
+							String name = ((Path) event.context()).toString();
+							if (!isRateFile(name)) {
+								continue;
+							}
+							if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+								pending.remove(name);
+								changed |= fileRates.remove(name) != null;
+							} else if (!pending.containsKey(name)) {
+								pending.put(name, new PendingFile(new File(
+										directory, name)));
+							}
+						}
+					}
+					changed |= loadSettled(pending);
+					if (changed) {
+						publish();
+					}
+				}
+				if (key != null && !key.reset()) {
+					LOGGER.warn("Rate directory not accessible anymore: "
+							+ directory);
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * Loads all pending files, whose size and modification time have not
+	 * changed for the settle time.
+	 * 
+	 * @return true, if the rates of a file changed.
+	 */
+	private boolean loadSettled(Map<String, PendingFile> pending) {
+		boolean changed = false;
+		long now = System.currentTimeMillis();
+		Iterator<PendingFile> iterator = pending.values().iterator();
+		while (iterator.hasNext()) {
+			PendingFile file = iterator.next();
+			if (file.update(now) || now - file.stableSince < settleMillis) {
+				continue;
+			}
+			iterator.remove();
+			changed |= load(file.file);
+		}
+		return changed;
+	}
+
+	/**
+	 * A changed file, not loaded yet.
+	 */
+	private static final class PendingFile {
+		private final File file;
+		private long length;
+		private long lastModified;
+		private long stableSince;
+
+		PendingFile(File file) {
+			this.file = file;
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+			this.stableSince = System.currentTimeMillis();
+		}
+
+		/**
+		 * Checks the file for changes.
+		 * 
+		 * @return true, if the file changed since the last check.
+		 */
+		boolean update(long now) {
+			long currentLength = file.length();
+			long currentLastModified = file.lastModified();
+			if (currentLength == length && currentLastModified == lastModified) {
+				return false;
+			}
+			this.length = currentLength;
+			this.lastModified = currentLastModified;
+			this.stableSince = now;
+			return true;
+		}
+	}
+
+	/**
+	 * Stops watching the directory. The rates loaded remain available. For
+	 * instances created by the default constructor, the watcher shared by all
+	 * of them is stopped.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (shared != null) {
+			shared.close();
+			return;
+		}
+		WatchService watchService = this.watchService;
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+
+	/**
+	 * Access the directory watched.
+	 * 
+	 * @return the directory, or {@code null}.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	private static boolean isRateFile(String name) {
+		String lower = name.toLowerCase();
+		return lower.endsWith(".csv") || lower.endsWith(".xml");
+	}
+
+	private void loadAll() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (isRateFile(file.getName())) {
+					load(file);
+				}
+			}
+		}
+		publish();
+	}
+
+	/**
+	 * (Re)loads a single file.
+	 * 
+	 * @return true, if the rates of the file changed.
+	 */
+	private boolean load(File file) {
+		if (!file.isFile()) {
+			return fileRates.remove(file.getName()) != null;
+		}
+		Map<String, ExchangeRate> rates = new HashMap<String, ExchangeRate>();
+		long start = System.nanoTime();
+		try {
+			if (file.getName().toLowerCase().endsWith(".csv")) {
+				readCsv(file, rates);
+			} else {
+				readXml(file, rates);
+			}
+		} catch (Exception e) {
+			LOGGER.error("Failed to read rate file: " + file, e);
+			ExchangeRateMetricsRegistry.getMetrics().recordLoadFailure(
+					METRICS_NAME, System.nanoTime() - start, e);
+			return false;
+		}
+		fileRates.put(file.getName(), rates);
+		List<ExchangeRate> allRates = new ArrayList<ExchangeRate>();
+		for (Map<String, ExchangeRate> loaded : fileRates.values()) {
+			allRates.addAll(loaded.values());
+		}
+		ExchangeRateMetricsRegistry.getMetrics().recordLoad(METRICS_NAME,
+				System.nanoTime() - start, allRates);
+		LOGGER.info("Loaded " + rates.size() + " rates from " + file);
+		return true;
+	}
+
+	/**
+	 * Merges the rates of all files into a new snapshot and publishes it.
+	 */
+	private void publish() {
+		Map<String, ExchangeRate> merged = new HashMap<String, ExchangeRate>();
+		for (Map<String, ExchangeRate> rates : fileRates.values()) {
+			for (Map.Entry<String, ExchangeRate> en : rates.entrySet()) {
+				ExchangeRate existing = merged.get(en.getKey());
+				if (existing == null
+						|| existing.getTimestamp().longValue() < en.getValue()
+								.getTimestamp().longValue()) {
+					merged.put(en.getKey(), en.getValue());
+				}
+			}
+		}
+		this.snapshot = Collections.unmodifiableMap(merged);
+		this.snapshotVersion++;
+	}
+
+	private void readCsv(File file, Map<String, ExchangeRate> rates)
+			throws IOException {
+		Long defaultTimestamp = Long.valueOf(file.lastModified());
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int limit = buffer.limit();
+			int lineNumber = 0;
+			int pos = 0;
+			while (pos < limit) {
+				lineNumber++;
+				int end = pos;
+				while (end < limit && buffer.get(end) != '\n') {
+					end++;
+				}
+				int next = end + 1;
+				if (end > pos && buffer.get(end - 1) == '\r') {
+					end--;
+				}
+				if (end > pos && buffer.get(pos) != '#') {
+					ExchangeRate rate;
+					try {
+						rate = parseCsvLine(buffer, pos, end, defaultTimestamp);
+					} catch (RuntimeException e) {
+						LOGGER.debug("Invalid rate line", e);
+						rate = null;
+					}
+					if (rate == null) {
+						LOGGER.warn("Ignoring invalid rate in " + file
+								+ ", line " + lineNumber);
+					} else {
+						rates.put(getKey(rate.getSource(), rate.getTarget()),
+								rate);
+					}
+				}
+				pos = next;
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Parses a line {@code SOURCE,TARGET,FACTOR[,TIMESTAMP]}.
+	 * 
+	 * @return the rate, or null, if the line is invalid.
+	 */
+	private ExchangeRate parseCsvLine(MappedByteBuffer buffer, int start,
+			int end, Long defaultTimestamp) {
+		int sep1 = indexOf(buffer, ',', start, end);
+		int sep2 = indexOf(buffer, ',', sep1 + 1, end);
+		if (sep1 < 0 || sep2 < 0) {
+			return null;
+		}
+		int sep3 = indexOf(buffer, ',', sep2 + 1, end);
+		CurrencyUnit source = getCurrency(buffer, start, sep1);
+		CurrencyUnit target = getCurrency(buffer, sep1 + 1, sep2);
+		BigDecimal factor = parseDecimal(buffer, sep2 + 1, sep3 < 0 ? end
+				: sep3);
+		if (source == null || target == null || factor == null) {
+			return null;
+		}
+		Long timestamp = defaultTimestamp;
+		if (sep3 >= 0) {
+			long ts = 0;
+			int i = skipBlanks(buffer, sep3 + 1, end);
+			int last = trimBlanks(buffer, i, end);
+			if (i == last) {
+				return null;
+			}
+			for (; i < last; i++) {
+				byte b = buffer.get(i);
+				if (b < '0' || b > '9'
+						|| ts > (Long.MAX_VALUE - (b - '0')) / 10) {
+					return null;
+				}
+				ts = ts * 10 + (b - '0');
+			}
+			timestamp = Long.valueOf(ts);
+		}
+		return createRate(source, target, factor, timestamp);
+	}
+
+	private static int indexOf(MappedByteBuffer buffer, char ch, int start,
+			int end) {
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == ch) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int skipBlanks(MappedByteBuffer buffer, int start, int end) {
+		while (start < end && buffer.get(start) == ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	private static int trimBlanks(MappedByteBuffer buffer, int start, int end) {
+		while (end > start && buffer.get(end - 1) == ' ') {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * Resolves a three letter ISO code, using a cache keyed by the packed
+	 * ASCII bytes.
+	 */
+	private CurrencyUnit getCurrency(MappedByteBuffer buffer, int start,
+			int end) {
+		start = skipBlanks(buffer, start, end);
+		end = trimBlanks(buffer, start, end);
+		if (end - start != 3) {
+			return null;
+		}
+		int packed = ((buffer.get(start) & 0xFF) << 16)
+				| ((buffer.get(start + 1) & 0xFF) << 8)
+				| (buffer.get(start + 2) & 0xFF);
+		Integer key = Integer.valueOf(packed);
+		CurrencyUnit currency = currencies.get(key);
+		if (currency == null) {
+			char[] code = { (char) buffer.get(start),
+					(char) buffer.get(start + 1), (char) buffer.get(start + 2) };
+			try {
+				currency = MoneyCurrency.getInstance(new String(code));
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+			currencies.put(key, currency);
+		}
+		return currency;
+	}
+
+	/**
+	 * Parses a decimal number without exponent into a {@link BigDecimal}.
+	 * 
+	 * @return the number, or null.
+	 */
+	private static BigDecimal parseDecimal(MappedByteBuffer buffer,
+			int start, int end) {
+		start = skipBlanks(buffer, start, end);
+		end = trimBlanks(buffer, start, end);
+		boolean negative = false;
+		if (start < end && buffer.get(start) == '-') {
+			negative = true;
+			start++;
+		}
+		if (start == end) {
+			return null;
+		}
+		long unscaled = 0;
+		int scale = -1;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9') {
+				if (unscaled > (Long.MAX_VALUE - 9) / 10) {
+					byte[] chars = new byte[end - start];
+					for (int j = 0; j < chars.length; j++) {
+						chars[j] = buffer.get(start + j);
+					}
+					BigDecimal big;
+					try {
+						big = new BigDecimal(new String(chars));
+					} catch (NumberFormatException e) {
+						return null;
+					}
+					return negative ? big.negate() : big;
+				}
+				unscaled = unscaled * 10 + (b - '0');
+				if (scale >= 0) {
+					scale++;
+				}
+			} else if (b == '.' && scale < 0) {
+				scale = 0;
+			} else {
+				return null;
+			}
+		}
+		return BigDecimal.valueOf(negative ? -unscaled : unscaled,
+				Math.max(scale, 0));
+	}
+
+	private void readXml(final File file, final Map<String, ExchangeRate> rates)
+			throws Exception {
+		final Long defaultTimestamp = Long.valueOf(file.lastModified());
+		saxParserFactory.newSAXParser().parse(file, new DefaultHandler() {
+			@Override
+			public void startElement(String uri, String localName,
+					String qName, Attributes attributes) throws SAXException {
+				if (!"rate".equals(qName)) {
+					return;
+				}
+				try {
+					CurrencyUnit source = MoneyCurrency.getInstance(attributes
+							.getValue("source"));
+					CurrencyUnit target = MoneyCurrency.getInstance(attributes
+							.getValue("target"));
+					BigDecimal factor = new BigDecimal(attributes
+							.getValue("factor"));
+					Long timestamp = defaultTimestamp;
+					String ts = attributes.getValue("timestamp");
+					if (ts != null) {
+						timestamp = Long.valueOf(ts.trim());
+					}
+					rates.put(getKey(source, target),
+							createRate(source, target, factor, timestamp));
+				} catch (RuntimeException e) {
+					LOGGER.warn("Ignoring invalid rate in " + file + ": "
+							+ e.getMessage());
+				}
+			}
+		});
+	}
+
+	private ExchangeRate createRate(CurrencyUnit source, CurrencyUnit target,
+			BigDecimal factor, Long timestamp) {
+		CurrencyExchangeRate.Builder builder = new CurrencyExchangeRate.Builder();
+		builder.setExchangeRateType(rateType);
+		builder.setDataProvider(DATA_PROVIDER);
+		builder.setSource(source);
+		builder.setTarget(target);
+		builder.setTimestamp(timestamp);
+		builder.setSourceLeadingFactor(factor);
+		return builder.build();
+	}
+
+	private static String getKey(CurrencyUnit source, CurrencyUnit target) {
+		return source.getNamespace() + ':' + source.getCurrencyCode() + '>'
+				+ target.getNamespace() + ':' + target.getCurrencyCode();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.java.javamoney.ri.convert.SnapshotVersioned#getSnapshotVersion()
+	 */
+	@Override
+	public long getSnapshotVersion() {
+		if (shared != null) {
+			return shared.snapshotVersion;
+		}
+		return snapshotVersion;
+	}
+
+	private Map<String, ExchangeRate> getSnapshot() {
+		if (shared != null) {
+			return shared.snapshot;
+		}
+		return snapshot;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.money.convert.spi.ExchangeRateProviderSpi#getExchangeRateType()
+	 */
+	@Override
+	public ExchangeRateType getExchangeRateType() {
+		return rateType;
+	}
+
+	/**
+	 * Access a rate of the current snapshot. For a given timestamp, the rate
+	 * is only returned, if it is not newer than the timestamp.
+	 * 
+	 * @see javax.money.convert.spi.ExchangeRateProviderSpi#getExchangeRate(javax
+	 *      .money.CurrencyUnit, javax.money.CurrencyUnit, java.lang.Long)
+	 */
+	@Override
+	public ExchangeRate getExchangeRate(CurrencyUnit source,
+			CurrencyUnit target, Long timestamp) {
+		Map<String, ExchangeRate> rates = getSnapshot();
+		ExchangeRate rate = rates.get(getKey(source, target));
+		if (rate == null) {
+			rate = rates.get(getKey(target, source));
+			if (rate != null) {
+				rate = rate.reverse();
+			}
+		}
+		if (rate != null && timestamp != null
+				&& rate.getTimestamp().longValue() > timestamp.longValue()) {
+			return null;
+		}
+		return rate;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateCatalog#getExchangeRates(java
+	 * .lang.Long)
+	 */
+	@Override
+	public Collection<ExchangeRate> getExchangeRates(Long timestamp) {
+		Collection<ExchangeRate> rates = new ArrayList<ExchangeRate>();
+		for (ExchangeRate rate : getSnapshot().values()) {
+			if (timestamp == null
+					|| rate.getTimestamp().longValue() <= timestamp
+							.longValue()) {
+				rates.add(rate);
+			}
+		}
+		return rates;
+	}
+
+	/**
+	 * The key is the timestamp of the newest rate at the given timestamp,
+	 * since rates are only added with their timestamp.
+	 */
+	@Override
+	public long getSnapshotKey(long timestamp) {
+		long key = Long.MIN_VALUE;
+		for (ExchangeRate rate : getSnapshot().values()) {
+			long rateTimestamp = rate.getTimestamp().longValue();
+			if (rateTimestamp <= timestamp && rateTimestamp > key) {
+				key = rateTimestamp;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * The instance shared by all instances created by the default
+	 * constructor, created on first use.
+	 */
+	private static final class SharedHolder {
+		static final FileExchangeRateProvider INSTANCE = new FileExchangeRateProvider(
+				getConfiguredDirectory(), RATE_TYPE);
+	}
+
+}
@@ -19,39 +19,158 @@
 package net.java.javamoney.ri.convert.provider;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.net.URL;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.money.CurrencyUnit;
 import javax.money.convert.ExchangeRate;
 import javax.money.convert.ExchangeRateType;
 import javax.money.convert.spi.ExchangeRateProviderSpi;
 
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.ExchangeRateCatalog;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
 import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+import net.java.javamoney.ri.core.MoneyCurrency;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class IMFExchangeRateProvider implements ExchangeRateProviderSpi {
+/**
+ * This class implements an {@link ExchangeRateProviderSpi} that serves the SDR
+ * based rates published by the International Monetary Fund, in the
+ * {@code rms_five} TSV format. The data contains the SDRs per currency unit and
+ * the currency units per SDR for the last five business days. Rates between
+ * two currencies other than SDR (XDR) are derived via SDR.
+ * <p>
+ * The constructor does not load any data, unless the system property
+ * {@value #RATE_FILE_PROP} points to a local file in the {@code rms_five}
+ * format. Data can be loaded explicitly by calling {@link #loadRates()},
+ * {@link #loadRates(File)} or {@link #loadRates(InputStream)}.
+ * 
+ * @author Anatole Tresch
+ */
+public class IMFExchangeRateProvider implements ExchangeRateProviderSpi,
+		SnapshotVersioned, ExchangeRateCatalog {
+
+	/** System property to configure a local rate file loaded initially. */
+	public static final String RATE_FILE_PROP = "net.java.javamoney.ri.convert.imf.file";
+	/** URL of the data feed. */
+	private static final String RATES_URL = "http://www.imf.org/external/np/fin/data/rms_five.aspx?tsvflag=Y";
+	/** The data provider name. */
+	private static final String DATA_PROVIDER = "International Monetary Fund";
+	/** ISO code of the special drawing rights. */
+	private static final String SDR_CODE = "XDR";
+	/** Sections of the TSV data. */
+	private static final int NO_SECTION = 0;
+	private static final int SDR_PER_CURRENCY = 1;
+	private static final int CURRENCY_PER_SDR = 2;
+	private static final String[] MONTHS = { "jan", "feb", "mar", "apr",
+			"may", "jun", "jul", "aug", "sep", "oct", "nov", "dec" };
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	/** Currency names used by the IMF, that differ from the JDK names. */
+	private static final Map<String, String> IMF_CURRENCY_NAMES = new HashMap<String, String>();
+
+	static {
+		IMF_CURRENCY_NAMES.put("SDR", SDR_CODE);
+		IMF_CURRENCY_NAMES.put("Chinese Yuan", "CNY");
+		IMF_CURRENCY_NAMES.put("Euro", "EUR");
+		IMF_CURRENCY_NAMES.put("Japanese Yen", "JPY");
+		IMF_CURRENCY_NAMES.put("U.K. Pound Sterling", "GBP");
+		IMF_CURRENCY_NAMES.put("U.K. Pound", "GBP");
+		IMF_CURRENCY_NAMES.put("U.S. Dollar", "USD");
+		IMF_CURRENCY_NAMES.put("Bahrain Dinar", "BHD");
+		IMF_CURRENCY_NAMES.put("Bahrainian Dinar", "BHD");
+		IMF_CURRENCY_NAMES.put("Brunei Dollar", "BND");
+		IMF_CURRENCY_NAMES.put("Icelandic Krona", "ISK");
+		IMF_CURRENCY_NAMES.put("Iranian Rial", "IRR");
+		IMF_CURRENCY_NAMES.put("Israeli New Sheqel", "ILS");
+		IMF_CURRENCY_NAMES.put("Kazakhstani Tenge", "KZT");
+		IMF_CURRENCY_NAMES.put("Korean Won", "KRW");
+		IMF_CURRENCY_NAMES.put("Libyan Dinar", "LYD");
+		IMF_CURRENCY_NAMES.put("Nepalese Rupee", "NPR");
+		IMF_CURRENCY_NAMES.put("Rial Omani", "OMR");
+		IMF_CURRENCY_NAMES.put("Nuevo Sol", "PEN");
+		IMF_CURRENCY_NAMES.put("Peruvian Sol", "PEN");
+		IMF_CURRENCY_NAMES.put("Qatar Riyal", "QAR");
+		IMF_CURRENCY_NAMES.put("Qatari Riyal", "QAR");
+		IMF_CURRENCY_NAMES.put("Russian Ruble", "RUB");
+		IMF_CURRENCY_NAMES.put("Sri Lanka Rupee", "LKR");
+		IMF_CURRENCY_NAMES.put("Sri Lankan Rupee", "LKR");
+		IMF_CURRENCY_NAMES.put("Trinidad And Tobago Dollar", "TTD");
+		IMF_CURRENCY_NAMES.put("U.A.E. Dirham", "AED");
+		IMF_CURRENCY_NAMES.put("Peso Uruguayo", "UYU");
+		IMF_CURRENCY_NAMES.put("Bolivar Fuerte", "VEF");
+		IMF_CURRENCY_NAMES.put("Venezuelan Bolivar", "VEF");
+	}
 
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(IMFExchangeRateProvider.class);
+	/** The component name used for metrics. */
+	private static final String METRICS_NAME = "IMFExchangeRateProvider";
 
-	private Map<CurrencyUnit, ExchangeRate> currencyToSDRMap = new HashMap<CurrencyUnit, ExchangeRate>();
+	/** The {@link ExchangeRateType} of this provider. */
+	private final ExchangeRateType rateType;
+	/** The rate data currently published, never null. */
+	private volatile RateData rateData = RateData.EMPTY;
+	/** Version of the rate data, incremented on each successful load. */
+	private final AtomicLong snapshotVersion = new AtomicLong();
 
-	private Map<CurrencyUnit, ExchangeRate> sDRToCurrency = new HashMap<CurrencyUnit, ExchangeRate>();
+	/**
+	 * Creates a new instance, using the default rate type.
+	 */
+	public IMFExchangeRateProvider() {
+		this(SingletonExchangeRateType.of("public"));
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param rateType
+	 *            the rate type served, not {@code null}.
+	 */
+	public IMFExchangeRateProvider(ExchangeRateType rateType) {
+		if (rateType == null) {
+			throw new IllegalArgumentException("rateType may not be null.");
+		}
+		this.rateType = rateType;
+		String file = System.getProperty(RATE_FILE_PROP);
+		if (file != null) {
+			try {
+				loadRates(new File(file));
+			} catch (IOException e) {
+				LOGGER.error("Failed to load IMF rates from " + file, e);
+			}
+		}
+	}
 
+	/**
+	 * (Re)load the rates from the IMF data feed.
+	 */
 	public void loadRates() {
 		InputStream is = null;
 		try {
-			URL url = new URL(
-					"http://www.imf.org/external/np/fin/data/rms_five.aspx?tsvflag=Y");
+			URL url = new URL(RATES_URL);
 			is = url.openStream();
 			loadRates(is);
 		} catch (Exception e) {
@@ -67,84 +186,599 @@ public class IMFExchangeRateProvider implements ExchangeRateProviderSpi {
 		}
 	}
 
-	private void loadRates(InputStream inputStream) throws IOException {
-		CurrencyUnit sdr = getCurrency("SDR");
-		NumberFormat f = new DecimalFormat("#0.0000000000");
-		f.setGroupingUsed(false);
-		BufferedReader pr = new BufferedReader(new InputStreamReader(
-				inputStream));
-		String line = pr.readLine();
-		int sdrToCurrency = 0;
+	/**
+	 * (Re)load the rates from a local file in the {@code rms_five} TSV format.
+	 * 
+	 * @param file
+	 *            the file, not {@code null}.
+	 * @throws IOException
+	 *             if the file could not be read.
+	 */
+	public void loadRates(File file) throws IOException {
+		InputStream is = new FileInputStream(file);
+		try {
+			loadRates(is);
+		} finally {
+			try {
+				is.close();
+			} catch (IOException e) {
+				LOGGER.warn("Error closing input stream.", e);
+			}
+		}
+	}
+
+	/**
+	 * (Re)load the rates from a stream in the {@code rms_five} TSV format. The
+	 * stream is read in a single pass, it is not closed.
+	 * 
+	 * @param inputStream
+	 *            the stream, not {@code null}.
+	 * @throws IOException
+	 *             if the stream could not be read.
+	 */
+	public void loadRates(InputStream inputStream) throws IOException {
+		long start = System.nanoTime();
+		try {
+			readRates(inputStream);
+		} catch (IOException e) {
+			ExchangeRateMetricsRegistry.getMetrics().recordLoadFailure(
+					METRICS_NAME, System.nanoTime() - start, e);
+			throw e;
+		}
+		ExchangeRateMetricsRegistry.getMetrics().recordLoad(METRICS_NAME,
+				System.nanoTime() - start, getExchangeRates(null));
+	}
+
+	private void readRates(InputStream inputStream) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				inputStream, "UTF-8"));
+		RateDataBuilder builder = new RateDataBuilder();
+		int section = NO_SECTION;
+		long[] header = null;
+		String line = reader.readLine();
 		while (line != null) {
-			Long[] timestamps = null;
 			if (line.startsWith("SDRs per Currency unit")) {
-				sdrToCurrency = 1;
+				section = SDR_PER_CURRENCY;
+				header = null;
 			} else if (line.startsWith("Currency units per SDR")) {
-				sdrToCurrency = 2;
-			} else if (line.startsWith("Currency ")) {
-				timestamps = readTimestamps(line);
-			}
-			String[] parts = line.split("\\t");
-			CurrencyUnit currency = getCurrency(parts[0]);
-			Double[] values = parseValues(f, parts, 1);
-			// for(int i=0;i<values.length;i++){
-			// if(values[i]!=null){
-			// if(sdrToCurrency==1){ // Currency -> SDR
-			// currencyToSDRMap.put(currency, new ExchangeRateImpl(currency,
-			// sdr, values[i]));
-			// }
-			// else if(sdrToCurrency==2){ // SDR -> Currency
-			// sDRToCurrency.put(currency, new ExchangeRateImpl(sdr, currency,
-			// values[i]));
-			// }
-			// }
-			// }
-			// SDRs per Currency unit (2)
-			//
-			// Currency January 31, 2013 January 30, 2013 January 29, 2013
-			// January 28, 2013 January 25, 2013
-			// Euro 0.8791080000 0.8789170000 0.8742470000 0.8752180000
-			// 0.8768020000
-
-			// Currency units per SDR(3)
-			//
-			// Currency January 31, 2013 January 30, 2013 January 29, 2013
-			// January 28, 2013 January 25, 2013
-			// Euro 1.137520 1.137760 1.143840 1.142570 1.140510
-
-			line = pr.readLine();
-		}
-
-	}
-
-	private Double[] parseValues(NumberFormat f, String[] parts, int i) {
-		// TODO Auto-generated method stub
-		return null;
+				section = CURRENCY_PER_SDR;
+				header = null;
+			} else if (section != NO_SECTION) {
+				int tab = line.indexOf('\t');
+				if (tab > 0) {
+					if (header == null && line.startsWith("Currency")) {
+						header = readTimestamps(line, tab);
+					} else if (header != null) {
+						CurrencyUnit currency = getCurrency(line.substring(0,
+								tab).trim());
+						if (currency != null) {
+							builder.addRow(section, currency, header,
+									parseValues(line, tab, header.length));
+						} else {
+							LOGGER.debug("Ignoring IMF rates for unknown currency: "
+									+ line.substring(0, tab));
+						}
+					}
+				}
+			}
+			line = reader.readLine();
+		}
+		this.rateData = builder.build();
+		this.snapshotVersion.incrementAndGet();
+		LOGGER.info("Loaded IMF exchange rates for days: "
+				+ this.rateData.timestamps.length);
 	}
 
-	private Long[] readTimestamps(String line) {
-		// TODO Auto-generated method stub
-		return null;
+	/**
+	 * Parses the values of a data row, starting after the given tab.
+	 * 
+	 * @param line
+	 *            the line
+	 * @param tab
+	 *            the index of the tab preceding the first value.
+	 * @param count
+	 *            the number of values expected.
+	 * @return the values, with {@link Double#NaN} for values not available.
+	 */
+	private double[] parseValues(String line, int tab, int count) {
+		double[] values = new double[count];
+		Arrays.fill(values, Double.NaN);
+		int start = tab + 1;
+		for (int i = 0; i < count && start <= line.length(); i++) {
+			int end = line.indexOf('\t', start);
+			if (end < 0) {
+				end = line.length();
+			}
+			values[i] = parseDecimal(line, start, end);
+			start = end + 1;
+		}
+		return values;
 	}
 
-	private CurrencyUnit getCurrency(String string) {
-		// TODO Auto-generated method stub
-		return null;
+	/**
+	 * Parses a positive or negative decimal number, without exponent.
+	 * 
+	 * @return the value parsed, or {@link Double#NaN}, if the token is not a
+	 *         number, e.g. {@code NA}.
+	 */
+	static double parseDecimal(CharSequence chars, int start, int end) {
+		while (start < end && chars.charAt(start) == ' ') {
+			start++;
+		}
+		while (end > start && chars.charAt(end - 1) == ' ') {
+			end--;
+		}
+		boolean negative = false;
+		if (start < end && chars.charAt(start) == '-') {
+			negative = true;
+			start++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int scale = -1;
+		for (int i = start; i < end; i++) {
+			char ch = chars.charAt(i);
+			if (ch >= '0' && ch <= '9') {
+				if (digits >= 18) {
+					double value = parseGrouped(chars, start, end);
+					return negative ? -value : value;
+				}
+				mantissa = mantissa * 10 + (ch - '0');
+				if (mantissa != 0) {
+					digits++;
+				}
+				if (scale >= 0) {
+					scale++;
+				}
+			} else if (ch == '.' && scale < 0) {
+				scale = 0;
+			} else if (ch != ',') {
+				return Double.NaN;
+			}
+		}
+		if (start == end) {
+			return Double.NaN;
+		}
+		double value = mantissa;
+		if (scale > 0) {
+			if (mantissa < (1L << 53) && scale < POWERS_OF_TEN.length) {
+				value = value / POWERS_OF_TEN[scale];
+			} else {
+				value = parseGrouped(chars, start, end);
+			}
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses an unsigned decimal number, that may contain grouping commas,
+	 * using {@link Double#parseDouble(String)}.
+	 * 
+	 * @return the value parsed, or {@link Double#NaN}, if the token is not a
+	 *         number.
+	 */
+	private static double parseGrouped(CharSequence chars, int start, int end) {
+		try {
+			return Double.parseDouble(chars.subSequence(start, end).toString()
+					.replace(",", ""));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Reads the timestamps from a header line, e.g.
+	 * {@code Currency	January 31, 2013	January 30, 2013}.
+	 * 
+	 * @return the UTC timestamps, with {@link Long#MIN_VALUE} for columns that
+	 *         could not be parsed.
+	 */
+	private long[] readTimestamps(String line, int tab) {
+		List<Long> timestamps = new ArrayList<Long>();
+		int start = tab + 1;
+		while (start < line.length()) {
+			int end = line.indexOf('\t', start);
+			if (end < 0) {
+				end = line.length();
+			}
+			timestamps.add(Long.valueOf(parseDate(line, start, end)));
+			start = end + 1;
+		}
+		long[] result = new long[timestamps.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = timestamps.get(i).longValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a date in the format {@code January 31, 2013}.
+	 * 
+	 * @return the start of the UTC day, or {@link Long#MIN_VALUE}.
+	 */
+	static long parseDate(CharSequence chars, int start, int end) {
+		while (start < end && chars.charAt(start) == ' ') {
+			start++;
+		}
+		if (end - start < 3) {
+			return Long.MIN_VALUE;
+		}
+		int month = -1;
+		for (int m = 0; m < MONTHS.length; m++) {
+			String name = MONTHS[m];
+			if (Character.toLowerCase(chars.charAt(start)) == name.charAt(0)
+					&& Character.toLowerCase(chars.charAt(start + 1)) == name
+							.charAt(1)
+					&& Character.toLowerCase(chars.charAt(start + 2)) == name
+							.charAt(2)) {
+				month = m + 1;
+				break;
+			}
+		}
+		if (month < 0) {
+			return Long.MIN_VALUE;
+		}
+		int day = 0;
+		int year = 0;
+		int field = 0;
+		for (int i = start + 3; i < end; i++) {
+			char ch = chars.charAt(i);
+			if (ch >= '0' && ch <= '9') {
+				if (field == 0) {
+					field = 1;
+				}
+				if (field == 1) {
+					day = day * 10 + (ch - '0');
+				} else {
+					year = year * 10 + (ch - '0');
+				}
+			} else if (field == 1) {
+				field = 2;
+			}
+		}
+		if (day < 1 || day > 31 || year == 0) {
+			return Long.MIN_VALUE;
+		}
+		return getEpochDay(year, month, day) * DAY_MILLIS;
+	}
+
+	/**
+	 * Evaluates the days since 1970-01-01 for the given date in the proleptic
+	 * Gregorian calendar.
+	 */
+	private static long getEpochDay(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	/**
+	 * Maps the currency names used by the IMF to currencies.
+	 * 
+	 * @param name
+	 *            the name, e.g. {@code Euro}.
+	 * @return the currency, or {@code null}.
+	 */
+	private CurrencyUnit getCurrency(String name) {
+		String code = IMF_CURRENCY_NAMES.get(name);
+		if (code == null) {
+			code = JdkCurrencyNames.get(name);
+		}
+		if (code == null) {
+			return null;
+		}
+		return MoneyCurrency.getInstance(code);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.java.javamoney.ri.convert.SnapshotVersioned#getSnapshotVersion()
+	 */
+	@Override
+	public long getSnapshotVersion() {
+		return snapshotVersion.get();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.money.convert.spi.ExchangeRateProviderSpi#getExchangeRate(javax
+	 * .money.CurrencyUnit, javax.money.CurrencyUnit, java.lang.Long)
+	 */
 	@Override
 	public ExchangeRate getExchangeRate(CurrencyUnit source,
 			CurrencyUnit target, Long timestamp) {
-		// TODO Auto-generated method stub
+		if (!CurrencyUnit.ISO_NAMESPACE.equals(source.getNamespace())
+				|| !CurrencyUnit.ISO_NAMESPACE.equals(target.getNamespace())) {
+			return null;
+		}
+		RateData data = this.rateData;
+		int sourceIndex = data.indexOf(source.getCurrencyCode());
+		int targetIndex = data.indexOf(target.getCurrencyCode());
+		if (sourceIndex < 0 || targetIndex < 0) {
+			return null;
+		}
+		for (int day = data.getDayIndex(timestamp); day >= 0; day--) {
+			double toSdr = data.getSdrPerCurrency(sourceIndex, day);
+			double fromSdr = data.getCurrencyPerSdr(targetIndex, day);
+			if (Double.isNaN(toSdr) || Double.isNaN(fromSdr)) {
+				continue;
+			}
+			Long dayTimestamp = Long.valueOf(data.timestamps[day]);
+			if (sourceIndex == data.sdrIndex || targetIndex == data.sdrIndex) {
+				double factor = sourceIndex == data.sdrIndex ? fromSdr : toSdr;
+				return createRate(source, target, factor, dayTimestamp);
+			}
+			ExchangeRate sourceRate = createRate(source, data.sdr, toSdr,
+					dayTimestamp);
+			ExchangeRate targetRate = createRate(data.sdr, target, fromSdr,
+					dayTimestamp);
+			CurrencyExchangeRate.Builder builder = new CurrencyExchangeRate.Builder();
+			builder.setExchangeRateType(rateType);
+			builder.setDataProvider(DATA_PROVIDER);
+			builder.setSource(source);
+			builder.setTarget(target);
+			builder.setTimestamp(dayTimestamp);
+			builder.setExchangeRateChain(sourceRate, targetRate);
+			builder.setSourceLeadingFactor(BigDecimal.valueOf(toSdr).multiply(
+					BigDecimal.valueOf(fromSdr), MathContext.DECIMAL64));
+			return builder.build();
+		}
 		return null;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateCatalog#getExchangeRates(java
+	 * .lang.Long)
+	 */
+	@Override
+	public Collection<ExchangeRate> getExchangeRates(Long timestamp) {
+		RateData data = this.rateData;
+		int day = data.getDayIndex(timestamp);
+		if (day < 0 || data.sdrIndex < 0) {
+			return Collections.emptySet();
+		}
+		List<ExchangeRate> rates = new ArrayList<ExchangeRate>();
+		Long dayTimestamp = Long.valueOf(data.timestamps[day]);
+		for (int i = 0; i < data.currencies.length; i++) {
+			if (i == data.sdrIndex) {
+				continue;
+			}
+			double toSdr = data.sdrPerCurrency[i][day];
+			if (!Double.isNaN(toSdr)) {
+				rates.add(createRate(data.currencies[i], data.sdr, toSdr,
+						dayTimestamp));
+			}
+			double fromSdr = data.currencyPerSdr[i][day];
+			if (!Double.isNaN(fromSdr)) {
+				rates.add(createRate(data.sdr, data.currencies[i], fromSdr,
+						dayTimestamp));
+			}
+		}
+		return rates;
+	}
+
+	/**
+	 * Rates are published daily, the key is the timestamp of the last day
+	 * published before the given timestamp.
+	 */
+	@Override
+	public long getSnapshotKey(long timestamp) {
+		RateData data = this.rateData;
+		int day = data.getDayIndex(Long.valueOf(timestamp));
+		if (day < 0 || data.sdrIndex < 0) {
+			return Long.MIN_VALUE;
+		}
+		return data.timestamps[day];
+	}
+
+	private ExchangeRate createRate(CurrencyUnit source, CurrencyUnit target,
+			double factor, Long timestamp) {
+		CurrencyExchangeRate.Builder builder = new CurrencyExchangeRate.Builder();
+		builder.setExchangeRateType(rateType);
+		builder.setDataProvider(DATA_PROVIDER);
+		builder.setSource(source);
+		builder.setTarget(target);
+		builder.setTimestamp(timestamp);
+		builder.setSourceLeadingFactor(BigDecimal.valueOf(factor));
+		return builder.build();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.money.convert.spi.ExchangeRateProviderSpi#getExchangeRateType()
+	 */
 	@Override
 	public ExchangeRateType getExchangeRateType() {
-		return SingletonExchangeRateType.of("public");
+		return rateType;
 	}
 
 	public static void main(String[] args) {
 		new IMFExchangeRateProvider().loadRates();
 	}
+
+	/**
+	 * Immutable rate matrices, indexed by currency and day. Values not
+	 * available are {@link Double#NaN}.
+	 */
+	private static final class RateData {
+
+		static final RateData EMPTY = new RateData(new CurrencyUnit[0],
+				new long[0], new double[0][], new double[0][]);
+
+		final CurrencyUnit[] currencies;
+		final Map<String, Integer> indexes = new HashMap<String, Integer>();
+		/** The days available, ascending. */
+		final long[] timestamps;
+		final double[][] sdrPerCurrency;
+		final double[][] currencyPerSdr;
+		final CurrencyUnit sdr;
+		final int sdrIndex;
+
+		RateData(CurrencyUnit[] currencies, long[] timestamps,
+				double[][] sdrPerCurrency, double[][] currencyPerSdr) {
+			this.currencies = currencies;
+			this.timestamps = timestamps;
+			this.sdrPerCurrency = sdrPerCurrency;
+			this.currencyPerSdr = currencyPerSdr;
+			for (int i = 0; i < currencies.length; i++) {
+				indexes.put(currencies[i].getCurrencyCode(), Integer.valueOf(i));
+			}
+			this.sdrIndex = indexOf(SDR_CODE);
+			this.sdr = sdrIndex < 0 ? null : currencies[sdrIndex];
+		}
+
+		int indexOf(String currencyCode) {
+			Integer index = indexes.get(currencyCode);
+			if (index == null) {
+				return -1;
+			}
+			return index.intValue();
+		}
+
+		/**
+		 * Evaluates the last day at or before the given timestamp.
+		 * 
+		 * @return the day index, or -1.
+		 */
+		int getDayIndex(Long timestamp) {
+			if (timestamp == null) {
+				return timestamps.length - 1;
+			}
+			int index = Arrays.binarySearch(timestamps, timestamp.longValue());
+			if (index < 0) {
+				index = -index - 2;
+			}
+			return index;
+		}
+
+		double getSdrPerCurrency(int currency, int day) {
+			if (currency == sdrIndex) {
+				return 1.0d;
+			}
+			double value = sdrPerCurrency[currency][day];
+			if (Double.isNaN(value)) {
+				value = 1.0d / currencyPerSdr[currency][day];
+			}
+			return value;
+		}
+
+		double getCurrencyPerSdr(int currency, int day) {
+			if (currency == sdrIndex) {
+				return 1.0d;
+			}
+			double value = currencyPerSdr[currency][day];
+			if (Double.isNaN(value)) {
+				value = 1.0d / sdrPerCurrency[currency][day];
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Collects the rows read, before the day columns are known.
+	 */
+	private static final class RateDataBuilder {
+		private final List<CurrencyUnit> currencies = new ArrayList<CurrencyUnit>();
+		private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+		private final List<Row> rows = new ArrayList<Row>();
+
+		RateDataBuilder() {
+			add(MoneyCurrency.getInstance(SDR_CODE));
+		}
+
+		private int add(CurrencyUnit currency) {
+			Integer index = indexes.get(currency.getCurrencyCode());
+			if (index == null) {
+				index = Integer.valueOf(currencies.size());
+				currencies.add(currency);
+				indexes.put(currency.getCurrencyCode(), index);
+			}
+			return index.intValue();
+		}
+
+		void addRow(int section, CurrencyUnit currency, long[] header,
+				double[] values) {
+			rows.add(new Row(section, add(currency), header, values));
+		}
+
+		RateData build() {
+			long[] days = new long[0];
+			for (Row row : rows) {
+				for (long ts : row.header) {
+					if (ts != Long.MIN_VALUE
+							&& Arrays.binarySearch(days, ts) < 0) {
+						days = Arrays.copyOf(days, days.length + 1);
+						days[days.length - 1] = ts;
+						Arrays.sort(days);
+					}
+				}
+			}
+			double[][] sdrPerCurrency = new double[currencies.size()][days.length];
+			double[][] currencyPerSdr = new double[currencies.size()][days.length];
+			for (int i = 0; i < currencies.size(); i++) {
+				Arrays.fill(sdrPerCurrency[i], Double.NaN);
+				Arrays.fill(currencyPerSdr[i], Double.NaN);
+			}
+			for (Row row : rows) {
+				double[][] target = row.section == SDR_PER_CURRENCY ? sdrPerCurrency
+						: currencyPerSdr;
+				for (int c = 0; c < row.header.length; c++) {
+					if (row.header[c] == Long.MIN_VALUE) {
+						continue;
+					}
+					int day = Arrays.binarySearch(days, row.header[c]);
+					target[row.currency][day] = row.values[c];
+				}
+			}
+			return new RateData(currencies.toArray(new CurrencyUnit[currencies
+					.size()]), days, sdrPerCurrency, currencyPerSdr);
+		}
+	}
+
+	/**
+	 * A data row read.
+	 */
+	private static final class Row {
+		final int section;
+		final int currency;
+		final long[] header;
+		final double[] values;
+
+		Row(int section, int currency, long[] header, double[] values) {
+			this.section = section;
+			this.currency = currency;
+			this.header = header;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Lazily initialized mapping of the English JDK currency names to codes.
+	 */
+	private static final class JdkCurrencyNames {
+		private static final Map<String, String> NAMES = new HashMap<String, String>();
+
+		static {
+			for (Currency currency : Currency.getAvailableCurrencies()) {
+				NAMES.put(currency.getDisplayName(Locale.ENGLISH),
+						currency.getCurrencyCode());
+			}
+		}
+
+		static String get(String name) {
+			return NAMES.get(name);
+		}
+	}
+
 }
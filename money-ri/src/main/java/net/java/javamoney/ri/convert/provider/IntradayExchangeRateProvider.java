@@ -0,0 +1,383 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
+import javax.money.convert.spi.ExchangeRateProviderSpi;
+
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.ExchangeRateCatalog;
+import net.java.javamoney.ri.convert.RateTickSeries;
+import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+
+/**
+ * This class implements an {@link ExchangeRateProviderSpi} holding
+ * high-frequency rate ticks, as delivered by a market data feed. Ticks are
+ * stored per currency pair in a {@link RateTickSeries}, lookups for a
+ * timestamp return the tick valid at that time, with
+ * {@link ExchangeRate#getValidUntil()} set to the timestamp of the following
+ * tick.
+ * <p>
+ * Ticks older than the configured retention are dropped in batches, older
+ * ticks can be reduced to minute or hour buckets using
+ * {@link #downsample(long, long)}.
+ * <p>
+ * The snapshot version is only incremented, if a tick changes the rates
+ * provided, e.g. not for a tick repeating the latest factor of a pair.
+ * Subsequent changes are coalesced, the version is incremented at most once
+ * per configured version interval, so caches keyed on the version keep
+ * serving hits under a high tick rate. Lookups on this provider always
+ * reflect all ticks added.
+ * The provider is not registered as service, since ticks must be fed by the
+ * application using {@link #addTick(CurrencyUnit, CurrencyUnit, long, Number)}.
+ * 
+ * @author Anatole Tresch
+ */
+public class IntradayExchangeRateProvider implements ExchangeRateProviderSpi,
+		SnapshotVersioned, ExchangeRateCatalog {
+
+	/** The default {@link ExchangeRateType} of this provider. */
+	public static final ExchangeRateType RATE_TYPE = SingletonExchangeRateType
+			.of("INTRADAY");
+	/** The default retention, two days. */
+	public static final long DEFAULT_RETENTION = 2L * 24 * 60 * 60 * 1000;
+	/** The default version interval, 100 milliseconds. */
+	public static final long DEFAULT_VERSION_INTERVAL = 100L;
+	/** Retention is applied, when it exceeds by this fraction. */
+	private static final int RETENTION_SLACK_DIVISOR = 8;
+	private static final String DATA_PROVIDER = "Intraday";
+
+	private final ExchangeRateType rateType;
+	private final long retention;
+	private final long versionInterval;
+	/** The series, by pair key. */
+	private final ConcurrentMap<String, Pair> series = new ConcurrentHashMap<String, Pair>();
+	private final AtomicLong snapshotVersion = new AtomicLong();
+	/** Time the version was incremented last. */
+	private final AtomicLong versionTime = new AtomicLong(Long.MIN_VALUE);
+	/** Whether the rates changed since the version was incremented. */
+	private volatile boolean changed;
+
+	/**
+	 * Creates a new instance using the default type and retention.
+	 */
+	public IntradayExchangeRateProvider() {
+		this(RATE_TYPE, DEFAULT_RETENTION);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param rateType
+	 *            the rate type provided, not {@code null}.
+	 * @param retention
+	 *            the time in milliseconds ticks are retained, relative to the
+	 *            newest tick of a pair, {@code 0} retains all ticks.
+	 */
+	public IntradayExchangeRateProvider(ExchangeRateType rateType,
+			long retention) {
+		this(rateType, retention, DEFAULT_VERSION_INTERVAL);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param rateType
+	 *            the rate type provided, not {@code null}.
+	 * @param retention
+	 *            the time in milliseconds ticks are retained, relative to the
+	 *            newest tick of a pair, {@code 0} retains all ticks.
+	 * @param versionInterval
+	 *            the minimal time in milliseconds between two increments of
+	 *            the snapshot version, {@code 0} increments it on every
+	 *            change.
+	 */
+	public IntradayExchangeRateProvider(ExchangeRateType rateType,
+			long retention, long versionInterval) {
+		if (rateType == null) {
+			throw new IllegalArgumentException("rateType may not be null.");
+		}
+		if (retention < 0) {
+			throw new IllegalArgumentException("retention must be >= 0.");
+		}
+		if (versionInterval < 0) {
+			throw new IllegalArgumentException(
+					"versionInterval must be >= 0.");
+		}
+		this.rateType = rateType;
+		this.retention = retention;
+		this.versionInterval = versionInterval;
+	}
+
+	/**
+	 * Adds a tick.
+	 * 
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @param timestamp
+	 *            the UTC timestamp of the tick.
+	 * @param factor
+	 *            the rate factor, not {@code null}.
+	 */
+	public void addTick(CurrencyUnit source, CurrencyUnit target,
+			long timestamp, Number factor) {
+		if (source == null || target == null) {
+			throw new IllegalArgumentException("Currencies may not be null.");
+		}
+		if (factor == null) {
+			throw new IllegalArgumentException("factor may not be null.");
+		}
+		String key = getKey(source, target);
+		Pair pair = series.get(key);
+		if (pair == null) {
+			pair = new Pair(source, target);
+			Pair existing = series.putIfAbsent(key, pair);
+			if (existing != null) {
+				pair = existing;
+			}
+		}
+		if (pair.add(timestamp, factor.doubleValue())) {
+			markChanged();
+		}
+	}
+
+	/**
+	 * Records a change of the rates, incrementing the version, if the
+	 * version interval has elapsed.
+	 */
+	private void markChanged() {
+		this.changed = true;
+		publishChanges();
+	}
+
+	private void publishChanges() {
+		if (!this.changed) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		long last = versionTime.get();
+		if (last != Long.MIN_VALUE && now - last < versionInterval) {
+			return;
+		}
+		if (versionTime.compareAndSet(last, now)) {
+			// cleared before incrementing, so concurrent changes are either
+			// covered by this version or marked for the next one
+			this.changed = false;
+			snapshotVersion.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Access the ticks of a pair.
+	 * 
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @return the series, or {@code null}, if no ticks were added.
+	 */
+	public RateTickSeries getSeries(CurrencyUnit source, CurrencyUnit target) {
+		Pair pair = series.get(getKey(source, target));
+		if (pair == null) {
+			return null;
+		}
+		return pair.series;
+	}
+
+	/**
+	 * Reduces the ticks of all pairs older than {@code before} to one tick per
+	 * bucket.
+	 * 
+	 * @see RateTickSeries#downsample(long, long)
+	 * @param before
+	 *            the UTC timestamp, newer ticks are not touched.
+	 * @param bucketMillis
+	 *            the bucket size, e.g. {@link RateTickSeries#MINUTE_MILLIS}.
+	 * @return the number of ticks removed.
+	 */
+	public int downsample(long before, long bucketMillis) {
+		int removed = 0;
+		for (Pair pair : series.values()) {
+			removed += pair.series.downsample(before, bucketMillis);
+		}
+		if (removed > 0) {
+			markChanged();
+		}
+		return removed;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.java.javamoney.ri.convert.SnapshotVersioned#getSnapshotVersion()
+	 */
+	@Override
+	public long getSnapshotVersion() {
+		publishChanges();
+		return snapshotVersion.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.money.convert.spi.ExchangeRateProviderSpi#getExchangeRateType()
+	 */
+	@Override
+	public ExchangeRateType getExchangeRateType() {
+		return rateType;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.money.convert.spi.ExchangeRateProviderSpi#getExchangeRate(javax
+	 * .money.CurrencyUnit, javax.money.CurrencyUnit, java.lang.Long)
+	 */
+	@Override
+	public ExchangeRate getExchangeRate(CurrencyUnit source,
+			CurrencyUnit target, Long timestamp) {
+		Pair pair = series.get(getKey(source, target));
+		if (pair != null) {
+			return pair.getRate(timestamp);
+		}
+		pair = series.get(getKey(target, source));
+		if (pair != null) {
+			ExchangeRate rate = pair.getRate(timestamp);
+			if (rate != null) {
+				return rate.reverse();
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateCatalog#getExchangeRates(java
+	 * .lang.Long)
+	 */
+	@Override
+	public Collection<ExchangeRate> getExchangeRates(Long timestamp) {
+		Collection<ExchangeRate> rates = new ArrayList<ExchangeRate>();
+		for (Pair pair : series.values()) {
+			ExchangeRate rate = pair.getRate(timestamp);
+			if (rate != null) {
+				rates.add(rate);
+			}
+		}
+		return rates;
+	}
+
+	/**
+	 * The key is the timestamp of the newest tick of all pairs at the given
+	 * timestamp, since the rates only change with a tick.
+	 */
+	@Override
+	public long getSnapshotKey(long timestamp) {
+		long key = Long.MIN_VALUE;
+		for (Pair pair : series.values()) {
+			RateTickSeries.Tick tick = pair.series.getTick(timestamp);
+			if (tick != null && tick.getTimestamp() > key) {
+				key = tick.getTimestamp();
+			}
+		}
+		return key;
+	}
+
+	private static String getKey(CurrencyUnit source, CurrencyUnit target) {
+		return source.getNamespace() + ':' + source.getCurrencyCode() + '>'
+				+ target.getNamespace() + ':' + target.getCurrencyCode();
+	}
+
+	/**
+	 * The ticks of a currency pair.
+	 */
+	private final class Pair {
+		private final CurrencyUnit source;
+		private final CurrencyUnit target;
+		private final RateTickSeries series = new RateTickSeries();
+
+		/** The newest tick timestamp, that triggers applying retention. */
+		private long nextRetention = Long.MIN_VALUE;
+
+		Pair(CurrencyUnit source, CurrencyUnit target) {
+			this.source = source;
+			this.target = target;
+		}
+
+		/**
+		 * Adds a tick and applies the retention, once the oldest ticks exceed
+		 * it by the retention slack.
+		 * 
+		 * @return true, if the rates provided changed.
+		 */
+		synchronized boolean add(long timestamp, double factor) {
+			RateTickSeries.Tick latest = series.getLatestTick();
+			series.add(timestamp, factor);
+			boolean changed = latest == null
+					|| timestamp < latest.getTimestamp()
+					|| latest.getFactor() != factor;
+			if (retention > 0 && timestamp >= nextRetention) {
+				long newest = series.getLatestTick().getTimestamp();
+				changed |= series.retain(newest - retention) > 0;
+				nextRetention = newest
+						+ Math.max(1L, retention / RETENTION_SLACK_DIVISOR);
+			}
+			return changed;
+		}
+
+		ExchangeRate getRate(Long timestamp) {
+			RateTickSeries.Tick tick;
+			if (timestamp == null) {
+				tick = series.getLatestTick();
+			} else {
+				tick = series.getTick(timestamp.longValue());
+			}
+			if (tick == null) {
+				return null;
+			}
+			CurrencyExchangeRate.Builder builder = new CurrencyExchangeRate.Builder();
+			builder.setExchangeRateType(rateType);
+			builder.setDataProvider(DATA_PROVIDER);
+			builder.setSource(source);
+			builder.setTarget(target);
+			builder.setTimestamp(Long.valueOf(tick.getTimestamp()));
+			builder.setValidUntil(tick.getValidUntil());
+			builder.setSourceLeadingFactor(BigDecimal.valueOf(tick
+					.getFactor()));
+			return builder.build();
+		}
+	}
+
+}
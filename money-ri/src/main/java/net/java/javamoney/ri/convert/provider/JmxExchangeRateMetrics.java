@@ -0,0 +1,347 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.money.convert.ExchangeRate;
+
+import net.java.javamoney.ri.common.LatencyHistogram;
+import net.java.javamoney.ri.convert.ExchangeRateMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link ExchangeRateMetrics}, that publishes the metrics of each
+ * component as {@link ExchangeRateComponentMetricsMXBean} in the platform
+ * MBean server, named {@value #DOMAIN}{@code :type=ExchangeRateMetrics,
+ * name=<component>}. When several instances record metrics for the same
+ * component, the MBean of the instance that recorded last is published.
+ * 
+ * @author Anatole Tresch
+ */
+public class JmxExchangeRateMetrics implements ExchangeRateMetrics {
+
+	/** The JMX domain of the MBeans registered. */
+	public static final String DOMAIN = "net.java.javamoney.ri";
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(JmxExchangeRateMetrics.class);
+
+	private final ConcurrentMap<String, ComponentMetrics> components = new ConcurrentHashMap<String, ComponentMetrics>();
+
+	/**
+	 * Access the metrics of a component.
+	 * 
+	 * @param component
+	 *            the component name.
+	 * @return the metrics, or {@code null}, if nothing was recorded for the
+	 *         component.
+	 */
+	public ExchangeRateComponentMetricsMXBean getComponentMetrics(
+			String component) {
+		return components.get(component);
+	}
+
+	private ComponentMetrics get(String component) {
+		ComponentMetrics metrics = components.get(component);
+		if (metrics == null) {
+			metrics = new ComponentMetrics();
+			ComponentMetrics existing = components.putIfAbsent(component,
+					metrics);
+			if (existing != null) {
+				return existing;
+			}
+			register(component, metrics);
+		}
+		return metrics;
+	}
+
+	private void register(String component, ComponentMetrics metrics) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(DOMAIN
+					+ ":type=ExchangeRateMetrics,name="
+					+ ObjectName.quote(component));
+			while (true) {
+				try {
+					server.registerMBean(metrics, name);
+					return;
+				} catch (InstanceAlreadyExistsException e) {
+					// replace the bean of a previous instance
+					try {
+						server.unregisterMBean(name);
+					} catch (InstanceNotFoundException e2) {
+						// unregistered concurrently, retry
+					}
+				}
+			}
+		} catch (JMException e) {
+			LOGGER.warn("Failed to register exchange rate metrics for "
+					+ component, e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateMetrics#recordLookup(java.lang
+	 * .String, long, boolean)
+	 */
+	@Override
+	public void recordLookup(String component, long nanos, boolean found) {
+		ComponentMetrics metrics = get(component);
+		metrics.lookups.incrementAndGet();
+		if (!found) {
+			metrics.lookupMisses.incrementAndGet();
+		}
+		metrics.lookupLatencies.record(nanos);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateMetrics#recordCacheAccess(java
+	 * .lang.String, boolean)
+	 */
+	@Override
+	public void recordCacheAccess(String component, boolean hit) {
+		if (hit) {
+			get(component).cacheHits.incrementAndGet();
+		} else {
+			get(component).cacheMisses.incrementAndGet();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateMetrics#recordConversion(java
+	 * .lang.String, long, int)
+	 */
+	@Override
+	public void recordConversion(String component, long nanos, int amounts) {
+		ComponentMetrics metrics = get(component);
+		metrics.convertedAmounts.addAndGet(amounts);
+		metrics.conversionLatencies.record(nanos);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateMetrics#recordLoad(java.lang
+	 * .String, long, java.util.Collection)
+	 */
+	@Override
+	public void recordLoad(String component, long nanos,
+			Collection<? extends ExchangeRate> rates) {
+		ComponentMetrics metrics = get(component);
+		metrics.loads.incrementAndGet();
+		metrics.lastLoadNanos = nanos;
+		metrics.lastLoadRateCount = rates.size();
+		metrics.lastLoadTime = System.currentTimeMillis();
+		Map<String, Long> newestRates = new HashMap<String, Long>();
+		for (ExchangeRate rate : rates) {
+			Long timestamp = rate.getTimestamp();
+			if (timestamp == null) {
+				continue;
+			}
+			String pair = rate.getSource().getCurrencyCode() + '/'
+					+ rate.getTarget().getCurrencyCode();
+			Long newest = newestRates.get(pair);
+			if (newest == null || newest.longValue() < timestamp.longValue()) {
+				newestRates.put(pair, timestamp);
+			}
+		}
+		// pairs no longer loaded are dropped
+		metrics.newestRates = Collections.unmodifiableMap(newestRates);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * net.java.javamoney.ri.convert.ExchangeRateMetrics#recordLoadFailure(java
+	 * .lang.String, long, java.lang.Throwable)
+	 */
+	@Override
+	public void recordLoadFailure(String component, long nanos,
+			Throwable cause) {
+		ComponentMetrics metrics = get(component);
+		metrics.loadFailures.incrementAndGet();
+		metrics.lastLoadNanos = nanos;
+		metrics.lastLoadFailure = String.valueOf(cause);
+	}
+
+	private static long toMicros(long nanos) {
+		if (nanos < 0) {
+			return nanos;
+		}
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	/**
+	 * The metrics of a component.
+	 */
+	private static final class ComponentMetrics implements
+			ExchangeRateComponentMetricsMXBean {
+		private final AtomicLong lookups = new AtomicLong();
+		private final AtomicLong lookupMisses = new AtomicLong();
+		private final LatencyHistogram lookupLatencies = new LatencyHistogram();
+		private final AtomicLong cacheHits = new AtomicLong();
+		private final AtomicLong cacheMisses = new AtomicLong();
+		private final AtomicLong convertedAmounts = new AtomicLong();
+		private final LatencyHistogram conversionLatencies = new LatencyHistogram();
+		private final AtomicLong loads = new AtomicLong();
+		private final AtomicLong loadFailures = new AtomicLong();
+		private volatile long lastLoadNanos = -1L;
+		private volatile int lastLoadRateCount;
+		private volatile long lastLoadTime;
+		private volatile String lastLoadFailure;
+		/** The newest timestamp per pair of the last load. */
+		private volatile Map<String, Long> newestRates = Collections
+				.emptyMap();
+
+		@Override
+		public long getLookupCount() {
+			return lookups.get();
+		}
+
+		@Override
+		public long getLookupMissCount() {
+			return lookupMisses.get();
+		}
+
+		@Override
+		public long getLookupLatencyMedianMicros() {
+			return toMicros(lookupLatencies.getPercentile(0.5));
+		}
+
+		@Override
+		public long getLookupLatency99Micros() {
+			return toMicros(lookupLatencies.getPercentile(0.99));
+		}
+
+		@Override
+		public long getCacheHitCount() {
+			return cacheHits.get();
+		}
+
+		@Override
+		public long getCacheMissCount() {
+			return cacheMisses.get();
+		}
+
+		@Override
+		public double getCacheHitRatio() {
+			long hits = cacheHits.get();
+			long total = hits + cacheMisses.get();
+			if (total == 0) {
+				return 0d;
+			}
+			return (double) hits / total;
+		}
+
+		@Override
+		public long getConvertedAmountCount() {
+			return convertedAmounts.get();
+		}
+
+		@Override
+		public long getConversionLatencyMedianMicros() {
+			return toMicros(conversionLatencies.getPercentile(0.5));
+		}
+
+		@Override
+		public long getLoadCount() {
+			return loads.get();
+		}
+
+		@Override
+		public long getLoadFailureCount() {
+			return loadFailures.get();
+		}
+
+		@Override
+		public long getLastLoadDurationMillis() {
+			long nanos = lastLoadNanos;
+			if (nanos < 0) {
+				return -1L;
+			}
+			return TimeUnit.NANOSECONDS.toMillis(nanos);
+		}
+
+		@Override
+		public int getLastLoadRateCount() {
+			return lastLoadRateCount;
+		}
+
+		@Override
+		public long getLastLoadTime() {
+			return lastLoadTime;
+		}
+
+		@Override
+		public String getLastLoadFailure() {
+			return lastLoadFailure;
+		}
+
+		@Override
+		public Map<String, Long> getRateAgeMillis() {
+			long now = System.currentTimeMillis();
+			Map<String, Long> ages = new HashMap<String, Long>();
+			for (Map.Entry<String, Long> en : newestRates.entrySet()) {
+				ages.put(en.getKey(),
+						Long.valueOf(now - en.getValue().longValue()));
+			}
+			return ages;
+		}
+
+		@Override
+		public long getMaxRateAgeMillis() {
+			long oldest = Long.MAX_VALUE;
+			for (Long timestamp : newestRates.values()) {
+				oldest = Math.min(oldest, timestamp.longValue());
+			}
+			if (oldest == Long.MAX_VALUE) {
+				return -1L;
+			}
+			return System.currentTimeMillis() - oldest;
+		}
+	}
+
+}
@@ -27,6 +27,8 @@ import javax.money.AmountAdjuster;
 import javax.money.CurrencyUnit;
 import javax.money.MonetaryAmount;
 
+import net.java.javamoney.ri.convert.ExchangeRateMath;
+
 
 /**
  * Default immutable implementation of {@link MonetaryAmount}.
@@ -59,11 +61,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 		}
 		checkNumber(number);
 		this.currency = currency;
-		if (BigDecimal.class.isAssignableFrom(number.getClass())) {
-			this.number = (BigDecimal) number;
-		} else {
-			this.number = BigDecimal.valueOf(number.doubleValue());
-		}
+		this.number = getBigDecimal(number);
 		// TODO ensure internal precision!
 	}
 
@@ -230,8 +228,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public MonetaryAmount add(Number number) {
 		checkNumber(number);
-		BigDecimal dec = this.number.add(BigDecimal.valueOf(number
-				.doubleValue()));
+		BigDecimal dec = this.number.add(getBigDecimal(number));
 		return new Money(this.currency, dec);
 	}
 
@@ -253,8 +250,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public MonetaryAmount divide(Number divisor) {
 		checkNumber(divisor);
-		BigDecimal dec = this.number.divide(BigDecimal.valueOf(divisor
-				.doubleValue()));
+		BigDecimal dec = this.number.divide(getBigDecimal(divisor));
 		return new Money(this.currency, dec);
 	}
 
@@ -279,8 +275,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public MonetaryAmount[] divideAndRemainder(Number divisor) {
 		checkNumber(divisor);
-		BigDecimal[] dec = this.number.divideAndRemainder(BigDecimal
-				.valueOf(divisor.doubleValue()));
+		BigDecimal[] dec = this.number.divideAndRemainder(getBigDecimal(divisor));
 		return new MonetaryAmount[] { new Money(this.currency, dec[0]),
 				new Money(this.currency, dec[1]) };
 	}
@@ -306,8 +301,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public MonetaryAmount divideToIntegralValue(Number divisor) {
 		checkNumber(divisor);
-		BigDecimal dec = this.number.divideToIntegralValue(BigDecimal
-				.valueOf(divisor.doubleValue()));
+		BigDecimal dec = this.number.divideToIntegralValue(getBigDecimal(divisor));
 		return new Money(this.currency, dec);
 	}
 
@@ -325,8 +319,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 
 	public MonetaryAmount multiply(Number multiplicand) {
 		checkNumber(multiplicand);
-		BigDecimal dec = this.number.multiply(BigDecimal.valueOf(multiplicand
-				.doubleValue()));
+		BigDecimal dec = this.number.multiply(getBigDecimal(multiplicand));
 		return new Money(this.currency, dec);
 	}
 
@@ -366,8 +359,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public MonetaryAmount subtract(Number subtrahend) {
 		checkNumber(subtrahend);
-		return new Money(this.currency, this.number.subtract(BigDecimal
-				.valueOf(subtrahend.doubleValue())));
+		return new Money(this.currency, this.number.subtract(getBigDecimal(subtrahend)));
 	}
 
 	/*
@@ -406,8 +398,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public MonetaryAmount remainder(Number divisor) {
 		checkNumber(divisor);
-		return new Money(this.currency, this.number.remainder(BigDecimal
-				.valueOf(divisor.doubleValue())));
+		return new Money(this.currency, this.number.remainder(getBigDecimal(divisor)));
 	}
 
 	/*
@@ -510,7 +501,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	public MonetaryAmount with(Number amount) {
 		checkNumber(amount);
 		return new Money(this.currency,
-				BigDecimal.valueOf(amount.doubleValue()));
+				getBigDecimal(amount));
 	}
 
 	/*
@@ -671,7 +662,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public boolean lessThan(Number number) {
 		checkNumber(number);
-		return this.number.compareTo(BigDecimal.valueOf(number.doubleValue())) < 0;
+		return this.number.compareTo(getBigDecimal(number)) < 0;
 	}
 
 	/*
@@ -692,7 +683,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public boolean lessThanOrEqualTo(Number number) {
 		checkNumber(number);
-		return this.number.compareTo(BigDecimal.valueOf(number.doubleValue())) <= 0;
+		return this.number.compareTo(getBigDecimal(number)) <= 0;
 	}
 
 	/*
@@ -712,7 +703,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public boolean greaterThan(Number number) {
 		checkNumber(number);
-		return this.number.compareTo(BigDecimal.valueOf(number.doubleValue())) > 0;
+		return this.number.compareTo(getBigDecimal(number)) > 0;
 	}
 
 	/*
@@ -734,7 +725,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public boolean greaterThanOrEqualTo(Number number) {
 		checkNumber(number);
-		return this.number.compareTo(BigDecimal.valueOf(number.doubleValue())) >= 0;
+		return this.number.compareTo(getBigDecimal(number)) >= 0;
 	}
 
 	/*
@@ -754,7 +745,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public boolean hasSameNumberAs(Number number) {
 		checkNumber(number);
-		return this.number.compareTo(BigDecimal.valueOf(number.doubleValue())) == 0;
+		return this.number.compareTo(getBigDecimal(number)) == 0;
 	}
 
 	/*
@@ -774,7 +765,7 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 	 */
 	public boolean isNotEqualTo(Number number) {
 		checkNumber(number);
-		return this.number.compareTo(BigDecimal.valueOf(number.doubleValue())) != 0;
+		return this.number.compareTo(getBigDecimal(number)) != 0;
 	}
 
 	/*
@@ -896,6 +887,18 @@ public final class Money implements MonetaryAmount, Comparable<MonetaryAmount> {
 		}
 	}
 
+	/**
+	 * Converts the given number to a {@link BigDecimal}, see
+	 * {@link ExchangeRateMath#toBigDecimal(Number)}.
+	 * 
+	 * @param number
+	 *            the number, not null.
+	 * @return the number as {@link BigDecimal}.
+	 */
+	private static BigDecimal getBigDecimal(Number number) {
+		return ExchangeRateMath.toBigDecimal(number);
+	}
+
 	/**
 	 * Method to check if a currency is compatible with this amount instance.
 	 * 
@@ -46,8 +46,6 @@ import net.java.javamoney.ri.AbstractSpiComponent;
  */
 public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 		implements CurrencyUnitProvider {
-	/** Singleton instance. */
-	private static final CurrencyUnitProviderImpl INSTANCE = new CurrencyUnitProviderImpl();
 	/**
 	 * System property used to redefine the default namespace for
 	 * {@link CurrencyUnit} instances.
@@ -59,6 +57,8 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 	private Set<CurrencyUnitMappingSpi> mappers = new HashSet<CurrencyUnitMappingSpi>();
 	/** The default namespace used. */
 	private String defaultNamespace = CurrencyUnit.ISO_NAMESPACE;
+	/** The number of reloads performed. */
+	private volatile long reloadCount;
 
 	/**
 	 * COnstructor, also loading the registered spi's.
@@ -76,7 +76,7 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 	 * {@link ServiceLoader}. This adds providers that were not yet visible
 	 * before.
 	 */
-	public void reload() {
+	public synchronized void reload() {
 		List<CurrencyUnitProviderSpi> loadedList = getSPIProviders(CurrencyUnitProviderSpi.class);
 		for (CurrencyUnitProviderSpi currencyProviderSPI : loadedList) {
 			List<CurrencyUnitProviderSpi> provList = this.currencyProviders
@@ -92,6 +92,18 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 		for (CurrencyUnitMappingSpi currencyMappingSPI : loadedMapperList) {
 			mappers.add(currencyMappingSPI);
 		}
+		reloadCount++;
+	}
+
+	/**
+	 * Access the number of reloads performed, including the initial load.
+	 * Components caching data derived from the currencies available should
+	 * discard it, when the count changes.
+	 * 
+	 * @return the reload count.
+	 */
+	public long getReloadCount() {
+		return reloadCount;
 	}
 
 	/*
@@ -101,7 +113,7 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 	 * java.lang.String, long)
 	 */
 	public CurrencyUnit get(String namespace, String code, Long timestamp) {
-		List<CurrencyUnitProviderSpi> provList = INSTANCE.currencyProviders
+		List<CurrencyUnitProviderSpi> provList = this.currencyProviders
 				.get(namespace);
 		if (provList == null) {
 			return null;
@@ -128,7 +140,7 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 
 	public CurrencyUnit[] getAll(String namespace, Long timestamp) {
 		Set<CurrencyUnit> result = new HashSet<CurrencyUnit>();
-		List<CurrencyUnitProviderSpi> provList = INSTANCE.currencyProviders
+		List<CurrencyUnitProviderSpi> provList = this.currencyProviders
 				.get(namespace);
 		if (provList == null) {
 			return null;
@@ -153,7 +165,7 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 
 	public CurrencyUnit[] getAll(Long timestamp) {
 		Set<CurrencyUnit> result = new HashSet<CurrencyUnit>();
-		for (List<CurrencyUnitProviderSpi> provList : INSTANCE.currencyProviders
+		for (List<CurrencyUnitProviderSpi> provList : this.currencyProviders
 				.values()) {
 			for (CurrencyUnitProviderSpi prov : provList) {
 				CurrencyUnit[] currencies = prov.getCurrencies(timestamp);
@@ -179,7 +191,7 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 
 	public boolean isAvailable(String namespace, String code, Long start,
 			Long end) {
-		List<CurrencyUnitProviderSpi> provList = INSTANCE.currencyProviders
+		List<CurrencyUnitProviderSpi> provList = this.currencyProviders
 				.get(namespace);
 		if (provList == null) {
 			return false;
@@ -207,7 +219,7 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 
 	public CurrencyUnit[] getAll(Locale locale, Long timestamp) {
 		Set<CurrencyUnit> result = new HashSet<CurrencyUnit>();
-		for (List<CurrencyUnitProviderSpi> provList : INSTANCE.currencyProviders
+		for (List<CurrencyUnitProviderSpi> provList : this.currencyProviders
 				.values()) {
 			for (CurrencyUnitProviderSpi prov : provList) {
 				CurrencyUnit[] currencies = prov.getCurrencies(locale,
@@ -221,7 +233,7 @@ public final class CurrencyUnitProviderImpl extends AbstractSpiComponent
 	}
 
 	public CurrencyUnit map(CurrencyUnit unit, String targetNamespace) {
-		List<CurrencyUnitProviderSpi> provList = INSTANCE.currencyProviders
+		List<CurrencyUnitProviderSpi> provList = this.currencyProviders
 				.get(unit.getNamespace());
 		if (provList == null) {
 			return null;
@@ -0,0 +1,439 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.ext;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
+import javax.money.ext.CompoundItem;
+
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.ExchangeRateMath;
+
+/**
+ * Specialized {@link CompoundItem} carrying the bid, mid and ask rates of a
+ * currency pair. Unlike {@link CompoundExchangeRate} the rates are not held in
+ * a map, but as primitive fields, together with their precomputed inverses.
+ * This keeps instances small and allows to convert an amount to all three
+ * sides with one call, see {@link #convert(double, double[], int)}.
+ * <p>
+ * The {@link ExchangeRate} instances returned by {@link #get(Object)} are
+ * created on access, the mid rate is the leading item. Instances of this class
+ * are immutable and thread-safe.
+ * 
+ * @see CompoundExchangeRate
+ * @author Anatole Tresch
+ */
+public final class BidMidAskExchangeRate implements CompoundItem<ExchangeRate> {
+
+	/** The default compound item type. */
+	public static final String TYPE = "BidMidAsk";
+	/** Key of the bid rate. */
+	public static final String BID = "bid";
+	/** Key of the mid rate. */
+	public static final String MID = "mid";
+	/** Key of the ask rate. */
+	public static final String ASK = "ask";
+	/** Index of the bid value within the results of the bulk conversions. */
+	public static final int BID_INDEX = 0;
+	/** Index of the mid value within the results of the bulk conversions. */
+	public static final int MID_INDEX = 1;
+	/** Index of the ask value within the results of the bulk conversions. */
+	public static final int ASK_INDEX = 2;
+	/** Value of {@link #getTimestampMillis()} if no timestamp is set. */
+	public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+	private static final Object[] KEYS = new Object[] { BID, MID, ASK };
+
+	private final String type;
+	private final ExchangeRateType exchangeRateType;
+	private final CurrencyUnit source;
+	private final CurrencyUnit target;
+	private final double bid;
+	private final double mid;
+	private final double ask;
+	private final double inverseBid;
+	private final double inverseMid;
+	private final double inverseAsk;
+	private final long timestamp;
+	private final long validUntil;
+
+	/**
+	 * Creates a new instance of type {@link #TYPE}, the mid rate is evaluated
+	 * as the arithmetic mean of {@code bid} and {@code ask}.
+	 * 
+	 * @param exchangeRateType
+	 *            the rate type, not {@code null}.
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @param bid
+	 *            the bid factor, &gt; 0.
+	 * @param ask
+	 *            the ask factor, &gt; 0.
+	 */
+	public BidMidAskExchangeRate(ExchangeRateType exchangeRateType,
+			CurrencyUnit source, CurrencyUnit target, double bid, double ask) {
+		this(TYPE, exchangeRateType, source, target, bid, (bid + ask) / 2,
+				ask, NO_TIMESTAMP, NO_TIMESTAMP);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param type
+	 *            the compound item type, not {@code null}.
+	 * @param exchangeRateType
+	 *            the rate type, not {@code null}.
+	 * @param source
+	 *            the source currency, not {@code null}.
+	 * @param target
+	 *            the target currency, not {@code null}.
+	 * @param bid
+	 *            the bid factor, &gt; 0.
+	 * @param mid
+	 *            the mid factor, &gt; 0.
+	 * @param ask
+	 *            the ask factor, &gt; 0.
+	 * @param timestamp
+	 *            the timestamp of the rates, or {@link #NO_TIMESTAMP}.
+	 * @param validUntil
+	 *            the end of validity of the rates, or {@link #NO_TIMESTAMP}.
+	 */
+	public BidMidAskExchangeRate(String type,
+			ExchangeRateType exchangeRateType, CurrencyUnit source,
+			CurrencyUnit target, double bid, double mid, double ask,
+			long timestamp, long validUntil) {
+		if (type == null) {
+			throw new IllegalArgumentException("type may not be null.");
+		}
+		if (exchangeRateType == null) {
+			throw new IllegalArgumentException(
+					"exchangeRateType may not be null.");
+		}
+		if (source == null) {
+			throw new IllegalArgumentException("source may not be null.");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("target may not be null.");
+		}
+		checkFactor(BID, bid);
+		checkFactor(MID, mid);
+		checkFactor(ASK, ask);
+		this.type = type;
+		this.exchangeRateType = exchangeRateType;
+		this.source = source;
+		this.target = target;
+		this.bid = bid;
+		this.mid = mid;
+		this.ask = ask;
+		this.inverseBid = 1.0d / bid;
+		this.inverseMid = 1.0d / mid;
+		this.inverseAsk = 1.0d / ask;
+		this.timestamp = timestamp;
+		this.validUntil = validUntil;
+	}
+
+	private static void checkFactor(String key, double factor) {
+		if (!(factor > 0) || Double.isInfinite(factor)) {
+			throw new IllegalArgumentException("Invalid " + key + " factor: "
+					+ factor);
+		}
+	}
+
+	@Override
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Access the rate type.
+	 * 
+	 * @return the rate type, never {@code null}.
+	 */
+	public ExchangeRateType getExchangeRateType() {
+		return exchangeRateType;
+	}
+
+	/**
+	 * Access the source currency.
+	 * 
+	 * @return the source currency, never {@code null}.
+	 */
+	public CurrencyUnit getSource() {
+		return source;
+	}
+
+	/**
+	 * Access the target currency.
+	 * 
+	 * @return the target currency, never {@code null}.
+	 */
+	public CurrencyUnit getTarget() {
+		return target;
+	}
+
+	/**
+	 * Access the bid factor.
+	 * 
+	 * @return the bid factor.
+	 */
+	public double getBid() {
+		return bid;
+	}
+
+	/**
+	 * Access the mid factor.
+	 * 
+	 * @return the mid factor.
+	 */
+	public double getMid() {
+		return mid;
+	}
+
+	/**
+	 * Access the ask factor.
+	 * 
+	 * @return the ask factor.
+	 */
+	public double getAsk() {
+		return ask;
+	}
+
+	/**
+	 * Access the inverse bid factor, used for converting from target to
+	 * source.
+	 * 
+	 * @return {@code 1 / bid}.
+	 */
+	public double getInverseBid() {
+		return inverseBid;
+	}
+
+	/**
+	 * Access the inverse mid factor, used for converting from target to
+	 * source.
+	 * 
+	 * @return {@code 1 / mid}.
+	 */
+	public double getInverseMid() {
+		return inverseMid;
+	}
+
+	/**
+	 * Access the inverse ask factor, used for converting from target to
+	 * source.
+	 * 
+	 * @return {@code 1 / ask}.
+	 */
+	public double getInverseAsk() {
+		return inverseAsk;
+	}
+
+	/**
+	 * Access the difference between ask and bid.
+	 * 
+	 * @return the spread.
+	 */
+	public double getSpread() {
+		return ask - bid;
+	}
+
+	/**
+	 * Access the timestamp of the rates.
+	 * 
+	 * @return the timestamp, or {@link #NO_TIMESTAMP}.
+	 */
+	public long getTimestampMillis() {
+		return timestamp;
+	}
+
+	/**
+	 * Access the end of validity of the rates.
+	 * 
+	 * @return the end of validity, or {@link #NO_TIMESTAMP}.
+	 */
+	public long getValidUntilMillis() {
+		return validUntil;
+	}
+
+	/**
+	 * Converts an amount in the source currency to the target currency, using
+	 * all three rates. The results are written to {@code result} at
+	 * {@code offset + BID_INDEX}, {@code offset + MID_INDEX} and
+	 * {@code offset + ASK_INDEX}.
+	 * 
+	 * @param amount
+	 *            the amount in the source currency.
+	 * @param result
+	 *            the array receiving the converted amounts, not {@code null}.
+	 * @param offset
+	 *            the first index written.
+	 */
+	public void convert(double amount, double[] result, int offset) {
+		result[offset + BID_INDEX] = amount * bid;
+		result[offset + MID_INDEX] = amount * mid;
+		result[offset + ASK_INDEX] = amount * ask;
+	}
+
+	/**
+	 * Converts an amount in the target currency back to the source currency,
+	 * using the inverses of all three rates. The results are written to
+	 * {@code result} at {@code offset + BID_INDEX}, {@code offset + MID_INDEX}
+	 * and {@code offset + ASK_INDEX}.
+	 * 
+	 * @param amount
+	 *            the amount in the target currency.
+	 * @param result
+	 *            the array receiving the converted amounts, not {@code null}.
+	 * @param offset
+	 *            the first index written.
+	 */
+	public void convertInverse(double amount, double[] result, int offset) {
+		result[offset + BID_INDEX] = amount * inverseBid;
+		result[offset + MID_INDEX] = amount * inverseMid;
+		result[offset + ASK_INDEX] = amount * inverseAsk;
+	}
+
+	/**
+	 * Converts an amount in the source currency to the target currency, using
+	 * all three rates, with decimal arithmetic.
+	 * 
+	 * @param amount
+	 *            the amount in the source currency, not {@code null}.
+	 * @param scale
+	 *            the scale of the results, rounding {@code HALF_UP}, or a
+	 *            negative value for no rounding.
+	 * @return the converted amounts, indexed by {@link #BID_INDEX},
+	 *         {@link #MID_INDEX} and {@link #ASK_INDEX}.
+	 */
+	public BigDecimal[] convert(Number amount, int scale) {
+		if (amount == null) {
+			throw new IllegalArgumentException("amount may not be null.");
+		}
+		return new BigDecimal[] {
+				ExchangeRateMath.convert(amount, BigDecimal.valueOf(bid), scale),
+				ExchangeRateMath.convert(amount, BigDecimal.valueOf(mid), scale),
+				ExchangeRateMath.convert(amount, BigDecimal.valueOf(ask), scale) };
+	}
+
+	/**
+	 * Creates a new instance for the reverse pair, where bid and ask swap
+	 * their roles.
+	 * 
+	 * @return the reversed rates, never {@code null}.
+	 */
+	public BidMidAskExchangeRate reverse() {
+		return new BidMidAskExchangeRate(type, exchangeRateType, target,
+				source, inverseAsk, inverseMid, inverseBid, timestamp,
+				validUntil);
+	}
+
+	@Override
+	public Enumeration<Object> getKeys() {
+		return Collections.enumeration(Arrays.asList(KEYS));
+	}
+
+	@Override
+	public boolean isKeyDefined(Object key) {
+		return BID.equals(key) || MID.equals(key) || ASK.equals(key);
+	}
+
+	@Override
+	public ExchangeRate getLeadingItem() {
+		return createRate(mid);
+	}
+
+	@Override
+	public ExchangeRate get(Object key) {
+		if (BID.equals(key)) {
+			return createRate(bid);
+		}
+		if (MID.equals(key)) {
+			return createRate(mid);
+		}
+		if (ASK.equals(key)) {
+			return createRate(ask);
+		}
+		throw new IllegalArgumentException("Key is not defined: " + key);
+	}
+
+	@Override
+	public Map<Object, ExchangeRate> getAll() {
+		Map<Object, ExchangeRate> items = new LinkedHashMap<Object, ExchangeRate>(
+				4);
+		items.put(BID, createRate(bid));
+		items.put(MID, createRate(mid));
+		items.put(ASK, createRate(ask));
+		return Collections.unmodifiableMap(items);
+	}
+
+	private ExchangeRate createRate(double factor) {
+		CurrencyExchangeRate rate = new CurrencyExchangeRate(exchangeRateType,
+				source, target, BigDecimal.valueOf(factor), toLong(timestamp),
+				toLong(validUntil));
+		rate.setReadOnly();
+		return rate;
+	}
+
+	private static Long toLong(long millis) {
+		if (millis == NO_TIMESTAMP) {
+			return null;
+		}
+		return Long.valueOf(millis);
+	}
+
+	/**
+	 * Creates a new {@link CompoundExchangeRateBuilder} based on this
+	 * instance.
+	 * 
+	 * @return a new {@link CompoundExchangeRateBuilder}, never null.
+	 */
+	@Override
+	public CompoundExchangeRateBuilder toBuilder() {
+		CompoundExchangeRateBuilder builder = new CompoundExchangeRateBuilder(
+				type);
+		builder.set(getAll());
+		builder.setLeadingItem(MID, getLeadingItem());
+		return builder;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BidMidAskExchangeRate [type=" + type + ", exchangeRateType="
+				+ exchangeRateType + ", source=" + source + ", target="
+				+ target + ", bid=" + bid + ", mid=" + mid + ", ask=" + ask
+				+ ", timestamp=" + toLong(timestamp) + ", validUntil="
+				+ toLong(validUntil) + "]";
+	}
+
+}
@@ -18,7 +18,9 @@
  */
 package net.java.javamoney.ri.ext;
 
+import javax.money.CurrencyUnit;
 import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
 import javax.money.ext.CompoundItem;
 import javax.money.ext.CompoundItemBuilder;
 
@@ -64,4 +66,69 @@ public final class CompoundExchangeRateBuilder extends
 		return new CompoundExchangeRate(getType(), getAll(), getLeadingItem());
 	}
 
+	/**
+	 * Creates a new {@link BidMidAskExchangeRate} from the rates set with the
+	 * keys {@link BidMidAskExchangeRate#BID}, {@link BidMidAskExchangeRate#MID}
+	 * and {@link BidMidAskExchangeRate#ASK}. If no mid rate is set, the mean
+	 * of bid and ask is used. Rate type, currencies and timestamps are taken
+	 * from the bid rate. Only the factors are copied, so the instance created
+	 * does not hold a map.
+	 * 
+	 * @return a new {@link BidMidAskExchangeRate}, never null.
+	 * @throws IllegalStateException
+	 *             if the bid or ask rate is missing, or the rates do not
+	 *             share the same rate type and currencies.
+	 */
+	public BidMidAskExchangeRate toBidMidAskExchangeRate() {
+		ExchangeRate bidRate = getRequired(BidMidAskExchangeRate.BID);
+		ExchangeRate askRate = getRequired(BidMidAskExchangeRate.ASK);
+		ExchangeRate midRate = get(BidMidAskExchangeRate.MID);
+		checkSamePair(bidRate, askRate);
+		double bid = bidRate.getFactor().doubleValue();
+		double ask = askRate.getFactor().doubleValue();
+		double mid;
+		if (midRate == null) {
+			mid = (bid + ask) / 2;
+		} else {
+			checkSamePair(bidRate, midRate);
+			mid = midRate.getFactor().doubleValue();
+		}
+		ExchangeRateType rateType = bidRate.getExchangeRateType();
+		return new BidMidAskExchangeRate(getType(), rateType,
+				bidRate.getSource(), bidRate.getTarget(), bid, mid, ask,
+				toMillis(bidRate.getTimestamp()),
+				toMillis(bidRate.getValidUntil()));
+	}
+
+	private ExchangeRate getRequired(String key) {
+		ExchangeRate rate = get(key);
+		if (rate == null) {
+			throw new IllegalStateException("No " + key + " rate set.");
+		}
+		return rate;
+	}
+
+	private static void checkSamePair(ExchangeRate rate1, ExchangeRate rate2) {
+		if (!rate1.getExchangeRateType().equals(rate2.getExchangeRateType())
+				|| !isSameCurrency(rate1.getSource(), rate2.getSource())
+				|| !isSameCurrency(rate1.getTarget(), rate2.getTarget())) {
+			throw new IllegalStateException("Rates do not match: " + rate1
+					+ ", " + rate2);
+		}
+	}
+
+	private static boolean isSameCurrency(CurrencyUnit currency1,
+			CurrencyUnit currency2) {
+		return currency1.getNamespace().equals(currency2.getNamespace())
+				&& currency1.getCurrencyCode().equals(
+						currency2.getCurrencyCode());
+	}
+
+	private static long toMillis(Long timestamp) {
+		if (timestamp == null) {
+			return BidMidAskExchangeRate.NO_TIMESTAMP;
+		}
+		return timestamp.longValue();
+	}
+
 }
@@ -19,12 +19,15 @@
 package net.java.javamoney.ri.ext;
 
 import java.util.Locale;
+import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
 import javax.money.ext.LocalizableRegionType;
 import javax.money.ext.Region;
 import javax.money.ext.RegionType;
 
+import net.java.javamoney.ri.common.TranslationCache;
+
 /**
  * This class implements a {@link LocalizableRegionType} based on a
  * {@link RegionType} and a {@link ResourceBundle} basename.
@@ -55,15 +58,26 @@ public class ResourceBundleLocalizedRegion implements LocalizableRegionType {
 
 	@Override
 	public String getDisplayName() {
-		ResourceBundle bundle = ResourceBundle.getBundle(basename,
-				Locale.getDefault());
-		return bundle.getString("Region."+getId()+".displayname");
+		return getDisplayName(Locale.getDefault());
 	}
 
+	/**
+	 * Access the display name, the lookup is cached by the shared
+	 * {@link TranslationCache}.
+	 * 
+	 * @throws MissingResourceException
+	 *             if the bundle or the display name could not be found.
+	 */
 	@Override
 	public String getDisplayName(Locale locale) {
-		ResourceBundle bundle = ResourceBundle.getBundle(basename, locale);
-		return bundle.getString("Region."+getId()+".displayname");
+		String key = "Region." + getId() + ".displayname";
+		String displayName = TranslationCache.getDefault().getString(
+				basename, locale, key);
+		if (displayName == null) {
+			throw new MissingResourceException("No display name found.",
+					basename, key);
+		}
+		return displayName;
 	}
 
 	public String getBasename() {
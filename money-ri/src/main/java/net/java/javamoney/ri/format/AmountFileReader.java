@@ -0,0 +1,614 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.money.CurrencyUnit;
+import javax.money.format.common.ParseException;
+
+import net.java.javamoney.ri.convert.PositionSet;
+import net.java.javamoney.ri.core.MoneyCurrency;
+import net.java.javamoney.ri.format.common.DecimalParser;
+
+/**
+ * Reads amount and currency columns from large delimited (e.g. CSV) or fixed
+ * width text files. The file is split into chunks aligned to line
+ * boundaries, each chunk is memory mapped and parsed in parallel on a
+ * {@link ForkJoinPool}. Fields are located directly in the mapped bytes, no
+ * {@link String} is created per line; amounts are parsed by a
+ * {@link DecimalParser}, currency codes are resolved using a cache keyed by
+ * their packed bytes.
+ * <p>
+ * The file must use a single byte encoding compatible with ASCII for the
+ * fields read. Lines are terminated by {@code \n} or {@code \r\n}, empty lines
+ * are ignored. Delimited fields may be enclosed in double quotes, which must
+ * not contain the separator. Instances are configured before reading and are
+ * thread-safe afterwards.
+ * 
+ * @author Anatole Tresch
+ */
+public final class AmountFileReader {
+
+	/** The default chunk size, 8 MB. */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+	/** The number of bytes read at once, when aligning chunk boundaries. */
+	private static final int ALIGN_BUFFER_SIZE = 256;
+
+	/** The separator, or {@code 0} for fixed width files. */
+	private final char separator;
+	private final int amountField;
+	private final int amountLength;
+	private final int currencyField;
+	private final int currencyLength;
+	private int headerLines;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private DecimalParser parser = new DecimalParser(
+			DecimalFormatSymbols.getInstance(Locale.ENGLISH), true);
+	/** Currencies by packed ASCII code, shared by all chunk tasks. */
+	private final ConcurrentMap<Integer, CurrencyUnit> currencies = new ConcurrentHashMap<Integer, CurrencyUnit>();
+
+	/**
+	 * Callback receiving the amounts read. When reading in parallel, the
+	 * callback is invoked concurrently from several threads and not in file
+	 * order.
+	 */
+	public static interface AmountHandler {
+
+		/**
+		 * Called for each line read.
+		 * 
+		 * @param offset
+		 *            the byte offset of the line within the file.
+		 * @param currency
+		 *            the currency, never {@code null}.
+		 * @param amount
+		 *            the amount, never {@code null}.
+		 */
+		void amountRead(long offset, CurrencyUnit currency, BigDecimal amount);
+	}
+
+	private AmountFileReader(char separator, int amountField,
+			int amountLength, int currencyField, int currencyLength) {
+		this.separator = separator;
+		this.amountField = amountField;
+		this.amountLength = amountLength;
+		this.currencyField = currencyField;
+		this.currencyLength = currencyLength;
+	}
+
+	/**
+	 * Creates a reader for delimited files, such as CSV.
+	 * 
+	 * @param separator
+	 *            the field separator, an ASCII character.
+	 * @param amountColumn
+	 *            the zero based column of the amount.
+	 * @param currencyColumn
+	 *            the zero based column of the currency code.
+	 * @return the new reader.
+	 */
+	public static AmountFileReader delimited(char separator,
+			int amountColumn, int currencyColumn) {
+		if (separator == 0 || separator > 127 || separator == '\n'
+				|| separator == '\r' || separator == '"') {
+			throw new IllegalArgumentException("Invalid separator: "
+					+ (int) separator);
+		}
+		if (amountColumn < 0 || currencyColumn < 0
+				|| amountColumn == currencyColumn) {
+			throw new IllegalArgumentException("Invalid columns: "
+					+ amountColumn + ", " + currencyColumn);
+		}
+		return new AmountFileReader(separator, amountColumn, 0,
+				currencyColumn, 0);
+	}
+
+	/**
+	 * Creates a reader for fixed width files. Fields are trimmed of blanks.
+	 * 
+	 * @param amountOffset
+	 *            the zero based offset of the amount within the line.
+	 * @param amountLength
+	 *            the width of the amount field.
+	 * @param currencyOffset
+	 *            the zero based offset of the currency code within the line.
+	 * @param currencyLength
+	 *            the width of the currency field.
+	 * @return the new reader.
+	 */
+	public static AmountFileReader fixedWidth(int amountOffset,
+			int amountLength, int currencyOffset, int currencyLength) {
+		if (amountOffset < 0 || amountLength <= 0 || currencyOffset < 0
+				|| currencyLength <= 0) {
+			throw new IllegalArgumentException("Invalid field layout.");
+		}
+		return new AmountFileReader((char) 0, amountOffset, amountLength,
+				currencyOffset, currencyLength);
+	}
+
+	/**
+	 * Sets the number of header lines to be skipped, default is {@code 0}.
+	 * 
+	 * @param headerLines
+	 *            the number of header lines.
+	 * @return this instance, for chaining.
+	 */
+	public AmountFileReader setHeaderLines(int headerLines) {
+		if (headerLines < 0) {
+			throw new IllegalArgumentException("headerLines must be >= 0.");
+		}
+		this.headerLines = headerLines;
+		return this;
+	}
+
+	/**
+	 * Sets the approximate number of bytes mapped and parsed by one task. A
+	 * chunk is extended to the end of the line, it ends in.
+	 * 
+	 * @param chunkSize
+	 *            the chunk size in bytes.
+	 * @return this instance, for chaining.
+	 */
+	public AmountFileReader setChunkSize(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be > 0.");
+		}
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * Sets the symbols used for parsing the amounts, by default the decimal
+	 * separator is {@code '.'} and {@code ','} is accepted as grouping
+	 * separator.
+	 * 
+	 * @param symbols
+	 *            the symbols, not {@code null}.
+	 * @param groupingUsed
+	 *            if grouping separators are accepted.
+	 * @return this instance, for chaining.
+	 */
+	public AmountFileReader setSymbols(DecimalFormatSymbols symbols,
+			boolean groupingUsed) {
+		if (symbols == null) {
+			throw new IllegalArgumentException("symbols may not be null.");
+		}
+		this.parser = new DecimalParser(symbols, groupingUsed);
+		return this;
+	}
+
+	/**
+	 * Reads all amounts of the file into a {@link PositionSet}, in file order.
+	 * 
+	 * @param file
+	 *            the file, not {@code null}.
+	 * @return the positions read.
+	 * @throws IOException
+	 *             if the file can not be read.
+	 * @throws ParseException
+	 *             if a line is invalid.
+	 */
+	public PositionSet read(File file) throws IOException, ParseException {
+		long[] bounds = getChunkBounds(file);
+		PositionSet[] results = new PositionSet[bounds.length - 1];
+		execute(file, bounds, results, null);
+		// the first chunk is grown once to the total size, the other chunks
+		// are released as soon as they are copied
+		int total = 0;
+		for (PositionSet result : results) {
+			total += result.size();
+		}
+		PositionSet positions = results[0];
+		positions.ensureCapacity(total);
+		for (int i = 1; i < results.length; i++) {
+			positions.addAll(results[i]);
+			results[i] = null;
+		}
+		return positions;
+	}
+
+	/**
+	 * Reads all amounts of the file, passing them to the given handler.
+	 * 
+	 * @param file
+	 *            the file, not {@code null}.
+	 * @param handler
+	 *            the handler, not {@code null}.
+	 * @throws IOException
+	 *             if the file can not be read.
+	 * @throws ParseException
+	 *             if a line is invalid.
+	 */
+	public void read(File file, AmountHandler handler) throws IOException,
+			ParseException {
+		if (handler == null) {
+			throw new IllegalArgumentException("handler may not be null.");
+		}
+		execute(file, getChunkBounds(file), null, handler);
+	}
+
+	private void execute(File file, long[] bounds, PositionSet[] results,
+			AmountHandler handler) throws IOException, ParseException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			ChunkTask task = new ChunkTask(raf.getChannel(), bounds, 0,
+					bounds.length - 1, results, handler);
+			if (bounds.length <= 2) {
+				task.compute();
+			} else {
+				PoolHolder.POOL.invoke(task);
+			}
+		} catch (ReadFailure e) {
+			Throwable cause = e.getCause();
+			while (cause instanceof ReadFailure) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof ParseException) {
+				throw (ParseException) cause;
+			}
+			throw (IOException) cause;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Evaluates the chunk boundaries, the first boundary is the end of the
+	 * header, every other boundary is the position after a line feed or the
+	 * end of the file.
+	 */
+	private long[] getChunkBounds(File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("file may not be null.");
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			ByteBuffer buffer = ByteBuffer.allocate(ALIGN_BUFFER_SIZE);
+			long start = 0;
+			for (int i = 0; i < headerLines && start < size; i++) {
+				start = nextLine(channel, buffer, start, size);
+			}
+			long[] bounds = new long[(int) ((size - start) / chunkSize) + 2];
+			bounds[0] = start;
+			int count = 1;
+			long pos = start;
+			while (pos < size) {
+				long next = pos + chunkSize;
+				pos = next >= size ? size : nextLine(channel, buffer, next - 1,
+						size);
+				bounds[count++] = pos;
+			}
+			if (count == 1) {
+				bounds[count++] = size;
+			}
+			long[] result = new long[count];
+			System.arraycopy(bounds, 0, result, 0, count);
+			return result;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Access the position after the next line feed at or after the given
+	 * position.
+	 */
+	private static long nextLine(FileChannel channel, ByteBuffer buffer,
+			long pos, long size) throws IOException {
+		while (pos < size) {
+			buffer.clear();
+			int read = channel.read(buffer, pos);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Parses the lines of a chunk.
+	 */
+	private void parseChunk(MappedByteBuffer buffer, long base,
+			PositionSet positions, AmountHandler handler)
+			throws ParseException {
+		ByteSequence field = new ByteSequence(buffer);
+		ParsePosition position = new ParsePosition(0);
+		int limit = buffer.limit();
+		int pos = 0;
+		while (pos < limit) {
+			int end = pos;
+			while (end < limit && buffer.get(end) != '\n') {
+				end++;
+			}
+			int next = end + 1;
+			if (end > pos && buffer.get(end - 1) == '\r') {
+				end--;
+			}
+			if (end > pos) {
+				if (!locate(buffer, pos, end, currencyField, currencyLength,
+						field)) {
+					throw parseError("Missing currency", buffer, base, pos,
+							end);
+				}
+				CurrencyUnit currency = getCurrency(field);
+				if (currency == null) {
+					throw parseError("Invalid currency", buffer, base, pos,
+							end);
+				}
+				if (!locate(buffer, pos, end, amountField, amountLength, field)) {
+					throw parseError("Missing amount", buffer, base, pos, end);
+				}
+				position.setIndex(0);
+				position.setErrorIndex(-1);
+				BigDecimal amount = parser.parse(field, position);
+				if (amount == null || position.getIndex() != field.length()) {
+					throw parseError("Invalid amount", buffer, base, pos, end);
+				}
+				if (handler == null) {
+					try {
+						positions.add(currency, amount);
+					} catch (ArithmeticException e) {
+						throw parseError("Amount out of range", buffer, base,
+								pos, end);
+					}
+				} else {
+					handler.amountRead(base + pos, currency, amount);
+				}
+			}
+			pos = next;
+		}
+	}
+
+	/**
+	 * Positions the field view on a field of the line, trimming blanks and
+	 * enclosing quotes.
+	 * 
+	 * @return false, if the line does not contain the field.
+	 */
+	private boolean locate(MappedByteBuffer buffer, int lineStart,
+			int lineEnd, int index, int length, ByteSequence field) {
+		int start;
+		int end;
+		if (separator == 0) {
+			start = lineStart + index;
+			if (start >= lineEnd) {
+				return false;
+			}
+			end = Math.min(start + length, lineEnd);
+		} else {
+			start = lineStart;
+			for (int column = 0; column < index; column++) {
+				while (start < lineEnd && buffer.get(start) != separator) {
+					start++;
+				}
+				if (start == lineEnd) {
+					return false;
+				}
+				start++;
+			}
+			end = start;
+			while (end < lineEnd && buffer.get(end) != separator) {
+				end++;
+			}
+		}
+		while (start < end && buffer.get(start) == ' ') {
+			start++;
+		}
+		while (end > start && buffer.get(end - 1) == ' ') {
+			end--;
+		}
+		if (end - start >= 2 && buffer.get(start) == '"'
+				&& buffer.get(end - 1) == '"') {
+			start++;
+			end--;
+		}
+		field.set(start, end);
+		return true;
+	}
+
+	/**
+	 * Resolves a currency code, three letter codes are cached by their packed
+	 * bytes.
+	 * 
+	 * @return the currency, or {@code null}.
+	 */
+	private CurrencyUnit getCurrency(ByteSequence code) {
+		if (code.length() != 3) {
+			return code.length() == 0 ? null : lookup(code.toString());
+		}
+		Integer key = Integer.valueOf((code.charAt(0) << 16)
+				| (code.charAt(1) << 8) | code.charAt(2));
+		CurrencyUnit currency = currencies.get(key);
+		if (currency == null) {
+			currency = lookup(code.toString());
+			if (currency != null) {
+				currencies.putIfAbsent(key, currency);
+			}
+		}
+		return currency;
+	}
+
+	private static CurrencyUnit lookup(String code) {
+		try {
+			return MoneyCurrency.getInstance(code);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static ParseException parseError(String message,
+			MappedByteBuffer buffer, long base, int lineStart, int lineEnd) {
+		String line = new ByteSequence(buffer).set(lineStart, lineEnd)
+				.toString();
+		return new ParseException(message + " at offset "
+				+ (base + lineStart) + ": " + line, line, 0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AmountFileReader [separator="
+				+ (separator == 0 ? "<fixed width>" : String.valueOf(separator))
+				+ ", amountField=" + amountField + ", currencyField="
+				+ currencyField + ", headerLines=" + headerLines
+				+ ", chunkSize=" + chunkSize + ", parser=" + parser + "]";
+	}
+
+	/**
+	 * {@link CharSequence} view on a range of single byte characters, reused
+	 * for all fields of a chunk.
+	 */
+	private static final class ByteSequence implements CharSequence {
+		private final ByteBuffer buffer;
+		private int start;
+		private int end;
+
+		ByteSequence(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		ByteSequence set(int start, int end) {
+			this.start = start;
+			this.end = end;
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (buffer.get(start + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return toString().substring(from, to);
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[end - start];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = charAt(i);
+			}
+			return new String(chars);
+		}
+	}
+
+	/**
+	 * Splits the chunks in halves, until a single chunk is left, which is
+	 * mapped and parsed.
+	 */
+	private final class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final transient FileChannel channel;
+		private final long[] bounds;
+		private final int from;
+		private final int to;
+		private final PositionSet[] results;
+		private final transient AmountHandler handler;
+
+		ChunkTask(FileChannel channel, long[] bounds, int from, int to,
+				PositionSet[] results, AmountHandler handler) {
+			this.channel = channel;
+			this.bounds = bounds;
+			this.from = from;
+			this.to = to;
+			this.results = results;
+			this.handler = handler;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(channel, bounds, from, middle,
+						results, handler), new ChunkTask(channel, bounds,
+						middle, to, results, handler));
+				return;
+			}
+			long start = bounds[from];
+			long size = bounds[to] - start;
+			PositionSet positions = null;
+			if (handler == null) {
+				positions = new PositionSet((int) Math.max(16, size / 16));
+				results[from] = positions;
+			}
+			if (size == 0) {
+				return;
+			}
+			try {
+				MappedByteBuffer buffer = channel.map(
+						FileChannel.MapMode.READ_ONLY, start, size);
+				parseChunk(buffer, start, positions, handler);
+			} catch (IOException e) {
+				throw new ReadFailure(e);
+			} catch (ParseException e) {
+				throw new ReadFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Transports checked exceptions out of the chunk tasks.
+	 */
+	private static final class ReadFailure extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		ReadFailure(Exception cause) {
+			super(cause);
+		}
+	}
+
+	private static final class PoolHolder {
+		static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+
+}
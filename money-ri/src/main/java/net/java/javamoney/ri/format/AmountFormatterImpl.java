@@ -0,0 +1,230 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.money.MonetaryAmount;
+import javax.money.format.AmountFormatter;
+import javax.money.format.common.FormatException;
+import javax.money.format.common.LocalizationStyle;
+
+import net.java.javamoney.ri.format.common.AbstractTargeted;
+import net.java.javamoney.ri.format.common.CompiledItemFormatter;
+import net.java.javamoney.ri.format.common.FormatterToken;
+import net.java.javamoney.ri.format.token.CurrencyToken;
+import net.java.javamoney.ri.format.token.FormattedAmount;
+import net.java.javamoney.ri.format.token.Literal;
+
+/**
+ * {@link AmountFormatter} implementation based on two token lists, one for
+ * the full amount and one for the number part only. Both lists are compiled
+ * into a {@link CompiledItemFormatter} for the style of this formatter on
+ * creation, so the number formats, literals and currency formatters are
+ * resolved once and shared by all amounts printed. The batch methods are
+ * plain loops over the single amount path. Instances of this class are
+ * thread-safe, as long as the tokens passed are not changed afterwards.
+ * 
+ * @author Anatole Tresch
+ */
+public class AmountFormatterImpl extends AbstractTargeted<MonetaryAmount>
+		implements AmountFormatter {
+
+	private final LocalizationStyle style;
+	private final CompiledItemFormatter<MonetaryAmount> amountFormatter;
+	private final CompiledItemFormatter<MonetaryAmount> numberFormatter;
+
+	/**
+	 * Creates a new instance, printing amounts in the form {@code CHF 1'234.5}
+	 * using the number format of the style's number locale.
+	 * 
+	 * @param style
+	 *            the style, not {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	public AmountFormatterImpl(LocalizationStyle style) {
+		this(style, new FormatterToken[] {
+				new CurrencyToken<MonetaryAmount>(),
+				new Literal<MonetaryAmount>(" "),
+				new FormattedAmount<MonetaryAmount>() },
+				new FormatterToken[] { new FormattedAmount<MonetaryAmount>() });
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param style
+	 *            the style, not {@code null}.
+	 * @param amountTokens
+	 *            the tokens printing the full amount, not {@code null}.
+	 * @param numberTokens
+	 *            the tokens printing the number part only, not {@code null}.
+	 */
+	public AmountFormatterImpl(LocalizationStyle style,
+			FormatterToken<MonetaryAmount>[] amountTokens,
+			FormatterToken<MonetaryAmount>[] numberTokens) {
+		super(MonetaryAmount.class);
+		if (style == null) {
+			throw new IllegalArgumentException(
+					"LocalizationStyle must not be null.");
+		}
+		if (amountTokens == null) {
+			throw new IllegalArgumentException("amountTokens may not be null.");
+		}
+		if (numberTokens == null) {
+			throw new IllegalArgumentException("numberTokens may not be null.");
+		}
+		style.setImmutable();
+		this.style = style;
+		this.amountFormatter = new CompiledItemFormatter<MonetaryAmount>(
+				MonetaryAmount.class, amountTokens, style);
+		this.numberFormatter = new CompiledItemFormatter<MonetaryAmount>(
+				MonetaryAmount.class, numberTokens, style);
+	}
+
+	@Override
+	public LocalizationStyle getStyle() {
+		return this.style;
+	}
+
+	@Override
+	public String format(MonetaryAmount amount) {
+		return this.amountFormatter.format(checkAmount(amount), this.style);
+	}
+
+	@Override
+	public void print(Appendable appendable, MonetaryAmount amount)
+			throws IOException {
+		checkAppendable(appendable);
+		this.amountFormatter.print(appendable, checkAmount(amount),
+				this.style);
+	}
+
+	@Override
+	public String formatNumber(MonetaryAmount amount) {
+		return this.numberFormatter.format(checkAmount(amount), this.style);
+	}
+
+	@Override
+	public void printNumber(Appendable appendable, MonetaryAmount amount)
+			throws IOException {
+		checkAppendable(appendable);
+		this.numberFormatter.print(appendable, checkAmount(amount),
+				this.style);
+	}
+
+	@Override
+	public void print(Appendable appendable, MonetaryAmount[] amounts,
+			CharSequence separator) throws IOException {
+		checkAppendable(appendable);
+		if (amounts == null) {
+			throw new IllegalArgumentException("amounts may not be null.");
+		}
+		checkSeparator(separator);
+		for (int i = 0; i < amounts.length; i++) {
+			if (i > 0) {
+				appendable.append(separator);
+			}
+			this.amountFormatter.print(appendable, checkAmount(amounts[i]),
+					this.style);
+		}
+	}
+
+	@Override
+	public void print(Appendable appendable,
+			Iterable<? extends MonetaryAmount> amounts, CharSequence separator)
+			throws IOException {
+		checkAppendable(appendable);
+		if (amounts == null) {
+			throw new IllegalArgumentException("amounts may not be null.");
+		}
+		checkSeparator(separator);
+		Iterator<? extends MonetaryAmount> iterator = amounts.iterator();
+		if (!iterator.hasNext()) {
+			return;
+		}
+		this.amountFormatter.print(appendable, checkAmount(iterator.next()),
+				this.style);
+		while (iterator.hasNext()) {
+			appendable.append(separator);
+			this.amountFormatter.print(appendable,
+					checkAmount(iterator.next()), this.style);
+		}
+	}
+
+	/**
+	 * Formats all amounts using a single {@link StringBuilder}, which is
+	 * reused for every amount.
+	 */
+	@Override
+	public String[] format(MonetaryAmount[] amounts, String[] result) {
+		if (amounts == null) {
+			throw new IllegalArgumentException("amounts may not be null.");
+		}
+		if (result == null) {
+			result = new String[amounts.length];
+		} else if (result.length < amounts.length) {
+			throw new IllegalArgumentException("result too small, required: "
+					+ amounts.length + ", but was: " + result.length);
+		}
+		StringBuilder builder = new StringBuilder(32);
+		for (int i = 0; i < amounts.length; i++) {
+			MonetaryAmount amount = checkAmount(amounts[i]);
+			builder.setLength(0);
+			try {
+				this.amountFormatter.print(builder, amount, this.style);
+			} catch (IOException e) {
+				throw new FormatException("Error formatting " + amount, e);
+			}
+			result[i] = builder.toString();
+		}
+		return result;
+	}
+
+	private static MonetaryAmount checkAmount(MonetaryAmount amount) {
+		if (amount == null) {
+			throw new IllegalArgumentException("amount may not be null.");
+		}
+		return amount;
+	}
+
+	private static void checkAppendable(Appendable appendable) {
+		if (appendable == null) {
+			throw new IllegalArgumentException("appendable may not be null.");
+		}
+	}
+
+	private static void checkSeparator(CharSequence separator) {
+		if (separator == null) {
+			throw new IllegalArgumentException("separator may not be null.");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AmountFormatterImpl [style=" + style + "]";
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+import javax.money.format.AmountParser;
+import javax.money.format.StyleableAmountParser;
+import javax.money.format.common.LocalizationStyle;
+import javax.money.format.common.ParseException;
+
+import net.java.javamoney.ri.core.Money;
+import net.java.javamoney.ri.core.MoneyCurrency;
+import net.java.javamoney.ri.format.common.AbstractTargeted;
+import net.java.javamoney.ri.format.common.DecimalParser;
+import net.java.javamoney.ri.format.common.StyleCache;
+
+/**
+ * {@link AmountParser} implementation that parses amounts in the form
+ * {@code CHF 1'234.50} or {@code 1'234.50 CHF}, using the number symbols of
+ * the number locale of the {@link LocalizationStyle}. Numbers are parsed by a
+ * {@link DecimalParser}, grouping separators are accepted. The parsers are
+ * compiled once per style, instances of this class are thread-safe.
+ * 
+ * @author Anatole Tresch
+ */
+public class AmountParserImpl extends AbstractTargeted<MonetaryAmount>
+		implements AmountParser, StyleableAmountParser {
+
+	private final LocalizationStyle style;
+	private final StyleCache<DecimalParser> parsers = new StyleCache<DecimalParser>();
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param style
+	 *            the style used by {@link #parse(CharSequence)} and
+	 *            {@link #parseNumber(CharSequence, CurrencyUnit)}, not
+	 *            {@code null}.
+	 */
+	public AmountParserImpl(LocalizationStyle style) {
+		super(MonetaryAmount.class);
+		if (style == null) {
+			throw new IllegalArgumentException(
+					"LocalizationStyle must not be null.");
+		}
+		this.style = style;
+		this.style.setImmutable();
+	}
+
+	@Override
+	public LocalizationStyle getStyle() {
+		return this.style;
+	}
+
+	@Override
+	public MonetaryAmount parse(CharSequence text) throws ParseException {
+		return parse(text, this.style);
+	}
+
+	@Override
+	public MonetaryAmount parseNumber(CharSequence text, CurrencyUnit currency)
+			throws ParseException {
+		return parseNumber(text, currency, this.style);
+	}
+
+	/**
+	 * Parses an amount, the currency code may precede or follow the number.
+	 */
+	@Override
+	public MonetaryAmount parse(CharSequence text, LocalizationStyle style)
+			throws ParseException {
+		if (text == null) {
+			throw new IllegalArgumentException("text may not be null.");
+		}
+		DecimalParser parser = getParser(style);
+		int length = text.length();
+		int index = DecimalParser.skipWhitespaces(text, 0);
+		CurrencyUnit currency = null;
+		if (index < length && Character.isLetter(text.charAt(index))) {
+			int end = skipLetters(text, index);
+			currency = getCurrency(text, index, end);
+			index = DecimalParser.skipWhitespaces(text, end);
+		}
+		ParsePosition position = new ParsePosition(index);
+		BigDecimal number = parser.parse(text, position);
+		if (number == null) {
+			throw new ParseException("Not a number.", text.toString(),
+					position.getErrorIndex());
+		}
+		index = DecimalParser.skipWhitespaces(text, position.getIndex());
+		if (currency == null) {
+			int end = skipLetters(text, index);
+			if (end == index) {
+				throw new ParseException("Currency expected.",
+						text.toString(), index);
+			}
+			currency = getCurrency(text, index, end);
+			index = DecimalParser.skipWhitespaces(text, end);
+		}
+		if (index < length) {
+			throw new ParseException("Unexpected character.",
+					text.toString(), index);
+		}
+		return Money.valueOf(currency, number);
+	}
+
+	@Override
+	public MonetaryAmount parseNumber(CharSequence text,
+			CurrencyUnit currency, LocalizationStyle style)
+			throws ParseException {
+		if (currency == null) {
+			throw new IllegalArgumentException("currency may not be null.");
+		}
+		return Money.valueOf(currency, getParser(style).parse(text));
+	}
+
+	private DecimalParser getParser(LocalizationStyle style) {
+		if (style == null) {
+			throw new IllegalArgumentException(
+					"LocalizationStyle must not be null.");
+		}
+		DecimalParser parser = this.parsers.get(style);
+		if (parser == null) {
+			parser = this.parsers.put(style, new DecimalParser(
+					DecimalFormatSymbols.getInstance(style.getNumberLocale()),
+					true));
+		}
+		return parser;
+	}
+
+	private static CurrencyUnit getCurrency(CharSequence text, int start,
+			int end) throws ParseException {
+		String code = text.subSequence(start, end).toString();
+		try {
+			return MoneyCurrency.getInstance(code);
+		} catch (IllegalArgumentException e) {
+			throw new ParseException("Unknown currency: " + code,
+					text.toString(), start, e);
+		}
+	}
+
+	private static int skipLetters(CharSequence text, int index) {
+		int length = text.length();
+		while (index < length && Character.isLetter(text.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+}
@@ -80,15 +80,73 @@ public abstract class AbstractToken<T> implements FormatterToken<T>, ParserToken
 	@Override
 	public void print(Appendable appendable, T item, LocalizationStyle style)
 			throws IOException {
+		if (this.formatDecorator == null) {
+			printToken(appendable, adjustValue(item), style);
+			return;
+		}
 		String token = adjustPreformatted(getToken(adjustValue(item), style));
 		if (token == null) {
 			throw new IllegalStateException("Token may not be null.");
 		}
-		if (this.formatDecorator != null) {
-			appendable.append(this.formatDecorator.decorateFormat(item, token, style));
-		} else {
-			appendable.append(token);
+		appendable.append(this.formatDecorator.decorateFormat(item, token, style));
+	}
+
+	/**
+	 * Prints the token for the given (adjusted) item, called by
+	 * {@link #print(Appendable, Object, LocalizationStyle)} if no
+	 * {@link FormatDecorator} is set. By default the result of
+	 * {@link #getToken(Object, LocalizationStyle)} is appended. Tokens that are
+	 * able to render directly into the {@link Appendable}, without creating an
+	 * intermediate {@link String}, override this method. Subclasses overriding
+	 * {@link #adjustPreformatted(String)} must override this method as well.
+	 * 
+	 * @param appendable
+	 *            the target, not {@code null}.
+	 * @param item
+	 *            the item to print, as returned by {@link #adjustValue(Object)}
+	 *            .
+	 * @param style
+	 *            the style to be used.
+	 * @throws IOException
+	 *             if an IO error occurs
+	 */
+	protected void printToken(Appendable appendable, T item,
+			LocalizationStyle style) throws IOException {
+		String token = adjustPreformatted(getToken(item, style));
+		if (token == null) {
+			throw new IllegalStateException("Token may not be null.");
 		}
+		appendable.append(token);
+	}
+
+	/**
+	 * Evaluates the text printed for every item using the given style. Used
+	 * by {@link CompiledItemFormatter} to fuse adjacent constant tokens into a
+	 * single literal. By default {@code null} is returned.
+	 * 
+	 * @param style
+	 *            the style, immutable.
+	 * @return the text printed, or {@code null}, if it depends on the item or
+	 *         a {@link FormatDecorator} is set.
+	 */
+	protected String getConstant(LocalizationStyle style) {
+		return null;
+	}
+
+	/**
+	 * Creates a token printing the same output as this instance for the
+	 * given style, with all style dependent state resolved upfront. Used by
+	 * {@link CompiledItemFormatter}, the token returned is only called with
+	 * the style passed. By default this instance is returned. Subclasses
+	 * overriding {@link #printToken(Appendable, Object, LocalizationStyle)}
+	 * must override this method as well.
+	 * 
+	 * @param style
+	 *            the style, immutable.
+	 * @return the token to be used for printing with {@code style}.
+	 */
+	protected FormatterToken<T> compile(LocalizationStyle style) {
+		return this;
 	}
 
 	protected T adjustValue(T item) {
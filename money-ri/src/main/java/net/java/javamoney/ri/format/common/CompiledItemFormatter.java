@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.money.format.common.FormatException;
+import javax.money.format.common.LocalizationStyle;
+import javax.money.format.common.StyleableFormatter;
+
+/**
+ * {@link StyleableFormatter} compiled from an ordered list of
+ * {@link FormatterToken} instances for a fixed {@link LocalizationStyle}.
+ * Adjacent constant tokens, such as literals, are fused into a single
+ * {@link String}, all other tokens are replaced by the token returned from
+ * {@link AbstractToken#compile(LocalizationStyle)}, which has its style
+ * dependent state, e.g. the number format, resolved upfront. Printing so does
+ * not perform any decorator or cache lookups.
+ * <p>
+ * The tokens are compiled on creation, later changes to the tokens are not
+ * reflected. Items printed with a style not equal to the compiled style are
+ * printed using the original tokens.
+ * 
+ * @author Anatole Tresch
+ * 
+ * @param <T>
+ *            the target type.
+ */
+public class CompiledItemFormatter<T> extends AbstractTargeted<T> implements
+		StyleableFormatter<T> {
+
+	private final LocalizationStyle style;
+	/** The fused literals, {@code null} where a token is printed. */
+	private final String[] literals;
+	/** The compiled tokens, {@code null} where a literal is printed. */
+	private final FormatterToken<T>[] tokens;
+	/** Formatter used for styles other than the compiled style. */
+	private final TokenizedItemFormatter<T> fallback;
+
+	/**
+	 * Compiles the given tokens.
+	 * 
+	 * @param type
+	 *            the target type.
+	 * @param tokens
+	 *            the tokens, not {@code null}.
+	 * @param style
+	 *            the style, not {@code null}. The style is made immutable.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompiledItemFormatter(Class<T> type, FormatterToken<T>[] tokens,
+			LocalizationStyle style) {
+		super(type);
+		if (style == null) {
+			throw new IllegalArgumentException(
+					"LocalizationStyle must not be null.");
+		}
+		style.setImmutable();
+		this.style = style;
+		this.fallback = new TokenizedItemFormatter<T>(type, tokens);
+		List<String> literalList = new ArrayList<String>();
+		List<FormatterToken<T>> tokenList = new ArrayList<FormatterToken<T>>();
+		StringBuilder pending = new StringBuilder();
+		for (FormatterToken<T> token : tokens) {
+			String constant = null;
+			FormatterToken<T> compiled = token;
+			if (token instanceof AbstractToken) {
+				AbstractToken<T> abstractToken = (AbstractToken<T>) token;
+				constant = abstractToken.getConstant(style);
+				if (constant == null) {
+					compiled = abstractToken.compile(style);
+				}
+			}
+			if (constant != null) {
+				pending.append(constant);
+				continue;
+			}
+			if (pending.length() > 0) {
+				literalList.add(pending.toString());
+				tokenList.add(null);
+				pending.setLength(0);
+			}
+			literalList.add(null);
+			tokenList.add(compiled);
+		}
+		if (pending.length() > 0) {
+			literalList.add(pending.toString());
+			tokenList.add(null);
+		}
+		this.literals = literalList.toArray(new String[literalList.size()]);
+		this.tokens = tokenList.toArray(new FormatterToken[tokenList.size()]);
+	}
+
+	/**
+	 * Access the style compiled for.
+	 * 
+	 * @return the style, never {@code null}.
+	 */
+	public LocalizationStyle getStyle() {
+		return this.style;
+	}
+
+	/**
+	 * Access the number of printing steps after fusing the constant tokens.
+	 * 
+	 * @return the number of steps.
+	 */
+	public int getStepCount() {
+		return this.literals.length;
+	}
+
+	@Override
+	public void print(Appendable appendable, T item, LocalizationStyle style)
+			throws IOException {
+		if (style != this.style && !this.style.equals(style)) {
+			fallback.print(appendable, item, style);
+			return;
+		}
+		for (int i = 0; i < literals.length; i++) {
+			String literal = literals[i];
+			if (literal != null) {
+				appendable.append(literal);
+			} else {
+				tokens[i].print(appendable, item, this.style);
+			}
+		}
+	}
+
+	@Override
+	public String format(T item, LocalizationStyle style)
+			throws FormatException {
+		StringBuilder builder = FormatBuffer.acquire();
+		try {
+			print(builder, item, style);
+			return builder.toString();
+		} catch (IOException e) {
+			throw new FormatException("Error formatting " + item, e);
+		} finally {
+			FormatBuffer.release(builder);
+		}
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format.common;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.ParsePosition;
+
+/**
+ * Immutable number formatter program, compiled from a {@link DecimalFormat}
+ * and an optional {@link StringGrouper} for a given
+ * {@link javax.money.format.common.LocalizationStyle}. Numbers supported by a
+ * {@link DecimalPrinter} are printed without any shared mutable state, so
+ * instances can be used by several threads concurrently. Parsing is done by
+ * a {@link DecimalParser}, if the parse format is supported. Otherwise, and
+ * for numbers not supported by the printer, private copies of the formats
+ * are used, guarded by their monitors.
+ * 
+ * @author Anatole Tresch
+ */
+public final class CompiledNumberFormat {
+
+	private final DecimalFormat format;
+	private final DecimalFormat parseFormat;
+	private final StringGrouper grouper;
+	private final DecimalPrinter printer;
+	private final DecimalParser parser;
+
+	/**
+	 * Creates a new instance. The formats and grouper are copied.
+	 * 
+	 * @param format
+	 *            the format used for printing, not {@code null}.
+	 * @param parseFormat
+	 *            the format used for parsing, not {@code null}.
+	 * @param grouper
+	 *            the grouping of the integer digits, replacing the grouping
+	 *            defined by {@code format}, may be {@code null}.
+	 */
+	public CompiledNumberFormat(DecimalFormat format,
+			DecimalFormat parseFormat, StringGrouper grouper) {
+		if (format == null) {
+			throw new IllegalArgumentException("format may not be null.");
+		}
+		if (parseFormat == null) {
+			throw new IllegalArgumentException("parseFormat may not be null.");
+		}
+		this.format = (DecimalFormat) format.clone();
+		this.parseFormat = (DecimalFormat) parseFormat.clone();
+		if (grouper == null) {
+			this.grouper = null;
+		} else {
+			this.grouper = new StringGrouper(grouper.getGroupChars(),
+					grouper.getGroupSizes()).setReverse(grouper.isReverse());
+		}
+		this.printer = createPrinter(this.format, this.grouper);
+		if (DecimalParser.isSupported(this.parseFormat)) {
+			this.parser = new DecimalParser(this.parseFormat);
+		} else {
+			this.parser = null;
+		}
+	}
+
+	private static DecimalPrinter createPrinter(DecimalFormat format,
+			StringGrouper grouper) {
+		if (!DecimalPrinter.isSupported(format)
+				|| (grouper != null && grouper.isReverse())) {
+			return null;
+		}
+		try {
+			return new DecimalPrinter(format, grouper);
+		} catch (IllegalArgumentException e) {
+			// invalid group sizes, use the String based evaluation
+			return null;
+		}
+	}
+
+	/**
+	 * Access the {@link DecimalPrinter} used.
+	 * 
+	 * @return the printer, or {@code null}, if the format is not supported by
+	 *         a {@link DecimalPrinter}.
+	 */
+	public DecimalPrinter getPrinter() {
+		return this.printer;
+	}
+
+	/**
+	 * Access the {@link DecimalParser} used.
+	 * 
+	 * @return the parser, or {@code null}, if the parse format is not
+	 *         supported by a {@link DecimalParser}.
+	 */
+	public DecimalParser getParser() {
+		return this.parser;
+	}
+
+	/**
+	 * Prints a number to an {@link Appendable}.
+	 * 
+	 * @param appendable
+	 *            the target, not {@code null}.
+	 * @param number
+	 *            the number, not {@code null}.
+	 * @throws IOException
+	 *             if the target throws an {@link IOException}.
+	 */
+	public void print(Appendable appendable, Number number) throws IOException {
+		if (this.printer != null && DecimalPrinter.canPrint(number)) {
+			this.printer.print(appendable, number);
+		} else {
+			printFormatted(appendable, number);
+		}
+	}
+
+	/**
+	 * Prints using the {@link DecimalFormat}, grouping the integer part with
+	 * the {@link StringGrouper} directly into the target.
+	 */
+	private void printFormatted(Appendable appendable, Number number)
+			throws IOException {
+		String preformattedValue;
+		char decimalSeparator;
+		synchronized (this.format) {
+			preformattedValue = this.format.format(number);
+			decimalSeparator = this.format.getDecimalFormatSymbols()
+					.getDecimalSeparator();
+		}
+		if (this.grouper == null) {
+			appendable.append(preformattedValue);
+			return;
+		}
+		int separatorIndex = preformattedValue.indexOf(decimalSeparator);
+		if (separatorIndex < 0) {
+			separatorIndex = preformattedValue.length();
+		}
+		this.grouper.group(preformattedValue, 0, separatorIndex, appendable);
+		appendable.append(preformattedValue, separatorIndex,
+				preformattedValue.length());
+	}
+
+	/**
+	 * Formats a number to a {@link String}.
+	 * 
+	 * @param number
+	 *            the number, not {@code null}.
+	 * @return the formatted number.
+	 */
+	public String format(Number number) {
+		StringBuilder builder = new StringBuilder(24);
+		try {
+			print(builder, number);
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"StringBuilder failed to append.", e);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Parses a number.
+	 * 
+	 * @param text
+	 *            the text to be parsed, not {@code null}.
+	 * @param position
+	 *            the parse position, not {@code null}.
+	 * @return the number parsed, or {@code null}, on failure, with the error
+	 *         index set in {@code position}.
+	 */
+	public Number parse(CharSequence text, ParsePosition position) {
+		if (this.parser != null) {
+			return this.parser.parse(text, position);
+		}
+		synchronized (this.parseFormat) {
+			return this.parseFormat.parse(text.toString(), position);
+		}
+	}
+
+	/**
+	 * Parses a number.
+	 * 
+	 * @param text
+	 *            the text to be parsed, not {@code null}.
+	 * @return the number parsed.
+	 * @throws java.text.ParseException
+	 *             if the beginning of the text can not be parsed.
+	 */
+	public Number parse(String text) throws java.text.ParseException {
+		if (this.parser != null) {
+			ParsePosition position = new ParsePosition(0);
+			Number result = this.parser.parse(text, position);
+			if (result == null) {
+				throw new java.text.ParseException("Unparseable number: \""
+						+ text + '"', position.getErrorIndex());
+			}
+			return result;
+		}
+		synchronized (this.parseFormat) {
+			return this.parseFormat.parse(text);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CompiledNumberFormat [pattern=" + this.format.toPattern()
+				+ ", printer=" + this.printer + "]";
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format.common;
+
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.money.CurrencyUnit;
+
+/**
+ * Immutable prefix tree mapping textual currency representations, such as
+ * codes, symbols or display names, to {@link CurrencyUnit} instances. Matching
+ * evaluates the longest key, that is a prefix of the text at a given position,
+ * in time linear to the length of the match and without allocating objects.
+ * <p>
+ * Instances are created using a {@link Builder} and are thread-safe.
+ * 
+ * @author Anatole Tresch
+ */
+public final class CurrencyTrie {
+
+	private static final char[] NO_CHARS = new char[0];
+	private static final int[] NO_NODES = new int[0];
+
+	/** The sorted edge characters of each node, node 0 is the root. */
+	private final char[][] edges;
+	/** The target nodes of the edges of each node. */
+	private final int[][] targets;
+	/** The currency of each node, {@code null} for inner nodes. */
+	private final CurrencyUnit[] values;
+	/** The number of keys. */
+	private final int size;
+
+	private CurrencyTrie(char[][] edges, int[][] targets,
+			CurrencyUnit[] values, int size) {
+		this.edges = edges;
+		this.targets = targets;
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * Matches the longest key starting at the index of the given position. On
+	 * success the index is set behind the key matched, otherwise the error
+	 * index is set.
+	 * 
+	 * @param text
+	 *            the text, not {@code null}.
+	 * @param position
+	 *            the parse position, not {@code null}.
+	 * @return the currency of the longest key matched, or {@code null}.
+	 */
+	public CurrencyUnit match(CharSequence text, ParsePosition position) {
+		int start = position.getIndex();
+		int length = text.length();
+		int node = 0;
+		CurrencyUnit result = null;
+		int end = start;
+		for (int i = start; i < length; i++) {
+			int edge = Arrays.binarySearch(edges[node], text.charAt(i));
+			if (edge < 0) {
+				break;
+			}
+			node = targets[node][edge];
+			if (values[node] != null) {
+				result = values[node];
+				end = i + 1;
+			}
+		}
+		if (result == null) {
+			position.setErrorIndex(start);
+		} else {
+			position.setIndex(end);
+		}
+		return result;
+	}
+
+	/**
+	 * Access the currency mapped to exactly the given key.
+	 * 
+	 * @param key
+	 *            the key, not {@code null}.
+	 * @return the currency, or {@code null}.
+	 */
+	public CurrencyUnit get(CharSequence key) {
+		int node = 0;
+		for (int i = 0; i < key.length(); i++) {
+			int edge = Arrays.binarySearch(edges[node], key.charAt(i));
+			if (edge < 0) {
+				return null;
+			}
+			node = targets[node][edge];
+		}
+		return values[node];
+	}
+
+	/**
+	 * Access the number of keys.
+	 * 
+	 * @return the number of keys.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CurrencyTrie [size=" + size + ", nodes=" + values.length
+				+ "]";
+	}
+
+	/**
+	 * Builder for {@link CurrencyTrie} instances. If a key is added several
+	 * times, the first currency added is kept.
+	 */
+	public static final class Builder {
+
+		private final List<Map<Character, Integer>> nodes = new ArrayList<Map<Character, Integer>>();
+		private final List<CurrencyUnit> values = new ArrayList<CurrencyUnit>();
+		private int size;
+
+		/**
+		 * Creates a new builder.
+		 */
+		public Builder() {
+			addNode();
+		}
+
+		/**
+		 * Adds a key, if it is not yet contained.
+		 * 
+		 * @param key
+		 *            the key, empty keys are ignored.
+		 * @param currency
+		 *            the currency, not {@code null}.
+		 * @return {@code true}, if the key was added.
+		 */
+		public boolean add(String key, CurrencyUnit currency) {
+			if (currency == null) {
+				throw new IllegalArgumentException(
+						"currency may not be null.");
+			}
+			if (key == null || key.isEmpty()) {
+				return false;
+			}
+			int node = 0;
+			for (int i = 0; i < key.length(); i++) {
+				Character ch = Character.valueOf(key.charAt(i));
+				Integer next = nodes.get(node).get(ch);
+				if (next == null) {
+					next = Integer.valueOf(addNode());
+					nodes.get(node).put(ch, next);
+				}
+				node = next.intValue();
+			}
+			if (values.get(node) != null) {
+				return false;
+			}
+			values.set(node, currency);
+			size++;
+			return true;
+		}
+
+		private int addNode() {
+			nodes.add(new TreeMap<Character, Integer>());
+			values.add(null);
+			return values.size() - 1;
+		}
+
+		/**
+		 * Creates a new trie with the keys added so far.
+		 * 
+		 * @return the new trie.
+		 */
+		public CurrencyTrie build() {
+			int count = nodes.size();
+			char[][] edges = new char[count][];
+			int[][] targets = new int[count][];
+			for (int n = 0; n < count; n++) {
+				Map<Character, Integer> children = nodes.get(n);
+				if (children.isEmpty()) {
+					edges[n] = NO_CHARS;
+					targets[n] = NO_NODES;
+					continue;
+				}
+				edges[n] = new char[children.size()];
+				targets[n] = new int[children.size()];
+				int i = 0;
+				for (Map.Entry<Character, Integer> en : children.entrySet()) {
+					edges[n][i] = en.getKey().charValue();
+					targets[n][i] = en.getValue().intValue();
+					i++;
+				}
+			}
+			return new CurrencyTrie(edges, targets,
+					values.toArray(new CurrencyUnit[count]), size);
+		}
+	}
+
+}
@@ -0,0 +1,307 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format.common;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+
+import javax.money.format.common.ParseException;
+
+/**
+ * Parses decimal numbers from a {@link CharSequence} in a single pass. The
+ * digits are accumulated into an unscaled {@code long} and a scale, a
+ * {@link BigDecimal} is only evaluated from the characters, if the number has
+ * more than 18 significant digits. Accepted are an optional sign, digits with
+ * optional grouping separators, followed by an optional decimal separator and
+ * fraction digits. Grouping separators are only accepted in the integer part,
+ * when followed by a digit.
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ * 
+ * @author Anatole Tresch
+ */
+public final class DecimalParser {
+
+	/** Maximal number of digits, that can be accumulated in a {@code long}. */
+	private static final int MAX_LONG_DIGITS = 18;
+
+	private final char zeroDigit;
+	private final char decimalSeparator;
+	private final char groupingSeparator;
+	private final char minusSign;
+	private final boolean groupingUsed;
+	private final boolean spaceGrouping;
+
+	/**
+	 * Creates a new parser using the symbols and grouping setting of the
+	 * given format.
+	 * 
+	 * @param format
+	 *            the format, not {@code null}.
+	 */
+	public DecimalParser(DecimalFormat format) {
+		this(format.getDecimalFormatSymbols(), format.isGroupingUsed());
+	}
+
+	/**
+	 * Creates a new parser.
+	 * 
+	 * @param symbols
+	 *            the symbols, not {@code null}.
+	 * @param groupingUsed
+	 *            {@code true}, if grouping separators are accepted.
+	 */
+	public DecimalParser(DecimalFormatSymbols symbols, boolean groupingUsed) {
+		if (symbols == null) {
+			throw new IllegalArgumentException("symbols may not be null.");
+		}
+		this.zeroDigit = symbols.getZeroDigit();
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.groupingSeparator = symbols.getGroupingSeparator();
+		this.minusSign = symbols.getMinusSign();
+		this.groupingUsed = groupingUsed;
+		this.spaceGrouping = Character.isSpaceChar(this.groupingSeparator);
+	}
+
+	/**
+	 * Evaluates if numbers printed by the given format can be parsed by a
+	 * {@link DecimalParser}, which is the case for formats without prefixes,
+	 * suffixes (except a minus sign), exponent or multiplier.
+	 * 
+	 * @param format
+	 *            the format, may be {@code null}.
+	 * @return {@code true}, if the format is supported.
+	 */
+	public static boolean isSupported(DecimalFormat format) {
+		if (format == null) {
+			return false;
+		}
+		String negativePrefix = format.getNegativePrefix();
+		return format.getMultiplier() == 1
+				&& format.getPositivePrefix().isEmpty()
+				&& format.getPositiveSuffix().isEmpty()
+				&& format.getNegativeSuffix().isEmpty()
+				&& (negativePrefix.isEmpty() || negativePrefix.equals("-") || negativePrefix
+						.equals(String.valueOf(format.getDecimalFormatSymbols()
+								.getMinusSign())))
+				&& format.toPattern().indexOf('E') < 0;
+	}
+
+	/**
+	 * Parses a number starting at the index of {@code position}. On success
+	 * the index is set behind the last character parsed, on failure the error
+	 * index is set.
+	 * 
+	 * @param text
+	 *            the text, not {@code null}.
+	 * @param position
+	 *            the parse position, not {@code null}.
+	 * @return the number parsed, or {@code null}.
+	 */
+	public BigDecimal parse(CharSequence text, ParsePosition position) {
+		int start = position.getIndex();
+		int length = text.length();
+		int i = start;
+		boolean negative = false;
+		if (i < length) {
+			char c = text.charAt(i);
+			if (c == minusSign || c == '-') {
+				negative = true;
+				i++;
+			} else if (c == '+') {
+				i++;
+			}
+		}
+		int digitStart = i;
+		long unscaled = 0;
+		int significantDigits = 0;
+		int scale = 0;
+		boolean anyDigit = false;
+		boolean fraction = false;
+		boolean overflow = false;
+		int end = start;
+		for (; i < length; i++) {
+			char c = text.charAt(i);
+			int digit = digit(c);
+			if (digit >= 0) {
+				anyDigit = true;
+				if (significantDigits < MAX_LONG_DIGITS) {
+					unscaled = unscaled * 10 + digit;
+					if (unscaled != 0) {
+						significantDigits++;
+					}
+				} else {
+					overflow = true;
+				}
+				if (fraction) {
+					scale++;
+				}
+				end = i + 1;
+			} else if (c == decimalSeparator && !fraction) {
+				fraction = true;
+				if (anyDigit) {
+					end = i + 1;
+				}
+			} else if (!(groupingUsed && !fraction && anyDigit
+					&& isGroupingSeparator(c) && i + 1 < length && digit(text
+					.charAt(i + 1)) >= 0)) {
+				break;
+			}
+		}
+		if (!anyDigit) {
+			position.setErrorIndex(i < length ? i : start);
+			return null;
+		}
+		position.setIndex(end);
+		if (overflow) {
+			return parseBig(text, digitStart, end, negative);
+		}
+		return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+	}
+
+	/**
+	 * Parses a number, with optional leading and trailing whitespaces. The
+	 * whole text must be parsed.
+	 * 
+	 * @param text
+	 *            the text, not {@code null}.
+	 * @return the number parsed, never {@code null}.
+	 * @throws ParseException
+	 *             if the text is not a valid number.
+	 */
+	public BigDecimal parse(CharSequence text) throws ParseException {
+		if (text == null) {
+			throw new IllegalArgumentException("text may not be null.");
+		}
+		int end = text.length();
+		while (end > 0 && isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		ParsePosition position = new ParsePosition(skipWhitespaces(text, 0));
+		BigDecimal result = parse(text, position);
+		if (result == null) {
+			throw new ParseException("Not a number.", text.toString(),
+					position.getErrorIndex());
+		}
+		if (position.getIndex() != end) {
+			throw new ParseException("Unexpected character.",
+					text.toString(), position.getIndex());
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a number at the current position of a {@link ParseContext},
+	 * leading whitespaces are skipped. On success the position is moved
+	 * behind the last character parsed.
+	 * 
+	 * @param context
+	 *            the context, not {@code null}.
+	 * @return the number parsed, never {@code null}.
+	 * @throws ParseException
+	 *             if there is no valid number at the current position.
+	 */
+	public BigDecimal parse(ParseContext context) throws ParseException {
+		context.skipWhitespaces();
+		ParsePosition position = new ParsePosition(context.getPosition());
+		BigDecimal result = parse(context.getText(), position);
+		if (result == null) {
+			throw new ParseException("Not a number.", context.getText()
+					.toString(), position.getErrorIndex());
+		}
+		context.setPosition(position.getIndex());
+		return result;
+	}
+
+	/**
+	 * Skips whitespace characters.
+	 * 
+	 * @param text
+	 *            the text, not {@code null}.
+	 * @param index
+	 *            the start index.
+	 * @return the index of the first non whitespace character at or after
+	 *         {@code index}, or the text length.
+	 */
+	public static int skipWhitespaces(CharSequence text, int index) {
+		int length = text.length();
+		while (index < length && isWhitespace(text.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+	static boolean isWhitespace(char c) {
+		return Character.isWhitespace(c) || Character.isSpaceChar(c);
+	}
+
+	private int digit(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		int digit = c - zeroDigit;
+		if (digit >= 0 && digit <= 9) {
+			return digit;
+		}
+		return -1;
+	}
+
+	private boolean isGroupingSeparator(char c) {
+		return c == groupingSeparator
+				|| (spaceGrouping && (c == ' ' || c == '\u00a0' || c == '\u202f'));
+	}
+
+	/**
+	 * Evaluates numbers with too many digits for a {@code long}, the range has
+	 * already been validated by the scan.
+	 */
+	private BigDecimal parseBig(CharSequence text, int start, int end,
+			boolean negative) {
+		char[] chars = new char[end - start + 1];
+		int count = 0;
+		if (negative) {
+			chars[count++] = '-';
+		}
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			int digit = digit(c);
+			if (digit >= 0) {
+				chars[count++] = (char) ('0' + digit);
+			} else if (c == decimalSeparator) {
+				chars[count++] = '.';
+			}
+		}
+		return new BigDecimal(chars, 0, count);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DecimalParser [decimalSeparator=" + decimalSeparator
+				+ ", groupingSeparator=" + groupingSeparator
+				+ ", groupingUsed=" + groupingUsed + "]";
+	}
+
+}
@@ -0,0 +1,381 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format.common;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints numbers in the format defined by a {@link DecimalFormat} directly to
+ * an {@link Appendable}, without creating intermediate {@link String}
+ * instances. The digits are read from the unscaled value of the number,
+ * rounded, grouped and written to a thread local buffer, which is then
+ * appended as a whole. {@link StringBuilder} and {@link CharBuffer} targets
+ * are filled by bulk copy.
+ * <p>
+ * The settings of the {@link DecimalFormat} are read when the printer is
+ * created, later changes of the format are not reflected. Formats using
+ * exponential notation, a multiplier or a limited number of integer digits
+ * are not supported, see {@link #isSupported(DecimalFormat)}. Instances of
+ * this class are immutable and thread-safe.
+ * 
+ * @author Anatole Tresch
+ */
+public final class DecimalPrinter {
+
+	/** Maximal number of digits, that can be held in a {@code long}. */
+	private static final int MAX_LONG_DIGITS = 18;
+	/** DecimalFormat never prints more integer digits of a double. */
+	private static final int DOUBLE_INTEGER_DIGITS = 309;
+	/** Buffers larger than this are not kept. */
+	private static final int MAX_CACHED_BUFFER = 1024;
+	private static final int[] NO_GROUPS = new int[0];
+
+	private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+		@Override
+		protected char[] initialValue() {
+			return new char[128];
+		}
+	};
+
+	private final String positivePrefix;
+	private final String positiveSuffix;
+	private final String negativePrefix;
+	private final String negativeSuffix;
+	private final char zeroDigit;
+	private final char decimalSeparator;
+	private final boolean decimalSeparatorAlwaysShown;
+	private final int minimumIntegerDigits;
+	private final int minimumFractionDigits;
+	private final int maximumFractionDigits;
+	private final RoundingMode roundingMode;
+	private final int[] groupSizes;
+	private final char[] groupChars;
+
+	/**
+	 * Creates a new printer, using the grouping defined by {@code format}.
+	 * 
+	 * @param format
+	 *            the format, not {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the format is not supported.
+	 */
+	public DecimalPrinter(DecimalFormat format) {
+		this(format, null);
+	}
+
+	/**
+	 * Creates a new printer.
+	 * 
+	 * @param format
+	 *            the format, not {@code null}.
+	 * @param grouper
+	 *            the grouping of the integer digits, replacing the grouping
+	 *            defined by {@code format}, may be {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the format or grouper is not supported.
+	 */
+	public DecimalPrinter(DecimalFormat format, StringGrouper grouper) {
+		if (!isSupported(format)) {
+			throw new IllegalArgumentException("Unsupported format: "
+					+ (format == null ? null : format.toPattern()));
+		}
+		if (grouper != null && grouper.isReverse()) {
+			throw new IllegalArgumentException(
+					"Reverse grouping is not supported.");
+		}
+		DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+		this.positivePrefix = format.getPositivePrefix();
+		this.positiveSuffix = format.getPositiveSuffix();
+		this.negativePrefix = format.getNegativePrefix();
+		this.negativeSuffix = format.getNegativeSuffix();
+		this.zeroDigit = symbols.getZeroDigit();
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.decimalSeparatorAlwaysShown = format
+				.isDecimalSeparatorAlwaysShown();
+		this.minimumIntegerDigits = format.getMinimumIntegerDigits();
+		this.minimumFractionDigits = format.getMinimumFractionDigits();
+		this.maximumFractionDigits = format.getMaximumFractionDigits();
+		this.roundingMode = format.getRoundingMode();
+		if (grouper != null) {
+			this.groupSizes = grouper.getGroupSizes();
+			this.groupChars = grouper.getGroupChars();
+		} else if (format.isGroupingUsed() && format.getGroupingSize() > 0) {
+			this.groupSizes = new int[] { format.getGroupingSize() };
+			this.groupChars = new char[] { symbols.getGroupingSeparator() };
+		} else {
+			this.groupSizes = NO_GROUPS;
+			this.groupChars = new char[0];
+		}
+		for (int size : this.groupSizes) {
+			if (size <= 0) {
+				throw new IllegalArgumentException("Invalid group size: "
+						+ size);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates if the given format can be handled by a {@link DecimalPrinter}
+	 * .
+	 * 
+	 * @param format
+	 *            the format, may be {@code null}.
+	 * @return {@code true}, if the format is supported.
+	 */
+	public static boolean isSupported(DecimalFormat format) {
+		if (format == null) {
+			return false;
+		}
+		return format.getMultiplier() == 1
+				&& format.getMaximumIntegerDigits() >= DOUBLE_INTEGER_DIGITS
+				&& format.toPattern().indexOf('E') < 0;
+	}
+
+	/**
+	 * Evaluates if a number can be printed. Supported are {@link BigDecimal},
+	 * {@link BigInteger}, the integral primitive wrappers and finite
+	 * {@link Double} and {@link Float} values.
+	 * 
+	 * @param number
+	 *            the number, may be {@code null}.
+	 * @return {@code true}, if the number can be printed.
+	 */
+	public static boolean canPrint(Number number) {
+		if (number instanceof Double || number instanceof Float) {
+			double value = number.doubleValue();
+			return !Double.isNaN(value) && !Double.isInfinite(value);
+		}
+		return number instanceof BigDecimal || number instanceof Long
+				|| number instanceof Integer || number instanceof Short
+				|| number instanceof Byte || number instanceof BigInteger
+				|| number instanceof AtomicLong
+				|| number instanceof AtomicInteger;
+	}
+
+	/**
+	 * Prints a number to an {@link Appendable}.
+	 * 
+	 * @param appendable
+	 *            the target, not {@code null}.
+	 * @param number
+	 *            the number, for which {@link #canPrint(Number)} is
+	 *            {@code true}.
+	 * @throws IOException
+	 *             if the target throws an {@link IOException}.
+	 */
+	public void print(Appendable appendable, Number number) throws IOException {
+		if (number instanceof BigDecimal) {
+			print(appendable, (BigDecimal) number);
+		} else if (number instanceof Double || number instanceof Float) {
+			double value = number.doubleValue();
+			// negative zero is printed with sign, as DecimalFormat does.
+			print(appendable, value < 0 || 1 / value < 0, toBigDecimal(value));
+		} else if (number instanceof BigInteger) {
+			print(appendable, new BigDecimal((BigInteger) number));
+		} else if (canPrint(number)) {
+			long value = number.longValue();
+			if (value == Long.MIN_VALUE) {
+				print(appendable, BigDecimal.valueOf(value));
+			} else {
+				print(appendable, value < 0, Math.abs(value), null, 0);
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported number: "
+					+ number);
+		}
+	}
+
+	/**
+	 * Prints a {@link BigDecimal} to an {@link Appendable}.
+	 * 
+	 * @param appendable
+	 *            the target, not {@code null}.
+	 * @param number
+	 *            the number, not {@code null}.
+	 * @throws IOException
+	 *             if the target throws an {@link IOException}.
+	 */
+	public void print(Appendable appendable, BigDecimal number)
+			throws IOException {
+		print(appendable, number.signum() < 0, number);
+	}
+
+	/**
+	 * Prints a number with the given sign, negative numbers that are rounded
+	 * to zero keep their sign, as with {@link DecimalFormat}.
+	 */
+	private void print(Appendable appendable, boolean negative,
+			BigDecimal number) throws IOException {
+		if (number.scale() > maximumFractionDigits) {
+			number = number.setScale(maximumFractionDigits, roundingMode);
+		} else if (number.scale() < 0) {
+			number = number.setScale(0);
+		}
+		if (number.precision() <= MAX_LONG_DIGITS) {
+			print(appendable, negative, Math.abs(number.unscaledValue()
+					.longValue()), null, number.scale());
+		} else {
+			print(appendable, negative, 0L, number.unscaledValue().abs()
+					.toString(), number.scale());
+		}
+	}
+
+	/**
+	 * Converts a double the same way {@link DecimalFormat} does: the shortest
+	 * decimal representation is used, unless rounding is required, where the
+	 * exact binary value is rounded.
+	 */
+	private BigDecimal toBigDecimal(double value) {
+		BigDecimal shortest = BigDecimal.valueOf(value);
+		if (shortest.scale() <= maximumFractionDigits) {
+			return shortest;
+		}
+		return new BigDecimal(value).setScale(maximumFractionDigits,
+				roundingMode);
+	}
+
+	private void print(Appendable appendable, boolean negative,
+			long unscaled, String bigDigits, int scale) throws IOException {
+		char[] buf = BUFFER.get();
+		int digitCount = bigDigits == null ? countDigits(unscaled)
+				: bigDigits.length();
+		int required = digitCount + Math.max(scale, minimumFractionDigits)
+				+ 2 * Math.max(digitCount, minimumIntegerDigits) + 2;
+		if (buf.length < required) {
+			buf = new char[required];
+			if (required <= MAX_CACHED_BUFFER) {
+				BUFFER.set(buf);
+			}
+		}
+		// digits are placed at the start of the buffer, the output is built
+		// backwards from its end.
+		if (bigDigits == null) {
+			long value = unscaled;
+			for (int i = digitCount - 1; i >= 0; i--) {
+				buf[i] = (char) ('0' + (int) (value % 10));
+				value /= 10;
+			}
+		} else {
+			bigDigits.getChars(0, digitCount, buf, 0);
+		}
+		if (digitCount == 1 && buf[0] == '0') {
+			digitCount = 0;
+		}
+		int fractionDigits = scale;
+		while (fractionDigits > minimumFractionDigits
+				&& (digitCount == 0 || buf[digitCount - 1] == '0')) {
+			if (digitCount > 0) {
+				digitCount--;
+			}
+			fractionDigits--;
+		}
+		int pos = buf.length;
+		for (int i = fractionDigits; i < minimumFractionDigits; i++) {
+			buf[--pos] = zeroDigit;
+		}
+		int index = digitCount;
+		for (int i = 0; i < fractionDigits; i++) {
+			char digit = --index >= 0 ? buf[index] : '0';
+			buf[--pos] = (char) (zeroDigit + (digit - '0'));
+		}
+		boolean fraction = pos < buf.length;
+		if (fraction || decimalSeparatorAlwaysShown) {
+			buf[--pos] = decimalSeparator;
+		}
+		int integerDigits = 0;
+		int sizeIndex = 0;
+		int charIndex = 0;
+		int inGroup = 0;
+		while (index > 0 || integerDigits < minimumIntegerDigits) {
+			if (groupSizes.length > 0 && inGroup == groupSizes[sizeIndex]) {
+				buf[--pos] = groupChars.length == 0 ? ' '
+						: groupChars[charIndex];
+				if (charIndex < groupChars.length - 1) {
+					charIndex++;
+				}
+				if (sizeIndex < groupSizes.length - 1) {
+					sizeIndex++;
+				}
+				inGroup = 0;
+			}
+			char digit = --index >= 0 ? buf[index] : '0';
+			buf[--pos] = (char) (zeroDigit + (digit - '0'));
+			integerDigits++;
+			inGroup++;
+		}
+		if (integerDigits == 0 && !fraction) {
+			buf[--pos] = zeroDigit;
+		}
+		if (negative) {
+			appendable.append(negativePrefix);
+			append(appendable, buf, pos);
+			appendable.append(negativeSuffix);
+		} else {
+			appendable.append(positivePrefix);
+			append(appendable, buf, pos);
+			appendable.append(positiveSuffix);
+		}
+	}
+
+	private static void append(Appendable appendable, char[] buf, int pos)
+			throws IOException {
+		if (appendable instanceof StringBuilder) {
+			((StringBuilder) appendable).append(buf, pos, buf.length - pos);
+		} else if (appendable instanceof CharBuffer) {
+			((CharBuffer) appendable).put(buf, pos, buf.length - pos);
+		} else {
+			for (int i = pos; i < buf.length; i++) {
+				appendable.append(buf[i]);
+			}
+		}
+	}
+
+	private static int countDigits(long value) {
+		int count = 1;
+		while (value >= 10) {
+			value /= 10;
+			count++;
+		}
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DecimalPrinter [positivePrefix=" + positivePrefix
+				+ ", negativePrefix=" + negativePrefix
+				+ ", minimumIntegerDigits=" + minimumIntegerDigits
+				+ ", minimumFractionDigits=" + minimumFractionDigits
+				+ ", maximumFractionDigits=" + maximumFractionDigits
+				+ ", roundingMode=" + roundingMode + "]";
+	}
+
+}
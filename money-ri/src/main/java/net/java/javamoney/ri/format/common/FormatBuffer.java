@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format.common;
+
+/**
+ * Thread local {@link StringBuilder} reused by the {@code format} methods of
+ * the tokenized formatters, so formatting an item to a {@link String} only
+ * allocates the result. Nested formatting on the same thread gets a new
+ * builder.
+ * 
+ * @author Anatole Tresch
+ */
+final class FormatBuffer {
+
+	/** Builders that have grown beyond this capacity are not kept. */
+	private static final int MAX_CAPACITY = 1024;
+
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>();
+
+	private FormatBuffer() {
+	}
+
+	/**
+	 * Access an empty builder, which must be passed to
+	 * {@link #release(StringBuilder)} after use.
+	 * 
+	 * @return an empty builder, never {@code null}.
+	 */
+	static StringBuilder acquire() {
+		StringBuilder builder = BUFFER.get();
+		if (builder == null) {
+			return new StringBuilder(64);
+		}
+		BUFFER.set(null);
+		return builder;
+	}
+
+	/**
+	 * Returns a builder obtained from {@link #acquire()}.
+	 * 
+	 * @param builder
+	 *            the builder, not {@code null}.
+	 */
+	static void release(StringBuilder builder) {
+		if (builder.capacity() <= MAX_CAPACITY) {
+			builder.setLength(0);
+			BUFFER.set(builder);
+		}
+	}
+
+}
@@ -21,7 +21,7 @@ package net.java.javamoney.ri.format.common;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.StringTokenizer;
+import java.util.NoSuchElementException;
 
 import javax.money.format.common.LocalizationStyle;
 import javax.money.format.common.ParseException;
@@ -59,7 +59,7 @@ public final class ParseContext {
 	}
 
 	public void setPosition(int position) {
-		if (position < 0 || position >= this.text.length()) {
+		if (position < 0 || position > this.text.length()) {
 			throw new IllegalArgumentException("Invalid position: " + position);
 		}
 		this.position = position;
@@ -81,15 +81,36 @@ public final class ParseContext {
 	}
 
 	public boolean consume(CharSequence expected) {
-		CharSequence next = lookup(expected.length());
-		if (next.length() != expected.length()) {
+		int length = expected.length();
+		if (position + length > text.length()) {
 			return false;
 		}
-		if (next.toString().equals(expected.toString())) {
-			position += expected.length();
-			return true;
+		for (int i = 0; i < length; i++) {
+			if (text.charAt(position + i) != expected.charAt(i)) {
+				return false;
+			}
 		}
-		return false;
+		position += length;
+		return true;
+	}
+
+	/**
+	 * Moves the position behind any whitespace characters.
+	 * 
+	 * @return the new position.
+	 */
+	public int skipWhitespaces() {
+		this.position = DecimalParser.skipWhitespaces(text, position);
+		return this.position;
+	}
+
+	/**
+	 * Evaluates if the whole text has been consumed.
+	 * 
+	 * @return {@code true}, if the position is at the end of the text.
+	 */
+	public boolean isComplete() {
+		return position >= text.length();
 	}
 
 	public int getErrorPosition() {
@@ -144,8 +165,18 @@ public final class ParseContext {
 	}
 
 	public String getNextToken(String separators) {
-		StringTokenizer tokenizer = new StringTokenizer(getCurrentText().toString(),
-				separators, false);
-		return tokenizer.nextToken();
+		int length = text.length();
+		int start = position;
+		while (start < length && separators.indexOf(text.charAt(start)) >= 0) {
+			start++;
+		}
+		if (start >= length) {
+			throw new NoSuchElementException();
+		}
+		int end = start + 1;
+		while (end < length && separators.indexOf(text.charAt(end)) < 0) {
+			end++;
+		}
+		return text.subSequence(start, end).toString();
 	}
 }
@@ -18,6 +18,8 @@
  */
 package net.java.javamoney.ri.format.common;
 
+import java.io.IOException;
+
 /**
  * Small utility class that supports flexible grouping of an input String using
  * different grouping characters and sizes.
@@ -80,98 +82,138 @@ public class StringGrouper {
 		return this.reverse;
 	}
 
+	/**
+	 * Groups the input.
+	 * 
+	 * @param input
+	 *            the input, not {@code null}.
+	 * @return the grouped input.
+	 */
 	public String group(String input) {
-		if (groupSizes.length == 0 || groupCharacters.length == 0) {
+		int separators = countSeparators(input.length());
+		if (separators <= 0) {
 			return input;
 		}
-		if (reverse) {
-			return formatInternalReverse(input);
+		StringBuilder result = new StringBuilder(input.length() + separators);
+		try {
+			appendGroups(input, 0, input.length(), separators, result);
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"StringBuilder failed to append.", e);
 		}
-		int groupIndex = 0;
-		int sizeIndex = 0;
-		char groupChar = groupCharacters[groupIndex];
-		int groupSize = groupSizes[sizeIndex];
-		if (groupSize <= 0) {
-			// Bad case
-			return input;
+		return result.toString();
+	}
+
+	/**
+	 * Appends the grouped input to an {@link Appendable}.
+	 * 
+	 * @param input
+	 *            the input, not {@code null}.
+	 * @param appendable
+	 *            the target, not {@code null}.
+	 * @throws IOException
+	 *             if the target throws an {@link IOException}.
+	 */
+	public void group(CharSequence input, Appendable appendable)
+			throws IOException {
+		group(input, 0, input.length(), appendable);
+	}
+
+	/**
+	 * Appends the grouped range of the input to an {@link Appendable}. The
+	 * layout of the groups is evaluated upfront, so the characters are
+	 * appended in a single pass, without intermediate buffers.
+	 * 
+	 * @param input
+	 *            the input, not {@code null}.
+	 * @param start
+	 *            the start index of the range, inclusive.
+	 * @param end
+	 *            the end index of the range, exclusive.
+	 * @param appendable
+	 *            the target, not {@code null}.
+	 * @throws IOException
+	 *             if the target throws an {@link IOException}.
+	 */
+	public void group(CharSequence input, int start, int end,
+			Appendable appendable) throws IOException {
+		int separators = countSeparators(end - start);
+		if (separators <= 0) {
+			appendable.append(input, start, end);
+			return;
+		}
+		appendGroups(input, start, end, separators, appendable);
+	}
+
+	/**
+	 * Evaluates the number of separators required for an input of the given
+	 * length.
+	 * 
+	 * @return the number of separators, or {@code -1}, if a group size
+	 *         {@code <= 0} is reached and the input is not grouped.
+	 */
+	private int countSeparators(int length) {
+		if (groupSizes.length == 0 || groupCharacters.length == 0) {
+			return 0;
 		}
-		char[] group = new char[groupSize];
-		int pos = input.length();
-		StringBuilder result = new StringBuilder(input.length() + 4);
-		while (pos > 0) {
-			if (groupSize == 0) {
-				// Bad case
-				return input;
+		int last = groupSizes.length - 1;
+		int remaining = length;
+		int separators = 0;
+		for (int i = 0; remaining > 0; i++) {
+			int size = groupSizes[Math.min(i, last)];
+			if (size <= 0) {
+				return -1;
 			}
-			int start = pos - groupSize;
-			if (!(result.length() == 0)) {
-				result.insert(0, groupChar);
-				// move characters/sizes forward if possible.
-				if (groupIndex < (groupCharacters.length - 1)) {
-					groupChar = groupCharacters[++groupIndex];
-				}
+			if (i >= last) {
+				// the last size repeats
+				return separators + (remaining - 1) / size;
 			}
-			if (start >= 0) {
-				input.getChars(start, pos, group, 0);
-				result.insert(0, group, 0, groupSize);
-				pos -= groupSize;
-				if (sizeIndex < (groupSizes.length - 1)) {
-					groupSize = groupSizes[++sizeIndex];
-					if (groupSize > group.length) {
-						group = new char[groupSize];
-					}
-				}
-			} else {
-				input.getChars(0, pos, group, 0);
-				result.insert(0, group, 0, pos);
+			if (remaining <= size) {
 				break;
 			}
+			remaining -= size;
+			separators++;
 		}
-		return result.toString();
+		return separators;
 	}
 
-	private String formatInternalReverse(String input) {
-		int groupIndex = 0;
-		int sizeIndex = 0;
-		char groupChar = groupCharacters[groupIndex];
-		int groupSize = groupSizes[sizeIndex];
-		if (groupSize <= 0) {
-			// Bad case
-			return input;
-		}
-		char[] group = new char[groupSize];
-		int pos = 0;
-		StringBuilder result = new StringBuilder(input.length() + 4);
-		while (pos < input.length()) {
-			if (groupSize == 0) {
-				// Bad case
-				return input;
-			}
-			int end = pos + groupSize;
-			if (!(result.length() == 0)) {
-				result.append(groupChar);
-				// move characters/sizes forward if possible.
-				if (groupIndex < (groupCharacters.length - 1)) {
-					groupChar = groupCharacters[++groupIndex];
-				}
-			}
-			if (end <= input.length()) {
-				input.getChars(pos, end, group, 0);
-				result.append(group, 0, groupSize);
-				pos += groupSize;
-				if (sizeIndex < (groupSizes.length - 1)) {
-					groupSize = groupSizes[++sizeIndex];
-					if (groupSize > group.length) {
-						group = new char[groupSize];
-					}
+	/**
+	 * Appends the groups from left to right. Group {@code k} and the separator
+	 * on its side towards the remaining input use the size and character with
+	 * index {@code k}, counted from the right, or from the left, if reverse.
+	 */
+	private void appendGroups(CharSequence input, int start, int end,
+			int separators, Appendable appendable) throws IOException {
+		int lastSize = groupSizes.length - 1;
+		int lastChar = groupCharacters.length - 1;
+		if (reverse) {
+			int pos = start;
+			for (int k = 0; k < separators; k++) {
+				if (k > 0) {
+					appendable.append(groupCharacters[Math.min(k - 1,
+							lastChar)]);
 				}
-			} else {
-				input.getChars(pos, input.length(), group, 0);
-				result.append(group, 0, input.length() - pos);
-				break;
+				int size = groupSizes[Math.min(k, lastSize)];
+				appendable.append(input, pos, pos + size);
+				pos += size;
 			}
+			appendable.append(groupCharacters[Math.min(separators - 1,
+					lastChar)]);
+			appendable.append(input, pos, end);
+			return;
+		}
+		int grouped = 0;
+		for (int k = 0; k < separators; k++) {
+			grouped += groupSizes[Math.min(k, lastSize)];
+		}
+		int pos = end - grouped;
+		appendable.append(input, start, pos);
+		for (int k = separators - 1; k >= 0; k--) {
+			appendable.append(groupCharacters[Math.min(k, lastChar)]);
+			int size = groupSizes[Math.min(k, lastSize)];
+			appendable.append(input, pos, pos + size);
+			pos += size;
 		}
-		return result.toString();
 	}
 
 }
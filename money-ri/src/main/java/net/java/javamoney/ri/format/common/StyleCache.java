@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.format.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.money.format.common.LocalizationStyle;
+
+/**
+ * Thread-safe cache of values compiled for a {@link LocalizationStyle}, e.g.
+ * the formatter programs of a token. Values are keyed by an immutable copy of
+ * the style, so later changes of a mutable style do not affect cached
+ * entries. Read-only styles are used as keys as they are; as their hash code
+ * is evaluated when they are made immutable, lookups with read-only styles
+ * do not lock. The number of entries is bounded, if the bound is reached
+ * the cache is cleared.
+ * 
+ * @author Anatole Tresch
+ * 
+ * @param <V>
+ *            the value type.
+ */
+public final class StyleCache<V> {
+
+	/** Default maximal number of styles cached. */
+	public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+	private final ConcurrentMap<LocalizationStyle, V> cache = new ConcurrentHashMap<LocalizationStyle, V>();
+	private final int maximumSize;
+
+	/**
+	 * Creates a new cache with {@link #DEFAULT_MAXIMUM_SIZE}.
+	 */
+	public StyleCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Creates a new cache.
+	 * 
+	 * @param maximumSize
+	 *            the maximal number of styles cached, greater than zero.
+	 */
+	public StyleCache(int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be > 0.");
+		}
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Access the value cached for the given style.
+	 * 
+	 * @param style
+	 *            the style, not {@code null}.
+	 * @return the value cached, or {@code null}.
+	 */
+	public V get(LocalizationStyle style) {
+		if (style == null) {
+			throw new IllegalArgumentException("style may not be null.");
+		}
+		return this.cache.get(style);
+	}
+
+	/**
+	 * Caches a value for the given style. If another thread cached a value for
+	 * an equal style in the meantime, that value is kept and returned.
+	 * 
+	 * @param style
+	 *            the style, not {@code null}.
+	 * @param value
+	 *            the value, not {@code null}.
+	 * @return the value cached for the style, never {@code null}.
+	 */
+	public V put(LocalizationStyle style, V value) {
+		if (style == null) {
+			throw new IllegalArgumentException("style may not be null.");
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("value may not be null.");
+		}
+		if (this.cache.size() >= maximumSize) {
+			this.cache.clear();
+		}
+		V existing = this.cache.putIfAbsent(snapshot(style), value);
+		if (existing != null) {
+			return existing;
+		}
+		return value;
+	}
+
+	/**
+	 * Removes all entries, e.g. when the configuration the values were
+	 * compiled from has changed.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Access the number of styles cached.
+	 * 
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	private static LocalizationStyle snapshot(LocalizationStyle style) {
+		if (style.isReadOnly()) {
+			return style;
+		}
+		LocalizationStyle copy = new LocalizationStyle(style);
+		copy.setImmutable();
+		return copy;
+	}
+
+}
@@ -62,12 +62,14 @@ public class StyledFormatterAdapter<T> extends AbstractTargeted<T> implements
 
 	@Override
 	public String format(T item) {
-		StringBuilder builder = new StringBuilder();
+		StringBuilder builder = FormatBuffer.acquire();
 		try {
 			print(builder, item);
 			return builder.toString();
 		} catch (IOException e) {
 			throw new IllegalStateException("Error during formatting.", e);
+		} finally {
+			FormatBuffer.release(builder);
 		}
 
 	}
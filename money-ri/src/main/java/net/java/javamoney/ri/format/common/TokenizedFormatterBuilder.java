@@ -78,10 +78,26 @@ public class TokenizedFormatterBuilder<T> extends AbstractTargeted<T> implements
 				tokens.toArray(new FormatterToken[tokens.size()]));
 	}
 
+	/**
+	 * Creates a formatter for the given style. The tokens are compiled for
+	 * the style, see {@link CompiledItemFormatter}, so later changes to the
+	 * tokens are not reflected by the formatter returned.
+	 * 
+	 * @param style
+	 *            the style, not {@code null}. The style is made immutable.
+	 * @return the new formatter.
+	 */
+	@SuppressWarnings("unchecked")
 	@Override
 	public StyledFormatter<T> toFormatter(LocalizationStyle style) {
+		if (style == null) {
+			throw new IllegalArgumentException(
+					"LocalizationStyle must not be null.");
+		}
 		return new StyledFormatterAdapter<>(getTargetClass(),
-				toStyleableFormatter(), style);
+				new CompiledItemFormatter<>(getTargetClass(),
+						tokens.toArray(new FormatterToken[tokens.size()]),
+						style), style);
 	}
 
 }
@@ -55,13 +55,15 @@ public class TokenizedItemFormatter<T> extends AbstractTargeted<T> implements
 
 	@Override
 	public String format(T item, LocalizationStyle style) throws FormatException {
-		StringBuilder builder = new StringBuilder();
+		StringBuilder builder = FormatBuffer.acquire();
 		try {
 			print(builder, item, style);
+			return builder.toString();
 		} catch (IOException e) {
 			throw new FormatException("Error foratting of " + item, e);
+		} finally {
+			FormatBuffer.release(builder);
 		}
-		return builder.toString();
 	}
 
 }
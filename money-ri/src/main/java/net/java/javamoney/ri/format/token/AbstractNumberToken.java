@@ -0,0 +1,224 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation
+ */
+package net.java.javamoney.ri.format.token;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+
+import javax.money.format.common.LocalizationStyle;
+import javax.money.format.common.ParseException;
+
+import net.java.javamoney.ri.format.common.AbstractToken;
+import net.java.javamoney.ri.format.common.CompiledNumberFormat;
+import net.java.javamoney.ri.format.common.FormatterToken;
+import net.java.javamoney.ri.format.common.ParseContext;
+import net.java.javamoney.ri.format.common.StringGrouper;
+import net.java.javamoney.ri.format.common.StyleCache;
+
+/**
+ * Base class of the tokens printing the numeric value of an item with a
+ * {@link DecimalFormat}, see {@link FormattedNumber} and
+ * {@link FormattedAmount}. The formats used are compiled once per
+ * {@link LocalizationStyle} into an immutable {@link CompiledNumberFormat}.
+ * <p>
+ * Subclasses changing {@link #format} or {@link #numberGroup} must clear the
+ * programs {@link #compiled}.
+ * 
+ * @author Anatole Tresch
+ * 
+ * @param <T>
+ *            The item type.
+ */
+abstract class AbstractNumberToken<T> extends AbstractToken<T> {
+
+	private static final char[] EMPTY_CHAR_ARRAY = new char[0];
+	private static final int[] EMPTY_INT_ARRAY = new int[0];
+	DecimalFormat format;
+	StringGrouper numberGroup;
+	final StyleCache<CompiledNumberFormat> compiled = new StyleCache<CompiledNumberFormat>();
+
+	// private StringGrouper fractionGroup;
+
+	AbstractNumberToken() {
+	}
+
+	AbstractNumberToken(DecimalFormat format) {
+		if (format == null) {
+			throw new IllegalArgumentException("Format is required.");
+		}
+		this.format = (DecimalFormat) format.clone();
+	}
+
+	/**
+	 * Evaluates the number to be printed for the given item.
+	 * 
+	 * @param item
+	 *            the item, not {@code null}.
+	 * @return the number, never {@code null}.
+	 */
+	protected abstract Number getNumber(T item);
+
+	public char[] getNumberGroupChars() {
+		if (this.numberGroup == null) {
+			return EMPTY_CHAR_ARRAY;
+		}
+		return this.numberGroup.getGroupChars();
+	}
+
+	public int[] getNumberGroupSizes() {
+		if (this.numberGroup == null) {
+			return EMPTY_INT_ARRAY;
+		}
+		return this.numberGroup.getGroupSizes();
+	}
+
+	public DecimalFormat getDecimalFormat() {
+		return this.format;
+	}
+
+	public DecimalFormatSymbols getSymbols() {
+		if (this.format != null) {
+			return this.format.getDecimalFormatSymbols();
+		}
+		return null;
+	}
+
+	/**
+	 * Evaluates the {@link DecimalFormat} to be used for the given style. The
+	 * instance returned is not shared and may be changed by the caller.
+	 * 
+	 * @param style
+	 *            the style, not {@code null}.
+	 * @return a new {@link DecimalFormat} instance.
+	 */
+	protected DecimalFormat getNumberFormat(LocalizationStyle style) {
+		DecimalFormat formatUsed;
+		if (this.format == null) {
+			formatUsed = (DecimalFormat) DecimalFormat.getInstance(style
+					.getNumberLocale());
+		} else {
+			formatUsed = (DecimalFormat) this.format.clone();
+		}
+		if (this.numberGroup != null) { // this.fractionGroup!=null ||
+			formatUsed.setGroupingUsed(false);
+		}
+		return formatUsed;
+	}
+
+	/**
+	 * Access the formatter program compiled for the given style. Programs are
+	 * compiled once per style and shared by all threads.
+	 * <p>
+	 * Note that programs reflect the settings of this token at the time of
+	 * compilation. If the {@link DecimalFormat} returned by
+	 * {@link #getDecimalFormat()} is changed afterwards, it must be set again.
+	 * 
+	 * @param style
+	 *            the style, not {@code null}.
+	 * @return the compiled program, never {@code null}.
+	 */
+	protected CompiledNumberFormat getCompiledFormat(LocalizationStyle style) {
+		CompiledNumberFormat result = this.compiled.get(style);
+		if (result == null) {
+			DecimalFormat formatUsed = getNumberFormat(style);
+			DecimalFormat parseFormat = (DecimalFormat) formatUsed.clone();
+			parseFormat.setGroupingUsed("true".equals(style
+					.getAttribute("enforceGrouping")));
+			result = this.compiled.put(style, new CompiledNumberFormat(
+					formatUsed, parseFormat, this.numberGroup));
+		}
+		return result;
+	}
+
+	@Override
+	protected String getToken(T item, LocalizationStyle style) {
+		return getCompiledFormat(style).format(getNumber(item));
+	}
+
+	/**
+	 * Prints the number directly to the {@link Appendable} using the program
+	 * compiled for {@code style}, see
+	 * {@link CompiledNumberFormat#print(Appendable, Number)}.
+	 */
+	@Override
+	protected void printToken(Appendable appendable, T item,
+			LocalizationStyle style) throws IOException {
+		getCompiledFormat(style).print(appendable, getNumber(item));
+	}
+
+	/**
+	 * Binds the program compiled for {@code style}, if no decorator is set.
+	 */
+	@Override
+	protected FormatterToken<T> compile(LocalizationStyle style) {
+		if (getFormatDecorator() != null) {
+			return this;
+		}
+		return new CompiledToken<T>(this, getCompiledFormat(style));
+	}
+
+	@Override
+	public void parse(ParseContext context) throws ParseException {
+		CompiledNumberFormat df = getCompiledFormat(context
+				.getLocalizationStyle());
+		context.skipWhitespaces();
+		ParsePosition position = new ParsePosition(context.getPosition());
+		Number num = df.parse(context.getText(), position);
+		if (num == null) {
+			throw new ParseException("Failed to parse number.", context
+					.getText().toString(), position.getErrorIndex());
+		}
+		context.setAttribute(Number.class, num);
+		context.setPosition(position.getIndex());
+	}
+
+	/**
+	 * Token printing with a program compiled for a fixed style, parsing is
+	 * delegated to the token compiled.
+	 */
+	private static final class CompiledToken<T> extends AbstractToken<T> {
+		private final AbstractNumberToken<T> source;
+		private final CompiledNumberFormat format;
+
+		CompiledToken(AbstractNumberToken<T> source,
+				CompiledNumberFormat format) {
+			this.source = source;
+			this.format = format;
+		}
+
+		@Override
+		protected String getToken(T item, LocalizationStyle style) {
+			return format.format(source.getNumber(source.adjustValue(item)));
+		}
+
+		@Override
+		protected void printToken(Appendable appendable, T item,
+				LocalizationStyle style) throws IOException {
+			format.print(appendable, source.getNumber(source.adjustValue(item)));
+		}
+
+		@Override
+		public void parse(ParseContext context) throws ParseException {
+			source.parse(context);
+		}
+	}
+
+}
@@ -18,19 +18,31 @@
  */
 package net.java.javamoney.ri.format.token;
 
+import java.io.IOException;
+import java.text.ParsePosition;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Currency;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.money.CurrencyUnit;
+import javax.money.LocalizableCurrencyUnit;
 import javax.money.MonetaryAmount;
 import javax.money.format.CurrencyFormatter;
 import javax.money.format.common.LocalizationStyle;
 import javax.money.format.common.ParseException;
+import javax.money.provider.CurrencyUnitProvider;
 import javax.money.provider.Monetary;
 
+import net.java.javamoney.ri.core.provider.CurrencyUnitProviderImpl;
 import net.java.javamoney.ri.format.common.AbstractToken;
+import net.java.javamoney.ri.format.common.CurrencyTrie;
 import net.java.javamoney.ri.format.common.FormatterToken;
 import net.java.javamoney.ri.format.common.ParseContext;
+import net.java.javamoney.ri.format.common.StyleCache;
 
 /**
  * {@link FormatterToken} that adds a localizable {@link String}, read by key from
@@ -48,6 +60,26 @@ public class CurrencyToken<T extends MonetaryAmount> extends
 		NAMESPACE, FULLCODE, CODE, NAME, NUMERIC_CODE, SYMBOL
 	}
 
+	/**
+	 * Tries matching codes, full codes, symbols and display names, by style.
+	 */
+	private static final StyleCache<CurrencyTrie> TRIES = new StyleCache<CurrencyTrie>();
+	/** Tries matching numeric codes, by style. */
+	private static final StyleCache<CurrencyTrie> NUMERIC_TRIES = new StyleCache<CurrencyTrie>();
+	/** The provider reload count, the tries cached were built for. */
+	private static volatile long triesReloadCount = -1;
+	/** Orders currencies by namespace and code. */
+	private static final Comparator<CurrencyUnit> CURRENCY_ORDER = new Comparator<CurrencyUnit>() {
+		@Override
+		public int compare(CurrencyUnit o1, CurrencyUnit o2) {
+			int result = o1.getNamespace().compareTo(o2.getNamespace());
+			if (result == 0) {
+				result = o1.getCurrencyCode().compareTo(o2.getCurrencyCode());
+			}
+			return result;
+		}
+	};
+
 	private DisplayType displayType = DisplayType.CODE;
 	private LocalizationStyle style;
 
@@ -92,7 +124,7 @@ public class CurrencyToken<T extends MonetaryAmount> extends
 		case NAMESPACE:
 			return unit.getNamespace();
 		case NUMERIC_CODE:
-			return String.valueOf(unit.getNumericCode());
+			return formatNumericCode(unit.getNumericCode());
 		case NAME:
 			CurrencyFormatter cf1 = Monetary.getCurrencyFormatterFactory()
 					.getCurrencyFormatter(styleUsed);
@@ -107,9 +139,259 @@ public class CurrencyToken<T extends MonetaryAmount> extends
 		}
 	}
 
+	@Override
+	protected void printToken(Appendable appendable, T item,
+			LocalizationStyle style) throws IOException {
+		switch (displayType) {
+		case CODE:
+			appendable.append(item.getCurrency().getCurrencyCode());
+			break;
+		case NAMESPACE:
+			appendable.append(item.getCurrency().getNamespace());
+			break;
+		case FULLCODE:
+			CurrencyUnit unit = item.getCurrency();
+			appendable.append(unit.getNamespace()).append(':')
+					.append(unit.getCurrencyCode());
+			break;
+		default:
+			super.printToken(appendable, item, style);
+		}
+	}
+
+	/**
+	 * Binds the {@link CurrencyFormatter} of the style used, if symbols or
+	 * display names are printed and no decorator is set. The formatter is
+	 * looked up on first use, the text printed is cached per currency.
+	 */
+	@Override
+	protected FormatterToken<T> compile(LocalizationStyle style) {
+		if (getFormatDecorator() != null
+				|| (displayType != DisplayType.SYMBOL && displayType != DisplayType.NAME)) {
+			return this;
+		}
+		LocalizationStyle styleUsed = this.style;
+		if (styleUsed == null) {
+			styleUsed = style;
+		}
+		return new CompiledToken<T>(this, styleUsed,
+				displayType == DisplayType.SYMBOL);
+	}
+
+	/**
+	 * Formats a numeric currency code with three digits, padded with zeros,
+	 * as defined by ISO 4217.
+	 */
+	private static String formatNumericCode(int code) {
+		if (code < 0 || code >= 100) {
+			return String.valueOf(code);
+		}
+		if (code >= 10) {
+			return "0" + code;
+		}
+		return "00" + code;
+	}
+
+	/**
+	 * Parses the longest currency code, full code, symbol or display name at
+	 * the current position, or the three digit numeric code for
+	 * {@link DisplayType#NUMERIC_CODE}, which must not be followed by another
+	 * digit. The currency parsed is stored as attribute with the key
+	 * {@code CurrencyUnit.class}.
+	 */
 	@Override
 	public void parse(ParseContext context) throws ParseException {
-		// TODO Auto-generated method stub
-		
-	};
+		LocalizationStyle styleUsed = this.style;
+		if (styleUsed == null) {
+			styleUsed = context.getLocalizationStyle();
+		}
+		CurrencyTrie trie = getTrie(styleUsed,
+				displayType == DisplayType.NUMERIC_CODE);
+		context.skipWhitespaces();
+		ParsePosition position = new ParsePosition(context.getPosition());
+		CurrencyUnit unit = trie.match(context.getText(), position);
+		if (unit != null && displayType == DisplayType.NUMERIC_CODE
+				&& position.getIndex() < context.getText().length()
+				&& Character.isDigit(context.getText().charAt(
+						position.getIndex()))) {
+			// part of a longer number
+			unit = null;
+			position.setErrorIndex(context.getPosition());
+		}
+		if (unit == null) {
+			if (!isOptional()) {
+				throw new ParseException("Currency expected.", context
+						.getText().toString(), position.getErrorIndex());
+			}
+			return;
+		}
+		context.setAttribute(CurrencyUnit.class, unit);
+		context.setPosition(position.getIndex());
+	}
+
+	/**
+	 * Access the trie for the given style, building it on first access. All
+	 * tries are discarded, when the {@link CurrencyUnitProvider} is reloaded.
+	 */
+	private static CurrencyTrie getTrie(LocalizationStyle style,
+			boolean numeric) {
+		CurrencyUnitProvider provider = Monetary.getCurrencyUnitProvider();
+		long reloadCount = 0;
+		if (provider instanceof CurrencyUnitProviderImpl) {
+			reloadCount = ((CurrencyUnitProviderImpl) provider)
+					.getReloadCount();
+		}
+		if (reloadCount != triesReloadCount) {
+			TRIES.clear();
+			NUMERIC_TRIES.clear();
+			triesReloadCount = reloadCount;
+		}
+		StyleCache<CurrencyTrie> cache = numeric ? NUMERIC_TRIES : TRIES;
+		CurrencyTrie trie = cache.get(style);
+		if (trie == null) {
+			trie = cache.put(style, buildTrie(provider, style, numeric));
+		}
+		return trie;
+	}
+
+	/**
+	 * Builds a trie from all currencies available. On conflicts codes take
+	 * precedence over symbols and symbols over display names; the symbol of
+	 * the currency of the style's number locale is preferred.
+	 */
+	private static CurrencyTrie buildTrie(CurrencyUnitProvider provider,
+			LocalizationStyle style, boolean numeric) {
+		CurrencyUnit[] units = provider.getAll();
+		Arrays.sort(units, CURRENCY_ORDER);
+		CurrencyTrie.Builder builder = new CurrencyTrie.Builder();
+		if (numeric) {
+			for (CurrencyUnit unit : units) {
+				if (unit.getNumericCode() >= 0) {
+					builder.add(formatNumericCode(unit.getNumericCode()), unit);
+				}
+			}
+			return builder.build();
+		}
+		for (CurrencyUnit unit : units) {
+			builder.add(unit.getCurrencyCode(), unit);
+			builder.add(unit.getNamespace() + ':' + unit.getCurrencyCode(),
+					unit);
+		}
+		Locale numberLocale = style.getNumberLocale();
+		Currency local = getLocalCurrency(numberLocale);
+		if (local != null) {
+			for (CurrencyUnit unit : units) {
+				if (CurrencyUnit.ISO_NAMESPACE.equals(unit.getNamespace())
+						&& local.getCurrencyCode().equals(
+								unit.getCurrencyCode())) {
+					builder.add(getSymbol(unit, numberLocale), unit);
+					break;
+				}
+			}
+		}
+		for (CurrencyUnit unit : units) {
+			builder.add(getSymbol(unit, numberLocale), unit);
+		}
+		Locale translationLocale = style.getTranslationLocale();
+		for (CurrencyUnit unit : units) {
+			builder.add(getDisplayName(unit, translationLocale), unit);
+		}
+		return builder.build();
+	}
+
+	private static String getSymbol(CurrencyUnit unit, Locale locale) {
+		if (locale == null) {
+			return null;
+		}
+		if (unit instanceof LocalizableCurrencyUnit) {
+			return ((LocalizableCurrencyUnit) unit).getSymbol(locale);
+		}
+		Currency currency = getJdkCurrency(unit);
+		return currency == null ? null : currency.getSymbol(locale);
+	}
+
+	private static String getDisplayName(CurrencyUnit unit, Locale locale) {
+		if (locale == null) {
+			return null;
+		}
+		if (unit instanceof LocalizableCurrencyUnit) {
+			return ((LocalizableCurrencyUnit) unit).getDisplayName(locale);
+		}
+		Currency currency = getJdkCurrency(unit);
+		return currency == null ? null : currency.getDisplayName(locale);
+	}
+
+	private static Currency getLocalCurrency(Locale locale) {
+		if (locale == null || locale.getCountry().length() != 2) {
+			return null;
+		}
+		try {
+			return Currency.getInstance(locale);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Token printing currency symbols or display names using a
+	 * {@link CurrencyFormatter} resolved once, parsing is delegated to the
+	 * token compiled.
+	 */
+	private static final class CompiledToken<T extends MonetaryAmount>
+			extends AbstractToken<T> {
+		/** Maximal number of currencies cached, the cache is cleared beyond. */
+		private static final int MAX_CACHED_TEXTS = 512;
+		private final CurrencyToken<T> source;
+		private final LocalizationStyle style;
+		private final boolean symbol;
+		private volatile CurrencyFormatter formatter;
+		/** The texts printed, by currency. */
+		private final ConcurrentMap<CurrencyUnit, String> texts = new ConcurrentHashMap<CurrencyUnit, String>();
+
+		CompiledToken(CurrencyToken<T> source, LocalizationStyle style,
+				boolean symbol) {
+			this.source = source;
+			this.style = style;
+			this.symbol = symbol;
+		}
+
+		@Override
+		protected String getToken(T item, LocalizationStyle targetStyle) {
+			CurrencyUnit unit = source.adjustValue(item).getCurrency();
+			String text = this.texts.get(unit);
+			if (text != null) {
+				return text;
+			}
+			CurrencyFormatter cf = this.formatter;
+			if (cf == null) {
+				cf = Monetary.getCurrencyFormatterFactory()
+						.getCurrencyFormatter(style);
+				this.formatter = cf;
+			}
+			text = symbol ? cf.formatSymbol(unit) : cf.formatDisplayName(unit);
+			if (text != null) {
+				if (this.texts.size() >= MAX_CACHED_TEXTS) {
+					this.texts.clear();
+				}
+				this.texts.put(unit, text);
+			}
+			return text;
+		}
+
+		@Override
+		public void parse(ParseContext context) throws ParseException {
+			source.parse(context);
+		}
+	}
+
+	private static Currency getJdkCurrency(CurrencyUnit unit) {
+		if (!CurrencyUnit.ISO_NAMESPACE.equals(unit.getNamespace())) {
+			return null;
+		}
+		try {
+			return Currency.getInstance(unit.getCurrencyCode());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
 }
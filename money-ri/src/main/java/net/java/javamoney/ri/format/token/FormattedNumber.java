@@ -22,39 +22,32 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 
 import javax.money.format.common.LocalizationStyle;
-import javax.money.format.common.ParseException;
 
-import net.java.javamoney.ri.format.common.AbstractToken;
+import net.java.javamoney.ri.format.common.CompiledNumberFormat;
 import net.java.javamoney.ri.format.common.FormatDecorator;
 import net.java.javamoney.ri.format.common.FormatterToken;
-import net.java.javamoney.ri.format.common.ParseContext;
 import net.java.javamoney.ri.format.common.StringGrouper;
 
 /**
  * {@link FormatterToken} which allows to format a {@link Number} type.
+ * <p>
+ * The formats used are compiled once per {@link LocalizationStyle} into an
+ * immutable {@link CompiledNumberFormat}, so a configured instance can be
+ * shared by several threads.
  * 
  * @author Anatole Tresch
  * 
  * @param <T>
  *            The item type.
  */
-public class FormattedNumber<T extends Number> extends AbstractToken<T> {
-
-	private static final char[] EMPTY_CHAR_ARRAY = new char[0];
-	private static final int[] EMPTY_INT_ARRAY = new int[0];
-	private DecimalFormat format;
-	private StringGrouper numberGroup;
-
-	// private StringGrouper fractionGroup;
+public class FormattedNumber<T extends Number> extends
+		AbstractNumberToken<T> {
 
 	public FormattedNumber() {
 	}
 
 	public FormattedNumber(DecimalFormat format) {
-		if (format == null) {
-			throw new IllegalArgumentException("Format is required.");
-		}
-		this.format = (DecimalFormat) format.clone();
+		super(format);
 	}
 
 	public FormattedNumber<T> setNumberGroupSizes(int... groupSizes) {
@@ -62,6 +55,7 @@ public class FormattedNumber<T extends Number> extends AbstractToken<T> {
 			this.numberGroup = new StringGrouper();
 		}
 		this.numberGroup.setGroupSizes(groupSizes);
+		this.compiled.clear();
 		return this;
 	}
 
@@ -70,34 +64,23 @@ public class FormattedNumber<T extends Number> extends AbstractToken<T> {
 			this.numberGroup = new StringGrouper();
 		}
 		this.numberGroup.setGroupChars(groupChars);
+		this.compiled.clear();
 		return this;
 	}
 
-	public char[] getNumberGroupChars() {
-		if (this.numberGroup == null) {
-			return EMPTY_CHAR_ARRAY;
-		}
-		return this.numberGroup.getGroupChars();
-	}
-
-	public int[] getNumberGroupSizes() {
-		if (this.numberGroup == null) {
-			return EMPTY_INT_ARRAY;
-		}
-		return this.numberGroup.getGroupSizes();
-	}
-
 	public FormattedNumber<T> setPattern(String pattern) {
 		if (this.format == null) {
 			this.format = new DecimalFormat(pattern);
 		} else {
 			this.format.applyPattern(pattern);
 		}
+		this.compiled.clear();
 		return this;
 	}
 
 	public FormattedNumber<T> setDecimalFormat(DecimalFormat format) {
 		this.format = format;
+		this.compiled.clear();
 		return this;
 	}
 
@@ -115,17 +98,6 @@ public class FormattedNumber<T extends Number> extends AbstractToken<T> {
 		return this;
 	}
 
-	public DecimalFormat getDecimalFormat() {
-		return this.format;
-	}
-
-	public DecimalFormatSymbols getSymbols() {
-		if (this.format != null) {
-			return this.format.getDecimalFormatSymbols();
-		}
-		return null;
-	}
-
 	public FormattedNumber<T> setSymbols(DecimalFormatSymbols symbols) {
 		if (this.format == null) {
 			this.format = (DecimalFormat) DecimalFormat.getInstance();
@@ -133,61 +105,13 @@ public class FormattedNumber<T extends Number> extends AbstractToken<T> {
 		} else {
 			this.format.setDecimalFormatSymbols(symbols);
 		}
+		this.compiled.clear();
 		return this;
 	}
 
-	protected DecimalFormat getNumberFormat(LocalizationStyle style) {
-		DecimalFormat formatUsed = this.format;
-		if (formatUsed == null) {
-			formatUsed = (DecimalFormat) DecimalFormat.getInstance(style
-					.getNumberLocale());
-		}
-		if (this.numberGroup != null) { // this.fractionGroup!=null ||
-			formatUsed.setGroupingUsed(false);
-		}
-		return formatUsed;
-	}
-
 	@Override
-	protected String getToken(T item, LocalizationStyle style) {
-		DecimalFormat format = getNumberFormat(style);
-		if (this.numberGroup == null) { // || this.fractionGroup==null
-			return format.format(item);
-		}
-		String preformattedValue = format.format(item);
-		String[] numberParts = splitNumberParts(item, format, style,
-				preformattedValue);
-		if (numberParts.length != 2) {
-			return preformattedValue;
-		}
-		return numberGroup.group(numberParts[0])
-				+ format.getDecimalFormatSymbols().getDecimalSeparator()
-				+ numberParts[1];
+	protected Number getNumber(T item) {
+		return item;
 	}
 
-	private String[] splitNumberParts(T item, DecimalFormat format,
-			LocalizationStyle style, String preformattedValue) {
-		return preformattedValue.split(String.valueOf(format
-				.getDecimalFormatSymbols().getDecimalSeparator()));
-	}
-
-	@Override
-	public void parse(ParseContext context) throws ParseException {
-		DecimalFormat df = getNumberFormat(context.getLocalizationStyle());
-		if("true".equals(context.getLocalizationStyle().getAttribute("enforceGrouping"))){
-			df.setGroupingUsed(true);
-		}
-		else{
-			df.setGroupingUsed(false);
-		}
-		String token = context.getNextToken();
-		Number num;
-		try {
-			num = df.parse(token);
-		} catch (java.text.ParseException e) {
-			throw new ParseException("Failed to parse number.", token, e.getErrorOffset(), e);
-		}
-		context.setAttribute(Number.class, num);
-		context.consume(token);
-	}
 }
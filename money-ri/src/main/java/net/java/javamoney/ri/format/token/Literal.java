@@ -51,6 +51,14 @@ public class Literal<T> extends AbstractToken<T>{
 		return this.token;
 	}
 
+	@Override
+	protected String getConstant(LocalizationStyle style) {
+		if (getFormatDecorator() != null) {
+			return null;
+		}
+		return this.token;
+	}
+
 	@Override
 	public void parse(ParseContext context) throws ParseException {
 		if(!context.consume(token)){
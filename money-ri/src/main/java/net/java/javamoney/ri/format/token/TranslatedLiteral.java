@@ -23,6 +23,7 @@ import java.util.ResourceBundle;
 import javax.money.format.common.LocalizationStyle;
 import javax.money.format.common.ParseException;
 
+import net.java.javamoney.ri.common.TranslationCache;
 import net.java.javamoney.ri.format.common.AbstractToken;
 import net.java.javamoney.ri.format.common.FormatterToken;
 import net.java.javamoney.ri.format.common.ParseContext;
@@ -82,17 +83,24 @@ public class TranslatedLiteral<T> extends AbstractToken<T> {
 		return getTokenInternal(style);
 	};
 	
+	@Override
+	protected String getConstant(LocalizationStyle style) {
+		if (getFormatDecorator() != null) {
+			return null;
+		}
+		return getTokenInternal(style);
+	}
+
 	private String getTokenInternal(LocalizationStyle style) {
-		if (bundle == null) {
+		if (bundle == null || style.getTranslationLocale() == null) {
 			return String.valueOf(key);
 		}
-		try {
-			ResourceBundle rb = ResourceBundle.getBundle(bundle,
-					style.getTranslationLocale());
-			return rb.getString(key);
-		} catch (Exception e) {
+		String value = TranslationCache.getDefault().getString(bundle,
+				style.getTranslationLocale(), key);
+		if (value == null) {
 			return String.valueOf(key);
 		}
+		return value;
 	}
 
 	@Override
@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.MissingResourceException;
+
+import net.java.javamoney.ri.ext.ResourceBundleLocalizedRegionType;
+import net.java.javamoney.ri.ext.SingletonRegionType;
+
+import org.junit.Test;
+
+public class TranslationCacheTest {
+
+	private static final String BUNDLE = TestBundle.class.getName();
+
+	public static class TestBundle extends ListResourceBundle {
+		@Override
+		protected Object[][] getContents() {
+			return new Object[][] { { "greeting", "Hello" },
+					{ "RegionType.CH.displayname", "Switzerland" } };
+		}
+	}
+
+	@Test
+	public void testGetString() {
+		TranslationCache cache = new TranslationCache(10);
+		assertEquals("Hello", cache.getString(BUNDLE, Locale.ENGLISH,
+				"greeting"));
+		assertEquals("Hello", cache.getString(BUNDLE, Locale.ENGLISH,
+				"greeting"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testNegativeCaching() {
+		TranslationCache cache = new TranslationCache(10);
+		assertNull(cache.getString(BUNDLE, Locale.ENGLISH, "unknown"));
+		assertNull(cache.getString("no.such.Bundle", Locale.ENGLISH, "key"));
+		assertNull(cache.getString(BUNDLE, Locale.ENGLISH, "unknown"));
+		assertNull(cache.getString("no.such.Bundle", Locale.ENGLISH, "key"));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testClear() {
+		TranslationCache cache = new TranslationCache(2);
+		cache.getString(BUNDLE, Locale.ENGLISH, "greeting");
+		cache.getString("other", Locale.ENGLISH, "greeting");
+		assertEquals(2, cache.size());
+		cache.clear(BUNDLE);
+		assertEquals(1, cache.size());
+		cache.getString(BUNDLE, Locale.ENGLISH, "greeting");
+		cache.getString(BUNDLE, Locale.GERMAN, "greeting");
+		assertEquals(1, cache.size());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testRegionDisplayName() {
+		ResourceBundleLocalizedRegionType region = new ResourceBundleLocalizedRegionType(
+				SingletonRegionType.of("CH"), BUNDLE);
+		assertEquals("Switzerland", region.getDisplayName(Locale.ENGLISH));
+		assertEquals("Switzerland", region.getDisplayName(Locale.ENGLISH));
+	}
+
+	@Test(expected = MissingResourceException.class)
+	public void testRegionDisplayNameMissing() {
+		new ResourceBundleLocalizedRegionType(SingletonRegionType.of("XX"),
+				BUNDLE).getDisplayName(Locale.ENGLISH);
+	}
+
+}
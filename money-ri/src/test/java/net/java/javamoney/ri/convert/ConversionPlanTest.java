@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+
+import javax.money.CurrencyMismatchException;
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.convert.ExchangeRateType;
+
+import net.java.javamoney.ri.core.Money;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class ConversionPlanTest extends ConvertTestBase {
+
+	private static final ExchangeRateType TYPE = SingletonExchangeRateType
+			.of("test");
+
+	@Test
+	public void testConvert() {
+		VersionedProvider provider = new VersionedProvider();
+		ConversionPlan plan = new ConversionPlan(provider, EURO, DOLLAR);
+		MonetaryAmount result = plan.convert(Money.valueOf(EURO, 10));
+		assertEquals(DOLLAR, result.getCurrency());
+		assertEquals(0,
+				BigDecimal.valueOf(15).compareTo(
+						result.asType(BigDecimal.class)));
+		assertEquals(0, BigDecimal.valueOf(3).compareTo(
+				plan.convert(2).asType(BigDecimal.class)));
+		assertEquals(1, provider.lookups);
+	}
+
+	@Test
+	public void testRefreshOnNewSnapshot() {
+		VersionedProvider provider = new VersionedProvider();
+		ConversionPlan plan = new ConversionPlan(provider, EURO, DOLLAR);
+		plan.convert(1);
+		provider.factor = 2.0d;
+		provider.version++;
+		assertEquals(0, BigDecimal.valueOf(20).compareTo(
+				plan.convert(10).asType(BigDecimal.class)));
+		plan.convert(1);
+		assertEquals(2, provider.lookups);
+	}
+
+	@Test
+	public void testRefreshOnExpiry() {
+		VersionedProvider provider = new VersionedProvider();
+		provider.validUntil = Long.valueOf(System.currentTimeMillis() - 1);
+		ConversionPlan plan = new ConversionPlan(provider, EURO, DOLLAR);
+		plan.convert(1);
+		assertEquals(2, provider.lookups);
+	}
+
+	@Test(expected = CurrencyMismatchException.class)
+	public void testConvertWrongCurrency() {
+		new ConversionPlan(new VersionedProvider(), EURO, DOLLAR).convert(Money
+				.valueOf(DOLLAR, 1));
+	}
+
+	private static final class VersionedProvider implements
+			ExchangeRateProvider, SnapshotVersioned {
+		private double factor = 1.5d;
+		private long version;
+		private Long validUntil;
+		private int lookups;
+
+		@Override
+		public long getSnapshotVersion() {
+			return version;
+		}
+
+		@Override
+		public ExchangeRateType getExchangeRateType() {
+			return TYPE;
+		}
+
+		@Override
+		public boolean isAvailable(CurrencyUnit src, CurrencyUnit target) {
+			return true;
+		}
+
+		@Override
+		public boolean isAvailable(CurrencyUnit src, CurrencyUnit target,
+				Long timestamp) {
+			return true;
+		}
+
+		@Override
+		public ExchangeRate get(CurrencyUnit source, CurrencyUnit target) {
+			return get(source, target, null);
+		}
+
+		@Override
+		public ExchangeRate get(CurrencyUnit source, CurrencyUnit target,
+				Long timestamp) {
+			lookups++;
+			return new CurrencyExchangeRate(TYPE, source, target, factor,
+					timestamp, validUntil);
+		}
+	}
+
+}
@@ -19,10 +19,14 @@
 package net.java.javamoney.ri.convert;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
 
+import javax.money.convert.ExchangeRate;
 import javax.money.convert.ExchangeRateType;
 
 import org.junit.Test;
@@ -59,4 +63,37 @@ public class CurrencyExchangeRateTest extends ConvertTestBase {
 		assertEquals(Long.valueOf(timestamp), rate.getTimestamp());
 	}
 
+	@Test
+	public void testReverse() {
+		long timestamp = System.currentTimeMillis();
+		CurrencyExchangeRate rate = new CurrencyExchangeRate(TYPE, EURO,
+				DOLLAR, new BigDecimal("3"), timestamp, null);
+		ExchangeRate reversed = rate.reverse();
+		assertEquals("USD", reversed.getSource().getCurrencyCode());
+		assertEquals("EUR", reversed.getTarget().getCurrencyCode());
+		assertEquals(new BigDecimal("0.3333333333333333"),
+				reversed.getFactor());
+		assertEquals(Long.valueOf(timestamp), reversed.getTimestamp());
+		assertSame(rate.getReciprocalFactor(), rate.getReciprocalFactor());
+		assertEquals(new BigDecimal("3"), reversed.reverse().getFactor());
+	}
+
+	@Test
+	public void testSetTargetLeadingFactor() {
+		CurrencyExchangeRate.Builder builder = new CurrencyExchangeRate.Builder();
+		builder.setTargetLeadingFactor(new BigDecimal("8"));
+		assertEquals(new BigDecimal("0.125"), builder.getFactor());
+	}
+
+	@Test
+	public void testIsValid() {
+		long now = System.currentTimeMillis();
+		assertTrue(new CurrencyExchangeRate(TYPE, EURO, DOLLAR, 1.3d, now,
+				null).isValid());
+		assertTrue(new CurrencyExchangeRate(TYPE, EURO, DOLLAR, 1.3d, now,
+				now + TEN_MINUTES_IN_MILLIS).isValid());
+		assertFalse(new CurrencyExchangeRate(TYPE, EURO, DOLLAR, 1.3d, now,
+				now - MINUTE_IN_MILLIS).isValid());
+	}
+
 }
@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
+
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class ExchangeRateGraphTest extends ConvertTestBase {
+
+	private static final ExchangeRateType TYPE = SingletonExchangeRateType
+			.of("test");
+	private static final CurrencyUnit FRANC = MoneyCurrency.getInstance("CHF");
+	private static final CurrencyUnit POUND = MoneyCurrency.getInstance("GBP");
+	private static final CurrencyUnit YEN = MoneyCurrency.getInstance("JPY");
+
+	private static ExchangeRate rate(CurrencyUnit source, CurrencyUnit target,
+			String factor, long timestamp) {
+		return new CurrencyExchangeRate(TYPE, source, target, new BigDecimal(
+				factor), timestamp, null);
+	}
+
+	@Test
+	public void testDirectAndReversed() {
+		ExchangeRate eurUsd = rate(EURO, DOLLAR, "1.25", 1000L);
+		ExchangeRateGraph graph = new ExchangeRateGraph(TYPE,
+				Arrays.asList(eurUsd));
+		assertSame(eurUsd, graph.getExchangeRate(EURO, DOLLAR));
+		ExchangeRate usdEur = graph.getExchangeRate(DOLLAR, EURO);
+		assertEquals(DOLLAR, usdEur.getSource());
+		assertEquals(EURO, usdEur.getTarget());
+		assertEquals(0, new BigDecimal("0.8")
+				.compareTo((BigDecimal) usdEur.getFactor()));
+	}
+
+	@Test
+	public void testDerivedRate() {
+		ExchangeRateGraph graph = new ExchangeRateGraph(TYPE, Arrays.asList(
+				rate(EURO, DOLLAR, "1.25", 1000L),
+				rate(EURO, FRANC, "1.5", 2000L)));
+		ExchangeRate rate = graph.getExchangeRate(DOLLAR, FRANC);
+		assertTrue(rate.isDerived());
+		assertEquals(DOLLAR, rate.getSource());
+		assertEquals(FRANC, rate.getTarget());
+		assertEquals(0,
+				new BigDecimal("1.2").compareTo((BigDecimal) rate.getFactor()));
+		assertEquals(2, rate.getExchangeRateChain().length);
+		assertEquals(Long.valueOf(1000L), rate.getTimestamp());
+		assertSame(rate.getExchangeRateChain()[0],
+				graph.getExchangeRate(DOLLAR, FRANC).getExchangeRateChain()[0]);
+	}
+
+	@Test
+	public void testFreshestPathWins() {
+		ExchangeRateGraph graph = new ExchangeRateGraph(TYPE, Arrays.asList(
+				rate(DOLLAR, EURO, "0.8", 1000L),
+				rate(EURO, YEN, "100", 1000L),
+				rate(DOLLAR, POUND, "0.5", 5000L),
+				rate(POUND, YEN, "160", 5000L)));
+		ExchangeRate rate = graph.getExchangeRate(DOLLAR, YEN);
+		assertEquals(POUND, rate.getExchangeRateChain()[0].getTarget());
+		assertEquals(0,
+				new BigDecimal("80").compareTo((BigDecimal) rate.getFactor()));
+	}
+
+	@Test
+	public void testFewestHopsWin() {
+		ExchangeRateGraph graph = new ExchangeRateGraph(TYPE, Arrays.asList(
+				rate(DOLLAR, EURO, "0.8", 1000L),
+				rate(EURO, YEN, "100", 1000L),
+				rate(DOLLAR, POUND, "0.5", 5000L),
+				rate(POUND, FRANC, "1.2", 5000L),
+				rate(FRANC, YEN, "140", 5000L)));
+		assertEquals(2, graph.getExchangeRate(DOLLAR, YEN)
+				.getExchangeRateChain().length);
+	}
+
+	@Test
+	public void testNotConnected() {
+		ExchangeRateGraph graph = new ExchangeRateGraph(TYPE, Arrays.asList(
+				rate(EURO, DOLLAR, "1.25", 1000L),
+				rate(POUND, YEN, "160", 1000L)));
+		assertNull(graph.getExchangeRate(EURO, YEN));
+		assertNull(graph.getExchangeRate(FRANC, EURO));
+		assertFalse(graph.getExchangeRate(YEN, POUND).isDerived());
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class RateTickSeriesTest extends ConvertTestBase {
+
+	@Test
+	public void testAsOfLookup() {
+		RateTickSeries series = new RateTickSeries(2);
+		series.add(1000L, 1.1);
+		series.add(3000L, 1.3);
+		series.add(2000L, 1.2);
+		series.add(4000L, 1.4);
+		series.add(3000L, 1.35);
+		assertEquals(4, series.size());
+		assertNull(series.getTick(999L));
+		assertEquals(1.1, series.getTick(1000L).getFactor(), 0);
+		assertEquals(Long.valueOf(2000L), series.getTick(1999L)
+				.getValidUntil());
+		assertEquals(1.35, series.getTick(3500L).getFactor(), 0);
+		assertEquals(4000L, series.getTick(Long.MAX_VALUE).getTimestamp());
+		assertNull(series.getLatestTick().getValidUntil());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFactor() {
+		new RateTickSeries().add(1000L, Double.NaN);
+	}
+
+	@Test
+	public void testRetain() {
+		RateTickSeries series = new RateTickSeries(4);
+		for (int i = 0; i < 100; i++) {
+			series.add(i * SECOND_IN_MILLIS, 1 + i / 100.0);
+			series.retain((i - 9) * SECOND_IN_MILLIS);
+		}
+		assertEquals(10, series.size());
+		assertNull(series.getTick(90 * SECOND_IN_MILLIS - 1));
+		assertEquals(1.9, series.getTick(90 * SECOND_IN_MILLIS).getFactor(),
+				0);
+		// the tick valid at the retention limit is kept
+		series.retain(95 * SECOND_IN_MILLIS + 500);
+		assertEquals(95 * SECOND_IN_MILLIS,
+				series.getTick(95 * SECOND_IN_MILLIS + 500).getTimestamp());
+	}
+
+	@Test
+	public void testInsertAfterRetain() {
+		RateTickSeries series = new RateTickSeries(4);
+		series.add(10, 1.0);
+		series.add(20, 2.0);
+		series.add(30, 3.0);
+		series.add(40, 4.0);
+		series.retain(25);
+		series.add(35, 3.5);
+		assertEquals(4, series.size());
+		RateTickSeries.Tick tick = series.getTick(35);
+		assertEquals(35, tick.getTimestamp());
+		assertEquals(3.5, tick.getFactor(), 0);
+		assertEquals(Long.valueOf(40), tick.getValidUntil());
+		assertEquals(Long.valueOf(35), series.getTick(30).getValidUntil());
+		assertEquals(40, series.getTick(45).getTimestamp());
+		assertNull(series.getTick(45).getValidUntil());
+	}
+
+	@Test
+	public void testDownsample() {
+		RateTickSeries series = new RateTickSeries();
+		for (int i = 0; i < 180; i++) {
+			series.add(i * SECOND_IN_MILLIS, 1 + i / 1000.0);
+		}
+		assertEquals(118, series.downsample(2 * MINUTE_IN_MILLIS,
+				RateTickSeries.MINUTE_MILLIS));
+		assertEquals(62, series.size());
+		RateTickSeries.Tick tick = series.getTick(MINUTE_IN_MILLIS - 1);
+		assertNull(series.getTick(59 * SECOND_IN_MILLIS - 1));
+		assertEquals(59 * SECOND_IN_MILLIS, tick.getTimestamp());
+		assertEquals(1.059, tick.getFactor(), 0);
+		assertEquals(Long.valueOf(119 * SECOND_IN_MILLIS),
+				tick.getValidUntil());
+		assertEquals(1.121, series.getTick(121 * SECOND_IN_MILLIS)
+				.getFactor(), 0);
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.CurrencyConversionException;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.convert.ExchangeRateType;
+
+import net.java.javamoney.ri.core.Money;
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class RevaluationEngineTest extends ConvertTestBase {
+
+	private static final ExchangeRateType TYPE = SingletonExchangeRateType
+			.of("test");
+	private static final CurrencyUnit YEN = MoneyCurrency.getInstance("JPY");
+	private static final CurrencyUnit FRANC = MoneyCurrency.getInstance("CHF");
+
+	private static final class FixedProvider implements ExchangeRateProvider {
+		@Override
+		public ExchangeRateType getExchangeRateType() {
+			return TYPE;
+		}
+
+		@Override
+		public boolean isAvailable(CurrencyUnit src, CurrencyUnit target) {
+			return get(src, target) != null;
+		}
+
+		@Override
+		public boolean isAvailable(CurrencyUnit src, CurrencyUnit target,
+				Long timestamp) {
+			return get(src, target) != null;
+		}
+
+		@Override
+		public ExchangeRate get(CurrencyUnit source, CurrencyUnit target,
+				Long timestamp) {
+			return get(source, target);
+		}
+
+		@Override
+		public ExchangeRate get(CurrencyUnit source, CurrencyUnit target) {
+			String factor;
+			if (source == EURO) {
+				factor = "1.3349";
+			} else if (source == YEN) {
+				factor = "0.0101234567890123";
+			} else {
+				return null;
+			}
+			return new CurrencyExchangeRate(TYPE, source, target,
+					new BigDecimal(factor), 0L, null);
+		}
+	}
+
+	@Test
+	public void testRevalue() {
+		PositionSet positions = new PositionSet(2);
+		positions.add(Money.valueOf(EURO, new BigDecimal("10.00")));
+		positions.add(Money.valueOf(DOLLAR, new BigDecimal("5")));
+		positions.add(Money.valueOf(EURO, new BigDecimal("-0.37")));
+		positions.add(YEN, new BigDecimal("1000"));
+		positions.add(YEN, Long.MAX_VALUE, 0);
+		Revaluation result = new RevaluationEngine(new FixedProvider())
+				.revalue(positions, DOLLAR);
+		assertEquals(5, result.size());
+		assertEquals(new BigDecimal("13.35"), result.getValue(0));
+		assertEquals(new BigDecimal("5.00"), result.getValue(1));
+		assertEquals(new BigDecimal("-0.49"), result.getValue(2));
+		assertEquals(new BigDecimal("10.12"), result.getValue(3));
+		BigDecimal big = new BigDecimal(Long.MAX_VALUE).multiply(
+				new BigDecimal("0.0101234567890123")).setScale(2,
+				RoundingMode.HALF_UP);
+		assertEquals(big, result.getValue(4));
+		assertEquals(new BigDecimal("12.86"), result.getSubtotal(EURO)
+				.asType(BigDecimal.class));
+		assertEquals(big.add(new BigDecimal("10.12")), result.getSubtotal(YEN)
+				.asType(BigDecimal.class));
+		assertEquals(new BigDecimal("17.86").add(big).add(
+				new BigDecimal("10.12")), result.getTotal().asType(
+				BigDecimal.class));
+		assertEquals(0, BigDecimal.ZERO.compareTo(result.getSubtotal(FRANC)
+				.asType(BigDecimal.class)));
+	}
+
+	@Test
+	public void testRevalueParallel() {
+		Random random = new Random(42);
+		PositionSet positions = new PositionSet();
+		List<BigDecimal> expected = new ArrayList<BigDecimal>();
+		BigDecimal euroTotal = BigDecimal.ZERO.setScale(2);
+		for (int i = 0; i < 3 * RevaluationEngine.PARALLEL_THRESHOLD; i++) {
+			BigDecimal amount = BigDecimal.valueOf(
+					random.nextInt(100000000) - 50000000, random.nextInt(4));
+			CurrencyUnit currency = i % 3 == 0 ? DOLLAR : EURO;
+			positions.add(currency, amount);
+			BigDecimal value = amount.multiply(
+					currency == EURO ? new BigDecimal("1.3349")
+							: BigDecimal.ONE).setScale(2, RoundingMode.HALF_UP);
+			expected.add(value);
+			if (currency == EURO) {
+				euroTotal = euroTotal.add(value);
+			}
+		}
+		Revaluation result = new RevaluationEngine(new FixedProvider())
+				.revalue(positions, DOLLAR);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), result.getValue(i));
+		}
+		assertEquals(euroTotal,
+				result.getSubtotal(EURO).asType(BigDecimal.class));
+	}
+
+	@Test(expected = CurrencyConversionException.class)
+	public void testMissingRate() {
+		PositionSet positions = new PositionSet();
+		positions.add(FRANC, BigDecimal.ONE);
+		new RevaluationEngine(new FixedProvider()).revalue(positions, DOLLAR);
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.convert.ExchangeRateType;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class CachedExchangeRateProviderTest extends RITestBase {
+
+	private static final ExchangeRateType TYPE = SingletonExchangeRateType
+			.of("test");
+
+	@Test
+	public void testCachesRates() {
+		CountingProvider delegate = new CountingProvider(null);
+		CachedExchangeRateProvider provider = new CachedExchangeRateProvider(
+				delegate);
+		ExchangeRate rate = provider.get(EURO, DOLLAR);
+		assertSame(rate, provider.get(EURO, DOLLAR));
+		assertTrue(provider.isAvailable(EURO, DOLLAR));
+		assertEquals(1, delegate.count);
+		assertEquals(2, provider.getHitCount());
+		assertEquals(1, provider.getMissCount());
+		provider.clear();
+		provider.get(EURO, DOLLAR);
+		assertEquals(2, delegate.count);
+	}
+
+	@Test
+	public void testTimestampBuckets() {
+		CountingProvider delegate = new CountingProvider(null);
+		CachedExchangeRateProvider provider = new CachedExchangeRateProvider(
+				delegate);
+		long day = 15000L * CachedExchangeRateProvider.DAY_MILLIS;
+		provider.get(EURO, DOLLAR, day + 1000);
+		provider.get(EURO, DOLLAR, day + 2000);
+		assertEquals(1, delegate.count);
+		provider.get(EURO, DOLLAR, day - 1000);
+		assertEquals(2, delegate.count);
+		provider.get(EURO, DOLLAR);
+		assertEquals(3, delegate.count);
+	}
+
+	@Test
+	public void testNegativeCaching() {
+		CountingProvider delegate = new CountingProvider(null);
+		CachedExchangeRateProvider provider = new CachedExchangeRateProvider(
+				delegate);
+		CurrencyUnit chf = MoneyCurrency.getInstance("CHF");
+		assertNull(provider.get(EURO, chf));
+		assertNull(provider.get(EURO, chf));
+		assertEquals(1, delegate.count);
+		provider = new CachedExchangeRateProvider(delegate, 10,
+				CachedExchangeRateProvider.DAY_MILLIS,
+				CachedExchangeRateProvider.DEFAULT_TIME_TO_LIVE, 0);
+		assertNull(provider.get(EURO, chf));
+		assertNull(provider.get(EURO, chf));
+		assertEquals(3, delegate.count);
+	}
+
+	@Test
+	public void testExpiredRatesAreReloaded() {
+		CountingProvider delegate = new CountingProvider(Long.valueOf(System
+				.currentTimeMillis() - 1));
+		CachedExchangeRateProvider provider = new CachedExchangeRateProvider(
+				delegate);
+		provider.get(EURO, DOLLAR);
+		provider.get(EURO, DOLLAR);
+		assertEquals(2, delegate.count);
+		assertEquals(0, provider.getSize());
+	}
+
+	@Test
+	public void testEviction() {
+		CountingProvider delegate = new CountingProvider(null);
+		CachedExchangeRateProvider provider = new CachedExchangeRateProvider(
+				delegate, 1);
+		provider.get(EURO, DOLLAR);
+		provider.get(DOLLAR, EURO);
+		assertEquals(1, provider.getSize());
+		assertEquals(1, provider.getEvictionCount());
+		provider.get(EURO, DOLLAR);
+		assertEquals(3, delegate.count);
+	}
+
+	/**
+	 * Provider returning EUR/USD rates in both directions and counting the
+	 * lookups performed.
+	 */
+	private static final class CountingProvider implements
+			ExchangeRateProvider {
+		private final Long validUntil;
+		private int count;
+
+		CountingProvider(Long validUntil) {
+			this.validUntil = validUntil;
+		}
+
+		@Override
+		public ExchangeRateType getExchangeRateType() {
+			return TYPE;
+		}
+
+		@Override
+		public boolean isAvailable(CurrencyUnit src, CurrencyUnit target) {
+			return get(src, target) != null;
+		}
+
+		@Override
+		public boolean isAvailable(CurrencyUnit src, CurrencyUnit target,
+				Long timestamp) {
+			return get(src, target, timestamp) != null;
+		}
+
+		@Override
+		public ExchangeRate get(CurrencyUnit source, CurrencyUnit target) {
+			return get(source, target, null);
+		}
+
+		@Override
+		public ExchangeRate get(CurrencyUnit source, CurrencyUnit target,
+				Long timestamp) {
+			count++;
+			if (!"EUR".equals(source.getCurrencyCode())
+					&& !"EUR".equals(target.getCurrencyCode())) {
+				return null;
+			}
+			if (!"USD".equals(source.getCurrencyCode())
+					&& !"USD".equals(target.getCurrencyCode())) {
+				return null;
+			}
+			return new CurrencyExchangeRate(TYPE, source, target, 1.3d,
+					timestamp, validUntil);
+		}
+	}
+
+}
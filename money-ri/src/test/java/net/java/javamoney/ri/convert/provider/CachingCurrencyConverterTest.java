@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+
+import javax.money.MonetaryAmount;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.convert.SnapshotVersioned;
+import net.java.javamoney.ri.core.Money;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class CachingCurrencyConverterTest extends RITestBase {
+
+	private static final class Version implements SnapshotVersioned {
+		private long version;
+
+		@Override
+		public long getSnapshotVersion() {
+			return version;
+		}
+	}
+
+	@Test
+	public void testConvert() {
+		Version version = new Version();
+		CachingCurrencyConverter converter = new CachingCurrencyConverter(
+				new DefaultCurrencyConverter(TestExchangeRateProvider.TYPE),
+				version, 100, CachingCurrencyConverter.DEFAULT_TIME_TO_LIVE);
+		MonetaryAmount result = converter.convert(
+				Money.valueOf(EURO, new BigDecimal("9.99")), DOLLAR);
+		assertEquals(0, new BigDecimal("14.99").compareTo(result
+				.asType(BigDecimal.class)));
+		assertSame(result, converter.convert(
+				Money.valueOf(EURO, new BigDecimal("9.99")), DOLLAR));
+		assertNotSame(result, converter.convert(
+				Money.valueOf(EURO, new BigDecimal("9.990")), DOLLAR));
+		assertNotSame(result, converter.convert(
+				Money.valueOf(EURO, new BigDecimal("9.99")), DOLLAR, 1000L));
+		assertSame(converter.convert(new BigDecimal("2"), EURO, DOLLAR),
+				converter.convert(new BigDecimal("2"), EURO, DOLLAR));
+		assertEquals(2, converter.getHitCount());
+
+		version.version++;
+		assertNotSame(result, converter.convert(
+				Money.valueOf(EURO, new BigDecimal("9.99")), DOLLAR));
+		assertEquals(1, converter.getSize());
+	}
+
+	@Test
+	public void testConvertArray() {
+		CachingCurrencyConverter converter = new CachingCurrencyConverter(
+				new DefaultCurrencyConverter(TestExchangeRateProvider.TYPE),
+				null, 100, CachingCurrencyConverter.DEFAULT_TIME_TO_LIVE);
+		MonetaryAmount cached = converter.convert(Money.valueOf(EURO, 10),
+				DOLLAR);
+		MonetaryAmount[] result = converter.convert(new MonetaryAmount[] {
+				Money.valueOf(EURO, 2), Money.valueOf(EURO, 10),
+				Money.valueOf(DOLLAR, 7) }, DOLLAR);
+		assertEquals(3, result.length);
+		assertSame(cached, result[1]);
+		assertEquals(0, BigDecimal.valueOf(3).compareTo(
+				result[0].asType(BigDecimal.class)));
+		assertEquals(0, BigDecimal.valueOf(7).compareTo(
+				result[2].asType(BigDecimal.class)));
+		assertEquals(3, converter.getSize());
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
+import javax.money.convert.spi.ExchangeRateProviderSpi;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class CompositeExchangeRateProviderTest extends RITestBase {
+
+	private static final ExchangeRateType PRIMARY = SingletonExchangeRateType
+			.of("primary");
+	private static final ExchangeRateType FALLBACK = SingletonExchangeRateType
+			.of("fallback");
+
+	private static final class StubSpi implements ExchangeRateProviderSpi {
+		private final ExchangeRateType type;
+		private final ExchangeRate rate;
+		private final long delay;
+		private volatile Thread lastThread;
+
+		StubSpi(ExchangeRateType type, String factor, long delay) {
+			this.type = type;
+			this.rate = factor == null ? null : new CurrencyExchangeRate(type,
+					EURO, DOLLAR, new BigDecimal(factor), 0L, null);
+			this.delay = delay;
+		}
+
+		@Override
+		public ExchangeRateType getExchangeRateType() {
+			return type;
+		}
+
+		@Override
+		public ExchangeRate getExchangeRate(CurrencyUnit source,
+				CurrencyUnit target, Long timestamp) {
+			lastThread = Thread.currentThread();
+			if (delay > 0) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					return null;
+				}
+			}
+			return rate;
+		}
+	}
+
+	@Test
+	public void testPrecedenceAndFallback() {
+		StubSpi empty = new StubSpi(PRIMARY, null, 0);
+		StubSpi primary = new StubSpi(PRIMARY, "1.3", 0);
+		StubSpi fallback = new StubSpi(FALLBACK, "1.4", 0);
+		CompositeExchangeRateProvider provider = new CompositeExchangeRateProvider(
+				PRIMARY, Arrays.asList(empty, primary, fallback), null, 1000L);
+		assertEquals(PRIMARY, provider.getExchangeRateType());
+		assertSame(primary.rate, provider.get(EURO, DOLLAR));
+		assertEquals(1, provider.getLatencyHistogram(empty).getCount());
+
+		provider = new CompositeExchangeRateProvider(PRIMARY, Arrays.asList(
+				empty, fallback), null, 1000L);
+		assertSame(fallback.rate, provider.get(EURO, DOLLAR));
+		provider = new CompositeExchangeRateProvider(PRIMARY,
+				Arrays.asList(empty), null, 1000L);
+		assertNull(provider.get(EURO, DOLLAR));
+	}
+
+	@Test
+	public void testHedging() {
+		StubSpi slow = new StubSpi(PRIMARY, "1.3", 2000);
+		StubSpi fallback = new StubSpi(FALLBACK, "1.4", 0);
+		CompositeExchangeRateProvider provider = new CompositeExchangeRateProvider(
+				PRIMARY, Arrays.asList(slow, fallback), null, 10000L);
+		provider.setLatencyBudget(slow, 10L);
+		long start = System.currentTimeMillis();
+		assertSame(fallback.rate, provider.get(EURO, DOLLAR));
+		assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+
+	@Test
+	public void testTimeout() {
+		StubSpi slow = new StubSpi(PRIMARY, "1.3", 2000);
+		CompositeExchangeRateProvider provider = new CompositeExchangeRateProvider(
+				PRIMARY, Arrays.asList(slow), null, 20L);
+		assertNull(provider.get(EURO, DOLLAR));
+	}
+
+	@Test
+	public void testReorder() {
+		StubSpi slower = new StubSpi(PRIMARY, "1.3", 2);
+		StubSpi faster = new StubSpi(PRIMARY, "1.31", 0);
+		StubSpi fallback = new StubSpi(FALLBACK, "1.4", 0);
+		CompositeExchangeRateProvider provider = new CompositeExchangeRateProvider(
+				PRIMARY, Arrays.asList(fallback, slower, faster), null, 1000L);
+		for (int i = 0; i < 40; i++) {
+			provider.getLatencyHistogram(slower).record(2000000L);
+			provider.getLatencyHistogram(faster).record(1000L);
+		}
+		provider.reorder();
+		assertEquals(Arrays.asList(fallback, faster, slower),
+				provider.getProviders());
+	}
+
+	@Test
+	public void testFastProviderCalledDirectly() {
+		StubSpi primary = new StubSpi(PRIMARY, "1.3", 0);
+		StubSpi fallback = new StubSpi(FALLBACK, "1.4", 0);
+		CompositeExchangeRateProvider provider = new CompositeExchangeRateProvider(
+				PRIMARY, Arrays.asList(primary, fallback), null, 1000L);
+		assertSame(primary.rate, provider.get(EURO, DOLLAR));
+		assertTrue(primary.lastThread != Thread.currentThread());
+		for (int i = 0; i < 40; i++) {
+			provider.get(EURO, DOLLAR);
+		}
+		provider.reorder();
+		assertSame(primary.rate, provider.get(EURO, DOLLAR));
+		assertSame(Thread.currentThread(), primary.lastThread);
+
+		provider.setRemote(primary, true);
+		assertSame(primary.rate, provider.get(EURO, DOLLAR));
+		assertTrue(primary.lastThread != Thread.currentThread());
+		provider.reorder();
+		provider.get(EURO, DOLLAR);
+		assertTrue(primary.lastThread != Thread.currentThread());
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+import javax.money.convert.CurrencyConversionException;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.core.Money;
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class DefaultCurrencyConverterTest extends RITestBase {
+
+	private static final CurrencyUnit FRANC = MoneyCurrency.getInstance("CHF");
+
+	private DefaultCurrencyConverter converter = new DefaultCurrencyConverter(
+			TestExchangeRateProvider.TYPE);
+
+	@Before
+	public void resetLookups() {
+		TestExchangeRateProvider.LOOKUPS.set(0);
+	}
+
+	@Test
+	public void testConvertArray() {
+		MonetaryAmount[] amounts = new MonetaryAmount[] {
+				Money.valueOf(EURO, 10), Money.valueOf(FRANC, 4),
+				Money.valueOf(EURO, 2), Money.valueOf(DOLLAR, 7),
+				Money.valueOf(FRANC, 8) };
+		MonetaryAmount[] result = converter.convert(amounts, DOLLAR);
+		assertEquals(3, TestExchangeRateProvider.LOOKUPS.get());
+		assertEquals(amounts.length, result.length);
+		for (int i = 0; i < amounts.length; i++) {
+			assertEquals(DOLLAR, result[i].getCurrency());
+			assertEquals(
+					converter.convert(amounts[i], DOLLAR)
+							.asType(BigDecimal.class),
+					result[i].asType(BigDecimal.class));
+		}
+		assertEquals(0, converter.convert(new MonetaryAmount[0], DOLLAR).length);
+	}
+
+	@Test
+	public void testConvertIterable() {
+		List<MonetaryAmount> result = converter.convert(
+				Arrays.<MonetaryAmount> asList(Money.valueOf(EURO, 10),
+						Money.valueOf(FRANC, 4)), DOLLAR, null);
+		assertEquals(2, result.size());
+		assertEquals(0, BigDecimal.valueOf(15).compareTo(
+				result.get(0).asType(BigDecimal.class)));
+		assertEquals(0, BigDecimal.valueOf(5).compareTo(
+				result.get(1).asType(BigDecimal.class)));
+	}
+
+	@Test
+	public void testConvertParallel() {
+		MonetaryAmount[] amounts = new MonetaryAmount[DefaultCurrencyConverter.PARALLEL_THRESHOLD * 3 + 7];
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] = Money.valueOf(i % 2 == 0 ? EURO : FRANC, i);
+		}
+		MonetaryAmount[] result = converter.convert(amounts, DOLLAR);
+		assertEquals(2, TestExchangeRateProvider.LOOKUPS.get());
+		for (int i = 0; i < amounts.length; i++) {
+			BigDecimal factor = BigDecimal.valueOf(i % 2 == 0 ? 1.5d : 1.25d);
+			assertEquals(0, factor.multiply(BigDecimal.valueOf(i)).compareTo(
+					result[i].asType(BigDecimal.class)));
+		}
+	}
+
+	@Test(expected = CurrencyConversionException.class)
+	public void testConvertMissingRate() {
+		converter.convert(new MonetaryAmount[] { Money.valueOf(EURO, 1),
+				Money.valueOf(FRANC, 1) }, EURO);
+	}
+
+	@Test
+	public void testRounding() {
+		MonetaryAmount amount = Money.valueOf(EURO, new BigDecimal("9.99"));
+		assertEquals(new BigDecimal("14.99"),
+				converter.convert(amount, DOLLAR).asType(BigDecimal.class));
+		assertEquals(new BigDecimal("14.99"),
+				converter.convert(new MonetaryAmount[] { amount }, DOLLAR)[0]
+						.asType(BigDecimal.class));
+		assertEquals(new BigDecimal("0.02"), converter.convert(
+				new BigDecimal("0.013"), FRANC, DOLLAR).asType(BigDecimal.class));
+
+		DefaultCurrencyConverter unrounded = new DefaultCurrencyConverter(
+				TestExchangeRateProvider.TYPE);
+		unrounded.setRoundingEnabled(false);
+		assertEquals(0, new BigDecimal("14.985").compareTo(unrounded.convert(
+				amount, DOLLAR).asType(BigDecimal.class)));
+	}
+
+	@Test
+	public void testConversionPlanRounding() {
+		MonetaryAmount amount = Money.valueOf(EURO, new BigDecimal("9.99"));
+		assertEquals(converter.convert(amount, DOLLAR).asType(BigDecimal.class),
+				converter.getConversionPlan(EURO, DOLLAR).convert(amount)
+						.asType(BigDecimal.class));
+		assertEquals(converter.convert(new BigDecimal("9.99"), EURO, DOLLAR)
+				.asType(BigDecimal.class),
+				converter.getConversionPlan(EURO, DOLLAR)
+						.convert(new BigDecimal("9.99")).asType(BigDecimal.class));
+
+		DefaultCurrencyConverter unrounded = new DefaultCurrencyConverter(
+				TestExchangeRateProvider.TYPE);
+		unrounded.setRoundingEnabled(false);
+		assertEquals(0, new BigDecimal("14.985").compareTo(unrounded
+				.getConversionPlan(EURO, DOLLAR).convert(amount)
+				.asType(BigDecimal.class)));
+	}
+
+}
@@ -0,0 +1,206 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.money.convert.ExchangeRate;
+
+import net.java.javamoney.ri.RITestBase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class ExchangeRateHistoryFileTest extends RITestBase {
+
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("rates", ".bin");
+		file.delete();
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static Map<String, BigDecimal> rates(String usd, String chf) {
+		Map<String, BigDecimal> rates = new LinkedHashMap<String, BigDecimal>();
+		rates.put("USD", new BigDecimal(usd));
+		if (chf != null) {
+			rates.put("CHF", new BigDecimal(chf));
+		}
+		return rates;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ExchangeRateHistoryFile history = new ExchangeRateHistoryFile(file);
+		assertNull(history.getLastDay());
+		history.append(15000 * DAY, rates("1.3349", "1.2301"));
+		history.append(15001 * DAY, rates("1.3351", "1.23"));
+		history.close();
+
+		history = new ExchangeRateHistoryFile(file);
+		assertEquals(Long.valueOf(15001 * DAY), history.getLastDay());
+		history.append(15004 * DAY, rates("1.32", null));
+		history.close();
+
+		history = new ExchangeRateHistoryFile(file);
+		assertEquals(3, history.getDays().size());
+		assertEquals(rates("1.3349", "1.2301"),
+				history.getDays().get(15000 * DAY));
+		assertEquals(rates("1.3351", "1.23"), history.getDays()
+				.get(15001 * DAY));
+		assertEquals(rates("1.32", null), history.getDays().get(15004 * DAY));
+		history.close();
+	}
+
+	@Test
+	public void testIncompleteRecordDiscarded() throws IOException {
+		ExchangeRateHistoryFile history = new ExchangeRateHistoryFile(file);
+		history.append(15000 * DAY, rates("1.3349", "1.2301"));
+		history.append(15001 * DAY, rates("1.3351", "1.23"));
+		history.close();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 2);
+		raf.close();
+
+		history = new ExchangeRateHistoryFile(file);
+		assertEquals(Long.valueOf(15000 * DAY), history.getLastDay());
+		history.append(15001 * DAY, rates("1.3352", null));
+		history.close();
+		history = new ExchangeRateHistoryFile(file);
+		assertEquals(rates("1.3352", null), history.getDays().get(15001 * DAY));
+		history.close();
+	}
+
+	@Test
+	public void testBackfill() throws IOException {
+		ExchangeRateHistoryFile history = new ExchangeRateHistoryFile(file);
+		history.append(15010 * DAY, rates("1.3349", null));
+		history.append(15000 * DAY, rates("1.30", "1.21"));
+		history.append(15005 * DAY, rates("1.31", "1.22"));
+		assertTrue(history.containsDay(15000 * DAY));
+		history.close();
+
+		history = new ExchangeRateHistoryFile(file);
+		assertEquals(3, history.getDays().size());
+		assertEquals(Long.valueOf(15010 * DAY), history.getLastDay());
+		assertEquals(rates("1.30", "1.21"), history.getDays().get(15000 * DAY));
+		assertEquals(rates("1.31", "1.22"), history.getDays().get(15005 * DAY));
+		assertEquals(rates("1.3349", null), history.getDays()
+				.get(15010 * DAY));
+		history.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAppendDuplicateDay() throws IOException {
+		ExchangeRateHistoryFile history = new ExchangeRateHistoryFile(file);
+		try {
+			history.append(15001 * DAY, rates("1.3349", null));
+			history.append(15001 * DAY, rates("1.3349", null));
+		} finally {
+			history.close();
+		}
+	}
+
+	@Test
+	public void testFailedAppendKeepsState() throws IOException {
+		ExchangeRateHistoryFile history = new ExchangeRateHistoryFile(file);
+		history.append(15000 * DAY, rates("1.3349", null));
+		history.close();
+		try {
+			history.append(15001 * DAY, rates("1.3351", "1.23"));
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(1, history.getDays().size());
+		assertTrue(!history.containsDay(15001 * DAY));
+		history = new ExchangeRateHistoryFile(file);
+		assertEquals(1, history.getDays().size());
+		history.close();
+	}
+
+	@Test
+	public void testCorruptRecordKeepsFile() throws IOException {
+		ExchangeRateHistoryFile history = new ExchangeRateHistoryFile(file);
+		history.append(15000 * DAY, rates("1.3349", "1.2301"));
+		history.append(15001 * DAY, rates("1.3351", "1.23"));
+		history.close();
+		long length = file.length();
+		// header (8), two currency records (2 * 5), day type, delta (3) and
+		// count (1): the id of the first rate of the first day
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(23);
+		raf.write(5);
+		raf.close();
+		try {
+			new ExchangeRateHistoryFile(file);
+			fail("IOException expected.");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(length, file.length());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("no rate history".getBytes("US-ASCII"));
+		out.close();
+		new ExchangeRateHistoryFile(file);
+	}
+
+	@Test
+	public void testWarmStart() throws IOException {
+		long today = System.currentTimeMillis() / DAY * DAY;
+		ExchangeRateHistoryFile history = new ExchangeRateHistoryFile(file);
+		history.append(today - DAY, rates("1.30", "1.20"));
+		history.append(today, rates("1.25", "1.22"));
+		history.close();
+
+		EZBExchangeRateProvider provider = new EZBExchangeRateProvider(file);
+		ExchangeRate rate = provider.getExchangeRate(EURO, DOLLAR, null);
+		assertEquals(new BigDecimal("1.25"), rate.getFactor());
+		rate = provider.getExchangeRate(EURO, DOLLAR, today - DAY + 1000);
+		assertEquals(new BigDecimal("1.30"), rate.getFactor());
+		assertTrue(provider.getSnapshotVersion() > 0);
+	}
+
+}
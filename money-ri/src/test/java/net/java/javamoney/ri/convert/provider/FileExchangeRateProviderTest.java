@@ -0,0 +1,177 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class FileExchangeRateProviderTest extends RITestBase {
+
+	private static final CurrencyUnit CHF = MoneyCurrency.getInstance("CHF");
+
+	private File directory;
+	private FileExchangeRateProvider provider;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = File.createTempFile("rates", "");
+		directory.delete();
+		directory.mkdir();
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		if (provider != null) {
+			provider.close();
+		}
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private void write(String name, String content) throws IOException {
+		File tmp = new File(directory, name + ".tmp");
+		FileOutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(content.getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		assertTrue(tmp.renameTo(new File(directory, name)));
+	}
+
+	private ExchangeRate await(CurrencyUnit source, CurrencyUnit target,
+			boolean present) throws InterruptedException {
+		long end = System.currentTimeMillis() + 20000;
+		ExchangeRate rate = provider.getExchangeRate(source, target, null);
+		while ((rate != null) != present && System.currentTimeMillis() < end) {
+			Thread.sleep(20);
+			rate = provider.getExchangeRate(source, target, null);
+		}
+		return rate;
+	}
+
+	@Test
+	public void testInitialLoad() throws IOException {
+		write("a.csv", "# source,target,factor,timestamp\r\n"
+				+ "EUR,USD,1.3349,1000\r\n\r\nUSD,XYZ,1.0\r\nEUR,USD\n"
+				+ " EUR , CHF , 1.2301 ");
+		write("b.xml", "<rates><rate source=\"USD\" target=\"CHF\" "
+				+ "factor=\"0.92\" timestamp=\"2000\"/>"
+				+ "<rate source=\"EUR\" target=\"USD\" factor=\"1.34\" "
+				+ "timestamp=\"3000\"/></rates>");
+		write("ignored.txt", "EUR,CHF,2");
+		provider = new FileExchangeRateProvider(directory,
+				FileExchangeRateProvider.RATE_TYPE);
+		assertEquals("FILE", provider.getExchangeRateType().getId());
+		assertEquals(3, provider.getExchangeRates(null).size());
+
+		ExchangeRate rate = provider.getExchangeRate(EURO, DOLLAR, null);
+		assertEquals(new BigDecimal("1.34"), rate.getFactor());
+		assertEquals(Long.valueOf(3000), rate.getTimestamp());
+		assertNull(provider.getExchangeRate(EURO, DOLLAR, 2999L));
+		assertEquals(new BigDecimal("1.2301"),
+				provider.getExchangeRate(EURO, CHF, null).getFactor());
+		rate = provider.getExchangeRate(CHF, DOLLAR, null);
+		assertEquals(0,
+				new BigDecimal("0.92").compareTo((BigDecimal) rate.reverse()
+						.getFactor()));
+		assertEquals(1, provider.getExchangeRates(2000L).size());
+	}
+
+	@Test
+	public void testInvalidLinesSkipped() throws IOException {
+		write("a.csv", "EUR,USD,12345678901234567890x\n"
+				+ "EUR,CHF,1.2,99999999999999999999\n" + "USD,CHF,0.92,2000\n");
+		provider = new FileExchangeRateProvider(directory,
+				FileExchangeRateProvider.RATE_TYPE);
+		assertEquals(1, provider.getExchangeRates(null).size());
+		assertEquals(Long.valueOf(2000),
+				provider.getExchangeRate(DOLLAR, CHF, null).getTimestamp());
+	}
+
+	@Test
+	public void testHotReload() throws Exception {
+		provider = new FileExchangeRateProvider(directory,
+				FileExchangeRateProvider.RATE_TYPE);
+		long version = provider.getSnapshotVersion();
+		assertNull(provider.getExchangeRate(EURO, CHF, null));
+
+		write("intraday.csv", "EUR,CHF,1.2301\n");
+		ExchangeRate rate = await(EURO, CHF, true);
+		assertNotNull(rate);
+		assertEquals(new BigDecimal("1.2301"), rate.getFactor());
+		assertTrue(provider.getSnapshotVersion() > version);
+
+		assertTrue(new File(directory, "intraday.csv").delete());
+		assertNull(await(EURO, CHF, false));
+	}
+
+	@Test
+	public void testFileInProgressNotLoaded() throws Exception {
+		provider = new FileExchangeRateProvider(directory,
+				FileExchangeRateProvider.RATE_TYPE, 1000L);
+		FileOutputStream out = new FileOutputStream(new File(directory,
+				"slow.csv"));
+		try {
+			out.write("EUR,CHF,1".getBytes("US-ASCII"));
+			out.flush();
+			for (int i = 0; i < 5; i++) {
+				Thread.sleep(100);
+				assertNull(provider.getExchangeRate(EURO, CHF, null));
+			}
+			out.write(".2301\n".getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		ExchangeRate rate = await(EURO, CHF, true);
+		assertNotNull(rate);
+		assertEquals(new BigDecimal("1.2301"), rate.getFactor());
+	}
+
+	@Test
+	public void testWithoutDirectory() {
+		FileExchangeRateProvider prov = new FileExchangeRateProvider(null,
+				FileExchangeRateProvider.RATE_TYPE);
+		assertNull(prov.getExchangeRate(EURO, DOLLAR, null));
+		assertTrue(prov.getExchangeRates(null).isEmpty());
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class IMFExchangeRateProviderTest extends RITestBase {
+
+	private static final CurrencyUnit SDR = MoneyCurrency.getInstance("XDR");
+	private static final CurrencyUnit FRANC = MoneyCurrency.getInstance("CHF");
+	private static final CurrencyUnit YUAN = MoneyCurrency.getInstance("CNY");
+
+	private IMFExchangeRateProvider provider;
+
+	@Before
+	public void loadRates() throws IOException {
+		provider = new IMFExchangeRateProvider();
+		InputStream is = getClass().getResourceAsStream("rms_five.tsv");
+		try {
+			provider.loadRates(is);
+		} finally {
+			is.close();
+		}
+	}
+
+	private static long day(int dayOfMonth) {
+		GregorianCalendar cal = new GregorianCalendar(
+				TimeZone.getTimeZone("UTC"));
+		cal.clear();
+		cal.set(2013, GregorianCalendar.JANUARY, dayOfMonth);
+		return cal.getTimeInMillis();
+	}
+
+	@Test
+	public void testSdrRates() {
+		ExchangeRate rate = provider.getExchangeRate(EURO, SDR, null);
+		assertEquals(0, new BigDecimal("0.879108").compareTo(
+				(BigDecimal) rate.getFactor()));
+		assertEquals(Long.valueOf(day(31)), rate.getTimestamp());
+		rate = provider.getExchangeRate(SDR, EURO, null);
+		assertEquals(0,
+				new BigDecimal("1.13752").compareTo((BigDecimal) rate
+						.getFactor()));
+		assertEquals(1, provider.getSnapshotVersion());
+	}
+
+	@Test
+	public void testCrossRate() {
+		ExchangeRate rate = provider.getExchangeRate(EURO, DOLLAR, null);
+		assertTrue(rate.isDerived());
+		assertEquals(EURO, rate.getSource());
+		assertEquals(DOLLAR, rate.getTarget());
+		assertEquals(
+				0,
+				new BigDecimal("0.879108").multiply(new BigDecimal("1.538462"))
+						.compareTo((BigDecimal) rate.getFactor()));
+	}
+
+	@Test
+	public void testAsOfLookup() {
+		ExchangeRate rate = provider.getExchangeRate(EURO, SDR,
+				day(30) + 5000);
+		assertEquals(Long.valueOf(day(30)), rate.getTimestamp());
+		assertEquals(0, new BigDecimal("0.878917").compareTo(
+				(BigDecimal) rate.getFactor()));
+		assertNull(provider.getExchangeRate(EURO, SDR, day(28)));
+	}
+
+	@Test
+	public void testMissingValues() {
+		ExchangeRate rate = provider.getExchangeRate(FRANC, SDR, null);
+		assertEquals(Long.valueOf(day(30)), rate.getTimestamp());
+		assertNull(provider.getExchangeRate(YUAN, SDR, day(29)));
+		assertNull(provider.getExchangeRate(MoneyCurrency.getInstance("GBP"),
+				SDR, null));
+		assertFalse(provider.getExchangeRates(null).isEmpty());
+	}
+
+	@Test
+	public void testParseDecimal() {
+		assertEquals(0.879108d,
+				IMFExchangeRateProvider.parseDecimal("0.8791080000", 0, 12),
+				0.0d);
+		assertEquals(-1234.5d,
+				IMFExchangeRateProvider.parseDecimal(" -1,234.5 ", 0, 10),
+				0.0d);
+		assertTrue(Double.isNaN(IMFExchangeRateProvider.parseDecimal("NA", 0,
+				2)));
+	}
+
+	@Test
+	public void testParseDecimalLongGrouped() {
+		String text = "-1,234,567,890,123,456,789.25";
+		assertEquals(-1234567890123456789.25d,
+				IMFExchangeRateProvider.parseDecimal(text, 0, text.length()),
+				0.0d);
+		text = "1,234,567,890,123,456,789x";
+		assertTrue(Double.isNaN(IMFExchangeRateProvider.parseDecimal(text, 0,
+				text.length())));
+	}
+
+}
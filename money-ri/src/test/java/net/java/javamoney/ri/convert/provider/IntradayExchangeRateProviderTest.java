@@ -0,0 +1,134 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class IntradayExchangeRateProviderTest extends RITestBase {
+
+	@Test
+	public void testTicks() {
+		IntradayExchangeRateProvider provider = new IntradayExchangeRateProvider(
+				IntradayExchangeRateProvider.RATE_TYPE, 10000L);
+		long version = provider.getSnapshotVersion();
+		provider.addTick(EURO, DOLLAR, 1000L, new BigDecimal("1.3349"));
+		provider.addTick(EURO, DOLLAR, 2000L, 1.3351);
+		assertTrue(provider.getSnapshotVersion() > version);
+
+		ExchangeRate rate = provider.getExchangeRate(EURO, DOLLAR, 1500L);
+		assertEquals(new BigDecimal("1.3349"), rate.getFactor());
+		assertEquals(Long.valueOf(1000L), rate.getTimestamp());
+		assertEquals(Long.valueOf(2000L), rate.getValidUntil());
+		assertEquals(new BigDecimal("1.3351"),
+				provider.getExchangeRate(EURO, DOLLAR, null).getFactor());
+		assertNull(provider.getExchangeRate(EURO, DOLLAR, 999L));
+		rate = provider.getExchangeRate(DOLLAR, EURO, 1500L);
+		assertEquals(DOLLAR, rate.getSource());
+		assertEquals(1, provider.getExchangeRates(null).size());
+
+		provider.addTick(EURO, DOLLAR, 12000L, 1.34);
+		assertEquals(2, provider.getSeries(EURO, DOLLAR).size());
+		assertNull(provider.getExchangeRate(EURO, DOLLAR, 1500L));
+	}
+
+	@Test
+	public void testVersionOnlyChangedWithRates() {
+		IntradayExchangeRateProvider provider = new IntradayExchangeRateProvider(
+				IntradayExchangeRateProvider.RATE_TYPE, 0L, 0L);
+		provider.addTick(EURO, DOLLAR, 1000L, 1.25);
+		long version = provider.getSnapshotVersion();
+		provider.addTick(EURO, DOLLAR, 2000L, 1.25);
+		provider.addTick(EURO, DOLLAR, 2000L, 1.25);
+		assertEquals(version, provider.getSnapshotVersion());
+		provider.addTick(EURO, DOLLAR, 3000L, 1.5);
+		assertEquals(version + 1, provider.getSnapshotVersion());
+		provider.addTick(EURO, DOLLAR, 1500L, 1.5);
+		assertEquals(version + 2, provider.getSnapshotVersion());
+	}
+
+	@Test
+	public void testVersionCoalesced() {
+		IntradayExchangeRateProvider provider = new IntradayExchangeRateProvider(
+				IntradayExchangeRateProvider.RATE_TYPE, 0L, 60000L);
+		provider.addTick(EURO, DOLLAR, 1000L, 1.25);
+		long version = provider.getSnapshotVersion();
+		for (int i = 1; i <= 1000; i++) {
+			provider.addTick(EURO, DOLLAR, 1000L + i, 1.25 + i / 10000.0);
+		}
+		assertEquals(version, provider.getSnapshotVersion());
+		assertEquals(1.35, provider.getExchangeRate(EURO, DOLLAR, null)
+				.getFactor().doubleValue(), 1e-9);
+	}
+
+	@Test
+	public void testRetentionBatched() {
+		IntradayExchangeRateProvider provider = new IntradayExchangeRateProvider(
+				IntradayExchangeRateProvider.RATE_TYPE, 8000L);
+		for (long ts = 0; ts <= 8000L; ts += 100) {
+			provider.addTick(EURO, DOLLAR, ts, 1.25);
+		}
+		assertEquals(81, provider.getSeries(EURO, DOLLAR).size());
+		provider.addTick(EURO, DOLLAR, 9000L, 1.25);
+		assertEquals(72, provider.getSeries(EURO, DOLLAR).size());
+		assertNull(provider.getExchangeRate(EURO, DOLLAR, 999L));
+	}
+
+	@Test
+	public void testSnapshotKey() {
+		CurrencyUnit franc = MoneyCurrency.getInstance("CHF");
+		IntradayExchangeRateProvider provider = new IntradayExchangeRateProvider();
+		assertEquals(Long.MIN_VALUE, provider.getSnapshotKey(1000L));
+		provider.addTick(EURO, DOLLAR, 1000L, 1.25);
+		provider.addTick(DOLLAR, franc, 1200L, 0.8);
+		provider.addTick(EURO, DOLLAR, 2000L, 1.5);
+		assertEquals(Long.MIN_VALUE, provider.getSnapshotKey(999L));
+		assertEquals(1000L, provider.getSnapshotKey(1100L));
+		assertEquals(1200L, provider.getSnapshotKey(1200L));
+		assertEquals(1200L, provider.getSnapshotKey(1999L));
+		assertEquals(2000L, provider.getSnapshotKey(5000L));
+
+		DefaultExchangeRateProvider defaultProvider = new DefaultExchangeRateProvider(
+				IntradayExchangeRateProvider.RATE_TYPE,
+				Collections.singletonList(provider));
+		assertEquals(1.0, defaultProvider.get(EURO, franc, 1300L).getFactor()
+				.doubleValue(), 1e-9);
+		assertEquals(1.0, defaultProvider.get(EURO, franc, 1900L).getFactor()
+				.doubleValue(), 1e-9);
+		assertEquals(1.2, defaultProvider.get(EURO, franc, 2100L).getFactor()
+				.doubleValue(), 1e-9);
+		assertNull(defaultProvider.get(EURO, franc, 1100L));
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.management.ObjectName;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.ExchangeRateMetrics;
+import net.java.javamoney.ri.convert.ExchangeRateMetricsRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Anatole Tresch
+ */
+public class JmxExchangeRateMetricsTest extends RITestBase {
+
+	private ExchangeRateMetrics previousMetrics;
+
+	@Before
+	public void saveMetrics() {
+		previousMetrics = ExchangeRateMetricsRegistry.getMetrics();
+	}
+
+	@After
+	public void restoreMetrics() {
+		ExchangeRateMetricsRegistry.setMetrics(previousMetrics);
+	}
+
+	@Test
+	public void testRecord() throws Exception {
+		JmxExchangeRateMetrics metrics = new JmxExchangeRateMetrics();
+		assertNull(metrics.getComponentMetrics("test-component"));
+		metrics.recordLookup("test-component", 1000L, true);
+		metrics.recordLookup("test-component", 3000L, false);
+		metrics.recordCacheAccess("test-component", true);
+		metrics.recordCacheAccess("test-component", true);
+		metrics.recordCacheAccess("test-component", false);
+		long now = System.currentTimeMillis();
+		metrics.recordLoad("test-component", 2000000L, Arrays.asList(
+				new CurrencyExchangeRate(TestExchangeRateProvider.TYPE, EURO,
+						DOLLAR, BigDecimal.ONE, now - 60000L, null),
+				new CurrencyExchangeRate(TestExchangeRateProvider.TYPE, EURO,
+						DOLLAR, BigDecimal.ONE, now - 1000L, null)));
+
+		ExchangeRateComponentMetricsMXBean bean = metrics
+				.getComponentMetrics("test-component");
+		assertEquals(2, bean.getLookupCount());
+		assertEquals(1, bean.getLookupMissCount());
+		assertEquals(2d / 3, bean.getCacheHitRatio(), 0.0001);
+		assertEquals(2, bean.getLastLoadDurationMillis());
+		assertEquals(2, bean.getLastLoadRateCount());
+		assertEquals(1, bean.getRateAgeMillis().size());
+		long age = bean.getMaxRateAgeMillis();
+		assertTrue(age >= 1000L && age < 60000L);
+
+		metrics.recordLoadFailure("test-component", 0L,
+				new IllegalStateException("feed down"));
+		assertEquals(1, bean.getLoadFailureCount());
+		assertTrue(bean.getLastLoadFailure().contains("feed down"));
+
+		ObjectName name = new ObjectName(JmxExchangeRateMetrics.DOMAIN
+				+ ":type=ExchangeRateMetrics,name="
+				+ ObjectName.quote("test-component"));
+		assertEquals(Long.valueOf(2), ManagementFactory
+				.getPlatformMBeanServer().getAttribute(name, "LookupCount"));
+	}
+
+	@Test
+	public void testNewInstanceReplacesBean() throws Exception {
+		JmxExchangeRateMetrics first = new JmxExchangeRateMetrics();
+		first.recordLookup("replaced-component", 1000L, true);
+		JmxExchangeRateMetrics second = new JmxExchangeRateMetrics();
+		second.recordLookup("replaced-component", 1000L, true);
+		second.recordLookup("replaced-component", 1000L, true);
+
+		ObjectName name = new ObjectName(JmxExchangeRateMetrics.DOMAIN
+				+ ":type=ExchangeRateMetrics,name="
+				+ ObjectName.quote("replaced-component"));
+		assertEquals(Long.valueOf(2), ManagementFactory
+				.getPlatformMBeanServer().getAttribute(name, "LookupCount"));
+	}
+
+	@Test
+	public void testDroppedPairsPruned() {
+		JmxExchangeRateMetrics metrics = new JmxExchangeRateMetrics();
+		long now = System.currentTimeMillis();
+		metrics.recordLoad("pruned-component", 0L, Arrays.asList(
+				new CurrencyExchangeRate(TestExchangeRateProvider.TYPE, EURO,
+						DOLLAR, BigDecimal.ONE, now - 60000L, null),
+				new CurrencyExchangeRate(TestExchangeRateProvider.TYPE, DOLLAR,
+						EURO, BigDecimal.ONE, now, null)));
+		ExchangeRateComponentMetricsMXBean bean = metrics
+				.getComponentMetrics("pruned-component");
+		assertEquals(2, bean.getRateAgeMillis().size());
+		assertTrue(bean.getMaxRateAgeMillis() >= 60000L);
+
+		metrics.recordLoad("pruned-component", 0L, Arrays.asList(
+				new CurrencyExchangeRate(TestExchangeRateProvider.TYPE, DOLLAR,
+						EURO, BigDecimal.ONE, now, null)));
+		assertEquals(1, bean.getRateAgeMillis().size());
+		assertTrue(bean.getMaxRateAgeMillis() < 60000L);
+	}
+
+	@Test
+	public void testConverterInstrumented() {
+		JmxExchangeRateMetrics metrics = new JmxExchangeRateMetrics();
+		ExchangeRateMetricsRegistry.setMetrics(metrics);
+		DefaultCurrencyConverter converter = new DefaultCurrencyConverter(
+				TestExchangeRateProvider.TYPE);
+		converter.convert(BigDecimal.ONE, EURO, DOLLAR);
+		assertEquals(1, metrics.getComponentMetrics(
+				"DefaultCurrencyConverter[test]").getConvertedAmountCount());
+	}
+
+}
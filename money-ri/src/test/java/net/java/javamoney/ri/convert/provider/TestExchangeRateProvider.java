@@ -0,0 +1,95 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.convert.provider;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.money.CurrencyUnit;
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateProvider;
+import javax.money.convert.ExchangeRateType;
+
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+
+/**
+ * Fixed rate provider for testing only, registered for the type
+ * {@code test}. It provides EUR/USD and CHF/USD rates and counts the lookups
+ * performed.
+ * 
+ * @author Anatole Tresch
+ */
+public class TestExchangeRateProvider implements ExchangeRateProvider {
+
+	public static final ExchangeRateType TYPE = SingletonExchangeRateType
+			.of("test");
+
+	public static final AtomicInteger LOOKUPS = new AtomicInteger();
+
+	@Override
+	public ExchangeRateType getExchangeRateType() {
+		return TYPE;
+	}
+
+	@Override
+	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target) {
+		return getFactor(src, target) != null;
+	}
+
+	@Override
+	public boolean isAvailable(CurrencyUnit src, CurrencyUnit target,
+			Long timestamp) {
+		return getFactor(src, target) != null;
+	}
+
+	@Override
+	public ExchangeRate get(CurrencyUnit source, CurrencyUnit target) {
+		return get(source, target, null);
+	}
+
+	@Override
+	public ExchangeRate get(CurrencyUnit source, CurrencyUnit target,
+			Long timestamp) {
+		LOOKUPS.incrementAndGet();
+		Double factor = getFactor(source, target);
+		if (factor == null) {
+			return null;
+		}
+		return new CurrencyExchangeRate(TYPE, source, target, factor,
+				timestamp, null);
+	}
+
+	private Double getFactor(CurrencyUnit source, CurrencyUnit target) {
+		String pair = source.getCurrencyCode() + '/' + target.getCurrencyCode();
+		if ("EUR/USD".equals(pair)) {
+			return 1.5d;
+		}
+		if ("USD/EUR".equals(pair)) {
+			return 0.5d;
+		}
+		if ("CHF/USD".equals(pair)) {
+			return 1.25d;
+		}
+		if (source.getCurrencyCode().equals(target.getCurrencyCode())) {
+			return 1.0d;
+		}
+		return null;
+	}
+
+}
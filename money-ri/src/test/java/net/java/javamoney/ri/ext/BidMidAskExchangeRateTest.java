@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2012, 2013, Credit Suisse (Anatole Tresch), Werner Keil.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * Contributors:
+ *    Anatole Tresch - initial implementation.
+ */
+package net.java.javamoney.ri.ext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import javax.money.convert.ExchangeRate;
+import javax.money.convert.ExchangeRateType;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.convert.CurrencyExchangeRate;
+import net.java.javamoney.ri.convert.SingletonExchangeRateType;
+
+import org.junit.Test;
+
+public class BidMidAskExchangeRateTest extends RITestBase {
+
+	private static final ExchangeRateType QUOTE = SingletonExchangeRateType
+			.of("QUOTE");
+
+	@Test
+	public void testConvert() {
+		BidMidAskExchangeRate rate = new BidMidAskExchangeRate(QUOTE, EURO,
+				DOLLAR, 1.25d, 1.5d);
+		assertEquals(1.375d, rate.getMid(), 0d);
+		assertEquals(0.25d, rate.getSpread(), 0d);
+		assertEquals(0.8d, rate.getInverseBid(), 1e-15d);
+		double[] result = new double[4];
+		rate.convert(100d, result, 1);
+		assertEquals(0d, result[0], 0d);
+		assertEquals(125d, result[1 + BidMidAskExchangeRate.BID_INDEX], 0d);
+		assertEquals(137.5d, result[1 + BidMidAskExchangeRate.MID_INDEX], 0d);
+		assertEquals(150d, result[1 + BidMidAskExchangeRate.ASK_INDEX], 0d);
+		rate.convertInverse(150d, result, 0);
+		assertEquals(120d, result[BidMidAskExchangeRate.BID_INDEX], 1e-12d);
+		assertEquals(100d, result[BidMidAskExchangeRate.ASK_INDEX], 1e-12d);
+		BigDecimal[] amounts = rate.convert(new BigDecimal("10.01"), 2);
+		assertEquals(new BigDecimal("12.51"), amounts[0]);
+		assertEquals(new BigDecimal("13.76"), amounts[1]);
+		assertEquals(new BigDecimal("15.02"), amounts[2]);
+	}
+
+	@Test
+	public void testCompoundItem() {
+		BidMidAskExchangeRate rate = new BidMidAskExchangeRate(
+				BidMidAskExchangeRate.TYPE, QUOTE, EURO, DOLLAR, 1.25d, 1.4d,
+				1.5d, 1000L, BidMidAskExchangeRate.NO_TIMESTAMP);
+		assertTrue(rate.isKeyDefined(BidMidAskExchangeRate.ASK));
+		assertFalse(rate.isKeyDefined("foo"));
+		assertEquals(3, rate.getAll().size());
+		ExchangeRate ask = rate.get(BidMidAskExchangeRate.ASK);
+		assertEquals(1.5d, ask.getFactor().doubleValue(), 0d);
+		assertEquals(Long.valueOf(1000L), ask.getTimestamp());
+		assertNull(ask.getValidUntil());
+		assertEquals(1.4d, rate.getLeadingItem().getFactor().doubleValue(), 0d);
+		BidMidAskExchangeRate reversed = rate.reverse();
+		assertEquals("USD", reversed.getSource().getCurrencyCode());
+		assertEquals(1d / 1.5d, reversed.getBid(), 0d);
+		assertEquals(1d / 1.25d, reversed.getAsk(), 0d);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUndefinedKey() {
+		new BidMidAskExchangeRate(QUOTE, EURO, DOLLAR, 1.25d, 1.5d).get("foo");
+	}
+
+	@Test
+	public void testFromBuilder() {
+		CompoundExchangeRateBuilder builder = CompoundExchangeRate
+				.getBuilder(BidMidAskExchangeRate.TYPE);
+		builder.set(BidMidAskExchangeRate.BID, new CurrencyExchangeRate(QUOTE,
+				EURO, DOLLAR, new BigDecimal("1.2"), 5000L, 6000L));
+		builder.set(BidMidAskExchangeRate.ASK, new CurrencyExchangeRate(QUOTE,
+				EURO, DOLLAR, new BigDecimal("1.3"), 5000L, 6000L));
+		BidMidAskExchangeRate rate = builder.toBidMidAskExchangeRate();
+		assertEquals(1.2d, rate.getBid(), 0d);
+		assertEquals(1.25d, rate.getMid(), 1e-15d);
+		assertEquals(1.3d, rate.getAsk(), 0d);
+		assertEquals(5000L, rate.getTimestampMillis());
+		assertEquals(6000L, rate.getValidUntilMillis());
+		BidMidAskExchangeRate copy = rate.toBuilder()
+				.toBidMidAskExchangeRate();
+		assertEquals(rate.getMid(), copy.getMid(), 0d);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFromBuilderMismatch() {
+		CompoundExchangeRateBuilder builder = CompoundExchangeRate
+				.getBuilder(BidMidAskExchangeRate.TYPE);
+		builder.set(BidMidAskExchangeRate.BID, new CurrencyExchangeRate(QUOTE,
+				EURO, DOLLAR, 1.2d));
+		builder.set(BidMidAskExchangeRate.ASK, new CurrencyExchangeRate(QUOTE,
+				DOLLAR, EURO, 0.8d));
+		builder.toBidMidAskExchangeRate();
+	}
+
+}
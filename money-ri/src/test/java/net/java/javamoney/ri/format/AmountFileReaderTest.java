@@ -0,0 +1,145 @@
+package net.java.javamoney.ri.format;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.money.CurrencyUnit;
+import javax.money.format.common.ParseException;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.convert.PositionSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AmountFileReaderTest extends RITestBase {
+
+	private File file;
+
+	@After
+	public void deleteFile() {
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	private File write(String content) throws IOException {
+		file = File.createTempFile("amounts", ".txt");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("ISO-8859-1"));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testReadCsv() throws Exception {
+		StringBuilder b = new StringBuilder("id;amount;currency\r\n");
+		for (int i = 0; i < 1000; i++) {
+			b.append(i).append(';').append(i % 2 == 0 ? "\"-" : " ")
+					.append(i).append('.').append(i % 100)
+					.append(i % 2 == 0 ? "\"" : " ").append(';')
+					.append(i % 3 == 0 ? "EUR" : "USD").append("\r\n");
+			if (i % 100 == 0) {
+				b.append("\r\n");
+			}
+		}
+		write(b.toString());
+		for (int chunkSize : new int[] { 1, 7, 64, 1000, 1 << 20 }) {
+			PositionSet positions = AmountFileReader.delimited(';', 1, 2)
+					.setHeaderLines(1).setChunkSize(chunkSize).read(file);
+			assertEquals(1000, positions.size());
+			for (int i = 0; i < 1000; i++) {
+				BigDecimal expected = new BigDecimal(i + "." + (i % 100));
+				assertEquals(i % 2 == 0 ? expected.negate() : expected,
+						positions.getAmount(i));
+				assertEquals(i % 3 == 0 ? EURO.getCurrencyCode()
+						: DOLLAR.getCurrencyCode(), positions.getCurrency(i)
+						.getCurrencyCode());
+			}
+		}
+	}
+
+	@Test
+	public void testReadFixedWidth() throws Exception {
+		write("CHF     1'234.50\n" + "EUR       -12.00\n" + "USD         0.01");
+		DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.ENGLISH);
+		symbols.setGroupingSeparator('\'');
+		PositionSet positions = AmountFileReader.fixedWidth(3, 13, 0, 3)
+				.setSymbols(symbols, true).setChunkSize(10).read(file);
+		assertEquals(3, positions.size());
+		assertEquals(new BigDecimal("1234.50"), positions.getAmount(0));
+		assertEquals("CHF", positions.getCurrency(0).getCurrencyCode());
+		assertEquals(new BigDecimal("-12.00"), positions.getAmount(1));
+		assertEquals(new BigDecimal("0.01"), positions.getAmount(2));
+		assertEquals("USD", positions.getCurrency(2).getCurrencyCode());
+	}
+
+	@Test
+	public void testReadWithHandler() throws Exception {
+		write("1.5,EUR\n2.5,EUR\n3,USD\n");
+		final ConcurrentMap<Long, BigDecimal> amounts = new ConcurrentHashMap<Long, BigDecimal>();
+		AmountFileReader.delimited(',', 0, 1).setChunkSize(4)
+				.read(file, new AmountFileReader.AmountHandler() {
+					@Override
+					public void amountRead(long offset, CurrencyUnit currency,
+							BigDecimal amount) {
+						amounts.put(Long.valueOf(offset), amount);
+					}
+				});
+		assertEquals(3, amounts.size());
+		assertEquals(new BigDecimal("1.5"), amounts.get(Long.valueOf(0)));
+		assertEquals(new BigDecimal("2.5"), amounts.get(Long.valueOf(8)));
+		assertEquals(new BigDecimal("3"), amounts.get(Long.valueOf(16)));
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		write("");
+		assertEquals(0, AmountFileReader.delimited(',', 0, 1).read(file)
+				.size());
+	}
+
+	@Test
+	public void testInvalidAmount() throws Exception {
+		write("1.5,EUR\n1.5x,EUR\n");
+		try {
+			AmountFileReader.delimited(',', 0, 1).setChunkSize(1).read(file);
+		} catch (ParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("offset 8"));
+			return;
+		}
+		throw new AssertionError("ParseException expected.");
+	}
+
+	@Test
+	public void testAmountOutOfRange() throws Exception {
+		write("1.5,EUR\n123456789012345678901234567.89,EUR\n");
+		try {
+			AmountFileReader.delimited(',', 0, 1).read(file);
+		} catch (ParseException e) {
+			assertTrue(e.getMessage(),
+					e.getMessage().startsWith("Amount out of range at offset 8"));
+			return;
+		}
+		throw new AssertionError("ParseException expected.");
+	}
+
+	@Test(expected = ParseException.class)
+	public void testInvalidCurrency() throws Exception {
+		write("1.5,XYZ\n");
+		AmountFileReader.delimited(',', 0, 1).read(file);
+	}
+
+}
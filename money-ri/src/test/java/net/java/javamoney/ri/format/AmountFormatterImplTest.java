@@ -0,0 +1,84 @@
+package net.java.javamoney.ri.format;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import javax.money.MonetaryAmount;
+import javax.money.format.common.LocalizationStyle;
+
+import net.java.javamoney.ri.RITestBase;
+import net.java.javamoney.ri.core.Money;
+
+import org.junit.Test;
+
+public class AmountFormatterImplTest extends RITestBase {
+
+	private final AmountFormatterImpl formatter = new AmountFormatterImpl(
+			LocalizationStyle.of(Locale.GERMANY));
+
+	private final MonetaryAmount[] amounts = new MonetaryAmount[] {
+			Money.valueOf(EURO, 1234.5), Money.valueOf(DOLLAR, -0.25),
+			Money.valueOf(EURO, 1000000) };
+
+	@Test
+	public void testFormat() throws IOException {
+		assertEquals("EUR 1.234,5", formatter.format(amounts[0]));
+		assertEquals("-0,25", formatter.formatNumber(amounts[1]));
+		StringBuilder builder = new StringBuilder();
+		formatter.print(builder, amounts[2]);
+		assertEquals("EUR 1.000.000", builder.toString());
+	}
+
+	@Test
+	public void testPrintArray() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		formatter.print(builder, amounts, "; ");
+		assertEquals("EUR 1.234,5; USD -0,25; EUR 1.000.000",
+				builder.toString());
+		builder.setLength(0);
+		formatter.print(builder, new MonetaryAmount[0], "; ");
+		assertEquals("", builder.toString());
+	}
+
+	@Test
+	public void testPrintIterable() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		formatter.print(builder, Arrays.asList(amounts), "\n");
+		assertEquals("EUR 1.234,5\nUSD -0,25\nEUR 1.000.000",
+				builder.toString());
+		builder.setLength(0);
+		formatter.print(builder, Collections.<MonetaryAmount> emptyList(),
+				"\n");
+		assertEquals("", builder.toString());
+	}
+
+	@Test
+	public void testFormatArray() {
+		String[] result = formatter.format(amounts, null);
+		assertEquals(amounts.length, result.length);
+		for (int i = 0; i < amounts.length; i++) {
+			assertEquals(formatter.format(amounts[i]), result[i]);
+		}
+		String[] target = new String[amounts.length + 1];
+		assertSame(target, formatter.format(amounts, target));
+		assertEquals("USD -0,25", target[1]);
+		assertEquals(null, target[amounts.length]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFormatArrayTooSmall() {
+		formatter.format(amounts, new String[1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPrintNullElement() throws IOException {
+		formatter.print(new StringBuilder(),
+				new MonetaryAmount[] { amounts[0], null }, ",");
+	}
+
+}
@@ -0,0 +1,61 @@
+package net.java.javamoney.ri.format;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+import javax.money.MonetaryAmount;
+import javax.money.format.common.LocalizationStyle;
+import javax.money.format.common.ParseException;
+
+import net.java.javamoney.ri.RITestBase;
+
+import org.junit.Test;
+
+public class AmountParserImplTest extends RITestBase {
+
+	@Test
+	public void testParse() throws ParseException {
+		AmountParserImpl parser = new AmountParserImpl(
+				LocalizationStyle.of(Locale.GERMANY));
+		MonetaryAmount amount = parser.parse("EUR 1.234,50");
+		assertEquals(EURO.getCurrencyCode(), amount.getCurrency()
+				.getCurrencyCode());
+		assertEquals(new BigDecimal("1234.50"), amount.asType(BigDecimal.class));
+		amount = parser.parse(" -0,5 USD ");
+		assertEquals(DOLLAR.getCurrencyCode(), amount.getCurrency()
+				.getCurrencyCode());
+		assertEquals(new BigDecimal("-0.5"), amount.asType(BigDecimal.class));
+		amount = parser.parse("CHF 123.45", LocalizationStyle.of(Locale.CHINA));
+		assertEquals(new BigDecimal("123.45"), amount.asType(BigDecimal.class));
+	}
+
+	@Test
+	public void testParseNumber() throws ParseException {
+		AmountParserImpl parser = new AmountParserImpl(
+				LocalizationStyle.of(Locale.ENGLISH));
+		MonetaryAmount amount = parser.parseNumber("1,000,000.01", DOLLAR);
+		assertEquals(new BigDecimal("1000000.01"),
+				amount.asType(BigDecimal.class));
+		assertEquals(DOLLAR.getCurrencyCode(), amount.getCurrency()
+				.getCurrencyCode());
+	}
+
+	@Test(expected = ParseException.class)
+	public void testUnknownCurrency() throws ParseException {
+		new AmountParserImpl(LocalizationStyle.of(Locale.ENGLISH))
+				.parse("XYZ 12");
+	}
+
+	@Test(expected = ParseException.class)
+	public void testMissingCurrency() throws ParseException {
+		new AmountParserImpl(LocalizationStyle.of(Locale.ENGLISH)).parse("12");
+	}
+
+	@Test(expected = ParseException.class)
+	public void testInvalidNumber() throws ParseException {
+		new AmountParserImpl(LocalizationStyle.of(Locale.ENGLISH))
+				.parseNumber("12..5", EURO);
+	}
+}
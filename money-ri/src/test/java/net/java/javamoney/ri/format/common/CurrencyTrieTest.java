@@ -0,0 +1,69 @@
+package net.java.javamoney.ri.format.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.text.ParsePosition;
+
+import javax.money.CurrencyUnit;
+
+import net.java.javamoney.ri.core.MoneyCurrency;
+
+import org.junit.Test;
+
+public class CurrencyTrieTest {
+
+	private static final CurrencyUnit CHF = MoneyCurrency.getInstance("CHF");
+	private static final CurrencyUnit USD = MoneyCurrency.getInstance("USD");
+	private static final CurrencyUnit CAD = MoneyCurrency.getInstance("CAD");
+
+	private CurrencyTrie createTrie() {
+		CurrencyTrie.Builder builder = new CurrencyTrie.Builder();
+		assertTrue(builder.add("CHF", CHF));
+		assertTrue(builder.add("$", USD));
+		assertTrue(builder.add("CA$", CAD));
+		assertTrue(builder.add("US Dollar", USD));
+		assertFalse(builder.add("$", CAD));
+		assertFalse(builder.add("", CAD));
+		return builder.build();
+	}
+
+	@Test
+	public void testMatchLongest() {
+		CurrencyTrie trie = createTrie();
+		assertEquals(4, trie.size());
+		ParsePosition pos = new ParsePosition(2);
+		assertEquals(CAD, trie.match("12CA$ 3", pos));
+		assertEquals(5, pos.getIndex());
+		pos = new ParsePosition(0);
+		assertEquals(USD, trie.match("$12", pos));
+		assertEquals(1, pos.getIndex());
+		pos = new ParsePosition(0);
+		assertEquals(USD, trie.match("US Dollars", pos));
+		assertEquals(9, pos.getIndex());
+	}
+
+	@Test
+	public void testNoMatch() {
+		CurrencyTrie trie = createTrie();
+		ParsePosition pos = new ParsePosition(1);
+		assertNull(trie.match(" CH", pos));
+		assertEquals(1, pos.getIndex());
+		assertEquals(1, pos.getErrorIndex());
+		pos = new ParsePosition(0);
+		assertNull(trie.match("US", pos));
+		assertEquals(0, pos.getErrorIndex());
+	}
+
+	@Test
+	public void testGet() {
+		CurrencyTrie trie = createTrie();
+		assertEquals(CHF, trie.get("CHF"));
+		assertEquals(USD, trie.get("$"));
+		assertNull(trie.get("CA"));
+		assertNull(trie.get("CHFX"));
+	}
+
+}
@@ -0,0 +1,92 @@
+package net.java.javamoney.ri.format.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+
+import javax.money.format.common.LocalizationStyle;
+import javax.money.format.common.ParseException;
+
+import org.junit.Test;
+
+public class DecimalParserTest {
+
+	private static final DecimalParser ENGLISH = new DecimalParser(
+			DecimalFormatSymbols.getInstance(Locale.ENGLISH), true);
+
+	@Test
+	public void testParse() throws ParseException {
+		assertEquals(new BigDecimal("1234.50"), ENGLISH.parse("1,234.50"));
+		assertEquals(new BigDecimal("-0.5"), ENGLISH.parse(" -.5 "));
+		assertEquals(new BigDecimal("12"), ENGLISH.parse("+12."));
+		assertEquals(new BigDecimal("0.000000000000000000001"),
+				ENGLISH.parse("0.000000000000000000001"));
+		assertEquals(new BigDecimal("123456789012345678.9"),
+				ENGLISH.parse("123456789012345678.9"));
+		assertEquals(new BigDecimal(
+				"-12345678901234567890123456789.123456789"),
+				ENGLISH.parse("-12,345,678,901,234,567,890,123,456,789.123456789"));
+	}
+
+	@Test
+	public void testParsePosition() {
+		ParsePosition position = new ParsePosition(4);
+		assertEquals(new BigDecimal("1000"),
+				ENGLISH.parse("CHF 1,000, rest", position));
+		assertEquals(9, position.getIndex());
+		position = new ParsePosition(0);
+		assertNull(ENGLISH.parse("CHF", position));
+		assertEquals(0, position.getErrorIndex());
+	}
+
+	@Test
+	public void testLocales() throws ParseException {
+		DecimalParser german = new DecimalParser(
+				DecimalFormatSymbols.getInstance(Locale.GERMANY), true);
+		assertEquals(new BigDecimal("1234567.891"),
+				german.parse("1.234.567,891"));
+		DecimalParser french = new DecimalParser(
+				DecimalFormatSymbols.getInstance(Locale.FRANCE), true);
+		assertEquals(new BigDecimal("1234.5"), french.parse("1 234,5"));
+		DecimalFormat format = (DecimalFormat) DecimalFormat
+				.getInstance(Locale.FRANCE);
+		assertEquals(new BigDecimal("-1234567.25"),
+				french.parse(format.format(-1234567.25d)));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testGroupingNotUsed() throws ParseException {
+		new DecimalParser(DecimalFormatSymbols.getInstance(Locale.ENGLISH),
+				false).parse("1,234");
+	}
+
+	@Test(expected = ParseException.class)
+	public void testTrailingCharacters() throws ParseException {
+		ENGLISH.parse("12.5x");
+	}
+
+	@Test
+	public void testParseContext() throws ParseException {
+		ParseContext context = new ParseContext("  12.5 CHF",
+				LocalizationStyle.of(Locale.ENGLISH));
+		assertEquals(new BigDecimal("12.5"), ENGLISH.parse(context));
+		assertEquals(6, context.getPosition());
+		assertEquals("CHF", context.getNextToken());
+		context.skipWhitespaces();
+		assertTrue(context.consume("CHF"));
+		assertTrue(context.isComplete());
+	}
+
+	@Test
+	public void testIsSupported() {
+		assertTrue(DecimalParser.isSupported(new DecimalFormat("#,##0.00")));
+		assertTrue(!DecimalParser.isSupported(new DecimalFormat("¤ #,##0.00")));
+		assertTrue(!DecimalParser.isSupported(new DecimalFormat("#0%")));
+	}
+}
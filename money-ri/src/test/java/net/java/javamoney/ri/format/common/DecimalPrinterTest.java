@@ -0,0 +1,116 @@
+package net.java.javamoney.ri.format.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+import org.junit.Test;
+
+public class DecimalPrinterTest {
+
+	private static final String[] PATTERNS = new String[] { "#0.0#",
+			"#,##0.00", "#,##0.###", "0", "#.##", "000.000", "#,##0.00;(#)",
+			"¤ #,##0.00", "#,##0.00 CHF", "#,####0.0#" };
+
+	private static final Number[] NUMBERS = new Number[] {
+			new BigDecimal("0"), new BigDecimal("0.00"),
+			new BigDecimal("-0.001"), new BigDecimal("1"),
+			new BigDecimal("-1"), new BigDecimal("0.5"),
+			new BigDecimal("0.005"), new BigDecimal("0.015"),
+			new BigDecimal("0.025"), new BigDecimal("12.3456"),
+			new BigDecimal("-1234.5"), new BigDecimal("1234567.891"),
+			new BigDecimal("1.2E+3"), new BigDecimal("1000.000"),
+			new BigDecimal("123456789012345678901234567890.123456"),
+			new BigDecimal("-0.0000001"), 0L, -7L, 123456789L,
+			Long.MAX_VALUE, Long.MIN_VALUE, 42, (short) -12, (byte) 7,
+			BigInteger.TEN.pow(25), 0d, -0d, -0.5d, 1.005d, 0.1d, 2.675d,
+			123456789.123456789d, -9876.54321d, 1e15d, 3.5f };
+
+	private static void assertSameAsDecimalFormat(DecimalFormat format)
+			throws IOException {
+		DecimalPrinter printer = new DecimalPrinter(format);
+		for (Number number : NUMBERS) {
+			StringBuilder builder = new StringBuilder();
+			printer.print(builder, number);
+			assertEquals(format.toPattern() + ": " + number,
+					format.format(number), builder.toString());
+		}
+	}
+
+	@Test
+	public void testPatterns() throws IOException {
+		for (String pattern : PATTERNS) {
+			assertSameAsDecimalFormat(new DecimalFormat(pattern,
+					DecimalFormatSymbols.getInstance(Locale.ENGLISH)));
+		}
+	}
+
+	@Test
+	public void testLocales() throws IOException {
+		for (Locale locale : new Locale[] { Locale.ENGLISH, Locale.GERMANY,
+				Locale.FRANCE, new Locale("de", "CH"), new Locale("ar", "EG"),
+				new Locale("hi", "IN") }) {
+			assertSameAsDecimalFormat((DecimalFormat) NumberFormat
+					.getInstance(locale));
+			assertSameAsDecimalFormat((DecimalFormat) NumberFormat
+					.getCurrencyInstance(locale));
+		}
+	}
+
+	@Test
+	public void testRoundingModes() throws IOException {
+		DecimalFormat format = new DecimalFormat("#,##0.00",
+				DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+		for (RoundingMode mode : new RoundingMode[] { RoundingMode.HALF_UP,
+				RoundingMode.DOWN, RoundingMode.CEILING }) {
+			format.setRoundingMode(mode);
+			assertSameAsDecimalFormat(format);
+		}
+		format.setRoundingMode(RoundingMode.HALF_EVEN);
+		format.setDecimalSeparatorAlwaysShown(true);
+		format.setMaximumFractionDigits(0);
+		format.setMinimumFractionDigits(0);
+		assertSameAsDecimalFormat(format);
+	}
+
+	@Test
+	public void testGrouper() throws IOException {
+		DecimalFormat format = new DecimalFormat("#0.0#",
+				DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+		DecimalPrinter printer = new DecimalPrinter(format,
+				new StringGrouper(new char[] { ',', '\'' }, 2, 2, 3));
+		StringBuilder builder = new StringBuilder();
+		printer.print(builder, new BigDecimal("-123456789.125"));
+		assertEquals("-12'345'67,89.12", builder.toString());
+		printer = new DecimalPrinter(format, new StringGrouper(',', 3, 2));
+		CharBuffer buffer = CharBuffer.allocate(32);
+		printer.print(buffer, 1234567L);
+		buffer.flip();
+		assertEquals("12,34,567.0", buffer.toString());
+	}
+
+	@Test
+	public void testIsSupported() {
+		assertTrue(DecimalPrinter.isSupported(new DecimalFormat("#,##0.00")));
+		assertFalse(DecimalPrinter.isSupported(new DecimalFormat("0.###E0")));
+		assertFalse(DecimalPrinter.isSupported(new DecimalFormat("#0%")));
+		assertFalse(DecimalPrinter.isSupported(null));
+		assertFalse(DecimalPrinter.canPrint(Double.NaN));
+		assertTrue(DecimalPrinter.canPrint(BigDecimal.ONE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupported() {
+		new DecimalPrinter(new DecimalFormat("0.###E0"));
+	}
+}
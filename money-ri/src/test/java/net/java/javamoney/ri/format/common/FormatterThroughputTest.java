@@ -0,0 +1,149 @@
+package net.java.javamoney.ri.format.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.money.format.common.LocalizationStyle;
+import javax.money.format.common.StyleableFormatter;
+
+import net.java.javamoney.ri.format.token.FormattedNumber;
+
+import org.junit.Test;
+
+public class FormatterThroughputTest {
+
+	private static final int FORMATS_PER_RUN = 64000;
+
+	private static StyleableFormatter<BigDecimal> createFormatter() {
+		TokenizedFormatterBuilder<BigDecimal> b = new TokenizedFormatterBuilder<BigDecimal>(
+				BigDecimal.class);
+		b.addToken("CHF ");
+		b.addToken(new FormattedNumber<BigDecimal>(new DecimalFormat(
+				"#,##0.00")).setNumberGroupChars('\'').setNumberGroupSizes(3));
+		return b.toStyleableFormatter();
+	}
+
+	private static BigDecimal amount(int i) {
+		return BigDecimal.valueOf(i * 7919L, 2);
+	}
+
+	private static String expected(int i) {
+		DecimalFormat format = new DecimalFormat("#,##0.00");
+		return "CHF "
+				+ format.format(amount(i)).replace(
+						format.getDecimalFormatSymbols()
+								.getGroupingSeparator(), '\'');
+	}
+
+	/**
+	 * Formats with one shared formatter from the given number of threads.
+	 * 
+	 * @return the number of formats per second.
+	 */
+	private static long run(final StyleableFormatter<BigDecimal> formatter,
+			final LocalizationStyle style, int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final int perThread = FORMATS_PER_RUN / threads;
+			final CountDownLatch start = new CountDownLatch(1);
+			Future<?>[] results = new Future<?>[threads];
+			for (int t = 0; t < threads; t++) {
+				final int offset = t * perThread;
+				results[t] = executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						start.await();
+						StringBuilder builder = new StringBuilder();
+						for (int i = offset; i < offset + perThread; i++) {
+							builder.setLength(0);
+							formatter.print(builder, amount(i), style);
+							if (i % 1000 == 0) {
+								assertEquals(expected(i), builder.toString());
+							}
+						}
+						return null;
+					}
+				});
+			}
+			long begin = System.nanoTime();
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get();
+			}
+			long duration = System.nanoTime() - begin;
+			return (long) (perThread * threads * 1e9d / duration);
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testSharedFormatterThroughput() throws Exception {
+		StyleableFormatter<BigDecimal> formatter = createFormatter();
+		LocalizationStyle style = LocalizationStyle.of(Locale.ENGLISH);
+		// warm up
+		run(formatter, style, 8);
+		for (int threads : new int[] { 1, 8, 64 }) {
+			long throughput = run(formatter, style, threads);
+			System.out.println("Throughput for " + FORMATS_PER_RUN
+					+ " formats with " + threads + " thread(s): "
+					+ throughput + " formats/s");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCompiledFormatterThroughput() throws Exception {
+		TokenizedFormatterBuilder<BigDecimal> b = new TokenizedFormatterBuilder<BigDecimal>(
+				BigDecimal.class);
+		b.addToken("CH");
+		b.addToken("F ");
+		b.addToken(new FormattedNumber<BigDecimal>(new DecimalFormat(
+				"#,##0.00")).setNumberGroupChars('\'').setNumberGroupSizes(3));
+		LocalizationStyle style = LocalizationStyle.of(Locale.ENGLISH);
+		StyleableFormatter<BigDecimal> tokenized = b.toStyleableFormatter();
+		List<FormatterToken<BigDecimal>> tokens = Collections.list(b
+				.getTokens());
+		StyleableFormatter<BigDecimal> compiled = new CompiledItemFormatter<BigDecimal>(
+				BigDecimal.class,
+				tokens.toArray(new FormatterToken[tokens.size()]), style);
+		// warm up
+		for (int i = 0; i < 5; i++) {
+			run(tokenized, style, 1);
+			run(compiled, style, 1);
+		}
+		System.out.println("Throughput for " + FORMATS_PER_RUN
+				+ " formats, tokenized: " + run(tokenized, style, 1)
+				+ " formats/s, compiled: " + run(compiled, style, 1)
+				+ " formats/s");
+	}
+
+	@Test
+	public void testStyleCache() {
+		StyleCache<String> cache = new StyleCache<String>(2);
+		LocalizationStyle style = new LocalizationStyle("test",
+				Locale.GERMAN);
+		assertSame("a", cache.put(style, "a"));
+		assertSame("a", cache.put(style, "b"));
+		assertEquals("a", cache.get(new LocalizationStyle("test",
+				Locale.GERMAN)));
+		style.setNumberLocale(Locale.FRENCH);
+		assertEquals(null, cache.get(style));
+		cache.put(style, "c");
+		cache.put(LocalizationStyle.of(Locale.ENGLISH), "d");
+		assertEquals(1, cache.size());
+	}
+}
@@ -1,5 +1,8 @@
 package net.java.javamoney.ri.format.common;
 
+import java.io.IOException;
+import java.util.Random;
+
 import junit.framework.Assert;
 
 import net.java.javamoney.ri.format.common.StringGrouper;
@@ -148,4 +151,108 @@ public class StringGrouperTest {
 		Assert.assertEquals("1'234-56=7-89@01@23@45@67", token.group("12345678901234567"));
 	}
 	
+	@Test
+	public void testIndian() {
+		StringGrouper token = new StringGrouper(',', 3, 2);
+		Assert.assertEquals("1,23,45,67,890", token.group("1234567890"));
+		Assert.assertEquals("12,34,567", token.group("1234567"));
+		Assert.assertEquals("1,000", token.group("1000"));
+		Assert.assertEquals("100", token.group("100"));
+		Assert.assertEquals("", token.group(""));
+	}
+
+	@Test
+	public void testBadSizes() {
+		Assert.assertEquals("123456789",
+				new StringGrouper('\'', 0).group("123456789"));
+		Assert.assertEquals("123456789",
+				new StringGrouper('\'', 3, 0).group("123456789"));
+		Assert.assertEquals("123", new StringGrouper('\'', 3, 0)
+				.group("123"));
+		Assert.assertEquals("123456789",
+				new StringGrouper(new char[0], 3).group("123456789"));
+	}
+
+	@Test
+	public void testGroupAppendable() throws IOException {
+		StringBuilder builder = new StringBuilder("x");
+		new StringGrouper(',', 3, 2).group("-1234567.89", 1, 8,
+				builder.append('-'));
+		Assert.assertEquals("x-12,34,567", builder.toString());
+		builder.setLength(0);
+		new StringGrouper('\'', 2).setReverse(true).group("12345", builder);
+		Assert.assertEquals("12'34'5", builder.toString());
+	}
+
+	@Test
+	public void testCompareWithInsertAlgorithm() {
+		Random random = new Random(42);
+		char[] chars = { '\'', '-', ',' };
+		for (int i = 0; i < 2000; i++) {
+			int[] sizes = new int[1 + random.nextInt(4)];
+			for (int j = 0; j < sizes.length; j++) {
+				sizes[j] = 1 + random.nextInt(4);
+			}
+			StringBuilder input = new StringBuilder();
+			for (int j = random.nextInt(40); j > 0; j--) {
+				input.append((char) ('0' + random.nextInt(10)));
+			}
+			StringGrouper grouper = new StringGrouper(chars, sizes)
+					.setReverse(random.nextBoolean());
+			Assert.assertEquals(insertGroup(grouper, input.toString()),
+					grouper.group(input.toString()));
+		}
+	}
+
+	/**
+	 * The former grouping algorithm, building the result using
+	 * {@code insert(0, ...)}, used as reference.
+	 */
+	private static String insertGroup(StringGrouper grouper, String input) {
+		char[] groupCharacters = grouper.getGroupChars();
+		int[] groupSizes = grouper.getGroupSizes();
+		if (groupSizes.length == 0 || groupCharacters.length == 0) {
+			return input;
+		}
+		int groupIndex = 0;
+		int sizeIndex = 0;
+		char groupChar = groupCharacters[groupIndex];
+		int groupSize = groupSizes[sizeIndex];
+		StringBuilder result = new StringBuilder(input.length() + 4);
+		if (grouper.isReverse()) {
+			int pos = 0;
+			while (pos < input.length()) {
+				if (result.length() > 0) {
+					result.append(groupChar);
+					if (groupIndex < (groupCharacters.length - 1)) {
+						groupChar = groupCharacters[++groupIndex];
+					}
+				}
+				int end = Math.min(pos + groupSize, input.length());
+				result.append(input, pos, end);
+				pos = end;
+				if (sizeIndex < (groupSizes.length - 1)) {
+					groupSize = groupSizes[++sizeIndex];
+				}
+			}
+			return result.toString();
+		}
+		int pos = input.length();
+		while (pos > 0) {
+			if (result.length() > 0) {
+				result.insert(0, groupChar);
+				if (groupIndex < (groupCharacters.length - 1)) {
+					groupChar = groupCharacters[++groupIndex];
+				}
+			}
+			int start = Math.max(pos - groupSize, 0);
+			result.insert(0, input.substring(start, pos));
+			pos = start;
+			if (sizeIndex < (groupSizes.length - 1)) {
+				groupSize = groupSizes[++sizeIndex];
+			}
+		}
+		return result.toString();
+	}
+
 }
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Enumeration;
@@ -14,6 +15,9 @@ import javax.money.format.common.LocalizationStyle;
 import javax.money.format.common.StyleableFormatter;
 import javax.money.format.common.StyledFormatter;
 
+import net.java.javamoney.ri.core.Money;
+import net.java.javamoney.ri.format.token.CurrencyToken;
+import net.java.javamoney.ri.format.token.FormattedAmount;
 import net.java.javamoney.ri.format.token.FormattedNumber;
 import net.java.javamoney.ri.format.token.Literal;
 
@@ -74,6 +78,39 @@ public class TokenizedFormatterBuilderTest {
 						LocalizationStyle.of(Locale.FRENCH)));
 	}
 
+	@Test
+	public void testFormatAmount() throws IOException {
+		TokenizedFormatterBuilder<Money> b = new TokenizedFormatterBuilder<Money>(
+				Money.class);
+		b.addToken(new CurrencyToken<Money>()
+				.setDisplayType(CurrencyToken.DisplayType.FULLCODE));
+		b.addToken(" ");
+		b.addToken(new FormattedAmount<Money>().setNumberGroupChars('\'')
+				.setNumberGroupSizes(3));
+		StyledFormatter<Money> f = b.toFormatter(LocalizationStyle
+				.of(Locale.GERMAN));
+		Money amount = Money.valueOf("CHF", new BigDecimal("-1234567.891"));
+		assertEquals("ISO-4217:CHF -1'234'567,891", f.format(amount));
+		StringBuilder builder = new StringBuilder("x");
+		f.print(builder, amount);
+		assertEquals("xISO-4217:CHF -1'234'567,891", builder.toString());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCompiledItemFormatter() throws IOException {
+		FormatterToken<Double>[] tokens = new FormatterToken[] {
+				new Literal<Double>("a"), new Literal<Double>("b "),
+				new FormattedNumber<Double>(), new Literal<Double>(" c") };
+		LocalizationStyle style = LocalizationStyle.of(Locale.GERMAN);
+		CompiledItemFormatter<Double> f = new CompiledItemFormatter<Double>(
+				Double.class, tokens, style);
+		assertEquals(3, f.getStepCount());
+		assertEquals("ab 1.234,5 c", f.format(1234.5d, style));
+		assertEquals("ab 1,234.5 c",
+				f.format(1234.5d, LocalizationStyle.of(Locale.ENGLISH)));
+	}
+
 	@Test
 	public void testGetTokens() {
 		TokenizedFormatterBuilder<Double> b = new TokenizedFormatterBuilder<Double>(
@@ -0,0 +1,65 @@
+package net.java.javamoney.ri.format.token;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+
+import javax.money.CurrencyUnit;
+import javax.money.MonetaryAmount;
+import javax.money.format.common.LocalizationStyle;
+import javax.money.format.common.ParseException;
+
+import net.java.javamoney.ri.format.common.ParseContext;
+import net.java.javamoney.ri.format.token.CurrencyToken.DisplayType;
+
+import org.junit.Test;
+
+public class CurrencyTokenTest {
+
+	private static CurrencyUnit parse(DisplayType type, String text,
+			int expectedPosition) throws ParseException {
+		ParseContext context = new ParseContext(text,
+				LocalizationStyle.of(Locale.US));
+		new CurrencyToken<MonetaryAmount>().setDisplayType(type).parse(
+				context);
+		assertEquals(expectedPosition, context.getPosition());
+		return context.getAttribute(CurrencyUnit.class);
+	}
+
+	@Test
+	public void testParseCode() throws ParseException {
+		assertEquals("CHF", parse(DisplayType.CODE, " CHF 12", 4)
+				.getCurrencyCode());
+		assertEquals("EUR", parse(DisplayType.FULLCODE, "ISO-4217:EUR", 12)
+				.getCurrencyCode());
+	}
+
+	@Test
+	public void testParseSymbolAndName() throws ParseException {
+		assertEquals("USD", parse(DisplayType.SYMBOL, "$12", 1)
+				.getCurrencyCode());
+		assertEquals("USD", parse(DisplayType.NAME, "US Dollar 12", 9)
+				.getCurrencyCode());
+		assertEquals("EUR", parse(DisplayType.NAME, "Euro", 4)
+				.getCurrencyCode());
+	}
+
+	@Test
+	public void testParseNumericCode() throws ParseException {
+		assertEquals("EUR", parse(DisplayType.NUMERIC_CODE, "978", 3)
+				.getCurrencyCode());
+		assertEquals("ALL", parse(DisplayType.NUMERIC_CODE, "008 12", 3)
+				.getCurrencyCode());
+	}
+
+	@Test(expected = ParseException.class)
+	public void testParseNumericCodeWithinNumber() throws ParseException {
+		parse(DisplayType.NUMERIC_CODE, "97812", 0);
+	}
+
+	@Test(expected = ParseException.class)
+	public void testParseUnknown() throws ParseException {
+		parse(DisplayType.CODE, "12 CHF", 0);
+	}
+
+}